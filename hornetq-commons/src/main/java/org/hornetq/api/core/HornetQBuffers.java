@@ -15,7 +15,10 @@ package org.hornetq.api.core;
 
 import java.nio.ByteBuffer;
 
+import org.hornetq.core.buffers.impl.BufferPool;
 import org.hornetq.core.buffers.impl.ChannelBufferWrapper;
+import org.hornetq.core.buffers.impl.PooledChannelBufferWrapper;
+import org.hornetq.utils.ReferenceCounter;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 
@@ -36,6 +39,35 @@ public final class HornetQBuffers
       return new ChannelBufferWrapper(ChannelBuffers.dynamicBuffer(size));
    }
 
+   /**
+    * Creates a <em>self-expanding</em> HornetQBuffer with the given initial size, whose memory is
+    * taken from a pool of direct buffers.
+    * <p>
+    * The memory goes back to the pool once the buffer is {@link #release(HornetQBuffer) released},
+    * after which neither the buffer nor its duplicates or slices may be used.
+    *
+    * @param size the initial size of the created HornetQBuffer
+    * @return a self-expanding pooled HornetQBuffer starting with the given size
+    */
+   public static HornetQBuffer pooledBuffer(final int size)
+   {
+      return new PooledChannelBufferWrapper(BufferPool.getInstance(), size);
+   }
+
+   /**
+    * Releases a buffer created by {@link #pooledBuffer(int)}, giving its memory back to the pool.
+    * Any other buffer is left to the garbage collector as usual.
+    *
+    * @param buffer the buffer that won't be used anymore
+    */
+   public static void release(final HornetQBuffer buffer)
+   {
+      if (buffer instanceof ReferenceCounter)
+      {
+         ((ReferenceCounter)buffer).decrement();
+      }
+   }
+
    /**
     * Creates a <em>self-expanding</em> HornetQBuffer filled with the given byte array
     *
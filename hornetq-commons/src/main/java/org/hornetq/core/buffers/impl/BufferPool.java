@@ -0,0 +1,190 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.buffers.impl;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct {@link ByteBuffer}s, kept in classes of sizes going from {@link #MIN_SIZE} to
+ * {@link #MAX_SIZE} by powers of two.
+ * <p>
+ * A buffer is taken from the smallest class it fits in, and allocated if that class is empty.
+ * Sizes over {@link #MAX_SIZE} are not pooled. A released buffer goes back to its class, unless
+ * the pool already keeps {@link #getMaxPooledBytes()} bytes, in which case it is left to the
+ * garbage collector.
+ * <p>
+ * The buffers are normally used through {@link PooledChannelBufferWrapper}.
+ */
+public final class BufferPool
+{
+   public static final int MIN_SIZE = 512;
+
+   public static final int MAX_SIZE = 64 * 1024;
+
+   public static final long DEFAULT_MAX_POOLED_BYTES = 32L * 1024 * 1024;
+
+   private static final int MIN_SIZE_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+
+   private static final BufferPool instance = new BufferPool(DEFAULT_MAX_POOLED_BYTES);
+
+   private final Queue<ByteBuffer>[] classes;
+
+   private final long maxPooledBytes;
+
+   /** The bytes kept by the pool, waiting to be reused */
+   private final AtomicLong pooledBytes = new AtomicLong(0);
+
+   /** The bytes taken from the pool and not released yet */
+   private final AtomicLong usedBytes = new AtomicLong(0);
+
+   private final AtomicLong allocations = new AtomicLong(0);
+
+   private final AtomicLong reuses = new AtomicLong(0);
+
+   public static BufferPool getInstance()
+   {
+      return instance;
+   }
+
+   @SuppressWarnings("unchecked")
+   public BufferPool(final long maxPooledBytes)
+   {
+      this.maxPooledBytes = maxPooledBytes;
+
+      classes = new Queue[classIndex(MAX_SIZE) + 1];
+
+      for (int i = 0; i < classes.length; i++)
+      {
+         classes[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+      }
+   }
+
+   /**
+    * @return a cleared buffer with a capacity of at least the given size, or {@code null} if the
+    *         size is over {@link #MAX_SIZE}
+    */
+   public ByteBuffer acquire(final int size)
+   {
+      if (size > MAX_SIZE)
+      {
+         return null;
+      }
+
+      int index = classIndex(size);
+
+      ByteBuffer buffer = classes[index].poll();
+
+      allocations.incrementAndGet();
+
+      if (buffer == null)
+      {
+         buffer = ByteBuffer.allocateDirect(MIN_SIZE << index);
+      }
+      else
+      {
+         pooledBytes.addAndGet(-buffer.capacity());
+
+         reuses.incrementAndGet();
+
+         buffer.clear();
+      }
+
+      usedBytes.addAndGet(buffer.capacity());
+
+      return buffer;
+   }
+
+   /**
+    * Gives back a buffer returned by {@link #acquire(int)}, which must not be used anymore.
+    */
+   public void release(final ByteBuffer buffer)
+   {
+      int size = buffer.capacity();
+
+      usedBytes.addAndGet(-size);
+
+      if (pooledBytes.addAndGet(size) > maxPooledBytes)
+      {
+         pooledBytes.addAndGet(-size);
+
+         return;
+      }
+
+      classes[classIndex(size)].offer(buffer);
+   }
+
+   public long getMaxPooledBytes()
+   {
+      return maxPooledBytes;
+   }
+
+   /**
+    * @return the size in bytes of the buffers kept by the pool to be reused
+    */
+   public long getPooledBytes()
+   {
+      return pooledBytes.get();
+   }
+
+   /**
+    * @return the size in bytes of the buffers taken from the pool and not released yet
+    */
+   public long getUsedBytes()
+   {
+      return usedBytes.get();
+   }
+
+   /**
+    * @return the number of buffers taken from the pool
+    */
+   public long getAllocations()
+   {
+      return allocations.get();
+   }
+
+   /**
+    * @return the number of buffers taken from the pool that were reused instead of allocated
+    */
+   public long getReuses()
+   {
+      return reuses.get();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "BufferPool [pooledBytes=" + pooledBytes +
+             ", usedBytes=" +
+             usedBytes +
+             ", allocations=" +
+             allocations +
+             ", reuses=" +
+             reuses +
+             "]";
+   }
+
+   private static int classIndex(final int size)
+   {
+      if (size <= MIN_SIZE)
+      {
+         return 0;
+      }
+
+      // the exponent of the smallest power of two holding the size
+      return Integer.SIZE - Integer.numberOfLeadingZeros(size - 1) - MIN_SIZE_SHIFT;
+   }
+}
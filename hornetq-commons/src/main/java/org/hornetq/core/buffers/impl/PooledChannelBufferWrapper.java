@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.buffers.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.utils.ReferenceCounter;
+import org.jboss.netty.buffer.AbstractChannelBufferFactory;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * A self-expanding buffer whose memory is taken from a {@link BufferPool}, and given back once
+ * every reference to it is released.
+ * <p>
+ * The buffer starts with a single reference, released through
+ * {@link org.hornetq.api.core.HornetQBuffers#release(HornetQBuffer)}. The memory it outgrows is
+ * kept until then. Copies of the buffer are not pooled, but its duplicates and slices share its
+ * memory, so they must not be used once it is released.
+ */
+public class PooledChannelBufferWrapper extends ChannelBufferWrapper implements ReferenceCounter
+{
+   private final Segments segments;
+
+   private final AtomicInteger references = new AtomicInteger(1);
+
+   public PooledChannelBufferWrapper(final BufferPool pool, final int size)
+   {
+      this(new Segments(pool), size);
+   }
+
+   private PooledChannelBufferWrapper(final Segments segments, final int size)
+   {
+      super(ChannelBuffers.dynamicBuffer(ByteOrder.BIG_ENDIAN, size, segments));
+
+      this.segments = segments;
+   }
+
+   public int increment()
+   {
+      return references.incrementAndGet();
+   }
+
+   public int decrement()
+   {
+      int value = references.decrementAndGet();
+
+      if (value == 0)
+      {
+         segments.release();
+      }
+      else if (value < 0)
+      {
+         throw new IllegalStateException("Buffer was already released");
+      }
+
+      return value;
+   }
+
+   @Override
+   public HornetQBuffer copy()
+   {
+      return copy(buffer.readerIndex(), buffer.readableBytes());
+   }
+
+   @Override
+   public HornetQBuffer copy(final int index, final int length)
+   {
+      ChannelBuffer copied = ChannelBuffers.dynamicBuffer(length);
+
+      copied.writeBytes(buffer, index, length);
+
+      return new ChannelBufferWrapper(copied);
+   }
+
+   /**
+    * Hands the dynamic buffer its memory, taken from the pool until the buffer is released.
+    */
+   private static final class Segments extends AbstractChannelBufferFactory
+   {
+      private final BufferPool pool;
+
+      private final List<ByteBuffer> taken = new ArrayList<ByteBuffer>(1);
+
+      private boolean released;
+
+      Segments(final BufferPool pool)
+      {
+         super(ByteOrder.BIG_ENDIAN);
+
+         this.pool = pool;
+      }
+
+      public synchronized ChannelBuffer getBuffer(final ByteOrder order, final int capacity)
+      {
+         ByteBuffer segment = released || capacity == 0 ? null : pool.acquire(capacity);
+
+         if (segment == null)
+         {
+            return ChannelBuffers.buffer(order, capacity);
+         }
+
+         taken.add(segment);
+
+         // the capacity is the one asked for, as with any other dynamic buffer
+         segment.limit(capacity);
+
+         ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(segment.slice().order(order));
+
+         // a wrapped buffer is full, while a new one is empty
+         buffer.clear();
+
+         return buffer;
+      }
+
+      public ChannelBuffer getBuffer(final ByteOrder order, final byte[] array, final int offset, final int length)
+      {
+         ChannelBuffer buffer = getBuffer(order, length);
+
+         buffer.writeBytes(array, offset, length);
+
+         return buffer;
+      }
+
+      public ChannelBuffer getBuffer(final ByteBuffer nioBuffer)
+      {
+         ChannelBuffer buffer = getBuffer(nioBuffer.order(), nioBuffer.remaining());
+
+         buffer.writeBytes(nioBuffer.duplicate());
+
+         return buffer;
+      }
+
+      synchronized void release()
+      {
+         released = true;
+
+         for (ByteBuffer segment : taken)
+         {
+            pool.release(segment);
+         }
+
+         taken.clear();
+      }
+   }
+}
@@ -32,6 +32,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQPropertyConversionException;
 import org.hornetq.api.core.SimpleString;
 
@@ -51,8 +52,26 @@ public final class TypedProperties
 
    private static final SimpleString HQ_PROPNAME = new SimpleString("_HQ_");
 
+   /**
+    * How many lookups scan the encoded properties before they are all decoded, as each lookup scans
+    * them again and decodes the value it finds.
+    */
+   private static final int MAX_ENCODED_LOOKUPS = 4;
+
    private Map<SimpleString, PropertyValue> properties;
 
+   /**
+    * The encoded properties, as they were decoded from a buffer. They are only decoded into
+    * {@link #properties} once the properties are changed, listed or looked up more than
+    * {@link #MAX_ENCODED_LOOKUPS} times, until then a property is looked up by scanning them, and
+    * they are encoded again as they are.
+    */
+   private byte[] encodedProperties;
+
+   private int encodedCount;
+
+   private int encodedLookups;
+
    private volatile int size;
 
    private boolean internalProperties;
@@ -67,13 +86,20 @@ public final class TypedProperties
       // Note we don't include the attributes or anything else since they already included in the memory estimate
       // of the ServerMessage
 
-      return properties == null ? 0 : size + 2 * DataConstants.SIZE_INT * properties.size();
+      return size + 2 * DataConstants.SIZE_INT * count();
    }
 
    public TypedProperties(final TypedProperties other)
    {
-      properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
-      size = other.size;
+      synchronized (other)
+      {
+         properties = other.properties == null ? null : new HashMap<SimpleString, PropertyValue>(other.properties);
+         // the encoded properties are never changed, so they can be shared
+         encodedProperties = other.encodedProperties;
+         encodedCount = other.encodedCount;
+         internalProperties = other.internalProperties;
+         size = other.size;
+      }
    }
 
    public boolean hasInternalProperties()
@@ -149,13 +175,26 @@ public final class TypedProperties
 
    public void putTypedProperties(final TypedProperties otherProps)
    {
-      if (otherProps == null || otherProps.properties == null)
+      if (otherProps == null)
+      {
+         return;
+      }
+
+      Map<SimpleString, PropertyValue> otherProperties;
+
+      synchronized (otherProps)
+      {
+         otherProps.decodeProperties();
+         otherProperties = otherProps.properties;
+      }
+
+      if (otherProperties == null)
       {
          return;
       }
 
       checkCreateProperties();
-      Set<Entry<SimpleString, PropertyValue>> otherEntries = otherProps.properties.entrySet();
+      Set<Entry<SimpleString, PropertyValue>> otherEntries = otherProperties.entrySet();
       for (Entry<SimpleString, PropertyValue> otherEntry : otherEntries)
       {
          doPutValue(otherEntry.getKey(), otherEntry.getValue());
@@ -425,20 +464,27 @@ public final class TypedProperties
       return doRemoveProperty(key);
    }
 
-   public boolean containsProperty(final SimpleString key)
+   public synchronized boolean containsProperty(final SimpleString key)
    {
       if (size == 0)
       {
          return false;
 
       }
+
+      decodeIfLookedUpOften();
+
+      if (encodedProperties != null)
+      {
+         return findEncodedProperty(key) >= 0;
+      }
       else
       {
          return properties.containsKey(key);
       }
    }
 
-   public Set<SimpleString> getPropertyNames()
+   public synchronized Set<SimpleString> getPropertyNames()
    {
       if (size == 0)
       {
@@ -446,116 +492,64 @@ public final class TypedProperties
       }
       else
       {
+         decodeProperties();
          return properties.keySet();
       }
    }
 
+   /**
+    * Reads the properties from the buffer. They are only kept encoded here, a property is decoded
+    * when it is read.
+    */
    public synchronized void decode(final HornetQBuffer buffer)
    {
       byte b = buffer.readByte();
 
-      if (b == DataConstants.NULL)
-      {
-         properties = null;
-      }
-      else
+      properties = null;
+      encodedProperties = null;
+      encodedCount = 0;
+      encodedLookups = 0;
+      size = 0;
+
+      if (b != DataConstants.NULL)
       {
          int numHeaders = buffer.readInt();
 
-         properties = new HashMap<SimpleString, PropertyValue>(numHeaders);
-         size = 0;
+         int start = buffer.readerIndex();
+
+         byte[] internalPrefix = HQ_PROPNAME.getData();
 
          for (int i = 0; i < numHeaders; i++)
          {
             int len = buffer.readInt();
-            byte[] data = new byte[len];
-            buffer.readBytes(data);
-            SimpleString key = new SimpleString(data);
 
-            byte type = buffer.readByte();
-
-            PropertyValue val;
-
-            switch (type)
+            if (!internalProperties && len >= internalPrefix.length && startsWith(buffer, internalPrefix))
             {
-               case NULL:
-               {
-                  val = new NullValue();
-                  doPutValue(key, val);
-                  break;
-               }
-               case CHAR:
-               {
-                  val = new CharValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BOOLEAN:
-               {
-                  val = new BooleanValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTE:
-               {
-                  val = new ByteValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case BYTES:
-               {
-                  val = new BytesValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case SHORT:
-               {
-                  val = new ShortValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case INT:
-               {
-                  val = new IntValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case LONG:
-               {
-                  val = new LongValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case FLOAT:
-               {
-                  val = new FloatValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case DOUBLE:
-               {
-                  val = new DoubleValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               case STRING:
-               {
-                  val = new StringValue(buffer);
-                  doPutValue(key, val);
-                  break;
-               }
-               default:
-               {
-                  throw HornetQUtilBundle.BUNDLE.invalidType(type);
-               }
+               internalProperties = true;
             }
+
+            buffer.skipBytes(len);
+
+            skipValue(buffer, buffer.readByte());
          }
+
+         encodedProperties = new byte[buffer.readerIndex() - start];
+         buffer.getBytes(start, encodedProperties);
+         encodedCount = numHeaders;
+         size = encodedProperties.length;
       }
    }
 
    public synchronized void encode(final HornetQBuffer buffer)
    {
-      if (properties == null)
+      if (encodedProperties != null)
+      {
+         // nothing changed since they were decoded
+         buffer.writeByte(DataConstants.NOT_NULL);
+         buffer.writeInt(encodedCount);
+         buffer.writeBytes(encodedProperties);
+      }
+      else if (properties == null)
       {
          buffer.writeByte(DataConstants.NULL);
       }
@@ -577,9 +571,9 @@ public final class TypedProperties
       }
    }
 
-   public int getEncodeSize()
+   public synchronized int getEncodeSize()
    {
-      if (properties == null)
+      if (properties == null && encodedProperties == null)
       {
          return DataConstants.SIZE_BYTE;
       }
@@ -589,8 +583,10 @@ public final class TypedProperties
       }
    }
 
-   public void clear()
+   public synchronized void clear()
    {
+      decodeProperties();
+
       if (properties != null)
       {
          properties.clear();
@@ -598,21 +594,229 @@ public final class TypedProperties
    }
 
    @Override
-   public String toString()
+   public synchronized String toString()
    {
+      decodeProperties();
+
       return "TypedProperties[" + properties + "]";
    }
 
    // Private ------------------------------------------------------------------------------------
 
-   private void checkCreateProperties()
+   private synchronized void checkCreateProperties()
    {
+      decodeProperties();
+
       if (properties == null)
       {
          properties = new HashMap<SimpleString, PropertyValue>();
       }
    }
 
+   private int count()
+   {
+      if (encodedProperties != null)
+      {
+         return encodedCount;
+      }
+      else
+      {
+         return properties == null ? 0 : properties.size();
+      }
+   }
+
+   /**
+    * Decodes the encoded properties into the map, before it is changed or listed.
+    */
+   private void decodeProperties()
+   {
+      if (encodedProperties == null)
+      {
+         return;
+      }
+
+      HornetQBuffer buffer = HornetQBuffers.wrappedBuffer(encodedProperties);
+
+      properties = new HashMap<SimpleString, PropertyValue>(encodedCount);
+      encodedProperties = null;
+      size = 0;
+
+      for (int i = 0; i < encodedCount; i++)
+      {
+         SimpleString key = buffer.readSimpleString();
+
+         doPutValue(key, readValue(buffer, buffer.readByte()));
+      }
+
+      encodedCount = 0;
+   }
+
+   /**
+    * Decodes the encoded properties into the map once they were looked up often enough that
+    * scanning them for each lookup costs more than decoding them once.
+    */
+   private void decodeIfLookedUpOften()
+   {
+      if (encodedProperties != null && ++encodedLookups > MAX_ENCODED_LOOKUPS)
+      {
+         decodeProperties();
+      }
+   }
+
+   /**
+    * @return the position of the type of the value of the property in the encoded properties, or -1
+    */
+   private int findEncodedProperty(final SimpleString key)
+   {
+      byte[] keyData = key.getData();
+
+      int pos = 0;
+
+      for (int i = 0; i < encodedCount; i++)
+      {
+         int len = readInt(encodedProperties, pos);
+         pos += DataConstants.SIZE_INT;
+
+         boolean found = len == keyData.length;
+
+         for (int j = 0; found && j < len; j++)
+         {
+            found = encodedProperties[pos + j] == keyData[j];
+         }
+
+         pos += len;
+
+         if (found)
+         {
+            return pos;
+         }
+
+         pos = skipValue(encodedProperties, pos);
+      }
+
+      return -1;
+   }
+
+   private static boolean startsWith(final HornetQBuffer buffer, final byte[] prefix)
+   {
+      int pos = buffer.readerIndex();
+
+      for (int i = 0; i < prefix.length; i++)
+      {
+         if (buffer.getByte(pos + i) != prefix[i])
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   private static int readInt(final byte[] bytes, final int pos)
+   {
+      return (bytes[pos] & 0xff) << 24 | (bytes[pos + 1] & 0xff) << 16 | (bytes[pos + 2] & 0xff) << 8 | bytes[pos + 3] & 0xff;
+   }
+
+   /**
+    * @param pos the position of the type of the value
+    * @return the position after the value
+    */
+   private static int skipValue(final byte[] bytes, int pos)
+   {
+      byte type = bytes[pos++];
+
+      switch (type)
+      {
+         case BYTES:
+         case STRING:
+         {
+            return pos + DataConstants.SIZE_INT + readInt(bytes, pos);
+         }
+         default:
+         {
+            return pos + valueSize(type);
+         }
+      }
+   }
+
+   private static void skipValue(final HornetQBuffer buffer, final byte type)
+   {
+      switch (type)
+      {
+         case BYTES:
+         case STRING:
+         {
+            buffer.skipBytes(buffer.readInt());
+            break;
+         }
+         default:
+         {
+            buffer.skipBytes(valueSize(type));
+         }
+      }
+   }
+
+   /**
+    * @return the size of a value of a fixed size type, without its type
+    */
+   private static int valueSize(final byte type)
+   {
+      switch (type)
+      {
+         case NULL:
+            return 0;
+         case BOOLEAN:
+            return DataConstants.SIZE_BOOLEAN;
+         case BYTE:
+            return DataConstants.SIZE_BYTE;
+         case CHAR:
+            return DataConstants.SIZE_CHAR;
+         case SHORT:
+            return DataConstants.SIZE_SHORT;
+         case INT:
+            return DataConstants.SIZE_INT;
+         case FLOAT:
+            return DataConstants.SIZE_FLOAT;
+         case LONG:
+            return DataConstants.SIZE_LONG;
+         case DOUBLE:
+            return DataConstants.SIZE_DOUBLE;
+         default:
+            throw HornetQUtilBundle.BUNDLE.invalidType(type);
+      }
+   }
+
+   private static PropertyValue readValue(final HornetQBuffer buffer, final byte type)
+   {
+      switch (type)
+      {
+         case NULL:
+            return new NullValue();
+         case CHAR:
+            return new CharValue(buffer);
+         case BOOLEAN:
+            return new BooleanValue(buffer);
+         case BYTE:
+            return new ByteValue(buffer);
+         case BYTES:
+            return new BytesValue(buffer);
+         case SHORT:
+            return new ShortValue(buffer);
+         case INT:
+            return new IntValue(buffer);
+         case LONG:
+            return new LongValue(buffer);
+         case FLOAT:
+            return new FloatValue(buffer);
+         case DOUBLE:
+            return new DoubleValue(buffer);
+         case STRING:
+            return new StringValue(buffer);
+         default:
+            throw HornetQUtilBundle.BUNDLE.invalidType(type);
+      }
+   }
+
    private synchronized void doPutValue(final SimpleString key, final PropertyValue value)
    {
       if (key.startsWith(HQ_PROPNAME))
@@ -633,6 +837,8 @@ public final class TypedProperties
 
    private synchronized Object doRemoveProperty(final SimpleString key)
    {
+      decodeProperties();
+
       if (properties == null)
       {
          return null;
@@ -652,14 +858,34 @@ public final class TypedProperties
       }
    }
 
-   private synchronized Object doGetProperty(final Object key)
+   private synchronized Object doGetProperty(final SimpleString key)
    {
       if (size == 0)
       {
          return null;
       }
 
-      PropertyValue val = properties.get(key);
+      PropertyValue val;
+
+      decodeIfLookedUpOften();
+
+      if (encodedProperties != null)
+      {
+         int pos = findEncodedProperty(key);
+
+         if (pos < 0)
+         {
+            return null;
+         }
+
+         HornetQBuffer buffer = HornetQBuffers.wrappedBuffer(encodedProperties);
+         buffer.readerIndex(pos + DataConstants.SIZE_BYTE);
+         val = readValue(buffer, encodedProperties[pos]);
+      }
+      else
+      {
+         val = properties.get(key);
+      }
 
       if (val == null)
       {
@@ -1060,13 +1286,20 @@ public final class TypedProperties
       }
    }
 
-   public boolean isEmpty()
+   public synchronized boolean isEmpty()
    {
+      if (encodedProperties != null)
+      {
+         return encodedCount == 0;
+      }
+
       return properties.isEmpty();
    }
 
-   public Map<String, Object> getMap()
+   public synchronized Map<String, Object> getMap()
    {
+      decodeProperties();
+
       Map<String, Object> m = new HashMap<String, Object>();
       for (Entry<SimpleString,PropertyValue> entry:properties.entrySet()) {
          Object val = entry.getValue().getValue();
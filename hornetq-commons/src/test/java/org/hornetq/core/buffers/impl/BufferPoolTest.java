@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.buffers.impl;
+
+import java.nio.ByteBuffer;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BufferPoolTest extends Assert
+{
+   @Test
+   public void testSizeClasses() throws Exception
+   {
+      BufferPool pool = new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES);
+
+      assertEquals(BufferPool.MIN_SIZE, pool.acquire(1).capacity());
+      assertEquals(BufferPool.MIN_SIZE, pool.acquire(BufferPool.MIN_SIZE).capacity());
+      assertEquals(BufferPool.MIN_SIZE * 2, pool.acquire(BufferPool.MIN_SIZE + 1).capacity());
+      assertEquals(BufferPool.MAX_SIZE, pool.acquire(BufferPool.MAX_SIZE).capacity());
+      assertNull(pool.acquire(BufferPool.MAX_SIZE + 1));
+
+      assertTrue(pool.acquire(100).isDirect());
+   }
+
+   @Test
+   public void testReuse() throws Exception
+   {
+      BufferPool pool = new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES);
+
+      ByteBuffer buffer = pool.acquire(1000);
+      buffer.put((byte)1);
+
+      assertEquals(1024, pool.getUsedBytes());
+      assertEquals(0, pool.getPooledBytes());
+
+      pool.release(buffer);
+
+      assertEquals(0, pool.getUsedBytes());
+      assertEquals(1024, pool.getPooledBytes());
+
+      // another class
+      assertNotSame(buffer, pool.acquire(100));
+
+      ByteBuffer reused = pool.acquire(800);
+      assertSame(buffer, reused);
+      assertEquals(0, reused.position());
+      assertEquals(1024, reused.limit());
+
+      assertEquals(3, pool.getAllocations());
+      assertEquals(1, pool.getReuses());
+      assertEquals(0, pool.getPooledBytes());
+   }
+
+   @Test
+   public void testMaxPooledBytes() throws Exception
+   {
+      BufferPool pool = new BufferPool(2048);
+
+      ByteBuffer buffer1 = pool.acquire(2048);
+      ByteBuffer buffer2 = pool.acquire(2048);
+
+      pool.release(buffer1);
+      pool.release(buffer2);
+
+      assertEquals(2048, pool.getPooledBytes());
+      assertEquals(0, pool.getUsedBytes());
+
+      assertSame(buffer1, pool.acquire(2048));
+      assertNotSame(buffer2, pool.acquire(2048));
+   }
+
+   @Test
+   public void testPooledBuffer() throws Exception
+   {
+      BufferPool pool = new BufferPool(BufferPool.DEFAULT_MAX_POOLED_BYTES);
+
+      PooledChannelBufferWrapper buffer = new PooledChannelBufferWrapper(pool, 1000);
+
+      assertEquals(1000, buffer.capacity());
+      assertTrue(buffer.channelBuffer().isDirect());
+      assertEquals(1024, pool.getUsedBytes());
+
+      // it grows as any dynamic buffer
+      for (int i = 0; i < 1000; i++)
+      {
+         buffer.writeLong(i);
+      }
+
+      for (int i = 0; i < 1000; i++)
+      {
+         assertEquals(i, buffer.readLong());
+      }
+
+      long used = pool.getUsedBytes();
+      assertTrue(used > 8000);
+
+      HornetQBuffer copy = buffer.copy(0, 16);
+      assertFalse(copy instanceof PooledChannelBufferWrapper);
+      assertEquals(used, pool.getUsedBytes());
+
+      buffer.increment();
+      assertEquals(1, buffer.decrement());
+      assertEquals(used, pool.getUsedBytes());
+
+      assertEquals(0, buffer.decrement());
+      assertEquals(0, pool.getUsedBytes());
+      assertEquals(used, pool.getPooledBytes());
+
+      // the copy doesn't share the memory of the released buffer
+      assertEquals(0, copy.readLong());
+      assertEquals(1, copy.readLong());
+
+      try
+      {
+         buffer.decrement();
+         fail("Buffer was already released");
+      }
+      catch (IllegalStateException e)
+      {
+         // expected
+      }
+   }
+
+   @Test
+   public void testReleaseNotPooledBuffer() throws Exception
+   {
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(10);
+
+      buffer.writeInt(1);
+
+      HornetQBuffers.release(buffer);
+
+      assertEquals(1, buffer.readInt());
+   }
+}
@@ -13,6 +13,8 @@
 
 package org.hornetq.api.core.client;
 
+import java.util.Collection;
+
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
@@ -113,6 +115,24 @@ public interface ClientProducer extends AutoCloseable
     */
    void send(String address, Message message) throws HornetQException;
 
+   /**
+    * Sends several messages to the address specified in {@link ClientSession#createProducer(String)}
+    * or similar methods, in the order of the collection. <br>
+    * <br>
+    * The messages are sent to the server in a single packet and routed there at once, which is
+    * much cheaper than sending them one by one when they are small. Large messages are still sent
+    * on their own, in their place in the order. <br>
+    * <br>
+    * This will block until confirmation that the messages have reached the server has been
+    * received if {@link ServerLocator#setBlockOnDurableSend(boolean)} or
+    * {@link ServerLocator#setBlockOnNonDurableSend(boolean)} are set to <code>true</code> for the
+    * type of any of the messages. Outside of a transaction, if sending one of the messages fails
+    * the messages before it may have been routed already.
+    * @param messages the messages to send
+    * @throws HornetQException if an exception occurs while sending the messages
+    */
+   void send(Collection<Message> messages) throws HornetQException;
+
    /**
     * Closes the ClientProducer. If already closed nothing is done.
     *
@@ -60,8 +60,33 @@ public interface AddressControl
     */
    long getNumberOfBytesPerPage() throws Exception;
 
+   /**
+    * Returns the memory in bytes used by the messages of this address.
+    */
+   long getAddressSize() throws Exception;
+
    /**
     * Returns the names of all bindings (both queues and diverts) bound to this address
     */
    String[] getBindingNames() throws Exception;
+
+   /**
+    * Returns the number of messages sent to this address which were found to be duplicates.
+    */
+   long getDuplicateIDCacheHits() throws Exception;
+
+   /**
+    * Returns the number of messages sent to this address with a duplicate ID which was not in the cache.
+    */
+   long getDuplicateIDCacheMisses() throws Exception;
+
+   /**
+    * Returns the number of duplicate IDs removed from the cache of this address as it was full.
+    */
+   long getDuplicateIDCacheEvictions() throws Exception;
+
+   /**
+    * Returns the number of duplicate IDs removed from the cache of this address as they expired.
+    */
+   long getDuplicateIDCacheExpirations() throws Exception;
 }
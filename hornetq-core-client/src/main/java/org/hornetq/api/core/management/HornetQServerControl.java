@@ -32,6 +32,23 @@ public interface HornetQServerControl
     */
    int getConnectionCount();
 
+   /**
+    * Returns the number of messages waiting for their scheduled delivery time on this server.
+    */
+   int getScheduledMessageCount();
+
+   /**
+    * Returns the average time (in milliseconds) scheduled messages were delivered after their
+    * scheduled delivery time.
+    */
+   long getScheduledDeliveryAverageLag();
+
+   /**
+    * Returns the longest time (in milliseconds) a scheduled message was delivered after its
+    * scheduled delivery time.
+    */
+   long getScheduledDeliveryMaxLag();
+
    /**
     * Return whether this server is started.
     */
@@ -215,11 +232,53 @@ public interface HornetQServerControl
     */
    boolean isSharedStore();
 
+   /**
+    * Returns the size in bytes of the journal operations replicated to the backup server and not
+    * acknowledged by it yet, 0 if this server is not replicating.
+    */
+   long getReplicationLagBytes();
+
+   /**
+    * Returns the number of journal operations replicated to the backup server and not
+    * acknowledged by it yet, 0 if this server is not replicating.
+    */
+   long getReplicationLagOperations();
+
+   /**
+    * Returns the size in bytes of the direct buffers kept by the buffer pool to be reused.
+    */
+   long getBufferPoolPooledBytes();
+
+   /**
+    * Returns the size in bytes of the direct buffers taken from the buffer pool and not released yet.
+    */
+   long getBufferPoolUsedBytes();
+
+   /**
+    * Returns the number of buffers taken from the buffer pool.
+    */
+   long getBufferPoolAllocations();
+
+   /**
+    * Returns the number of buffers taken from the buffer pool which were reused instead of allocated.
+    */
+   long getBufferPoolReuses();
+
    /**
     * Returns the file system directory used to store paging files.
     */
    String getPagingDirectory();
 
+   /**
+    * Returns the memory in bytes used by the messages of all the addresses.
+    */
+   long getGlobalSize();
+
+   /**
+    * Returns the maximum memory in bytes the messages of all the addresses may use together, -1 for no limit.
+    */
+   long getGlobalMaxSize();
+
    /**
     * Returns whether delivery count is persisted before messages are delivered to the consumers.
     */
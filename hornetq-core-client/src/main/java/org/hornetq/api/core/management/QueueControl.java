@@ -82,6 +82,27 @@ public interface QueueControl
     */
    long getMessagesAdded();
 
+   /**
+    * Returns the number of tasks waiting to be run by the executor of this queue, which is the one
+    * of its address while the address is paging.
+    */
+   int getExecutorPendingTasks();
+
+   /**
+    * Returns the number of tasks run by the executor of this queue.
+    */
+   long getExecutorCompletedTasks();
+
+   /**
+    * Returns the average time in microseconds the tasks of the executor of this queue waited before running.
+    */
+   long getExecutorAverageTaskLatency();
+
+   /**
+    * Returns the time in milliseconds the executor of this queue spent running tasks.
+    */
+   long getExecutorRunTime();
+
    /**
     * Returns the expiry address associated to this queue.
     */
@@ -15,6 +15,9 @@ package org.hornetq.core.client.impl;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.HornetQBuffer;
@@ -29,6 +32,7 @@ import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.message.impl.MessageInternal;
 import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
@@ -69,6 +73,9 @@ public class ClientProducerImpl implements ClientProducerInternal
 
    // Static ---------------------------------------------------------------------------------------
 
+   /** The first server version that knows {@link SessionSendBatchMessage} */
+   private static final int BATCH_SEND_VERSION = 124;
+
    // Constructors ---------------------------------------------------------------------------------
 
    public ClientProducerImpl(final ClientSessionInternal session,
@@ -164,6 +171,24 @@ public class ClientProducerImpl implements ClientProducerInternal
       send(null, message, handler);
    }
 
+   public void send(final Collection<Message> messages) throws HornetQException
+   {
+      checkClosed();
+
+      // getVersion() is the version the server answered with, older servers can't decode a batch
+      if (session.getVersion() < BATCH_SEND_VERSION)
+      {
+         for (Message message : messages)
+         {
+            doSend(null, message, null, false);
+         }
+      }
+      else
+      {
+         doSendBatch(messages);
+      }
+   }
+
    public synchronized void close() throws HornetQException
    {
       if (closed)
@@ -232,80 +257,185 @@ public class ClientProducerImpl implements ClientProducerInternal
       {
          MessageInternal msgI = (MessageInternal)msg;
 
-         ClientProducerCredits theCredits;
+         boolean isLarge = isLarge(msgI);
+
+         ClientProducerCredits theCredits = prepareMessage(address1, msgI, isLarge);
+
+         final boolean sendBlockingConfig = msgI.isDurable() ? blockOnDurableSend : blockOnNonDurableSend;
+         final boolean forceAsyncOverride = handler != null;
+         final boolean sendBlocking = sendBlockingConfig && !forceAsyncOverride;
+
+         session.workDone();
 
-         boolean isLarge;
-         // a note about the second check on the writerIndexSize,
-         // If it's a server's message, it means this is being done through the bridge or some special consumer on the
-         // server's on which case we can't' convert the message into large at the servers
-         if (msgI.getBodyInputStream() != null || msgI.isLargeMessage() ||
-            msgI.getBodyBuffer().writerIndex() > minLargeMessageSize && ! msgI.isServerMessage())
+         if (isLarge)
          {
-            isLarge = true;
+            largeMessageSend(sendBlocking, msgI, theCredits, handler);
          }
          else
          {
-            isLarge = false;
+            sendRegularMessage(msgI, sendBlocking, theCredits, handler);
          }
+      }
+      finally
+      {
+         session.endCall();
+      }
+   }
 
-         if (address1 != null)
-         {
-            if (!isLarge)
-            {
-               session.setAddress(msg, address1);
-            }
-            else
-            {
-               msg.setAddress(address1);
-            }
+   private void doSendBatch(final Collection<Message> messages) throws HornetQException
+   {
+      session.startCall();
 
-            // Anonymous
-            theCredits = session.getCredits(address1, true);
-         }
-         else
+      try
+      {
+         List<MessageInternal> batch = new ArrayList<MessageInternal>(messages.size());
+
+         // The batch is blocking as soon as one of its messages would be sent blocking on its own
+         boolean sendBlocking = false;
+
+         for (Message msg : messages)
          {
-            if (!isLarge)
+            MessageInternal msgI = (MessageInternal)msg;
+
+            boolean isLarge = isLarge(msgI);
+
+            ClientProducerCredits theCredits = prepareMessage(null, msgI, isLarge);
+
+            boolean sendBlockingConfig = msgI.isDurable() ? blockOnDurableSend : blockOnNonDurableSend;
+
+            session.workDone();
+
+            if (isLarge)
             {
-               session.setAddress(msg, this.address);
+               // Large messages are streamed on their own, after the messages before them
+               sendBatch(batch, sendBlocking);
+
+               batch.clear();
+
+               sendBlocking = false;
+
+               largeMessageSend(sendBlockingConfig, msgI, theCredits, null);
             }
             else
             {
-               msg.setAddress(this.address);
-            }
+               batch.add(msgI);
 
-            theCredits = producerCredits;
+               sendBlocking |= sendBlockingConfig;
+            }
          }
 
-         if (rateLimiter != null)
-         {
-            // Rate flow control
+         sendBatch(batch, sendBlocking);
+      }
+      finally
+      {
+         session.endCall();
+      }
+   }
 
-            rateLimiter.limit();
-         }
+   private boolean isLarge(final MessageInternal msgI)
+   {
+      // a note about the second check on the writerIndexSize,
+      // If it's a server's message, it means this is being done through the bridge or some special consumer on the
+      // server's on which case we can't' convert the message into large at the servers
+      return msgI.getBodyInputStream() != null || msgI.isLargeMessage() ||
+         msgI.getBodyBuffer().writerIndex() > minLargeMessageSize && !msgI.isServerMessage();
+   }
 
-         if (groupID != null)
+   /**
+    * Sets the address, the group and the rate limit of a message about to be sent.
+    * @return the credits to send the message with
+    */
+   private ClientProducerCredits prepareMessage(final SimpleString address1, final MessageInternal msgI,
+                                                final boolean isLarge) throws HornetQException
+   {
+      ClientProducerCredits theCredits;
+
+      if (address1 != null)
+      {
+         if (!isLarge)
          {
-            msgI.putStringProperty(Message.HDR_GROUP_ID, groupID);
+            session.setAddress(msgI, address1);
+         }
+         else
+         {
+            msgI.setAddress(address1);
          }
 
-         final boolean sendBlockingConfig = msgI.isDurable() ? blockOnDurableSend : blockOnNonDurableSend;
-         final boolean forceAsyncOverride = handler != null;
-         final boolean sendBlocking = sendBlockingConfig && !forceAsyncOverride;
-
-         session.workDone();
-
-         if (isLarge)
+         // Anonymous
+         theCredits = session.getCredits(address1, true);
+      }
+      else
+      {
+         if (!isLarge)
          {
-            largeMessageSend(sendBlocking, msgI, theCredits, handler);
+            session.setAddress(msgI, this.address);
          }
          else
          {
-            sendRegularMessage(msgI, sendBlocking, theCredits, handler);
+            msgI.setAddress(this.address);
          }
+
+         theCredits = producerCredits;
       }
-      finally
+
+      if (rateLimiter != null)
       {
-         session.endCall();
+         // Rate flow control
+
+         rateLimiter.limit();
+      }
+
+      if (groupID != null)
+      {
+         msgI.putStringProperty(Message.HDR_GROUP_ID, groupID);
+      }
+
+      return theCredits;
+   }
+
+   /**
+    * Sends the regular messages of a batch in a single packet, taking the credits of all of them at once.
+    */
+   private void sendBatch(final List<MessageInternal> batch, final boolean sendBlocking) throws HornetQException
+   {
+      if (batch.isEmpty())
+      {
+         return;
+      }
+
+      if (batch.size() == 1)
+      {
+         sendRegularMessage(batch.get(0), sendBlocking, producerCredits, null);
+
+         return;
+      }
+
+      int credits = 0;
+
+      for (MessageInternal msgI : batch)
+      {
+         credits += msgI.getEncodeSize();
+      }
+
+      try
+      {
+         producerCredits.acquireCredits(credits);
+      }
+      catch (InterruptedException e)
+      {
+         throw new HornetQInterruptedException(e);
+      }
+
+      SessionSendBatchMessage packet = new SessionSendBatchMessage(new ArrayList<MessageInternal>(batch),
+                                                                   sendBlocking);
+
+      if (sendBlocking)
+      {
+         channel.sendBlocking(packet, PacketImpl.NULL_RESPONSE);
+      }
+      else
+      {
+         channel.sendBatched(packet);
       }
    }
 
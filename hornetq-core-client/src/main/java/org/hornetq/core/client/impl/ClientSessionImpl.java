@@ -53,6 +53,7 @@ import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.CreateQueueMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.CreateSessionMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.CreateSessionResponseMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.CreateTransientQueueMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReattachSessionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReattachSessionResponseMessage;
@@ -74,6 +75,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuation
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionRequestProducerCreditsMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.SessionSendBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionSendMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionUniqueAddMetaDataMessage;
@@ -97,6 +99,7 @@ import org.hornetq.utils.ConfirmationWindowWarning;
 import org.hornetq.utils.IDGenerator;
 import org.hornetq.utils.SimpleIDGenerator;
 import org.hornetq.utils.TokenBucketLimiterImpl;
+import org.hornetq.utils.VersionLoader;
 import org.hornetq.utils.XidCodecSupport;
 
 /**
@@ -169,7 +172,8 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
 
    private final Channel channel;
 
-   private final int version;
+   /** the incrementing version of the server, as it answered when the session was last created */
+   private volatile int version;
 
    // For testing only
    private boolean forceNotSameRM;
@@ -1093,7 +1097,7 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
                {
                   Packet createRequest = new CreateSessionMessage(name,
                                                                   channel.getID(),
-                                                                  version,
+                                                                  VersionLoader.getVersion().getIncrementingVersion(),
                                                                   username,
                                                                   password,
                                                                   minLargeMessageSize,
@@ -1109,7 +1113,11 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
                   {
                      try
                      {
-                        channel1.sendBlocking(createRequest, PacketImpl.CREATESESSION_RESP);
+                        CreateSessionResponseMessage createResponse =
+                           (CreateSessionResponseMessage)channel1.sendBlocking(createRequest,
+                                                                               PacketImpl.CREATESESSION_RESP);
+                        // the server we failed over to may not run the same version
+                        version = createResponse.getServerVersion();
                         retry = false;
                      }
                      catch (HornetQException e)
@@ -1368,6 +1376,14 @@ final class ClientSessionImpl implements ClientSessionInternal, FailureListener,
          SessionSendMessage ssm = (SessionSendMessage)packet;
          callSendAck(ssm.getHandler(), ssm.getMessage());
       }
+      else if (packet.getType() == PacketImpl.SESS_SEND_BATCH)
+      {
+         SessionSendBatchMessage ssbm = (SessionSendBatchMessage)packet;
+         for (Message message : ssbm.getMessages())
+         {
+            callSendAck(null, message);
+         }
+      }
       else if (packet.getType() == PacketImpl.SESS_SEND_CONTINUATION)
       {
          SessionSendContinuationMessage scm = (SessionSendContinuationMessage) packet;
@@ -82,7 +82,7 @@ public final class Operator
 
    public final static int DIFFERENT = 8;
 
-   final static int ADD = 9;
+   public final static int ADD = 9;
 
    public final static int SUB = 10;
 
@@ -146,6 +146,26 @@ public final class Operator
       oper3 = null;
    }
 
+   public int getOperation()
+   {
+      return operation;
+   }
+
+   public Object getOper1()
+   {
+      return oper1;
+   }
+
+   public Object getOper2()
+   {
+      return oper2;
+   }
+
+   public Object getOper3()
+   {
+      return oper3;
+   }
+
    // --- Print functions ---
 
    @Override
@@ -501,7 +521,7 @@ public final class Operator
          }
          if (class2 == Operator.LONG)
          {
-            return Boolean.valueOf(((Number)arg1).longValue() >= ((Number)arg2).longValue());
+            return Boolean.valueOf(((Number)arg1).doubleValue() >= ((Number)arg2).longValue());
          }
          if (class2 == Operator.DOUBLE)
          {
@@ -1318,7 +1338,7 @@ public final class Operator
                           toString());
    }
 
-   static String getClassName(final int class1)
+   public static String getClassName(final int class1)
    {
       switch (class1)
       {
@@ -36,7 +36,7 @@ import java.util.regex.Pattern;
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  *
  */
-final class RegExp
+public final class RegExp
 {
    private final Pattern re;
 
@@ -55,6 +55,9 @@ public abstract class MessageImpl implements MessageInternal
 
    public static final int BODY_OFFSET = BUFFER_HEADER_SPACE + DataConstants.SIZE_INT;
 
+   /** Room for what a packet writes after the message in its encoded buffer, see {@link #getEncodedBuffer()} */
+   private static final int ENCODED_TRAILER_SIZE = DataConstants.SIZE_LONG + DataConstants.SIZE_INT;
+
    protected long messageID;
 
    protected SimpleString address;
@@ -509,9 +512,10 @@ public abstract class MessageImpl implements MessageInternal
 
       if (bufferUsed)
       {
-         HornetQBuffer copied = buff.copy(0, buff.capacity());
+         // The copy is only written to a connection, which releases it afterwards
+         HornetQBuffer copied = HornetQBuffers.pooledBuffer(endOfMessagePosition + ENCODED_TRAILER_SIZE);
 
-         copied.setIndex(0, endOfMessagePosition);
+         copied.writeBytes(buff, 0, endOfMessagePosition);
 
          return copied;
       }
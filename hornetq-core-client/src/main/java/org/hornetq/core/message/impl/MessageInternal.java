@@ -35,6 +35,16 @@ public interface MessageInternal extends Message
 {
    void decodeFromBuffer(HornetQBuffer buffer);
 
+   /**
+    * Writes the message as it is stored, without the space reserved for the packet headers.
+    */
+   void encode(HornetQBuffer buffer);
+
+   /**
+    * Reads a message written by {@link #encode(HornetQBuffer)} into this message.
+    */
+   void decode(HornetQBuffer buffer);
+
    int getEndOfMessagePosition();
 
    int getEndOfBodyPosition();
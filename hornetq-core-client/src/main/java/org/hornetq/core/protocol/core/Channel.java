@@ -12,6 +12,7 @@
  */
 package org.hornetq.core.protocol.core;
 
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 
 import org.hornetq.api.core.HornetQException;
@@ -55,6 +56,14 @@ public interface Channel
     */
    boolean sendBatched(Packet packet);
 
+   /**
+    * Sends packets on this channel in a single write to the connection, using batching algorithm if
+    * appropriate.
+    * @param packets the packets to send
+    * @return the packets that were sent, without those rejected by an outgoing interceptor
+    */
+   List<Packet> sendBatched(List<? extends Packet> packets);
+
    /**
     * Sends a packet on this channel and then blocks until it has been written to the connection.
     * @param packet the packet to send
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.hornetq.api.core.HornetQBuffer;
+
+/**
+ * A region of a file sent as the body of a {@link FileRegionPacket}.
+ * <p>
+ * When the connection supports it, the region is transferred from the file to the connection
+ * without being read into the buffer of the packet, and the region only records where its bytes go
+ * in that buffer. Otherwise the bytes are read once and kept, so the packet can be encoded again.
+ */
+public final class FileRegion
+{
+   private final FileChannel file;
+
+   private final long position;
+
+   private final int size;
+
+   private boolean transferred;
+
+   private int offset = -1;
+
+   private byte[] bytes;
+
+   public FileRegion(final FileChannel file, final long position, final int size)
+   {
+      this.file = file;
+      this.position = position;
+      this.size = size;
+   }
+
+   public FileChannel getFile()
+   {
+      return file;
+   }
+
+   public long getPosition()
+   {
+      return position;
+   }
+
+   public int getSize()
+   {
+      return size;
+   }
+
+   /**
+    * @return the index of the buffer of the packet the bytes of the region go at, or -1 if they were
+    *         written to the buffer
+    */
+   public int getOffset()
+   {
+      return offset;
+   }
+
+   /**
+    * Sets whether the bytes of the region will be transferred by the connection instead of being
+    * written to the buffer of the packet.
+    */
+   public void setTransferred(final boolean transferred)
+   {
+      this.transferred = transferred;
+   }
+
+   /**
+    * Writes the bytes of the region to the buffer, or records where they go when the connection
+    * transfers them.
+    */
+   public void encode(final HornetQBuffer buffer)
+   {
+      if (transferred)
+      {
+         offset = buffer.writerIndex();
+      }
+      else
+      {
+         offset = -1;
+
+         buffer.writeBytes(getBytes());
+      }
+   }
+
+   private byte[] getBytes()
+   {
+      if (bytes == null)
+      {
+         byte[] read = new byte[size];
+
+         ByteBuffer buffer = ByteBuffer.wrap(read);
+
+         try
+         {
+            while (buffer.hasRemaining())
+            {
+               if (file.read(buffer, position + buffer.position()) < 0)
+               {
+                  throw new IllegalStateException("Reached the end of the file reading " + this);
+               }
+            }
+         }
+         catch (IOException e)
+         {
+            throw new IllegalStateException("Could not read " + this, e);
+         }
+
+         bytes = read;
+      }
+
+      return bytes;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "FileRegion[position=" + position + ", size=" + size + "]";
+   }
+}
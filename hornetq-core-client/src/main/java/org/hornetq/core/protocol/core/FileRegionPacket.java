@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+
+/**
+ * A packet whose body can be a region of a file, which the channel has the connection transfer
+ * straight from the file when the connection supports it.
+ *
+ * @see org.hornetq.spi.core.remoting.Connection#isFileRegionSupported()
+ */
+public interface FileRegionPacket extends Packet
+{
+   /**
+    * @return the region of a file holding the body of the packet, or {@code null} if the packet
+    *         holds its body
+    */
+   FileRegion getFileRegion();
+
+   /**
+    * Encodes the packet without the bytes of its file region, which go at
+    * {@link FileRegion#getOffset()} of the returned buffer. The size of the packet includes them.
+    *
+    * @param connection the connection
+    * @return the buffer to write
+    */
+   HornetQBuffer encodeWithoutFileRegion(RemotingConnection connection);
+}
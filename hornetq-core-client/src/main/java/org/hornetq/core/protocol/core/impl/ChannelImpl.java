@@ -13,6 +13,7 @@
 
 package org.hornetq.core.protocol.core.impl;
 
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -23,6 +24,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQInterruptedException;
 import org.hornetq.api.core.Interceptor;
@@ -32,6 +34,8 @@ import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.ChannelHandler;
 import org.hornetq.core.protocol.core.CommandConfirmationHandler;
 import org.hornetq.core.protocol.core.CoreRemotingConnection;
+import org.hornetq.core.protocol.core.FileRegion;
+import org.hornetq.core.protocol.core.FileRegionPacket;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.wireformat.HornetQExceptionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.PacketsConfirmedMessage;
@@ -143,6 +147,8 @@ public final class ChannelImpl implements Channel
       {
          case PacketImpl.CLUSTER_TOPOLOGY_V2:
             return version >= 122;
+         case PacketImpl.REPLICATION_BATCH:
+            return version >= 124;
          default:
             return true;
       }
@@ -221,53 +227,159 @@ public final class ChannelImpl implements Channel
             HornetQClientLogger.LOGGER.trace("Sending packet nonblocking " + packet + " on channeID=" + id);
          }
 
-         HornetQBuffer buffer = packet.encode(connection);
+         FileRegion fileRegion = getTransferredFileRegion(packet);
 
-         lock.lock();
+         HornetQBuffer buffer;
 
-         try
+         if (fileRegion != null)
          {
-            if (failingOver)
-            {
-               // TODO - don't hardcode this timeout
-               try
-               {
-                  failoverCondition.await(10000, TimeUnit.MILLISECONDS);
-               }
-               catch (InterruptedException e)
-               {
-                  throw new HornetQInterruptedException(e);
-               }
-            }
+            buffer = ((FileRegionPacket)packet).encodeWithoutFileRegion(connection);
+         }
+         else
+         {
+            buffer = packet.encode(connection);
+         }
+
+         checkSendable(packet);
+
+         if (isTrace)
+         {
+            HornetQClientLogger.LOGGER.trace("Writing buffer for channelID=" + id);
+         }
+
+
+         // The actual send must be outside the lock, or with OIO transport, the write can block if the tcp
+         // buffer is full, preventing any incoming buffers being handled and blocking failover
+         if (fileRegion != null)
+         {
+            connection.getTransportConnection().write(buffer,
+                                                      fileRegion.getOffset(),
+                                                      fileRegion.getFile(),
+                                                      fileRegion.getPosition(),
+                                                      fileRegion.getSize());
+         }
+         else
+         {
+            connection.getTransportConnection().write(buffer, flush, batch);
+         }
+
+         return true;
+      }
+   }
+
+   // This must never called by more than one thread concurrently
+   public List<Packet> sendBatched(final List<? extends Packet> packets)
+   {
+      List<Packet> sent = new ArrayList<Packet>(packets.size());
+
+      for (Packet packet : packets)
+      {
+         if (invokeInterceptors(packet, interceptors, connection) == null)
+         {
+            sent.add(packet);
+         }
+      }
+
+      if (sent.isEmpty())
+      {
+         return sent;
+      }
+
+      synchronized (sendLock)
+      {
+         HornetQBuffer batch = null;
+
+         for (Packet packet : sent)
+         {
+            packet.setChannelID(id);
 
-            // Sanity check
-            if (transferring)
+            if (isTrace)
             {
-               throw new IllegalStateException("Cannot send a packet while channel is doing failover");
+               HornetQClientLogger.LOGGER.trace("Sending packet nonblocking " + packet + " on channeID=" + id);
             }
 
-            if (resendCache != null && packet.isRequiresConfirmations())
+            // a message packet is encoded in the buffer of its message, so it is copied before the next one
+            HornetQBuffer buffer = packet.encode(connection);
+
+            checkSendable(packet);
+
+            if (batch == null)
             {
-               resendCache.add(packet);
+               batch = connection.createBuffer(buffer.writerIndex() * sent.size());
             }
-         }
-         finally
-         {
-            lock.unlock();
+
+            batch.writeBytes(buffer, 0, buffer.writerIndex());
+
+            HornetQBuffers.release(buffer);
          }
 
          if (isTrace)
          {
-            HornetQClientLogger.LOGGER.trace("Writing buffer for channelID=" + id);
+            HornetQClientLogger.LOGGER.trace("Writing buffer of " + sent.size() + " packets for channelID=" + id);
          }
 
-
          // The actual send must be outside the lock, or with OIO transport, the write can block if the tcp
          // buffer is full, preventing any incoming buffers being handled and blocking failover
-         connection.getTransportConnection().write(buffer, flush, batch);
+         connection.getTransportConnection().write(batch, false, true);
+      }
 
-         return true;
+      return sent;
+   }
+
+   /**
+    * Waits for a failover in progress, and keeps the packet to be resent if it requires
+    * confirmation.
+    */
+   private void checkSendable(final Packet packet)
+   {
+      lock.lock();
+
+      try
+      {
+         if (failingOver)
+         {
+            // TODO - don't hardcode this timeout
+            try
+            {
+               failoverCondition.await(10000, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException e)
+            {
+               throw new HornetQInterruptedException(e);
+            }
+         }
+
+         // Sanity check
+         if (transferring)
+         {
+            throw new IllegalStateException("Cannot send a packet while channel is doing failover");
+         }
+
+         if (resendCache != null && packet.isRequiresConfirmations())
+         {
+            resendCache.add(packet);
+         }
+      }
+      finally
+      {
+         lock.unlock();
+      }
+   }
+
+   /**
+    * A packet kept to be resent must hold its bytes, as the file could be closed by the time it is
+    * resent.
+    * @return the file region of the packet if the connection transfers it from the file, or null
+    */
+   private FileRegion getTransferredFileRegion(final Packet packet)
+   {
+      if (packet instanceof FileRegionPacket && (resendCache == null || !packet.isRequiresConfirmations()) &&
+          connection.getTransportConnection().isFileRegionSupported())
+      {
+         return ((FileRegionPacket)packet).getFileRegion();
       }
+
+      return null;
    }
 
    /**
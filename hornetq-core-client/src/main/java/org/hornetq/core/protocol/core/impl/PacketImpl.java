@@ -14,6 +14,7 @@
 package org.hornetq.core.protocol.core.impl;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.core.FileRegion;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.utils.DataConstants;
@@ -151,6 +152,8 @@ public class PacketImpl implements Packet
 
    public static final byte SESS_PRODUCER_FAIL_CREDITS = 82;
 
+   public static final byte SESS_SEND_BATCH = 83;
+
    // Replication
 
    public static final byte REPLICATION_RESPONSE = 90;
@@ -211,6 +214,7 @@ public class PacketImpl implements Packet
 
    public static final byte REPLICATION_START_FINISH_SYNC = 120;
    public static final byte REPLICATION_SCHEDULED_FAILOVER = 121;
+   public static final byte REPLICATION_BATCH = 122;
 
    // Static --------------------------------------------------------
 
@@ -258,6 +262,30 @@ public class PacketImpl implements Packet
       return buffer;
    }
 
+   /**
+    * Encodes the packet as {@link #encode(RemotingConnection)} does, except the bytes of the region
+    * are left for the connection to transfer, see {@link org.hornetq.core.protocol.core.FileRegionPacket}.
+    */
+   protected HornetQBuffer encodeWithoutFileRegion(final RemotingConnection connection, final FileRegion region)
+   {
+      region.setTransferred(true);
+
+      try
+      {
+         HornetQBuffer buffer = encode(connection);
+
+         size += region.getSize();
+
+         buffer.setInt(0, size - DataConstants.SIZE_INT);
+
+         return buffer;
+      }
+      finally
+      {
+         region.setTransferred(false);
+      }
+   }
+
    public void decode(final HornetQBuffer buffer)
    {
       channelID = buffer.readLong();
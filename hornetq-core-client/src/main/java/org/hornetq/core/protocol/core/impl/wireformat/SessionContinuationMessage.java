@@ -16,6 +16,7 @@ package org.hornetq.core.protocol.core.impl.wireformat;
 import java.util.Arrays;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.core.FileRegion;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.utils.DataConstants;
 
@@ -36,6 +37,9 @@ public abstract class SessionContinuationMessage extends PacketImpl
 
    protected byte[] body;
 
+   // set instead of the body when it is sent from a file
+   protected FileRegion bodyRegion;
+
    protected boolean continues;
 
    public SessionContinuationMessage(final byte type, final byte[] body, final boolean continues)
@@ -45,6 +49,13 @@ public abstract class SessionContinuationMessage extends PacketImpl
       this.continues = continues;
    }
 
+   public SessionContinuationMessage(final byte type, final FileRegion bodyRegion, final boolean continues)
+   {
+      super(type);
+      this.bodyRegion = bodyRegion;
+      this.continues = continues;
+   }
+
    public SessionContinuationMessage(final byte type)
    {
       super(type);
@@ -78,8 +89,16 @@ public abstract class SessionContinuationMessage extends PacketImpl
    @Override
    public void encodeRest(final HornetQBuffer buffer)
    {
-      buffer.writeInt(body.length);
-      buffer.writeBytes(body);
+      if (bodyRegion != null)
+      {
+         buffer.writeInt(bodyRegion.getSize());
+         bodyRegion.encode(buffer);
+      }
+      else
+      {
+         buffer.writeInt(body.length);
+         buffer.writeBytes(body);
+      }
       buffer.writeBoolean(continues);
    }
 
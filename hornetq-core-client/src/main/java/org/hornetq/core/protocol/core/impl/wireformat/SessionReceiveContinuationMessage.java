@@ -14,6 +14,9 @@
 package org.hornetq.core.protocol.core.impl.wireformat;
 
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.core.FileRegion;
+import org.hornetq.core.protocol.core.FileRegionPacket;
+import org.hornetq.spi.core.protocol.RemotingConnection;
 import org.hornetq.utils.DataConstants;
 
 /**
@@ -25,7 +28,7 @@ import org.hornetq.utils.DataConstants;
  *
  *
  */
-public class SessionReceiveContinuationMessage extends SessionContinuationMessage
+public class SessionReceiveContinuationMessage extends SessionContinuationMessage implements FileRegionPacket
 {
 
    // Constants -----------------------------------------------------
@@ -70,6 +73,19 @@ public class SessionReceiveContinuationMessage extends SessionContinuationMessag
       this.size = packetSize;
    }
 
+   /**
+    * @param consumerID
+    * @param bodyRegion the region of the file of the large message holding this part of its body
+    * @param continues
+    */
+   public SessionReceiveContinuationMessage(final long consumerID,
+                                            final FileRegion bodyRegion,
+                                            final boolean continues)
+   {
+      super(SESS_RECEIVE_CONTINUATION, bodyRegion, continues);
+      this.consumerID = consumerID;
+   }
+
    /**
     * @return the consumerID
     */
@@ -80,6 +96,16 @@ public class SessionReceiveContinuationMessage extends SessionContinuationMessag
 
    // Public --------------------------------------------------------
 
+   public FileRegion getFileRegion()
+   {
+      return bodyRegion;
+   }
+
+   public HornetQBuffer encodeWithoutFileRegion(final RemotingConnection connection)
+   {
+      return encodeWithoutFileRegion(connection, bodyRegion);
+   }
+
    @Override
    public void encodeRest(final HornetQBuffer buffer)
    {
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.message.impl.MessageInternal;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+
+/**
+ * Several messages sent at once by a producer, routed by the server in a single call and, when
+ * a response is required, acknowledged with a single {@link NullResponseMessage}.
+ * <p>
+ * The messages are encoded one after the other as they are stored in the journal, and are
+ * decoded into the messages {@link #createMessage()} returns, which only the server does.
+ */
+public class SessionSendBatchMessage extends PacketImpl
+{
+   private List<MessageInternal> messages;
+
+   private boolean requiresResponse;
+
+   public SessionSendBatchMessage(final List<MessageInternal> messages, final boolean requiresResponse)
+   {
+      this();
+      this.messages = messages;
+      this.requiresResponse = requiresResponse;
+   }
+
+   public SessionSendBatchMessage()
+   {
+      super(SESS_SEND_BATCH);
+   }
+
+   // Public --------------------------------------------------------
+
+   public List<MessageInternal> getMessages()
+   {
+      return messages;
+   }
+
+   public boolean isRequiresResponse()
+   {
+      return requiresResponse;
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeInt(messages.size());
+      for (MessageInternal message : messages)
+      {
+         message.encode(buffer);
+      }
+      buffer.writeBoolean(requiresResponse);
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      int count = buffer.readInt();
+      messages = new ArrayList<MessageInternal>(count);
+      for (int i = 0; i < count; i++)
+      {
+         MessageInternal message = createMessage();
+         message.decode(buffer);
+         messages.add(message);
+      }
+      requiresResponse = buffer.readBoolean();
+   }
+
+   /**
+    * @return an empty message to decode one of the messages of the batch into
+    */
+   protected MessageInternal createMessage()
+   {
+      throw new IllegalStateException("Batches of messages are only decoded by the server");
+   }
+
+   @Override
+   public int hashCode()
+   {
+      final int prime = 31;
+      int result = super.hashCode();
+      result = prime * result + ((messages == null) ? 0 : messages.hashCode());
+      result = prime * result + (requiresResponse ? 1231 : 1237);
+      return result;
+   }
+
+   @Override
+   public boolean equals(Object obj)
+   {
+      if (this == obj)
+         return true;
+      if (!super.equals(obj))
+         return false;
+      if (!(obj instanceof SessionSendBatchMessage))
+         return false;
+      SessionSendBatchMessage other = (SessionSendBatchMessage)obj;
+      if (messages == null)
+      {
+         if (other.messages != null)
+            return false;
+      }
+      else if (!messages.equals(other.messages))
+         return false;
+      if (requiresResponse != other.requiresResponse)
+         return false;
+      return true;
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", messages=" + (messages == null ? 0 : messages.size()) + ", requiresResponse=" +
+         requiresResponse + "]";
+   }
+}
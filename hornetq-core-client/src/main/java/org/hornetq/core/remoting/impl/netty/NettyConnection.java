@@ -13,24 +13,30 @@
 
 package org.hornetq.core.remoting.impl.netty;
 
+import java.nio.channels.FileChannel;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQInterruptedException;
 import org.hornetq.api.core.TransportConfiguration;
-import org.hornetq.core.buffers.impl.ChannelBufferWrapper;
 import org.hornetq.core.security.HornetQPrincipal;
 import org.hornetq.core.client.HornetQClientLogger;
 import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
 import org.hornetq.spi.core.remoting.ReadyListener;
 import org.hornetq.utils.ConcurrentHashSet;
-import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandler;
+import org.jboss.netty.channel.DefaultFileRegion;
+import org.jboss.netty.channel.socket.SocketChannel;
 import org.jboss.netty.handler.ssl.SslHandler;
 
 /**
@@ -44,6 +50,9 @@ public class NettyConnection implements Connection
    // Constants -----------------------------------------------------
    private static final int BATCHING_BUFFER_SIZE = 8192;
 
+   // what is coalesced is written anyway once it gets this big, even while another write is in progress
+   private static final int MAX_COALESCED_SIZE = 64 * 1024;
+
    // Attributes ----------------------------------------------------
 
    private final Channel channel;
@@ -54,16 +63,41 @@ public class NettyConnection implements Connection
 
    private final boolean batchingEnabled;
 
+   private final boolean coalesceWrites;
+
    private final boolean directDeliver;
 
    private volatile HornetQBuffer batchBuffer;
 
+   // the packets written while a write to the channel was in progress, written together once it is done
+   private volatile HornetQBuffer coalesceBuffer;
+
+   private final AtomicInteger writesInProgress = new AtomicInteger();
+
+   private final ChannelFutureListener writeDoneListener = new ChannelFutureListener()
+   {
+      public void operationComplete(final ChannelFuture future)
+      {
+         if (writesInProgress.decrementAndGet() == 0)
+         {
+            writeCoalescedWhenIdle();
+         }
+      }
+   };
+
+   private final AtomicLong packetsWritten = new AtomicLong();
+
+   private final AtomicLong channelWrites = new AtomicLong();
+
    private final Map<String, Object> configuration;
 
    private final Semaphore writeLock = new Semaphore(1);
 
    private final Set<ReadyListener> readyListeners = new ConcurrentHashSet<ReadyListener>();
 
+   // checked on the first use, when the pipeline is complete
+   private volatile Boolean fileRegionSupported;
+
    // Static --------------------------------------------------------
 
    // Constructors --------------------------------------------------
@@ -73,6 +107,21 @@ public class NettyConnection implements Connection
                            final ConnectionLifeCycleListener listener,
                            boolean batchingEnabled,
                            boolean directDeliver)
+   {
+      this(configuration, channel, listener, batchingEnabled, false, directDeliver);
+   }
+
+   /**
+    * @param coalesceWrites if true, the packets written while a write to the channel is in progress
+    *           are gathered and written at once when it is done, instead of being batched on a
+    *           timer
+    */
+   public NettyConnection(final Map<String, Object> configuration,
+                           final Channel channel,
+                           final ConnectionLifeCycleListener listener,
+                           boolean batchingEnabled,
+                           boolean coalesceWrites,
+                           boolean directDeliver)
    {
       this.configuration = configuration;
 
@@ -80,7 +129,9 @@ public class NettyConnection implements Connection
 
       this.listener = listener;
 
-      this.batchingEnabled = batchingEnabled;
+      this.batchingEnabled = batchingEnabled && !coalesceWrites;
+
+      this.coalesceWrites = coalesceWrites;
 
       this.directDeliver = directDeliver;
    }
@@ -123,12 +174,18 @@ public class NettyConnection implements Connection
 
       closed = true;
 
+      if (HornetQClientLogger.LOGGER.isDebugEnabled())
+      {
+         HornetQClientLogger.LOGGER.debug(this + " wrote " + packetsWritten.get() + " packets in " +
+                                          channelWrites.get() + " channel writes");
+      }
+
       listener.connectionDestroyed(getID());
    }
 
    public HornetQBuffer createBuffer(final int size)
    {
-      return new ChannelBufferWrapper(ChannelBuffers.dynamicBuffer(size));
+      return HornetQBuffers.pooledBuffer(size);
    }
 
    public Object getID()
@@ -150,9 +207,9 @@ public class NettyConnection implements Connection
          {
             if (batchBuffer != null && batchBuffer.readable())
             {
-               channel.write(batchBuffer.channelBuffer());
+               writeAndRelease(batchBuffer);
 
-               batchBuffer = HornetQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+               batchBuffer = HornetQBuffers.pooledBuffer(BATCHING_BUFFER_SIZE);
             }
          }
          finally
@@ -169,6 +226,12 @@ public class NettyConnection implements Connection
 
    public void write(HornetQBuffer buffer, final boolean flush, final boolean batched)
    {
+      if (coalesceWrites)
+      {
+         coalesce(buffer, flush);
+
+         return;
+      }
 
       try
       {
@@ -176,17 +239,21 @@ public class NettyConnection implements Connection
 
          try
          {
+            packetsWritten.incrementAndGet();
+
             if (batchBuffer == null && batchingEnabled && batched && !flush)
             {
                // Lazily create batch buffer
 
-               batchBuffer = HornetQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+               batchBuffer = HornetQBuffers.pooledBuffer(BATCHING_BUFFER_SIZE);
             }
 
             if (batchBuffer != null)
             {
                batchBuffer.writeBytes(buffer, 0, buffer.writerIndex());
 
+               HornetQBuffers.release(buffer);
+
                if (batchBuffer.writerIndex() >= BATCHING_BUFFER_SIZE || !batched || flush)
                {
                   // If the batch buffer is full or it's flush param or not batched then flush the buffer
@@ -206,32 +273,15 @@ public class NettyConnection implements Connection
                {
                   // Create a new buffer
 
-                  batchBuffer = HornetQBuffers.dynamicBuffer(BATCHING_BUFFER_SIZE);
+                  batchBuffer = HornetQBuffers.pooledBuffer(BATCHING_BUFFER_SIZE);
                }
             }
 
-            ChannelFuture future = channel.write(buffer.channelBuffer());
+            ChannelFuture future = writeAndRelease(buffer);
 
             if (flush)
             {
-               while (true)
-               {
-                  try
-                  {
-                     boolean ok = future.await(10000);
-
-                     if (!ok)
-                     {
-                        HornetQClientLogger.LOGGER.timeoutFlushingPacket();
-                     }
-
-                     break;
-                  }
-                  catch (InterruptedException e)
-                  {
-                     throw new HornetQInterruptedException(e);
-                  }
-               }
+               awaitWritten(future);
             }
          }
          finally
@@ -245,6 +295,93 @@ public class NettyConnection implements Connection
       }
    }
 
+   public boolean isFileRegionSupported()
+   {
+      Boolean supported = fileRegionSupported;
+
+      if (supported == null)
+      {
+         supported = channel instanceof SocketChannel;
+
+         // The region is written as it is, so nothing in the pipeline may have to encrypt or encode
+         // the writes
+         for (ChannelHandler handler : channel.getPipeline().toMap().values())
+         {
+            if (!(handler instanceof HornetQChannelHandler || handler instanceof HornetQFrameDecoder ||
+                  handler instanceof HornetQFrameDecoder2))
+            {
+               supported = false;
+            }
+         }
+
+         fileRegionSupported = supported;
+      }
+
+      return supported;
+   }
+
+   public void write(final HornetQBuffer buffer,
+                     final int offset,
+                     final FileChannel file,
+                     final long position,
+                     final int size)
+   {
+      try
+      {
+         writeLock.acquire();
+
+         try
+         {
+            packetsWritten.incrementAndGet();
+
+            // what was batched or coalesced before goes first
+            if (batchBuffer != null && batchBuffer.readable())
+            {
+               writeAndRelease(batchBuffer);
+
+               batchBuffer = HornetQBuffers.pooledBuffer(BATCHING_BUFFER_SIZE);
+            }
+
+            HornetQBuffer coalesced = coalesceBuffer;
+
+            if (coalesced != null)
+            {
+               coalesceBuffer = null;
+
+               writeCoalesced(coalesced);
+            }
+
+            ChannelBuffer channelBuffer = buffer.channelBuffer();
+
+            channel.write(channelBuffer.slice(0, offset));
+
+            ChannelFuture future = channel.write(new DefaultFileRegion(file, position, size, false));
+
+            channelWrites.addAndGet(2);
+
+            if (buffer.writerIndex() > offset)
+            {
+               future = channel.write(channelBuffer.slice(offset, buffer.writerIndex() - offset));
+
+               channelWrites.incrementAndGet();
+            }
+
+            releaseWhenWritten(future, buffer);
+
+            // The file is closed by the caller, so the region must have been transferred before returning
+            awaitWritten(future);
+         }
+         finally
+         {
+            writeLock.release();
+         }
+      }
+      catch (InterruptedException e)
+      {
+         throw new HornetQInterruptedException(e);
+      }
+   }
+
    public String getRemoteAddress()
    {
       return channel.getRemoteAddress().toString();
@@ -265,6 +402,33 @@ public class NettyConnection implements Connection
       readyListeners.remove(listener);
    }
 
+   /**
+    * @return the number of packets written to this connection
+    */
+   public long getPacketsWritten()
+   {
+      return packetsWritten.get();
+   }
+
+   /**
+    * @return the number of writes to the channel, each of them costing at least one system call
+    */
+   public long getChannelWrites()
+   {
+      return channelWrites.get();
+   }
+
+   /**
+    * @return the average number of channel writes per packet written to this connection, which is
+    *         lower than 1 once packets are batched or coalesced
+    */
+   public double getChannelWritesPerPacket()
+   {
+      long packets = packetsWritten.get();
+
+      return packets == 0 ? 0 : (double)channelWrites.get() / packets;
+   }
+
    //never allow this
    public HornetQPrincipal getDefaultHornetQPrincipal()
    {
@@ -308,6 +472,166 @@ public class NettyConnection implements Connection
 
    // Private -------------------------------------------------------
 
+   /**
+    * Writes the packet straight away when nothing is being written to the channel, so a lone packet
+    * is not delayed. Otherwise it is appended to what the next write will carry, which happens as
+    * soon as the writes in progress are done: the more the channel is loaded, the more packets are
+    * coalesced in each write.
+    */
+   private void coalesce(final HornetQBuffer buffer, final boolean flush)
+   {
+      try
+      {
+         writeLock.acquire();
+
+         try
+         {
+            packetsWritten.incrementAndGet();
+
+            HornetQBuffer coalesced = coalesceBuffer;
+
+            if (coalesced == null && writesInProgress.get() == 0)
+            {
+               coalesced = buffer;
+            }
+            else
+            {
+               if (coalesced == null)
+               {
+                  coalesced = HornetQBuffers.pooledBuffer(BATCHING_BUFFER_SIZE);
+               }
+
+               coalesced.writeBytes(buffer, 0, buffer.writerIndex());
+
+               HornetQBuffers.release(buffer);
+
+               if (!flush && coalesced.writerIndex() < MAX_COALESCED_SIZE)
+               {
+                  coalesceBuffer = coalesced;
+
+                  return;
+               }
+            }
+
+            coalesceBuffer = null;
+
+            ChannelFuture future = writeCoalesced(coalesced);
+
+            if (flush && future != null)
+            {
+               awaitWritten(future);
+            }
+         }
+         finally
+         {
+            writeLock.release();
+
+            // a write may have completed while the lock was held
+            writeCoalescedWhenIdle();
+         }
+      }
+      catch (InterruptedException e)
+      {
+         throw new HornetQInterruptedException(e);
+      }
+   }
+
+   /**
+    * The lock is only tried here, as this also runs on the I/O thread when a write completes, maybe
+    * within a write made by the thread holding the lock: whoever holds it calls this again once it
+    * released it.
+    */
+   private void writeCoalescedWhenIdle()
+   {
+      while (coalesceBuffer != null && writesInProgress.get() == 0 && writeLock.tryAcquire())
+      {
+         try
+         {
+            HornetQBuffer coalesced = coalesceBuffer;
+
+            if (coalesced != null && writesInProgress.get() == 0)
+            {
+               coalesceBuffer = null;
+
+               writeCoalesced(coalesced);
+            }
+         }
+         finally
+         {
+            writeLock.release();
+         }
+      }
+   }
+
+   private ChannelFuture writeCoalesced(final HornetQBuffer buffer)
+   {
+      writesInProgress.incrementAndGet();
+
+      ChannelFuture future = writeAndRelease(buffer);
+
+      if (future == null)
+      {
+         writesInProgress.decrementAndGet();
+      }
+      else
+      {
+         future.addListener(writeDoneListener);
+      }
+
+      return future;
+   }
+
+   private ChannelFuture writeAndRelease(final HornetQBuffer buffer)
+   {
+      channelWrites.incrementAndGet();
+
+      ChannelFuture future = channel.write(buffer.channelBuffer());
+
+      releaseWhenWritten(future, buffer);
+
+      return future;
+   }
+
+   /**
+    * Netty writes from the memory of the buffer, so a pooled buffer can only be released once the
+    * write is done.
+    */
+   private static void releaseWhenWritten(final ChannelFuture future, final HornetQBuffer buffer)
+   {
+      if (future != null)
+      {
+         future.addListener(new ChannelFutureListener()
+         {
+            public void operationComplete(final ChannelFuture future)
+            {
+               HornetQBuffers.release(buffer);
+            }
+         });
+      }
+   }
+
+   private void awaitWritten(final ChannelFuture future)
+   {
+      while (true)
+      {
+         try
+         {
+            boolean ok = future.await(10000);
+
+            if (!ok)
+            {
+               HornetQClientLogger.LOGGER.timeoutFlushingPacket();
+            }
+
+            break;
+         }
+         catch (InterruptedException e)
+         {
+            throw new HornetQInterruptedException(e);
+         }
+      }
+   }
+
    // Inner classes -------------------------------------------------
 
 }
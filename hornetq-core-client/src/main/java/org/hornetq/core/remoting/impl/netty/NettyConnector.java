@@ -152,6 +152,8 @@ public class NettyConnector extends AbstractConnector
 
    private final long batchDelay;
 
+   private final boolean coalesceWrites;
+
    private final ConcurrentMap<Object, Connection> connections = new ConcurrentHashMap<Object, Connection>();
 
    private final String servletPath;
@@ -308,6 +310,10 @@ public class NettyConnector extends AbstractConnector
          TransportConstants.DEFAULT_BATCH_DELAY,
          configuration);
 
+      coalesceWrites = ConfigurationHelper.getBooleanProperty(TransportConstants.COALESCE_WRITES_PROP_NAME,
+         TransportConstants.DEFAULT_COALESCE_WRITES,
+         configuration);
+
       connectTimeoutMillis = ConfigurationHelper.getIntProperty(TransportConstants.NETTY_CONNECT_TIMEOUT,
          TransportConstants.DEFAULT_NETTY_CONNECT_TIMEOUT,
          configuration);
@@ -665,7 +671,12 @@ public class NettyConnector extends AbstractConnector
 
          // No acceptor on a client connection
          Listener connectionListener = new Listener();
-         NettyConnection conn = new NettyConnection(configuration, ch, connectionListener, !httpEnabled && batchDelay > 0, false);
+         NettyConnection conn = new NettyConnection(configuration,
+                                                    ch,
+                                                    connectionListener,
+                                                    !httpEnabled && batchDelay > 0,
+                                                    !httpEnabled && coalesceWrites,
+                                                    false);
          connectionListener.connectionCreated(null, conn, ProtocolType.CORE);
 
          return conn;
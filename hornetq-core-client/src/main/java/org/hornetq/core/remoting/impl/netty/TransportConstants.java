@@ -92,6 +92,8 @@ public class TransportConstants
 
    public static final String BATCH_DELAY = "batch-delay";
 
+   public static final String COALESCE_WRITES_PROP_NAME = "coalesce-writes";
+
    public static final String DIRECT_DELIVER = "direct-deliver";
 
    public static final String CLUSTER_CONNECTION = "cluster-connection";
@@ -157,6 +159,8 @@ public class TransportConstants
 
    public static final long DEFAULT_BATCH_DELAY = 0;
 
+   public static final boolean DEFAULT_COALESCE_WRITES = false;
+
    public static final boolean DEFAULT_DIRECT_DELIVER = true;
 
    public static final Set<String> ALLOWABLE_CONNECTOR_KEYS;
@@ -195,6 +199,7 @@ public class TransportConstants
       allowableAcceptorKeys.add(TransportConstants.TCP_RECEIVEBUFFER_SIZE_PROPNAME);
       allowableAcceptorKeys.add(TransportConstants.NIO_REMOTING_THREADS_PROPNAME);
       allowableAcceptorKeys.add(TransportConstants.BATCH_DELAY);
+      allowableAcceptorKeys.add(TransportConstants.COALESCE_WRITES_PROP_NAME);
       allowableAcceptorKeys.add(TransportConstants.DIRECT_DELIVER);
       allowableAcceptorKeys.add(TransportConstants.CLUSTER_CONNECTION);
       allowableAcceptorKeys.add(TransportConstants.STOMP_CONSUMERS_CREDIT);
@@ -229,6 +234,7 @@ public class TransportConstants
       allowableConnectorKeys.add(TransportConstants.TCP_RECEIVEBUFFER_SIZE_PROPNAME);
       allowableConnectorKeys.add(TransportConstants.NIO_REMOTING_THREADS_PROPNAME);
       allowableConnectorKeys.add(TransportConstants.BATCH_DELAY);
+      allowableConnectorKeys.add(TransportConstants.COALESCE_WRITES_PROP_NAME);
       allowableConnectorKeys.add(HornetQDefaultConfiguration.getPropMaskPassword());
       allowableConnectorKeys.add(HornetQDefaultConfiguration.getPropPasswordCodec());
       allowableConnectorKeys.add(TransportConstants.NETTY_CONNECT_TIMEOUT);
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.remoting.impl.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.group.ChannelGroup;
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.core.client.HornetQClientLogger;
+import org.hornetq.core.client.HornetQClientMessageBundle;
+import org.hornetq.spi.core.remoting.BufferHandler;
+import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
+import org.hornetq.utils.UUIDGenerator;
+
+/**
+ * Common handler implementation for the client and server side of the Netty 4 transport.
+ * <p>
+ * It receives the packets decoded by {@link Netty4FrameDecoder}, or the raw bytes for the
+ * protocols decoding their own frames.
+ */
+class Netty4ChannelHandler extends ChannelInboundHandlerAdapter
+{
+   private final ChannelGroup group;
+
+   private final BufferHandler handler;
+
+   private final ConnectionLifeCycleListener listener;
+
+   /** The ID of the connection of the channel */
+   final String id = UUIDGenerator.getInstance().generateStringUUID();
+
+   volatile boolean active;
+
+   Netty4ChannelHandler(final ChannelGroup group,
+                        final BufferHandler handler,
+                        final ConnectionLifeCycleListener listener)
+   {
+      this.group = group;
+      this.handler = handler;
+      this.listener = listener;
+   }
+
+   @Override
+   public void channelRegistered(final ChannelHandlerContext ctx) throws Exception
+   {
+      group.add(ctx.channel());
+      ctx.fireChannelRegistered();
+   }
+
+   @Override
+   public void channelWritabilityChanged(final ChannelHandlerContext ctx) throws Exception
+   {
+      listener.connectionReadyForWrites(id, ctx.channel().isWritable());
+   }
+
+   @Override
+   public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception
+   {
+      HornetQBuffer buffer;
+
+      if (msg instanceof ByteBuf)
+      {
+         ByteBuf byteBuf = (ByteBuf)msg;
+
+         try
+         {
+            buffer = Netty4FrameDecoder.copy(byteBuf);
+         }
+         finally
+         {
+            byteBuf.release();
+         }
+      }
+      else
+      {
+         buffer = (HornetQBuffer)msg;
+      }
+
+      handler.bufferReceived(id, buffer);
+   }
+
+   @Override
+   public void channelInactive(final ChannelHandlerContext ctx) throws Exception
+   {
+      synchronized (this)
+      {
+         if (active)
+         {
+            listener.connectionDestroyed(id);
+
+            active = false;
+         }
+      }
+   }
+
+   @Override
+   public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) throws Exception
+   {
+      if (!active)
+      {
+         return;
+      }
+
+      // We don't want to log this - since it is normal for this to happen during failover/reconnect
+      // and we don't want to spew out stack traces in that event
+      // The user has access to this exeception anyway via the HornetQException initial cause
+
+      HornetQException me = HornetQClientMessageBundle.BUNDLE.nettyError();
+      me.initCause(cause);
+
+      synchronized (listener)
+      {
+         try
+         {
+            listener.connectionException(id, me);
+            active = false;
+         }
+         catch (Exception ex)
+         {
+            HornetQClientLogger.LOGGER.errorCallingLifeCycleListener(ex);
+         }
+      }
+   }
+}
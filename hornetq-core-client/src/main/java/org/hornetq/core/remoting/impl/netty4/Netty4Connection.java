@@ -0,0 +1,370 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.remoting.impl.netty4;
+
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultFileRegion;
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.api.core.HornetQInterruptedException;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.core.client.HornetQClientLogger;
+import org.hornetq.core.security.HornetQPrincipal;
+import org.hornetq.spi.core.remoting.Connection;
+import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
+import org.hornetq.spi.core.remoting.ReadyListener;
+import org.hornetq.utils.ConcurrentHashSet;
+
+/**
+ * A connection of the Netty 4 transport.
+ * <p>
+ * The buffers are written straight from their memory, and released once written. The writes are
+ * queued and done by the event loop of the channel, which flushes them once it has done all of
+ * them: writes made while the event loop is busy go to the wire together. A batched write is only
+ * flushed once {@link #BATCHING_BUFFER_SIZE} bytes are queued, or by
+ * {@link #checkFlushBatchBuffer()}.
+ */
+public class Netty4Connection implements Connection
+{
+   // Constants -----------------------------------------------------
+
+   private static final int BATCHING_BUFFER_SIZE = 8192;
+
+   // Attributes ----------------------------------------------------
+
+   private final Channel channel;
+
+   private final Object id;
+
+   private boolean closed;
+
+   private final ConnectionLifeCycleListener listener;
+
+   private final boolean batchingEnabled;
+
+   private final boolean directDeliver;
+
+   private final Map<String, Object> configuration;
+
+   private final Set<ReadyListener> readyListeners = new ConcurrentHashSet<ReadyListener>();
+
+   private final Queue<PendingWrite> pendingWrites = new ConcurrentLinkedQueue<PendingWrite>();
+
+   /** The size of the batched writes queued since the last flush */
+   private final AtomicInteger batchedBytes = new AtomicInteger(0);
+
+   private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+   private final Runnable flushTask = new Runnable()
+   {
+      public void run()
+      {
+         // set before polling, so a write queued after the last poll schedules another flush
+         flushScheduled.set(false);
+
+         batchedBytes.set(0);
+
+         PendingWrite write;
+
+         while ((write = pendingWrites.poll()) != null)
+         {
+            channel.write(write.message, write.promise);
+         }
+
+         channel.flush();
+      }
+   };
+
+   // Constructors --------------------------------------------------
+
+   public Netty4Connection(final Map<String, Object> configuration,
+                           final Channel channel,
+                           final Object id,
+                           final ConnectionLifeCycleListener listener,
+                           final boolean batchingEnabled,
+                           final boolean directDeliver)
+   {
+      this.configuration = configuration;
+
+      this.channel = channel;
+
+      this.id = id;
+
+      this.listener = listener;
+
+      this.batchingEnabled = batchingEnabled;
+
+      this.directDeliver = directDeliver;
+   }
+
+   // Connection implementation ----------------------------
+
+   public synchronized void close()
+   {
+      if (closed)
+      {
+         return;
+      }
+
+      // what was batched goes before the close
+      scheduleFlush();
+
+      ChannelFuture closeFuture = channel.close();
+
+      if (!channel.eventLoop().inEventLoop() && !closeFuture.awaitUninterruptibly(10000))
+      {
+         HornetQClientLogger.LOGGER.timeoutClosingNettyChannel();
+      }
+
+      closed = true;
+
+      listener.connectionDestroyed(getID());
+   }
+
+   public HornetQBuffer createBuffer(final int size)
+   {
+      return HornetQBuffers.pooledBuffer(size);
+   }
+
+   public Object getID()
+   {
+      return id;
+   }
+
+   // This is called periodically to flush the batched writes
+   public void checkFlushBatchBuffer()
+   {
+      if (batchingEnabled && !pendingWrites.isEmpty())
+      {
+         scheduleFlush();
+      }
+   }
+
+   public void write(final HornetQBuffer buffer)
+   {
+      write(buffer, false, false);
+   }
+
+   public void write(final HornetQBuffer buffer, final boolean flush, final boolean batched)
+   {
+      ChannelPromise promise = channel.newPromise();
+
+      pendingWrites.offer(new PendingWrite(Unpooled.wrappedBuffer(buffer.toByteBuffer()), promise, buffer));
+
+      if (batchingEnabled && batched && !flush &&
+          batchedBytes.addAndGet(buffer.readableBytes()) < BATCHING_BUFFER_SIZE)
+      {
+         return;
+      }
+
+      scheduleFlush();
+
+      if (flush)
+      {
+         awaitWritten(promise);
+      }
+   }
+
+   /**
+    * The region is transferred by the event loop, so the writer must be able to wait for it: the
+    * event loop can't.
+    */
+   public boolean isFileRegionSupported()
+   {
+      return !channel.eventLoop().inEventLoop();
+   }
+
+   public void write(final HornetQBuffer buffer,
+                     final int offset,
+                     final FileChannel file,
+                     final long position,
+                     final int size)
+   {
+      pendingWrites.offer(new PendingWrite(Unpooled.wrappedBuffer(buffer.toByteBuffer(0, offset)),
+                                           channel.voidPromise(),
+                                           null));
+
+      pendingWrites.offer(new PendingWrite(new DefaultFileRegion(file, position, size)
+      {
+         @Override
+         protected void deallocate()
+         {
+            // the file is closed by the caller
+         }
+      }, channel.voidPromise(), null));
+
+      ChannelPromise promise = channel.newPromise();
+
+      pendingWrites.offer(new PendingWrite(Unpooled.wrappedBuffer(buffer.toByteBuffer(offset,
+                                                                                      buffer.writerIndex() - offset)),
+                                           promise,
+                                           buffer));
+
+      scheduleFlush();
+
+      // The file is closed by the caller, so the region must have been transferred before returning
+      awaitWritten(promise);
+   }
+
+   public String getRemoteAddress()
+   {
+      return channel.remoteAddress().toString();
+   }
+
+   public boolean isDirectDeliver()
+   {
+      return directDeliver;
+   }
+
+   public void addReadyListener(final ReadyListener listener)
+   {
+      readyListeners.add(listener);
+   }
+
+   public void removeReadyListener(final ReadyListener listener)
+   {
+      readyListeners.remove(listener);
+   }
+
+   //never allow this
+   public HornetQPrincipal getDefaultHornetQPrincipal()
+   {
+      return null;
+   }
+
+   void fireReady(final boolean ready)
+   {
+      for (ReadyListener listener : readyListeners)
+      {
+         listener.readyForWriting(ready);
+      }
+   }
+
+   @Override
+   public TransportConfiguration getConnectorConfig()
+   {
+      if (configuration != null)
+      {
+         return new TransportConfiguration(Netty4ConnectorFactory.class.getName(), this.configuration);
+      }
+      else
+      {
+         return null;
+      }
+   }
+
+   // Public --------------------------------------------------------
+
+   @Override
+   public String toString()
+   {
+      return super.toString() + "[local= " + channel.localAddress() + ", remote=" + channel.remoteAddress() + "]";
+   }
+
+   // Private -------------------------------------------------------
+
+   private void scheduleFlush()
+   {
+      if (flushScheduled.compareAndSet(false, true))
+      {
+         try
+         {
+            channel.eventLoop().execute(flushTask);
+         }
+         catch (RejectedExecutionException e)
+         {
+            // the event loop is shut down, so is the channel
+            PendingWrite write;
+
+            while ((write = pendingWrites.poll()) != null)
+            {
+               write.release();
+            }
+         }
+      }
+   }
+
+   private void awaitWritten(final ChannelFuture future)
+   {
+      if (channel.eventLoop().inEventLoop())
+      {
+         // the write is only done once the event loop is back
+         return;
+      }
+
+      try
+      {
+         if (!future.await(10000))
+         {
+            HornetQClientLogger.LOGGER.timeoutFlushingPacket();
+         }
+      }
+      catch (InterruptedException e)
+      {
+         throw new HornetQInterruptedException(e);
+      }
+   }
+
+   // Inner classes -------------------------------------------------
+
+   /**
+    * A write queued for the event loop, which releases its buffer once written.
+    */
+   private static final class PendingWrite implements ChannelFutureListener
+   {
+      final Object message;
+
+      final ChannelPromise promise;
+
+      private final HornetQBuffer buffer;
+
+      PendingWrite(final Object message, final ChannelPromise promise, final HornetQBuffer buffer)
+      {
+         this.message = message;
+         this.promise = promise;
+         this.buffer = buffer;
+
+         if (buffer != null)
+         {
+            promise.addListener(this);
+         }
+      }
+
+      public void operationComplete(final ChannelFuture future)
+      {
+         release();
+      }
+
+      void release()
+      {
+         if (buffer != null)
+         {
+            HornetQBuffers.release(buffer);
+         }
+      }
+   }
+}
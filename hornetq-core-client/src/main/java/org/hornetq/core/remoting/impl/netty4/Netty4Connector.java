@@ -0,0 +1,530 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.remoting.impl.netty4;
+
+import java.net.ConnectException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.core.client.HornetQClientLogger;
+import org.hornetq.core.client.HornetQClientMessageBundle;
+import org.hornetq.core.remoting.impl.netty.TransportConstants;
+import org.hornetq.core.server.HornetQComponent;
+import org.hornetq.spi.core.protocol.ProtocolType;
+import org.hornetq.spi.core.remoting.AbstractConnector;
+import org.hornetq.spi.core.remoting.BufferHandler;
+import org.hornetq.spi.core.remoting.Connection;
+import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
+import org.hornetq.utils.ConfigurationHelper;
+
+/**
+ * A TCP connector on the event loops of Netty 4, using the native epoll transport when it is
+ * available.
+ * <p>
+ * The connectors of the VM share their event loops, so a client opening many connections doesn't
+ * run a thread per connection. SSL and HTTP are only supported by the
+ * {@link org.hornetq.core.remoting.impl.netty.NettyConnector}.
+ */
+public class Netty4Connector extends AbstractConnector
+{
+   // Constants -----------------------------------------------------
+
+   /** The event loops of the connectors using NIO, and of the ones using epoll */
+   private static final SharedEventLoopGroup[] sharedGroups = { new SharedEventLoopGroup(false),
+                                                                new SharedEventLoopGroup(true) };
+
+   // Attributes ----------------------------------------------------
+
+   private Bootstrap bootstrap;
+
+   private ChannelGroup channelGroup;
+
+   private SharedEventLoopGroup sharedGroup;
+
+   private final BufferHandler handler;
+
+   private final ConnectionLifeCycleListener listener;
+
+   private final String host;
+
+   private final int port;
+
+   private final String localAddress;
+
+   private final int localPort;
+
+   private final boolean tcpNoDelay;
+
+   private final int tcpSendBufferSize;
+
+   private final int tcpReceiveBufferSize;
+
+   private final int nioRemotingThreads;
+
+   private final boolean useEpoll;
+
+   private final int writeBufferHighWaterMark;
+
+   private final int writeBufferLowWaterMark;
+
+   private final long batchDelay;
+
+   private final int connectTimeoutMillis;
+
+   private final ConcurrentMap<Object, Netty4Connection> connections = new ConcurrentHashMap<Object, Netty4Connection>();
+
+   private final ScheduledExecutorService scheduledThreadPool;
+
+   private final Executor closeExecutor;
+
+   private BatchFlusher flusher;
+
+   private ScheduledFuture<?> batchFlusherFuture;
+
+   // Constructors --------------------------------------------------
+
+   public Netty4Connector(final Map<String, Object> configuration,
+                          final BufferHandler handler,
+                          final ConnectionLifeCycleListener listener,
+                          final Executor closeExecutor,
+                          final Executor threadPool,
+                          final ScheduledExecutorService scheduledThreadPool)
+   {
+      super(configuration);
+      if (listener == null)
+      {
+         throw HornetQClientMessageBundle.BUNDLE.nullListener();
+      }
+
+      if (handler == null)
+      {
+         throw HornetQClientMessageBundle.BUNDLE.nullHandler();
+      }
+
+      this.listener = listener;
+
+      this.handler = handler;
+
+      host = ConfigurationHelper.getStringProperty(TransportConstants.HOST_PROP_NAME,
+         TransportConstants.DEFAULT_HOST,
+         configuration);
+      port = ConfigurationHelper.getIntProperty(TransportConstants.PORT_PROP_NAME,
+         TransportConstants.DEFAULT_PORT,
+         configuration);
+      localAddress = ConfigurationHelper.getStringProperty(TransportConstants.LOCAL_ADDRESS_PROP_NAME,
+         TransportConstants.DEFAULT_LOCAL_ADDRESS,
+         configuration);
+      localPort = ConfigurationHelper.getIntProperty(TransportConstants.LOCAL_PORT_PROP_NAME,
+         TransportConstants.DEFAULT_LOCAL_PORT,
+         configuration);
+
+      tcpNoDelay = ConfigurationHelper.getBooleanProperty(TransportConstants.TCP_NODELAY_PROPNAME,
+         TransportConstants.DEFAULT_TCP_NODELAY,
+         configuration);
+      tcpSendBufferSize = ConfigurationHelper.getIntProperty(TransportConstants.TCP_SENDBUFFER_SIZE_PROPNAME,
+         TransportConstants.DEFAULT_TCP_SENDBUFFER_SIZE,
+         configuration);
+      tcpReceiveBufferSize = ConfigurationHelper.getIntProperty(TransportConstants.TCP_RECEIVEBUFFER_SIZE_PROPNAME,
+         TransportConstants.DEFAULT_TCP_RECEIVEBUFFER_SIZE,
+         configuration);
+
+      nioRemotingThreads = ConfigurationHelper.getIntProperty(TransportConstants.NIO_REMOTING_THREADS_PROPNAME,
+         -1,
+         configuration);
+
+      useEpoll = ConfigurationHelper.getBooleanProperty(Netty4TransportConstants.USE_EPOLL_PROP_NAME,
+         Netty4TransportConstants.DEFAULT_USE_EPOLL,
+         configuration);
+
+      writeBufferHighWaterMark = ConfigurationHelper.getIntProperty(Netty4TransportConstants.WRITE_BUFFER_HIGH_WATER_MARK_PROPNAME,
+         Netty4TransportConstants.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK,
+         configuration);
+      writeBufferLowWaterMark = ConfigurationHelper.getIntProperty(Netty4TransportConstants.WRITE_BUFFER_LOW_WATER_MARK_PROPNAME,
+         Netty4TransportConstants.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK,
+         configuration);
+
+      batchDelay = ConfigurationHelper.getLongProperty(TransportConstants.BATCH_DELAY,
+         TransportConstants.DEFAULT_BATCH_DELAY,
+         configuration);
+
+      connectTimeoutMillis = ConfigurationHelper.getIntProperty(TransportConstants.NETTY_CONNECT_TIMEOUT,
+         TransportConstants.DEFAULT_NETTY_CONNECT_TIMEOUT,
+         configuration);
+
+      this.closeExecutor = closeExecutor;
+
+      this.scheduledThreadPool = scheduledThreadPool;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "Netty4Connector [host=" + host +
+         ", port=" +
+         port +
+         ", useEpoll=" +
+         useEpoll +
+         "]";
+   }
+
+   public synchronized void start()
+   {
+      if (bootstrap != null)
+      {
+         return;
+      }
+
+      boolean epoll = useEpoll && Netty4Transport.isEpollAvailable();
+
+      sharedGroup = sharedGroups[epoll ? 1 : 0];
+
+      EventLoopGroup group = sharedGroup.acquire(Netty4Transport.getRemotingThreads(nioRemotingThreads));
+
+      bootstrap = new Bootstrap();
+
+      bootstrap.group(group);
+      bootstrap.channel(Netty4Transport.getSocketChannelClass(epoll));
+
+      bootstrap.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+      bootstrap.option(ChannelOption.TCP_NODELAY, tcpNoDelay);
+
+      if (connectTimeoutMillis != -1)
+      {
+         bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis);
+      }
+      if (tcpReceiveBufferSize != -1)
+      {
+         bootstrap.option(ChannelOption.SO_RCVBUF, tcpReceiveBufferSize);
+      }
+      if (tcpSendBufferSize != -1)
+      {
+         bootstrap.option(ChannelOption.SO_SNDBUF, tcpSendBufferSize);
+      }
+      bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
+      bootstrap.option(ChannelOption.SO_REUSEADDR, true);
+
+      channelGroup = new DefaultChannelGroup("hornetq-connector", GlobalEventExecutor.INSTANCE);
+
+      bootstrap.handler(new ChannelInitializer<Channel>()
+      {
+         @Override
+         protected void initChannel(final Channel channel) throws Exception
+         {
+            Netty4Transport.setWriteBufferWaterMarks(channel.config(), writeBufferHighWaterMark, writeBufferLowWaterMark);
+
+            channel.pipeline().addLast(new Netty4FrameDecoder());
+
+            channel.pipeline().addLast(new Netty4ChannelHandler(channelGroup, handler, new Listener()));
+         }
+      });
+
+      if (batchDelay > 0)
+      {
+         flusher = new BatchFlusher();
+
+         batchFlusherFuture = scheduledThreadPool.scheduleWithFixedDelay(flusher, batchDelay, batchDelay, TimeUnit.MILLISECONDS);
+      }
+
+      HornetQClientLogger.LOGGER.debug("Started Netty Connector version " + Netty4Transport.getVersion(epoll));
+   }
+
+   public synchronized void close()
+   {
+      if (bootstrap == null)
+      {
+         return;
+      }
+
+      if (batchFlusherFuture != null)
+      {
+         batchFlusherFuture.cancel(false);
+
+         flusher.cancel();
+
+         flusher = null;
+
+         batchFlusherFuture = null;
+      }
+
+      bootstrap = null;
+      channelGroup.close().awaitUninterruptibly();
+
+      sharedGroup.release();
+      sharedGroup = null;
+
+      for (Connection connection : connections.values())
+      {
+         listener.connectionDestroyed(connection.getID());
+      }
+
+      connections.clear();
+   }
+
+   public synchronized boolean isStarted()
+   {
+      return bootstrap != null;
+   }
+
+   public Connection createConnection()
+   {
+      Bootstrap bootstrap;
+
+      synchronized (this)
+      {
+         bootstrap = this.bootstrap;
+      }
+
+      if (bootstrap == null)
+      {
+         return null;
+      }
+
+      // HORNETQ-907 - strip off IPv6 scope-id (if necessary)
+      SocketAddress remoteDestination = new InetSocketAddress(host, port);
+      InetAddress inetAddress = ((InetSocketAddress) remoteDestination).getAddress();
+      if (inetAddress instanceof Inet6Address)
+      {
+         Inet6Address inet6Address = (Inet6Address) inetAddress;
+         if (inet6Address.getScopeId() != 0)
+         {
+            try
+            {
+               remoteDestination = new InetSocketAddress(InetAddress.getByAddress(inet6Address.getAddress()), ((InetSocketAddress) remoteDestination).getPort());
+            }
+            catch (UnknownHostException e)
+            {
+               throw new IllegalArgumentException(e.getMessage());
+            }
+         }
+      }
+      HornetQClientLogger.LOGGER.debug("Remote destination: " + remoteDestination);
+
+      ChannelFuture future;
+      //port 0 does not work so only use local address if set
+      if (localPort != 0)
+      {
+         SocketAddress localDestination;
+         if (localAddress != null)
+         {
+            localDestination = new InetSocketAddress(localAddress, localPort);
+         }
+         else
+         {
+            localDestination = new InetSocketAddress(localPort);
+         }
+         future = bootstrap.connect(remoteDestination, localDestination);
+      }
+      else
+      {
+         future = bootstrap.connect(remoteDestination);
+      }
+
+      future.awaitUninterruptibly();
+
+      if (future.isSuccess())
+      {
+         Channel ch = future.channel();
+
+         Netty4ChannelHandler channelHandler = ch.pipeline().get(Netty4ChannelHandler.class);
+
+         channelHandler.active = true;
+
+         // No acceptor on a client connection
+         Listener connectionListener = new Listener();
+         Netty4Connection conn = new Netty4Connection(configuration,
+                                                      ch,
+                                                      channelHandler.id,
+                                                      connectionListener,
+                                                      batchDelay > 0,
+                                                      false);
+         connectionListener.connectionCreated(null, conn, ProtocolType.CORE);
+
+         return conn;
+      }
+      else
+      {
+         Throwable t = future.cause();
+
+         if (t != null && !(t instanceof ConnectException))
+         {
+            HornetQClientLogger.LOGGER.errorCreatingNettyConnection(future.cause());
+         }
+
+         return null;
+      }
+   }
+
+   public boolean isEquivalent(final Map<String, Object> configuration)
+   {
+      //here we only check host and port because these two parameters
+      //is sufficient to determine the target host
+      String host = ConfigurationHelper.getStringProperty(TransportConstants.HOST_PROP_NAME,
+         TransportConstants.DEFAULT_HOST,
+         configuration);
+      Integer port = ConfigurationHelper.getIntProperty(TransportConstants.PORT_PROP_NAME,
+         TransportConstants.DEFAULT_PORT,
+         configuration);
+
+      if (!port.equals(this.port)) return false;
+
+      if (host.equals(this.host)) return true;
+
+      //The host may be an alias. We need to compare raw IP address.
+      try
+      {
+         String ip1 = InetAddress.getByName(host).getHostAddress();
+         String ip2 = InetAddress.getByName(this.host).getHostAddress();
+
+         return ip1.equals(ip2);
+      }
+      catch (UnknownHostException e)
+      {
+         HornetQClientLogger.LOGGER.error("Cannot resolve host", e);
+
+         return false;
+      }
+   }
+
+   // Inner classes -------------------------------------------------
+
+   /**
+    * Event loops shared by the connectors, created by the first one to start and shut down once the
+    * last one is closed.
+    */
+   private static final class SharedEventLoopGroup
+   {
+      private final boolean epoll;
+
+      private EventLoopGroup group;
+
+      private int references;
+
+      SharedEventLoopGroup(final boolean epoll)
+      {
+         this.epoll = epoll;
+      }
+
+      synchronized EventLoopGroup acquire(final int threads)
+      {
+         if (group == null)
+         {
+            group = Netty4Transport.createEventLoopGroup(threads, "hornetq-netty4-connector", epoll);
+         }
+
+         references++;
+
+         return group;
+      }
+
+      synchronized void release()
+      {
+         if (--references == 0)
+         {
+            group.shutdownGracefully(0, 10, TimeUnit.SECONDS);
+
+            group = null;
+         }
+      }
+   }
+
+   private class Listener implements ConnectionLifeCycleListener
+   {
+      public void connectionCreated(final HornetQComponent component, final Connection connection, final ProtocolType protocol)
+      {
+         if (connections.putIfAbsent(connection.getID(), (Netty4Connection)connection) != null)
+         {
+            throw HornetQClientMessageBundle.BUNDLE.connectionExists(connection.getID());
+         }
+      }
+
+      public void connectionDestroyed(final Object connectionID)
+      {
+         if (connections.remove(connectionID) != null)
+         {
+            // Execute on different thread to avoid deadlocks
+            closeExecutor.execute(new Runnable()
+            {
+               public void run()
+               {
+                  listener.connectionDestroyed(connectionID);
+               }
+            });
+         }
+      }
+
+      public void connectionException(final Object connectionID, final HornetQException me)
+      {
+         // Execute on different thread to avoid deadlocks
+         closeExecutor.execute(new Runnable()
+         {
+            public void run()
+            {
+               listener.connectionException(connectionID, me);
+            }
+         });
+      }
+
+      public void connectionReadyForWrites(final Object connectionID, final boolean ready)
+      {
+         Netty4Connection conn = connections.get(connectionID);
+
+         if (conn != null)
+         {
+            conn.fireReady(ready);
+         }
+      }
+   }
+
+   private class BatchFlusher implements Runnable
+   {
+      private boolean cancelled;
+
+      public synchronized void run()
+      {
+         if (!cancelled)
+         {
+            for (Connection connection : connections.values())
+            {
+               connection.checkFlushBatchBuffer();
+            }
+         }
+      }
+
+      public synchronized void cancel()
+      {
+         cancelled = true;
+      }
+   }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.remoting.impl.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.buffers.impl.ChannelBufferWrapper;
+import org.hornetq.utils.DataConstants;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * Decodes the packets of the core protocol into {@link HornetQBuffer}s, positioned after the
+ * length of the packet, as {@link org.hornetq.core.remoting.impl.netty.HornetQFrameDecoder2} does.
+ * <p>
+ * The pooled memory the packets are read in is given back once they are copied, so it is only
+ * held while a packet is incomplete.
+ */
+public class Netty4FrameDecoder extends LengthFieldBasedFrameDecoder
+{
+   public Netty4FrameDecoder()
+   {
+      super(Integer.MAX_VALUE, 0, DataConstants.SIZE_INT);
+   }
+
+   @Override
+   protected Object decode(final ChannelHandlerContext ctx, final ByteBuf in) throws Exception
+   {
+      ByteBuf frame = (ByteBuf)super.decode(ctx, in);
+
+      if (frame == null)
+      {
+         return null;
+      }
+
+      try
+      {
+         HornetQBuffer buffer = copy(frame);
+
+         buffer.skipBytes(DataConstants.SIZE_INT);
+
+         return buffer;
+      }
+      finally
+      {
+         frame.release();
+      }
+   }
+
+   /**
+    * @return a heap buffer with the readable bytes of the given buffer, which can be released then
+    */
+   static HornetQBuffer copy(final ByteBuf buffer)
+   {
+      ChannelBuffer copy = ChannelBuffers.dynamicBuffer(buffer.readableBytes());
+
+      copy.writeBytes(buffer.nioBuffer());
+
+      return new ChannelBufferWrapper(copy);
+   }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.remoting.impl.netty4;
+
+import java.util.concurrent.ThreadFactory;
+
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.Version;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * Chooses between the native epoll transport and the NIO one, used by the Netty 4 connector and
+ * acceptor.
+ * <p>
+ * The epoll classes are only loaded once {@link #isEpollAvailable()} returned true, as the
+ * netty-transport-native-epoll jar is optional.
+ */
+final class Netty4Transport
+{
+   private Netty4Transport()
+   {
+   }
+
+   static boolean isEpollAvailable()
+   {
+      try
+      {
+         return Epoll.isAvailable();
+      }
+      catch (LinkageError e)
+      {
+         // netty-transport-native-epoll is not in the classpath
+         return false;
+      }
+   }
+
+   static int getRemotingThreads(final int configured)
+   {
+      if (configured == -1)
+      {
+         // Default to number of cores * 3, as the Netty transport does
+
+         return Runtime.getRuntime().availableProcessors() * 3;
+      }
+
+      return configured;
+   }
+
+   /**
+    * The event loops run in daemon threads of Netty, whose thread locals are the fastest for the
+    * caches of the pooled allocator.
+    */
+   static EventLoopGroup createEventLoopGroup(final int threads, final String name, final boolean epoll)
+   {
+      ThreadFactory factory = new DefaultThreadFactory(name, true);
+
+      if (epoll)
+      {
+         return new EpollEventLoopGroup(threads, factory);
+      }
+
+      return new NioEventLoopGroup(threads, factory);
+   }
+
+   static Class<? extends SocketChannel> getSocketChannelClass(final boolean epoll)
+   {
+      return epoll ? EpollSocketChannel.class : NioSocketChannel.class;
+   }
+
+   static Class<? extends ServerChannel> getServerSocketChannelClass(final boolean epoll)
+   {
+      return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+   }
+
+   static void setWriteBufferWaterMarks(final ChannelConfig config, final int high, final int low)
+   {
+      // each mark is checked against the other one as it is set
+      if (low > config.getWriteBufferHighWaterMark())
+      {
+         config.setWriteBufferHighWaterMark(high);
+         config.setWriteBufferLowWaterMark(low);
+      }
+      else
+      {
+         config.setWriteBufferLowWaterMark(low);
+         config.setWriteBufferHighWaterMark(high);
+      }
+   }
+
+   static String getVersion(final boolean epoll)
+   {
+      Version version = Version.identify().get("netty-transport");
+
+      return (version == null ? "4" : version.artifactVersion()) + (epoll ? " (epoll)" : " (nio)");
+   }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.remoting.impl.netty4;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.hornetq.api.config.HornetQDefaultConfiguration;
+import org.hornetq.core.remoting.impl.netty.TransportConstants;
+
+/**
+ * The parameters of the Netty 4 transport.
+ * <p>
+ * The transport shares the TCP parameters of the Netty transport, see {@link TransportConstants},
+ * and adds its own. SSL and HTTP are only supported by the Netty transport.
+ */
+public class Netty4TransportConstants
+{
+   /**
+    * Whether to use the native epoll transport, when it is available. It is only on Linux, with the
+    * netty-transport-native-epoll jar in the classpath.
+    */
+   public static final String USE_EPOLL_PROP_NAME = "use-epoll";
+
+   /**
+    * The number of bytes waiting to be written past which the connection is not writable anymore,
+    * and the consumers of the connection stop delivering.
+    */
+   public static final String WRITE_BUFFER_HIGH_WATER_MARK_PROPNAME = "write-buffer-high-water-mark";
+
+   /**
+    * The number of bytes waiting to be written under which a connection that was not writable is
+    * writable again.
+    */
+   public static final String WRITE_BUFFER_LOW_WATER_MARK_PROPNAME = "write-buffer-low-water-mark";
+
+   public static final boolean DEFAULT_USE_EPOLL = true;
+
+   public static final int DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK = 64 * 1024;
+
+   public static final int DEFAULT_WRITE_BUFFER_LOW_WATER_MARK = 32 * 1024;
+
+   public static final Set<String> ALLOWABLE_CONNECTOR_KEYS;
+
+   public static final Set<String> ALLOWABLE_ACCEPTOR_KEYS;
+
+   static
+   {
+      Set<String> allowableAcceptorKeys = new HashSet<String>();
+      allowableAcceptorKeys.add(TransportConstants.PROTOCOL_PROP_NAME);
+      allowableAcceptorKeys.add(TransportConstants.HOST_PROP_NAME);
+      allowableAcceptorKeys.add(TransportConstants.PORT_PROP_NAME);
+      allowableAcceptorKeys.add(TransportConstants.BACKLOG_PROP_NAME);
+      allowableAcceptorKeys.add(TransportConstants.TCP_NODELAY_PROPNAME);
+      allowableAcceptorKeys.add(TransportConstants.TCP_SENDBUFFER_SIZE_PROPNAME);
+      allowableAcceptorKeys.add(TransportConstants.TCP_RECEIVEBUFFER_SIZE_PROPNAME);
+      allowableAcceptorKeys.add(TransportConstants.NIO_REMOTING_THREADS_PROPNAME);
+      allowableAcceptorKeys.add(TransportConstants.BATCH_DELAY);
+      allowableAcceptorKeys.add(TransportConstants.DIRECT_DELIVER);
+      allowableAcceptorKeys.add(TransportConstants.CLUSTER_CONNECTION);
+      allowableAcceptorKeys.add(TransportConstants.STOMP_CONSUMERS_CREDIT);
+      allowableAcceptorKeys.add(TransportConstants.STOMP_MIN_LARGE_MESSAGE_SIZE);
+      allowableAcceptorKeys.add(TransportConstants.CONNECTION_TTL);
+      allowableAcceptorKeys.add(TransportConstants.STOMP_ENABLE_MESSAGE_ID);
+      allowableAcceptorKeys.add(Netty4TransportConstants.USE_EPOLL_PROP_NAME);
+      allowableAcceptorKeys.add(Netty4TransportConstants.WRITE_BUFFER_HIGH_WATER_MARK_PROPNAME);
+      allowableAcceptorKeys.add(Netty4TransportConstants.WRITE_BUFFER_LOW_WATER_MARK_PROPNAME);
+      allowableAcceptorKeys.add(HornetQDefaultConfiguration.getPropMaskPassword());
+      allowableAcceptorKeys.add(HornetQDefaultConfiguration.getPropPasswordCodec());
+
+      ALLOWABLE_ACCEPTOR_KEYS = Collections.unmodifiableSet(allowableAcceptorKeys);
+
+      Set<String> allowableConnectorKeys = new HashSet<String>();
+      allowableConnectorKeys.add(TransportConstants.HOST_PROP_NAME);
+      allowableConnectorKeys.add(TransportConstants.PORT_PROP_NAME);
+      allowableConnectorKeys.add(TransportConstants.LOCAL_ADDRESS_PROP_NAME);
+      allowableConnectorKeys.add(TransportConstants.LOCAL_PORT_PROP_NAME);
+      allowableConnectorKeys.add(TransportConstants.TCP_NODELAY_PROPNAME);
+      allowableConnectorKeys.add(TransportConstants.TCP_SENDBUFFER_SIZE_PROPNAME);
+      allowableConnectorKeys.add(TransportConstants.TCP_RECEIVEBUFFER_SIZE_PROPNAME);
+      allowableConnectorKeys.add(TransportConstants.NIO_REMOTING_THREADS_PROPNAME);
+      allowableConnectorKeys.add(TransportConstants.BATCH_DELAY);
+      allowableConnectorKeys.add(TransportConstants.NETTY_CONNECT_TIMEOUT);
+      allowableConnectorKeys.add(Netty4TransportConstants.USE_EPOLL_PROP_NAME);
+      allowableConnectorKeys.add(Netty4TransportConstants.WRITE_BUFFER_HIGH_WATER_MARK_PROPNAME);
+      allowableConnectorKeys.add(Netty4TransportConstants.WRITE_BUFFER_LOW_WATER_MARK_PROPNAME);
+      allowableConnectorKeys.add(HornetQDefaultConfiguration.getPropMaskPassword());
+      allowableConnectorKeys.add(HornetQDefaultConfiguration.getPropPasswordCodec());
+
+      ALLOWABLE_CONNECTOR_KEYS = Collections.unmodifiableSet(allowableConnectorKeys);
+   }
+}
@@ -13,6 +13,8 @@
 
 package org.hornetq.spi.core.remoting;
 
+import java.nio.channels.FileChannel;
+
 import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.TransportConfiguration;
 import org.hornetq.core.security.HornetQPrincipal;
@@ -26,6 +28,9 @@ public interface Connection
 {
    /**
     * Create a new HornetQBuffer of the given size.
+    * <p>
+    * The buffer may be a {@link org.hornetq.api.core.HornetQBuffers#pooledBuffer(int) pooled} one,
+    * in which case writing it to the connection releases it, so it must not be used afterwards.
     *
     * @param size the size of buffer to create
     * @return the new buffer.
@@ -41,6 +46,8 @@ public interface Connection
 
    /**
     * writes the buffer to the connection and if flush is true returns only when the buffer has been physically written to the connection.
+    * <p>
+    * A pooled buffer is released once written, see {@link org.hornetq.api.core.HornetQBuffers#release(HornetQBuffer)}.
     *
     * @param buffer the buffer to write
     * @param flush  whether to flush the buffers onto the wire
@@ -55,6 +62,26 @@ public interface Connection
     */
    void write(HornetQBuffer buffer);
 
+   /**
+    * Returns whether the connection can transfer a region of a file straight from the file, without
+    * reading it into a buffer first.
+    *
+    * @return whether {@link #write(HornetQBuffer, int, FileChannel, long, int)} is supported
+    */
+   boolean isFileRegionSupported();
+
+   /**
+    * writes the buffer to the connection with a region of the file inserted at the given index of
+    * the buffer, and returns only when the region has been written, so the file can be closed.
+    *
+    * @param buffer the buffer to write
+    * @param offset the index of the buffer the region goes at
+    * @param file the file to transfer the region from
+    * @param position the position of the region in the file
+    * @param size the size of the region
+    */
+   void write(HornetQBuffer buffer, int offset, FileChannel file, long position, int size);
+
    /**
     * Closes the connection.
     */
@@ -71,6 +98,13 @@ public interface Connection
     */
    void checkFlushBatchBuffer();
 
+   /**
+    * Returns whether the messages sent over this connection are delivered by the thread that
+    * received them rather than by the executor of the queue.
+    * @return whether direct delivery is enabled
+    */
+   boolean isDirectDeliver();
+
    void addReadyListener(ReadyListener listener);
 
    void removeReadyListener(ReadyListener listener);
@@ -17,6 +17,8 @@ import org.hornetq.core.client.HornetQClientLogger;
 
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -29,16 +31,40 @@ import java.util.concurrent.Executor;
  */
 public final class OrderedExecutorFactory implements ExecutorFactory
 {
+   public static final int DEFAULT_MAX_TASKS_PER_RUN = 1000;
+
+   public static final long DEFAULT_MAX_RUN_TIME = 10000000L;
+
    private final Executor parent;
 
+   private final int maxTasksPerRun;
+
+   private final long maxRunTime;
+
    /**
     * Construct a new instance delegating to the given parent executor.
     *
     * @param parent the parent executor
     */
    public OrderedExecutorFactory(final Executor parent)
+   {
+      this(parent, DEFAULT_MAX_TASKS_PER_RUN, DEFAULT_MAX_RUN_TIME);
+   }
+
+   /**
+    * Construct a new instance delegating to the given parent executor.
+    *
+    * @param parent the parent executor
+    * @param maxTasksPerRun the number of tasks an executor runs before giving its thread back to the
+    *           parent executor, -1 for no limit
+    * @param maxRunTime the time in nanoseconds an executor runs tasks before giving its thread back
+    *           to the parent executor, -1 for no limit
+    */
+   public OrderedExecutorFactory(final Executor parent, final int maxTasksPerRun, final long maxRunTime)
    {
       this.parent = parent;
+      this.maxTasksPerRun = maxTasksPerRun;
+      this.maxRunTime = maxRunTime;
    }
 
    /**
@@ -48,7 +74,7 @@ public final class OrderedExecutorFactory implements ExecutorFactory
     */
    public Executor getExecutor()
    {
-      return new OrderedExecutor(parent);
+      return new OrderedExecutor(parent, maxTasksPerRun, maxRunTime);
    }
 
    /**
@@ -56,60 +82,54 @@ public final class OrderedExecutorFactory implements ExecutorFactory
     * <p/>
     * More specifically, any call B to the {@link #execute(Runnable)} method that happens-after another call A to the
     * same method, will result in B's task running after A's.
+    * <p/>
+    * Once it ran a given number of tasks or for a given time, the executor submits itself again to
+    * the delegate executor to run the remaining ones, so a busy executor doesn't keep a thread from
+    * the others.
     */
-   private static final class OrderedExecutor implements Executor
+   public static final class OrderedExecutor implements Executor
    {
-      private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+      private final ConcurrentLinkedQueue<Task> tasks = new ConcurrentLinkedQueue<Task>();
 
-      // @protected by tasks
-      private boolean running;
+      // the tasks added and not run yet: whoever raises it from 0 submits the runner, which only
+      // stops once it brought it back to 0
+      private final AtomicInteger pending = new AtomicInteger(0);
 
       private final Executor parent;
 
+      private final int maxTasksPerRun;
+
+      private final long maxRunTime;
+
       private final Runnable runner;
 
+      // only written by the runner, which runs in one thread at a time
+      private volatile long executedTasks;
+
+      private volatile long totalLatency;
+
+      private volatile long runTime;
+
       /**
        * Construct a new instance.
        *
        * @param parent the parent executor
        */
       public OrderedExecutor(final Executor parent)
+      {
+         this(parent, DEFAULT_MAX_TASKS_PER_RUN, DEFAULT_MAX_RUN_TIME);
+      }
+
+      OrderedExecutor(final Executor parent, final int maxTasksPerRun, final long maxRunTime)
       {
          this.parent = parent;
+         this.maxTasksPerRun = maxTasksPerRun;
+         this.maxRunTime = maxRunTime;
          runner = new Runnable()
          {
             public void run()
             {
-               for (;;)
-               {
-                   // Optimization, first try without any locks
-                   Runnable task = tasks.poll();
-                   if (task == null)
-                   {
-                      synchronized (tasks)
-                      {
-                         // if it's null we need to retry now holding the lock on tasks
-                         // this is because running=false and tasks.empty must be an atomic operation
-                         // so we have to retry before setting the tasks to false
-                         // this is a different approach to the anti-pattern on synchronize-retry,
-                         // as this is just guaranteeing the running=false and tasks.empty being an atomic operation
-                         task = tasks.poll();
-                         if (task == null)
-                         {
-                            running = false;
-                            return;
-                         }
-                      }
-                   }
-                  try
-                  {
-                     task.run();
-                  }
-                  catch (Throwable t)
-                  {
-                     HornetQClientLogger.LOGGER.caughtunexpectedThrowable(t);
-                  }
-               }
+               runTasks();
             }
          };
       }
@@ -121,20 +141,136 @@ public final class OrderedExecutorFactory implements ExecutorFactory
        */
       public void execute(final Runnable command)
       {
-         synchronized (tasks)
+         // the task must be in the queue before it is counted, as the runner polls a task per count
+         tasks.add(new Task(command, System.nanoTime()));
+
+         if (pending.getAndIncrement() == 0)
+         {
+            parent.execute(runner);
+         }
+      }
+
+      /**
+       * @return the number of tasks added and not run yet, including the one running if any
+       */
+      public int getPendingTasks()
+      {
+         return pending.get();
+      }
+
+      /**
+       * @return the number of tasks run
+       */
+      public long getExecutedTasks()
+      {
+         return executedTasks;
+      }
+
+      /**
+       * @return the average time in nanoseconds between adding a task and running it
+       */
+      public long getAverageTaskLatency()
+      {
+         long executed = executedTasks;
+
+         return executed == 0 ? 0 : totalLatency / executed;
+      }
+
+      /**
+       * @return the time in nanoseconds spent running tasks
+       */
+      public long getRunTime()
+      {
+         return runTime;
+      }
+
+      public String toString()
+      {
+         return "OrderedExecutor(pending=" + pending.get() + ", tasks=" + tasks + ")";
+      }
+
+      private void runTasks()
+      {
+         long start = System.nanoTime();
+
+         long now = start;
+
+         int run = 0;
+
+         for (;;)
          {
-            tasks.add(command);
-            if (!running)
+            Task task = tasks.poll();
+
+            totalLatency += now - task.added;
+
+            try
+            {
+               task.command.run();
+            }
+            catch (Throwable t)
+            {
+               HornetQClientLogger.LOGGER.caughtunexpectedThrowable(t);
+            }
+
+            long end = System.nanoTime();
+
+            runTime += end - now;
+
+            executedTasks++;
+
+            now = end;
+
+            if (pending.decrementAndGet() == 0)
             {
-               running = true;
-               parent.execute(runner);
+               return;
             }
+
+            // the remaining tasks are still counted, so no other thread submits the runner meanwhile
+            if (maxTasksPerRun != -1 && ++run >= maxTasksPerRun || maxRunTime != -1 && now - start >= maxRunTime)
+            {
+               if (resubmit())
+               {
+                  return;
+               }
+
+               start = now;
+
+               run = 0;
+            }
+         }
+      }
+
+      private boolean resubmit()
+      {
+         try
+         {
+            parent.execute(runner);
+
+            return true;
+         }
+         catch (RejectedExecutionException e)
+         {
+            // the parent is shutting down, the remaining tasks keep this thread
+            return false;
          }
       }
+   }
+
+   private static final class Task
+   {
+      final Runnable command;
+
+      final long added;
+
+      Task(final Runnable command, final long added)
+      {
+         this.command = command;
+         this.added = added;
+      }
 
       public String toString()
       {
-         return "OrderedExecutor(running=" + running + ", tasks=" + tasks + ")";
+         return command.toString();
       }
    }
 }
@@ -30,7 +30,8 @@ public class PriorityLinkedListImpl<T> implements PriorityLinkedList<T>
 {
    protected LinkedListImpl<T>[] levels;
 
-   private int size;
+   // only changed by the owner of the list, but may be read without its lock (e.g. for statistics)
+   private volatile int size;
 
    private int lastReset;
 
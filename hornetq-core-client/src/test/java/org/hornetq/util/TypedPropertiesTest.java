@@ -12,6 +12,7 @@
  */
 
 package org.hornetq.util;
+import java.lang.reflect.Field;
 import java.util.Iterator;
 
 import org.hornetq.api.core.HornetQBuffer;
@@ -240,6 +241,144 @@ public class TypedPropertiesTest
       TypedPropertiesTest.assertEqualsTypeProperties(emptyProps, decodedProps);
    }
 
+   @Test
+   public void testGetPropertiesWithoutDecodingAll() throws Exception
+   {
+      byte[] bytes = RandomUtil.randomBytes();
+      SimpleString string = RandomUtil.randomSimpleString();
+
+      props.putByteProperty(new SimpleString("byte"), (byte)1);
+      props.putBytesProperty(new SimpleString("bytes"), bytes);
+      props.putBooleanProperty(new SimpleString("boolean"), true);
+      props.putShortProperty(new SimpleString("short"), (short)2);
+      props.putIntProperty(new SimpleString("int"), 3);
+      props.putLongProperty(new SimpleString("long"), 4L);
+      props.putFloatProperty(new SimpleString("float"), 5.0f);
+      props.putDoubleProperty(new SimpleString("double"), 6.0);
+      props.putCharProperty(new SimpleString("char"), 'c');
+      props.putSimpleStringProperty(new SimpleString("string"), string);
+      props.putNullValue(new SimpleString("null"));
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+      buffer.writeInt(1234);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+
+      // the decode stops at the end of the properties
+      Assert.assertEquals(1234, buffer.readInt());
+      Assert.assertEquals(props.getEncodeSize(), decodedProps.getEncodeSize());
+
+      Assert.assertEquals((byte)1, (byte)decodedProps.getByteProperty(new SimpleString("byte")));
+      Assert.assertArrayEquals(bytes, decodedProps.getBytesProperty(new SimpleString("bytes")));
+      Assert.assertTrue(decodedProps.getBooleanProperty(new SimpleString("boolean")));
+      Assert.assertEquals((short)2, (short)decodedProps.getShortProperty(new SimpleString("short")));
+      Assert.assertEquals(3, (int)decodedProps.getIntProperty(new SimpleString("int")));
+      Assert.assertEquals(4L, (long)decodedProps.getLongProperty(new SimpleString("long")));
+      Assert.assertEquals(5.0f, decodedProps.getFloatProperty(new SimpleString("float")), 0);
+      Assert.assertEquals(6.0, decodedProps.getDoubleProperty(new SimpleString("double")), 0);
+      Assert.assertEquals('c', (char)decodedProps.getCharProperty(new SimpleString("char")));
+      Assert.assertEquals(string, decodedProps.getSimpleStringProperty(new SimpleString("string")));
+      Assert.assertTrue(decodedProps.containsProperty(new SimpleString("null")));
+      Assert.assertNull(decodedProps.getProperty(new SimpleString("null")));
+      Assert.assertFalse(decodedProps.containsProperty(new SimpleString("nothing")));
+      Assert.assertNull(decodedProps.getProperty(new SimpleString("nothing")));
+      Assert.assertFalse(decodedProps.isEmpty());
+      Assert.assertFalse(decodedProps.hasInternalProperties());
+
+      TypedPropertiesTest.assertEqualsTypeProperties(props, decodedProps);
+   }
+
+   @Test
+   public void testEncodeDecodedPropertiesAsTheyWere() throws Exception
+   {
+      props.putIntProperty(new SimpleString("int"), 3);
+      props.putSimpleStringProperty(new SimpleString("string"), RandomUtil.randomSimpleString());
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+      byte[] encoded = new byte[buffer.writerIndex()];
+      buffer.getBytes(0, encoded);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+      Assert.assertEquals(3, (int)decodedProps.getIntProperty(new SimpleString("int")));
+
+      HornetQBuffer other = HornetQBuffers.dynamicBuffer(1024);
+      decodedProps.encode(other);
+      byte[] reencoded = new byte[other.writerIndex()];
+      other.getBytes(0, reencoded);
+
+      Assert.assertArrayEquals(encoded, reencoded);
+
+      // a copy shares them
+      TypedProperties copy = new TypedProperties(decodedProps);
+      Assert.assertEquals(3, (int)copy.getIntProperty(new SimpleString("int")));
+
+      // once changed they are encoded again
+      decodedProps.putIntProperty(new SimpleString("int"), 4);
+      decodedProps.removeProperty(new SimpleString("string"));
+
+      other.clear();
+      decodedProps.encode(other);
+      Assert.assertEquals(decodedProps.getEncodeSize(), other.writerIndex());
+
+      TypedProperties decodedAgain = new TypedProperties();
+      decodedAgain.decode(other);
+      Assert.assertEquals(4, (int)decodedAgain.getIntProperty(new SimpleString("int")));
+      Assert.assertFalse(decodedAgain.containsProperty(new SimpleString("string")));
+
+      // the copy didn't change
+      Assert.assertEquals(3, (int)copy.getIntProperty(new SimpleString("int")));
+      Assert.assertTrue(copy.containsProperty(new SimpleString("string")));
+   }
+
+   @Test
+   public void testDecodeAllWhenLookedUpOften() throws Exception
+   {
+      props.putIntProperty(new SimpleString("int"), 3);
+      props.putLongProperty(new SimpleString("long"), 4L);
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+
+      Field encodedProperties = TypedProperties.class.getDeclaredField("encodedProperties");
+      encodedProperties.setAccessible(true);
+
+      Assert.assertEquals(3, (int)decodedProps.getIntProperty(new SimpleString("int")));
+      Assert.assertNotNull(encodedProperties.get(decodedProps));
+
+      for (int i = 0; i < 100; i++)
+      {
+         Assert.assertEquals(3, (int)decodedProps.getIntProperty(new SimpleString("int")));
+         Assert.assertEquals(4L, (long)decodedProps.getLongProperty(new SimpleString("long")));
+         Assert.assertFalse(decodedProps.containsProperty(new SimpleString("nothing")));
+      }
+
+      // the later lookups use the decoded map instead of scanning again
+      Assert.assertNull(encodedProperties.get(decodedProps));
+      Assert.assertEquals(props.getEncodeSize(), decodedProps.getEncodeSize());
+      TypedPropertiesTest.assertEqualsTypeProperties(props, decodedProps);
+   }
+
+   @Test
+   public void testDecodeInternalProperties() throws Exception
+   {
+      props.putIntProperty(new SimpleString("_HQ_INTERNAL"), 3);
+
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(1024);
+      props.encode(buffer);
+
+      TypedProperties decodedProps = new TypedProperties();
+      decodedProps.decode(buffer);
+
+      Assert.assertTrue(decodedProps.hasInternalProperties());
+   }
+
    @Before
    public void setUp() throws Exception
    {
@@ -15,6 +15,9 @@ package org.hornetq.core.journal;
 
 /**
  * This is a POJO containing information about the journal during load time.
+ * <p>
+ * The times spent in each phase of the load are only informative, they are not part of
+ * {@link #equals(Object)}.
  * @author <mailto:clebert.suconic@jboss.org">Clebert Suconic</a>
  */
 public class JournalLoadInformation
@@ -24,6 +27,16 @@ public class JournalLoadInformation
 
    private long maxID = -1;
 
+   private long orderFilesTime;
+
+   private long readFilesTime;
+
+   private long loadRecordsTime;
+
+   private long loadTransactionsTime;
+
+   private long loadTime;
+
    public JournalLoadInformation()
    {
       super();
@@ -72,6 +85,74 @@ public class JournalLoadInformation
       this.maxID = maxID;
    }
 
+   /**
+    * @return the time, in milliseconds, spent opening the data files and ordering them
+    */
+   public long getOrderFilesTime()
+   {
+      return orderFilesTime;
+   }
+
+   public void setOrderFilesTime(final long orderFilesTime)
+   {
+      this.orderFilesTime = orderFilesTime;
+   }
+
+   /**
+    * @return the time, in milliseconds, spent reading the data files and checking their records.
+    *         When the files are read in parallel this is the sum of the times of every thread, and
+    *         can exceed {@link #getLoadTime()}.
+    */
+   public long getReadFilesTime()
+   {
+      return readFilesTime;
+   }
+
+   public void setReadFilesTime(final long readFilesTime)
+   {
+      this.readFilesTime = readFilesTime;
+   }
+
+   /**
+    * @return the time, in milliseconds, spent loading the records of the files, in the order of the
+    *         files
+    */
+   public long getLoadRecordsTime()
+   {
+      return loadRecordsTime;
+   }
+
+   public void setLoadRecordsTime(final long loadRecordsTime)
+   {
+      this.loadRecordsTime = loadRecordsTime;
+   }
+
+   /**
+    * @return the time, in milliseconds, spent on the transactions left open by the data files
+    */
+   public long getLoadTransactionsTime()
+   {
+      return loadTransactionsTime;
+   }
+
+   public void setLoadTransactionsTime(final long loadTransactionsTime)
+   {
+      this.loadTransactionsTime = loadTransactionsTime;
+   }
+
+   /**
+    * @return the time, in milliseconds, the whole load took
+    */
+   public long getLoadTime()
+   {
+      return loadTime;
+   }
+
+   public void setLoadTime(final long loadTime)
+   {
+      this.loadTime = loadTime;
+   }
+
    @Override
    public int hashCode()
    {
@@ -112,6 +193,19 @@ public class JournalLoadInformation
    @Override
    public String toString()
    {
-      return "JournalLoadInformation [maxID=" + maxID + ", numberOfRecords=" + numberOfRecords + "]";
+      return "JournalLoadInformation [maxID=" + maxID +
+             ", numberOfRecords=" +
+             numberOfRecords +
+             ", orderFilesTime=" +
+             orderFilesTime +
+             ", readFilesTime=" +
+             readFilesTime +
+             ", loadRecordsTime=" +
+             loadRecordsTime +
+             ", loadTransactionsTime=" +
+             loadTransactionsTime +
+             ", loadTime=" +
+             loadTime +
+             "]";
    }
 }
@@ -53,6 +53,10 @@ public interface TestableJournal extends Journal
 
    boolean isAutoReclaim();
 
+   void setLoadThreads(int loadThreads);
+
+   int getLoadThreads();
+
    void testCompact();
 
    JournalFile getCurrentFile();
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.journal.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.core.journal.RecordInfo;
+import org.hornetq.core.journal.SequentialFileFactory;
+
+/**
+ * Reads the data files of a journal being loaded, giving their records in the order of the files.
+ * <p>
+ * Reading a file (parsing its records and checking their sizes) doesn't depend on the other files,
+ * only loading its records does. With more than one thread the files are read ahead in parallel on
+ * a fork join pool, while the loading thread replays the records of each file in turn, so the
+ * records are loaded exactly as if the files had been read one after the other. A few files per
+ * thread are read ahead, which bounds the records held in memory.
+ */
+final class JournalFilesReader
+{
+   private static final int READ_AHEAD_PER_THREAD = 2;
+
+   private final SequentialFileFactory fileFactory;
+
+   private final List<JournalFile> files;
+
+   private final ForkJoinPool pool;
+
+   private final List<ForkJoinTask<FileRecords>> tasks;
+
+   private final int readAhead;
+
+   JournalFilesReader(final SequentialFileFactory fileFactory, final List<JournalFile> files, final int threads)
+   {
+      this.fileFactory = fileFactory;
+      this.files = files;
+
+      if (threads > 1 && files.size() > 1)
+      {
+         pool = new ForkJoinPool(threads);
+         tasks = new ArrayList<ForkJoinTask<FileRecords>>(files.size());
+         readAhead = threads * READ_AHEAD_PER_THREAD;
+      }
+      else
+      {
+         pool = null;
+         tasks = null;
+         readAhead = 0;
+      }
+   }
+
+   /**
+    * Reads the file at the given position in the list, or waits for it to be read.
+    */
+   FileRecords read(final int index) throws Exception
+   {
+      if (pool == null)
+      {
+         return readFile(files.get(index));
+      }
+
+      while (tasks.size() < files.size() && tasks.size() <= index + readAhead)
+      {
+         final JournalFile file = files.get(tasks.size());
+
+         tasks.add(pool.submit(new Callable<FileRecords>()
+         {
+            public FileRecords call() throws Exception
+            {
+               return readFile(file);
+            }
+         }));
+      }
+
+      ForkJoinTask<FileRecords> task = tasks.set(index, null);
+
+      try
+      {
+         return task.get();
+      }
+      catch (ExecutionException e)
+      {
+         if (e.getCause() instanceof Exception)
+         {
+            throw (Exception)e.getCause();
+         }
+         throw e;
+      }
+   }
+
+   void close()
+   {
+      if (pool != null)
+      {
+         pool.shutdownNow();
+      }
+   }
+
+   private FileRecords readFile(final JournalFile file) throws Exception
+   {
+      FileRecords records = new FileRecords();
+
+      long start = System.nanoTime();
+
+      records.lastDataPos = JournalImpl.readJournalFile(fileFactory, file, records);
+
+      records.readTime = System.nanoTime() - start;
+
+      return records;
+   }
+
+   /**
+    * The records read from a file, kept to be replayed when the previous files are loaded.
+    */
+   static final class FileRecords implements JournalReaderCallback
+   {
+      private static final byte MARK_AS_DATA_FILE = 0;
+
+      private final List<Record> records = new ArrayList<Record>();
+
+      private JournalFile dataFile;
+
+      private int lastDataPos;
+
+      private long readTime;
+
+      /**
+       * @return the position after the last valid record of the file
+       */
+      int getLastDataPos()
+      {
+         return lastDataPos;
+      }
+
+      /**
+       * @return the time spent reading the file, in milliseconds
+       */
+      long getReadTime()
+      {
+         return TimeUnit.NANOSECONDS.toMillis(readTime);
+      }
+
+      void replay(final JournalReaderCallback reader) throws Exception
+      {
+         for (Record record : records)
+         {
+            switch (record.type)
+            {
+               case JournalImpl.ADD_RECORD:
+                  reader.onReadAddRecord(record.info);
+                  break;
+               case JournalImpl.UPDATE_RECORD:
+                  reader.onReadUpdateRecord(record.info);
+                  break;
+               case JournalImpl.DELETE_RECORD:
+                  reader.onReadDeleteRecord(record.id);
+                  break;
+               case JournalImpl.ADD_RECORD_TX:
+                  reader.onReadAddRecordTX(record.id, record.info);
+                  break;
+               case JournalImpl.UPDATE_RECORD_TX:
+                  reader.onReadUpdateRecordTX(record.id, record.info);
+                  break;
+               case JournalImpl.DELETE_RECORD_TX:
+                  reader.onReadDeleteRecordTX(record.id, record.info);
+                  break;
+               case JournalImpl.PREPARE_RECORD:
+                  reader.onReadPrepareRecord(record.id, record.extraData, record.numberOfRecords);
+                  break;
+               case JournalImpl.COMMIT_RECORD:
+                  reader.onReadCommitRecord(record.id, record.numberOfRecords);
+                  break;
+               case JournalImpl.ROLLBACK_RECORD:
+                  reader.onReadRollbackRecord(record.id);
+                  break;
+               case MARK_AS_DATA_FILE:
+                  reader.markAsDataFile(dataFile);
+                  break;
+               default:
+                  throw new IllegalStateException("Invalid record type " + record.type);
+            }
+         }
+      }
+
+      public void onReadAddRecord(final RecordInfo info)
+      {
+         records.add(new Record(JournalImpl.ADD_RECORD, 0, info));
+      }
+
+      public void onReadUpdateRecord(final RecordInfo info)
+      {
+         records.add(new Record(JournalImpl.UPDATE_RECORD, 0, info));
+      }
+
+      public void onReadDeleteRecord(final long recordID)
+      {
+         records.add(new Record(JournalImpl.DELETE_RECORD, recordID, null));
+      }
+
+      public void onReadAddRecordTX(final long transactionID, final RecordInfo info)
+      {
+         records.add(new Record(JournalImpl.ADD_RECORD_TX, transactionID, info));
+      }
+
+      public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info)
+      {
+         records.add(new Record(JournalImpl.UPDATE_RECORD_TX, transactionID, info));
+      }
+
+      public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info)
+      {
+         records.add(new Record(JournalImpl.DELETE_RECORD_TX, transactionID, info));
+      }
+
+      public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords)
+      {
+         Record record = new Record(JournalImpl.PREPARE_RECORD, transactionID, null);
+         record.extraData = extraData;
+         record.numberOfRecords = numberOfRecords;
+         records.add(record);
+      }
+
+      public void onReadCommitRecord(final long transactionID, final int numberOfRecords)
+      {
+         Record record = new Record(JournalImpl.COMMIT_RECORD, transactionID, null);
+         record.numberOfRecords = numberOfRecords;
+         records.add(record);
+      }
+
+      public void onReadRollbackRecord(final long transactionID)
+      {
+         records.add(new Record(JournalImpl.ROLLBACK_RECORD, transactionID, null));
+      }
+
+      public void markAsDataFile(final JournalFile file)
+      {
+         dataFile = file;
+         records.add(new Record(MARK_AS_DATA_FILE, 0, null));
+      }
+   }
+
+   /**
+    * A record read from a file, where the ID is the transaction ID for the transactional records.
+    */
+   private static final class Record
+   {
+      final byte type;
+
+      final long id;
+
+      final RecordInfo info;
+
+      byte[] extraData;
+
+      int numberOfRecords;
+
+      Record(final byte type, final long id, final RecordInfo info)
+      {
+         this.type = type;
+         this.id = id;
+         this.info = info;
+      }
+   }
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -61,6 +62,7 @@ import org.hornetq.core.journal.impl.dataformat.JournalCompleteRecordTX;
 import org.hornetq.core.journal.impl.dataformat.JournalCompleteRecordTX.TX_RECORD_TYPE;
 import org.hornetq.core.journal.impl.dataformat.JournalDeleteRecord;
 import org.hornetq.core.journal.impl.dataformat.JournalDeleteRecordTX;
+import org.hornetq.core.journal.impl.dataformat.JournalEncodedRecord;
 import org.hornetq.core.journal.impl.dataformat.JournalInternalRecord;
 import org.hornetq.core.journal.impl.dataformat.JournalRollbackRecordTX;
 import org.hornetq.journal.HornetQJournalBundle;
@@ -88,6 +90,11 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    private static final int COMPATIBLE_VERSIONS[] = new int[] { 1 };
 
+   /**
+    * The number of records a thread appends for the others once its own record is appended.
+    */
+   private static final int MAX_APPEND_BATCH = 256;
+
    // Static --------------------------------------------------------
    private static final boolean trace = HornetQJournalLogger.LOGGER.isTraceEnabled();
 
@@ -167,6 +174,8 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    private volatile boolean autoReclaim = true;
 
+   private volatile int loadThreads = 1;
+
    private final int userVersion;
 
    private final int minFiles;
@@ -179,8 +188,8 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
    private final JournalFilesRepository filesRepository;
 
-   // Compacting may replace this structure
-   private final ConcurrentMap<Long, JournalRecord> records = new ConcurrentHashMap<Long, JournalRecord>();
+   // Compacting replaces this structure
+   private volatile JournalRecordIndex records = new JournalRecordIndex();
 
    // Compacting may replace this structure
    private final ConcurrentMap<Long, JournalTransaction> transactions = new ConcurrentHashMap<Long, JournalTransaction>();
@@ -201,6 +210,9 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
    // After a record is appended, the usedFile can't be changed until the positives and negatives are updated
    private final ReentrantLock lockAppend = new ReentrantLock();
 
+   // The records waiting for lockAppend, see append(PendingAppend)
+   private final ConcurrentLinkedQueue<PendingAppend> pendingAppends = new ConcurrentLinkedQueue<PendingAppend>();
+
    /**
     * We don't lock the journal during the whole compacting operation. During compacting we only
     * lock it (i) when gathering the initial structure, and (ii) when replicating the structures
@@ -349,7 +361,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       latch.await();
    }
 
-   public Map<Long, JournalRecord> getRecords()
+   public JournalRecordIndex getRecords()
    {
       return records;
    }
@@ -783,33 +795,30 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       try
       {
-         JournalInternalRecord addRecord = new JournalAddRecord(true, id, recordType, record);
+         final JournalInternalRecord addRecord = new JournalAddRecord(true, id, recordType, record);
 
          if (callback != null)
          {
             callback.storeLineUp();
          }
 
-         lockAppend.lock();
-         try
+         append(new PendingAppend(JournalEncodedRecord.encode(addRecord), false, sync, null, callback)
          {
-            JournalFile usedFile = appendRecord(addRecord, false, sync, null, callback);
-
-            if (JournalImpl.TRACE_RECORDS)
+            @Override
+            void appended(final JournalFile usedFile) throws Exception
             {
-               JournalImpl.traceRecord("appendAddRecord::id=" + id +
-                                       ", userRecordType=" +
-                                       recordType +
-                                       ", usedFile = " +
-                                       usedFile);
-            }
+               if (JournalImpl.TRACE_RECORDS)
+               {
+                  JournalImpl.traceRecord("appendAddRecord::id=" + id +
+                                          ", userRecordType=" +
+                                          recordType +
+                                          ", usedFile = " +
+                                          usedFile);
+               }
 
-            records.put(id, new JournalRecord(usedFile, addRecord.getEncodeSize()));
-         }
-         finally
-         {
-            lockAppend.unlock();
-         }
+               records.add(id, usedFile, addRecord.getEncodeSize());
+            }
+         });
       }
       finally
       {
@@ -830,9 +839,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       try
       {
-         JournalRecord jrnRecord = records.get(id);
-
-         if (jrnRecord == null)
+         if (!records.contains(id))
          {
             if (!(compactor != null && compactor.lookupRecord(id)))
             {
@@ -840,42 +847,35 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             }
          }
 
-         JournalInternalRecord updateRecord = new JournalAddRecord(false, id, recordType, record);
+         final JournalInternalRecord updateRecord = new JournalAddRecord(false, id, recordType, record);
 
          if (callback != null)
          {
             callback.storeLineUp();
          }
 
-         lockAppend.lock();
-         try
+         append(new PendingAppend(JournalEncodedRecord.encode(updateRecord), false, sync, null, callback)
          {
-            JournalFile usedFile = appendRecord(updateRecord, false, sync, null, callback);
-
-            if (JournalImpl.TRACE_RECORDS)
+            @Override
+            void appended(final JournalFile usedFile) throws Exception
             {
-               JournalImpl.traceRecord("appendUpdateRecord::id=" + id +
-                                       ", userRecordType=" +
-                                       recordType +
-                                       ", usedFile = " +
-                                       usedFile);
-            }
+               if (JournalImpl.TRACE_RECORDS)
+               {
+                  JournalImpl.traceRecord("appendUpdateRecord::id=" + id +
+                                          ", userRecordType=" +
+                                          recordType +
+                                          ", usedFile = " +
+                                          usedFile);
+               }
 
-            // record== null here could only mean there is a compactor, and computing the delete should be done after
-            // compacting is done
-            if (jrnRecord == null)
-            {
-               compactor.addCommandUpdate(id, usedFile, updateRecord.getEncodeSize());
-            }
-            else
-            {
-               jrnRecord.addUpdateFile(usedFile, updateRecord.getEncodeSize());
+               // no record here could only mean there is a compactor, and computing the update should be done after
+               // compacting is done
+               if (!records.addUpdate(id, usedFile, updateRecord.getEncodeSize()))
+               {
+                  compactor.addCommandUpdate(id, usedFile, updateRecord.getEncodeSize());
+               }
             }
-         }
-         finally
-         {
-            lockAppend.unlock();
-         }
+         });
       }
       finally
       {
@@ -893,7 +893,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       try
       {
 
-         JournalRecord record = null;
+         final JournalRecord record;
 
          if (compactor == null)
          {
@@ -906,45 +906,43 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          }
          else
          {
-            if (!records.containsKey(id) && !compactor.lookupRecord(id))
+            record = null;
+
+            if (!records.contains(id) && !compactor.lookupRecord(id))
             {
                throw new IllegalStateException("Cannot find add info " + id + " on compactor or current records");
             }
          }
 
-         JournalInternalRecord deleteRecord = new JournalDeleteRecord(id);
+         final JournalInternalRecord deleteRecord = new JournalDeleteRecord(id);
 
          if (callback != null)
          {
             callback.storeLineUp();
          }
 
-         lockAppend.lock();
-         try
+         append(new PendingAppend(JournalEncodedRecord.encode(deleteRecord), false, sync, null, callback)
          {
-            JournalFile usedFile = appendRecord(deleteRecord, false, sync, null, callback);
-
-            if (JournalImpl.TRACE_RECORDS)
+            @Override
+            void appended(final JournalFile usedFile) throws Exception
             {
-               JournalImpl.traceRecord("appendDeleteRecord::id=" + id + ", usedFile = " + usedFile);
-            }
+               if (JournalImpl.TRACE_RECORDS)
+               {
+                  JournalImpl.traceRecord("appendDeleteRecord::id=" + id + ", usedFile = " + usedFile);
+               }
 
-            // record== null here could only mean there is a compactor, and computing the delete should be done after
-            // compacting is done
-            if (record == null)
-            {
-               compactor.addCommandDelete(id, usedFile);
-            }
-            else
-            {
-               record.delete(usedFile);
+               // record== null here could only mean there is a compactor, and computing the delete should be done after
+               // compacting is done
+               if (record == null)
+               {
+                  compactor.addCommandDelete(id, usedFile);
+               }
+               else
+               {
+                  record.delete(usedFile);
+               }
             }
-
-         }
-         finally
-         {
-            lockAppend.unlock();
-         }
+         });
       }
       finally
       {
@@ -964,32 +962,29 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       try
       {
-         JournalInternalRecord addRecord = new JournalAddRecordTX(true, txID, id, recordType, record);
+         final JournalInternalRecord addRecord = new JournalAddRecordTX(true, txID, id, recordType, record);
 
-         JournalTransaction tx = getTransactionInfo(txID);
+         final JournalTransaction tx = getTransactionInfo(txID);
 
-         lockAppend.lock();
-         try
+         append(new PendingAppend(JournalEncodedRecord.encode(addRecord), false, false, tx, null)
          {
-            JournalFile usedFile = appendRecord(addRecord, false, false, tx, null);
-
-            if (JournalImpl.TRACE_RECORDS)
+            @Override
+            void appended(final JournalFile usedFile) throws Exception
             {
-               JournalImpl.traceRecord("appendAddRecordTransactional:txID=" + txID +
-                                       ",id=" +
-                                       id +
-                                       ", userRecordType=" +
-                                       recordType +
-                                       ", usedFile = " +
-                                       usedFile);
-            }
+               if (JournalImpl.TRACE_RECORDS)
+               {
+                  JournalImpl.traceRecord("appendAddRecordTransactional:txID=" + txID +
+                                          ",id=" +
+                                          id +
+                                          ", userRecordType=" +
+                                          recordType +
+                                          ", usedFile = " +
+                                          usedFile);
+               }
 
-            tx.addPositive(usedFile, id, addRecord.getEncodeSize());
-         }
-         finally
-         {
-            lockAppend.unlock();
-         }
+               tx.addPositive(usedFile, id, addRecord.getEncodeSize());
+            }
+         });
       }
       finally
       {
@@ -1022,32 +1017,29 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       try
       {
-         JournalInternalRecord updateRecordTX = new JournalAddRecordTX(false, txID, id, recordType, record);
+         final JournalInternalRecord updateRecordTX = new JournalAddRecordTX(false, txID, id, recordType, record);
 
-         JournalTransaction tx = getTransactionInfo(txID);
+         final JournalTransaction tx = getTransactionInfo(txID);
 
-         lockAppend.lock();
-         try
+         append(new PendingAppend(JournalEncodedRecord.encode(updateRecordTX), false, false, tx, null)
          {
-            JournalFile usedFile = appendRecord(updateRecordTX, false, false, tx, null);
-
-            if (JournalImpl.TRACE_RECORDS)
+            @Override
+            void appended(final JournalFile usedFile) throws Exception
             {
-               JournalImpl.traceRecord("appendUpdateRecordTransactional::txID=" + txID +
-                                       ",id=" +
-                                       id +
-                                       ", userRecordType=" +
-                                       recordType +
-                                       ", usedFile = " +
-                                       usedFile);
-            }
+               if (JournalImpl.TRACE_RECORDS)
+               {
+                  JournalImpl.traceRecord("appendUpdateRecordTransactional::txID=" + txID +
+                                          ",id=" +
+                                          id +
+                                          ", userRecordType=" +
+                                          recordType +
+                                          ", usedFile = " +
+                                          usedFile);
+               }
 
-            tx.addPositive(usedFile, id, updateRecordTX.getEncodeSize());
-         }
-         finally
-         {
-            lockAppend.unlock();
-         }
+               tx.addPositive(usedFile, id, updateRecordTX.getEncodeSize());
+            }
+         });
       }
       finally
       {
@@ -1065,30 +1057,27 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       try
       {
-         JournalInternalRecord deleteRecordTX = new JournalDeleteRecordTX(txID, id, record);
+         final JournalInternalRecord deleteRecordTX = new JournalDeleteRecordTX(txID, id, record);
 
-         JournalTransaction tx = getTransactionInfo(txID);
+         final JournalTransaction tx = getTransactionInfo(txID);
 
-         lockAppend.lock();
-         try
+         append(new PendingAppend(JournalEncodedRecord.encode(deleteRecordTX), false, false, tx, null)
          {
-            JournalFile usedFile = appendRecord(deleteRecordTX, false, false, tx, null);
-
-            if (JournalImpl.TRACE_RECORDS)
+            @Override
+            void appended(final JournalFile usedFile) throws Exception
             {
-               JournalImpl.traceRecord("appendDeleteRecordTransactional::txID=" + txID +
-                                       ", id=" +
-                                       id +
-                                       ", usedFile = " +
-                                       usedFile);
-            }
+               if (JournalImpl.TRACE_RECORDS)
+               {
+                  JournalImpl.traceRecord("appendDeleteRecordTransactional::txID=" + txID +
+                                          ", id=" +
+                                          id +
+                                          ", usedFile = " +
+                                          usedFile);
+               }
 
-            tx.addNegative(usedFile, id);
-         }
-         finally
-         {
-            lockAppend.unlock();
-         }
+               tx.addNegative(usedFile, id);
+            }
+         });
       }
       finally
       {
@@ -1122,9 +1111,9 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
      try
       {
-         JournalTransaction tx = getTransactionInfo(txID);
+         final JournalTransaction tx = getTransactionInfo(txID);
 
-         JournalInternalRecord prepareRecord =
+         final JournalInternalRecord prepareRecord =
                   new JournalCompleteRecordTX(TX_RECORD_TYPE.PREPARE, txID, transactionData);
 
          if (callback != null)
@@ -1132,22 +1121,19 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             callback.storeLineUp();
          }
 
-         lockAppend.lock();
-         try
+         append(new PendingAppend(prepareRecord, true, sync, tx, callback)
          {
-            JournalFile usedFile = appendRecord(prepareRecord, true, sync, tx, callback);
-
-            if (JournalImpl.TRACE_RECORDS)
+            @Override
+            void appended(final JournalFile usedFile) throws Exception
             {
-               JournalImpl.traceRecord("appendPrepareRecord::txID=" + txID + ", usedFile = " + usedFile);
-            }
+               if (JournalImpl.TRACE_RECORDS)
+               {
+                  JournalImpl.traceRecord("appendPrepareRecord::txID=" + txID + ", usedFile = " + usedFile);
+               }
 
-            tx.prepare(usedFile);
-         }
-         finally
-         {
-            lockAppend.unlock();
-         }
+               tx.prepare(usedFile);
+            }
+         });
 
       }
       finally
@@ -1175,36 +1161,33 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       try
       {
-         JournalTransaction tx = transactions.remove(txID);
+         final JournalTransaction tx = transactions.remove(txID);
 
          if (tx == null)
          {
             throw new IllegalStateException("Cannot find tx with id " + txID);
          }
 
-         JournalInternalRecord commitRecord = new JournalCompleteRecordTX(TX_RECORD_TYPE.COMMIT, txID, null);
+         final JournalInternalRecord commitRecord = new JournalCompleteRecordTX(TX_RECORD_TYPE.COMMIT, txID, null);
 
          if (callback != null && lineUpContext)
          {
             callback.storeLineUp();
          }
 
-         lockAppend.lock();
-         try
+         append(new PendingAppend(commitRecord, true, sync, tx, callback)
          {
-            JournalFile usedFile = appendRecord(commitRecord, true, sync, tx, callback);
-
-            if (JournalImpl.TRACE_RECORDS)
+            @Override
+            void appended(final JournalFile usedFile) throws Exception
             {
-               JournalImpl.traceRecord("appendCommitRecord::txID=" + txID + ", usedFile = " + usedFile);
-            }
+               if (JournalImpl.TRACE_RECORDS)
+               {
+                  JournalImpl.traceRecord("appendCommitRecord::txID=" + txID + ", usedFile = " + usedFile);
+               }
 
-            tx.commit(usedFile);
-         }
-         finally
-         {
-            lockAppend.unlock();
-         }
+               tx.commit(usedFile);
+            }
+         });
 
       }
       finally
@@ -1220,35 +1203,30 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       journalLock.readLock().lock();
 
-      JournalTransaction tx = null;
-
       try
       {
-         tx = transactions.remove(txID);
+         final JournalTransaction tx = transactions.remove(txID);
 
          if (tx == null)
          {
             throw new IllegalStateException("Cannot find tx with id " + txID);
          }
 
-         JournalInternalRecord rollbackRecord = new JournalRollbackRecordTX(txID);
+         final JournalInternalRecord rollbackRecord = new JournalRollbackRecordTX(txID);
 
          if (callback != null)
          {
             callback.storeLineUp();
          }
 
-         lockAppend.lock();
-         try
-         {
-            JournalFile usedFile = appendRecord(rollbackRecord, false, sync, tx, callback);
-
-            tx.rollback(usedFile);
-         }
-         finally
+         append(new PendingAppend(JournalEncodedRecord.encode(rollbackRecord), false, sync, tx, callback)
          {
-            lockAppend.unlock();
-         }
+            @Override
+            void appended(final JournalFile usedFile) throws Exception
+            {
+               tx.rollback(usedFile);
+            }
+         });
 
       }
       finally
@@ -1502,7 +1480,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             compactor = new JournalCompactor(fileFactory,
                                              this,
                                              filesRepository,
-                                             records.keySet(),
+                                             records,
                                              dataFilesToProcess.get(0).getFileID());
 
             for (Map.Entry<Long, JournalTransaction> entry : transactions.entrySet())
@@ -1512,8 +1490,8 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             }
 
             // We will calculate the new records during compacting, what will take the position the records will take
-            // after compacting
-            records.clear();
+            // after compacting. The compactor keeps the current ones as its snapshot
+            records = new JournalRecordIndex();
          }
          finally
          {
@@ -1564,10 +1542,7 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
             newDatafiles = localCompactor.getNewDataFiles();
 
             // Restore newRecords created during compacting
-            for (Map.Entry<Long, JournalRecord> newRecordEntry : localCompactor.getNewRecords().entrySet())
-            {
-               records.put(newRecordEntry.getKey(), newRecordEntry.getValue());
-            }
+            records.putAll(localCompactor.getNewRecords());
 
             // Restore compacted dataFiles
             for (int i = newDatafiles.size() - 1; i >= 0; i--)
@@ -1714,6 +1689,8 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          throw new IllegalStateException("Journal cannot be in state " + JournalState.STARTED);
       }
 
+      final long loadStart = System.currentTimeMillis();
+
       checkControlFile();
 
       records.clear();
@@ -1729,279 +1706,294 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       filesRepository.calculateNextfileID(orderedFiles);
 
+      final long orderFilesTime = System.currentTimeMillis() - loadStart;
+
+      long readFilesTime = 0;
+
+      long loadRecordsTime = 0;
+
       int lastDataPos = JournalImpl.SIZE_HEADER;
 
       // AtomicLong is used only as a reference, not as an Atomic value
       final AtomicLong maxID = new AtomicLong(-1);
 
-      for (final JournalFile file : orderedFiles)
+      JournalFilesReader filesReader = new JournalFilesReader(fileFactory, orderedFiles, loadThreads);
+
+      try
       {
-         JournalImpl.trace("Loading file " + file.getFile().getFileName());
+         for (int i = 0; i < orderedFiles.size(); i++)
+         {
+            final JournalFile file = orderedFiles.get(i);
 
-         final AtomicBoolean hasData = new AtomicBoolean(false);
+            JournalImpl.trace("Loading file " + file.getFile().getFileName());
 
-         int resultLastPost = JournalImpl.readJournalFile(fileFactory, file, new JournalReaderCallback()
-         {
+            final AtomicBoolean hasData = new AtomicBoolean(false);
 
-            private void checkID(final long id)
+            JournalFilesReader.FileRecords fileRecords = filesReader.read(i);
+
+            readFilesTime += fileRecords.getReadTime();
+
+            long loadRecordsStart = System.currentTimeMillis();
+
+            fileRecords.replay(new JournalReaderCallback()
             {
-               if (id > maxID.longValue())
+
+               private void checkID(final long id)
                {
-                  maxID.set(id);
+                  if (id > maxID.longValue())
+                  {
+                     maxID.set(id);
+                  }
                }
-            }
 
-            public void onReadAddRecord(final RecordInfo info) throws Exception
-            {
-               checkID(info.id);
+               public void onReadAddRecord(final RecordInfo info) throws Exception
+               {
+                  checkID(info.id);
 
-               hasData.set(true);
+                  hasData.set(true);
 
-               loadManager.addRecord(info);
+                  loadManager.addRecord(info);
 
-               records.put(info.id, new JournalRecord(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1));
-            }
-
-            public void onReadUpdateRecord(final RecordInfo info) throws Exception
-            {
-               checkID(info.id);
+                  records.add(info.id, file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1);
+               }
 
-               hasData.set(true);
+               public void onReadUpdateRecord(final RecordInfo info) throws Exception
+               {
+                  checkID(info.id);
 
-               loadManager.updateRecord(info);
+                  hasData.set(true);
 
-               JournalRecord posFiles = records.get(info.id);
+                  loadManager.updateRecord(info);
 
-               if (posFiles != null)
-               {
-                  // It's legal for this to be null. The file(s) with the may
+                  // It's legal for the record not to be there. The file(s) with the may
                   // have been deleted
                   // just leaving some updates in this file
 
-                  posFiles.addUpdateFile(file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1); // +1 = compact
+                  records.addUpdate(info.id, file, info.data.length + JournalImpl.SIZE_ADD_RECORD + 1); // +1 = compact
                   // count
                }
-            }
 
-            public void onReadDeleteRecord(final long recordID) throws Exception
-            {
-               hasData.set(true);
+               public void onReadDeleteRecord(final long recordID) throws Exception
+               {
+                  hasData.set(true);
 
-               loadManager.deleteRecord(recordID);
+                  loadManager.deleteRecord(recordID);
 
-               JournalRecord posFiles = records.remove(recordID);
+                  records.delete(recordID, file);
+               }
 
-               if (posFiles != null)
+               public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info) throws Exception
                {
-                  posFiles.delete(file);
+                  onReadAddRecordTX(transactionID, info);
                }
-            }
 
-            public void onReadUpdateRecordTX(final long transactionID, final RecordInfo info) throws Exception
-            {
-               onReadAddRecordTX(transactionID, info);
-            }
+               public void onReadAddRecordTX(final long transactionID, final RecordInfo info) throws Exception
+               {
 
-            public void onReadAddRecordTX(final long transactionID, final RecordInfo info) throws Exception
-            {
+                  checkID(info.id);
 
-               checkID(info.id);
+                  hasData.set(true);
 
-               hasData.set(true);
+                  TransactionHolder tx = loadTransactions.get(transactionID);
 
-               TransactionHolder tx = loadTransactions.get(transactionID);
+                  if (tx == null)
+                  {
+                     tx = new TransactionHolder(transactionID);
 
-               if (tx == null)
-               {
-                  tx = new TransactionHolder(transactionID);
+                     loadTransactions.put(transactionID, tx);
+                  }
 
-                  loadTransactions.put(transactionID, tx);
-               }
+                  tx.recordInfos.add(info);
 
-               tx.recordInfos.add(info);
+                  JournalTransaction tnp = transactions.get(transactionID);
 
-               JournalTransaction tnp = transactions.get(transactionID);
+                  if (tnp == null)
+                  {
+                     tnp = new JournalTransaction(transactionID, JournalImpl.this);
 
-               if (tnp == null)
-               {
-                  tnp = new JournalTransaction(transactionID, JournalImpl.this);
+                     transactions.put(transactionID, tnp);
+                  }
 
-                  transactions.put(transactionID, tnp);
+                  tnp.addPositive(file, info.id, info.data.length + JournalImpl.SIZE_ADD_RECORD_TX + 1); // +1 = compact
+                  // count
                }
 
-               tnp.addPositive(file, info.id, info.data.length + JournalImpl.SIZE_ADD_RECORD_TX + 1); // +1 = compact
-               // count
-            }
-
-            public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info) throws Exception
-            {
-               hasData.set(true);
-
-               TransactionHolder tx = loadTransactions.get(transactionID);
-
-               if (tx == null)
+               public void onReadDeleteRecordTX(final long transactionID, final RecordInfo info) throws Exception
                {
-                  tx = new TransactionHolder(transactionID);
+                  hasData.set(true);
 
-                  loadTransactions.put(transactionID, tx);
-               }
+                  TransactionHolder tx = loadTransactions.get(transactionID);
 
-               tx.recordsToDelete.add(info);
+                  if (tx == null)
+                  {
+                     tx = new TransactionHolder(transactionID);
 
-               JournalTransaction tnp = transactions.get(transactionID);
+                     loadTransactions.put(transactionID, tx);
+                  }
 
-               if (tnp == null)
-               {
-                  tnp = new JournalTransaction(transactionID, JournalImpl.this);
+                  tx.recordsToDelete.add(info);
 
-                  transactions.put(transactionID, tnp);
-               }
+                  JournalTransaction tnp = transactions.get(transactionID);
 
-               tnp.addNegative(file, info.id);
+                  if (tnp == null)
+                  {
+                     tnp = new JournalTransaction(transactionID, JournalImpl.this);
 
-            }
+                     transactions.put(transactionID, tnp);
+                  }
 
-            public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords) throws Exception
-            {
-               hasData.set(true);
+                  tnp.addNegative(file, info.id);
 
-               TransactionHolder tx = loadTransactions.get(transactionID);
+               }
 
-               if (tx == null)
+               public void onReadPrepareRecord(final long transactionID, final byte[] extraData, final int numberOfRecords) throws Exception
                {
-                  // The user could choose to prepare empty transactions
-                  tx = new TransactionHolder(transactionID);
-
-                  loadTransactions.put(transactionID, tx);
-               }
+                  hasData.set(true);
 
-               tx.prepared = true;
+                  TransactionHolder tx = loadTransactions.get(transactionID);
 
-               tx.extraData = extraData;
+                  if (tx == null)
+                  {
+                     // The user could choose to prepare empty transactions
+                     tx = new TransactionHolder(transactionID);
 
-               JournalTransaction journalTransaction = transactions.get(transactionID);
+                     loadTransactions.put(transactionID, tx);
+                  }
 
-               if (journalTransaction == null)
-               {
-                  journalTransaction = new JournalTransaction(transactionID, JournalImpl.this);
+                  tx.prepared = true;
 
-                  transactions.put(transactionID, journalTransaction);
-               }
+                  tx.extraData = extraData;
 
-               boolean healthy = checkTransactionHealth(file, journalTransaction, orderedFiles, numberOfRecords);
-
-               if (healthy)
-               {
-                  journalTransaction.prepare(file);
-               }
-               else
-               {
-                  HornetQJournalLogger.LOGGER.preparedTXIncomplete(transactionID);
-                  tx.invalid = true;
-               }
-            }
-
-            public void onReadCommitRecord(final long transactionID, final int numberOfRecords) throws Exception
-            {
-               TransactionHolder tx = loadTransactions.remove(transactionID);
-
-               // The commit could be alone on its own journal-file and the
-               // whole transaction body was reclaimed but not the
-               // commit-record
-               // So it is completely legal to not find a transaction at this
-               // point
-               // If we can't find it, we assume the TX was reclaimed and we
-               // ignore this
-               if (tx != null)
-               {
-                  JournalTransaction journalTransaction = transactions.remove(transactionID);
+                  JournalTransaction journalTransaction = transactions.get(transactionID);
 
                   if (journalTransaction == null)
                   {
-                     throw new IllegalStateException("Cannot find tx " + transactionID);
+                     journalTransaction = new JournalTransaction(transactionID, JournalImpl.this);
+
+                     transactions.put(transactionID, journalTransaction);
                   }
 
                   boolean healthy = checkTransactionHealth(file, journalTransaction, orderedFiles, numberOfRecords);
 
                   if (healthy)
                   {
-                     for (RecordInfo txRecord : tx.recordInfos)
+                     journalTransaction.prepare(file);
+                  }
+                  else
+                  {
+                     HornetQJournalLogger.LOGGER.preparedTXIncomplete(transactionID);
+                     tx.invalid = true;
+                  }
+               }
+
+               public void onReadCommitRecord(final long transactionID, final int numberOfRecords) throws Exception
+               {
+                  TransactionHolder tx = loadTransactions.remove(transactionID);
+
+                  // The commit could be alone on its own journal-file and the
+                  // whole transaction body was reclaimed but not the
+                  // commit-record
+                  // So it is completely legal to not find a transaction at this
+                  // point
+                  // If we can't find it, we assume the TX was reclaimed and we
+                  // ignore this
+                  if (tx != null)
+                  {
+                     JournalTransaction journalTransaction = transactions.remove(transactionID);
+
+                     if (journalTransaction == null)
+                     {
+                        throw new IllegalStateException("Cannot find tx " + transactionID);
+                     }
+
+                     boolean healthy = checkTransactionHealth(file, journalTransaction, orderedFiles, numberOfRecords);
+
+                     if (healthy)
                      {
-                        if (txRecord.isUpdate)
+                        for (RecordInfo txRecord : tx.recordInfos)
                         {
-                           loadManager.updateRecord(txRecord);
+                           if (txRecord.isUpdate)
+                           {
+                              loadManager.updateRecord(txRecord);
+                           }
+                           else
+                           {
+                              loadManager.addRecord(txRecord);
+                           }
                         }
-                        else
+
+                        for (RecordInfo deleteValue : tx.recordsToDelete)
                         {
-                           loadManager.addRecord(txRecord);
+                           loadManager.deleteRecord(deleteValue.id);
                         }
-                     }
 
-                     for (RecordInfo deleteValue : tx.recordsToDelete)
-                     {
-                        loadManager.deleteRecord(deleteValue.id);
+                        journalTransaction.commit(file);
                      }
+                     else
+                     {
+                        HornetQJournalLogger.LOGGER.txMissingElements(transactionID);
 
-                     journalTransaction.commit(file);
-                  }
-                  else
-                  {
-                     HornetQJournalLogger.LOGGER.txMissingElements(transactionID);
+                        journalTransaction.forget();
+                     }
 
-                     journalTransaction.forget();
+                     hasData.set(true);
                   }
 
-                  hasData.set(true);
                }
 
-            }
-
-            public void onReadRollbackRecord(final long transactionID) throws Exception
-            {
-               TransactionHolder tx = loadTransactions.remove(transactionID);
-
-               // The rollback could be alone on its own journal-file and the
-               // whole transaction body was reclaimed but the commit-record
-               // So it is completely legal to not find a transaction at this
-               // point
-               if (tx != null)
+               public void onReadRollbackRecord(final long transactionID) throws Exception
                {
-                  JournalTransaction tnp = transactions.remove(transactionID);
+                  TransactionHolder tx = loadTransactions.remove(transactionID);
 
-                  if (tnp == null)
+                  // The rollback could be alone on its own journal-file and the
+                  // whole transaction body was reclaimed but the commit-record
+                  // So it is completely legal to not find a transaction at this
+                  // point
+                  if (tx != null)
                   {
-                     throw new IllegalStateException("Cannot find tx " + transactionID);
-                  }
+                     JournalTransaction tnp = transactions.remove(transactionID);
+
+                     if (tnp == null)
+                     {
+                        throw new IllegalStateException("Cannot find tx " + transactionID);
+                     }
+
+                     // There is no need to validate summaries/holes on
+                     // Rollbacks.. We will ignore the data anyway.
+                     tnp.rollback(file);
 
-                  // There is no need to validate summaries/holes on
-                  // Rollbacks.. We will ignore the data anyway.
-                  tnp.rollback(file);
+                     hasData.set(true);
+                  }
+               }
 
+               public void markAsDataFile(final JournalFile file)
+               {
                   hasData.set(true);
                }
-            }
 
-            public void markAsDataFile(final JournalFile file)
-            {
-               hasData.set(true);
-            }
+            });
 
-         });
+            loadRecordsTime += System.currentTimeMillis() - loadRecordsStart;
 
-         if (hasData.get())
-         {
-            lastDataPos = resultLastPost;
-            filesRepository.addDataFileOnBottom(file);
-         }
-         else
-         {
-            if (changeData)
+            if (hasData.get())
+            {
+               lastDataPos = fileRecords.getLastDataPos();
+               filesRepository.addDataFileOnBottom(file);
+            }
+            else
             {
-               // Empty dataFiles with no data
-               filesRepository.addFreeFile(file, false, false);
+               if (changeData)
+               {
+                  // Empty dataFiles with no data
+                  filesRepository.addFreeFile(file, false, false);
+               }
             }
          }
       }
+      finally
+      {
+         filesReader.close();
+      }
 
       if (replicationSync == JournalState.SYNCING)
       {
@@ -2014,6 +2006,8 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
 
       setJournalState(JournalState.LOADED);
 
+      final long loadTransactionsStart = System.currentTimeMillis();
+
       for (TransactionHolder transaction : loadTransactions.values())
       {
          if ((!transaction.prepared || transaction.invalid) && replicationSync != JournalState.SYNCING_UP_TO_DATE)
@@ -2050,9 +2044,19 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
          }
       }
 
+      long loadTransactionsTime = System.currentTimeMillis() - loadTransactionsStart;
+
       checkReclaimStatus();
 
-      return new JournalLoadInformation(records.size(), maxID.longValue());
+      JournalLoadInformation info = new JournalLoadInformation(records.size(), maxID.longValue());
+
+      info.setOrderFilesTime(orderFilesTime);
+      info.setReadFilesTime(readFilesTime);
+      info.setLoadRecordsTime(loadRecordsTime);
+      info.setLoadTransactionsTime(loadTransactionsTime);
+      info.setLoadTime(System.currentTimeMillis() - loadStart);
+
+      return info;
    }
 
    /**
@@ -2177,6 +2181,25 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
    // TestableJournal implementation
    // --------------------------------------------------------------
 
+   /**
+    * Sets the number of threads reading the data files on {@link #load(LoaderCallback)}. With more
+    * than one thread the files are read in parallel, their records being loaded in the order of the
+    * files as usual.
+    */
+   public void setLoadThreads(final int loadThreads)
+   {
+      if (loadThreads < 1)
+      {
+         throw new IllegalArgumentException("loadThreads must be positive: " + loadThreads);
+      }
+      this.loadThreads = loadThreads;
+   }
+
+   public int getLoadThreads()
+   {
+      return loadThreads;
+   }
+
    public final void setAutoReclaim(final boolean autoReclaim)
    {
       this.autoReclaim = autoReclaim;
@@ -2741,6 +2764,67 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
       buffer.writeLong(fileID);
    }
 
+   /**
+    * Appends a record, along with the records of the other threads waiting to append theirs.
+    * <p>
+    * The records are queued before taking lockAppend, and the thread holding the lock appends all
+    * the queued records in turn. The threads waiting on the lock usually find their record already
+    * appended when they get it, which keeps the time spent holding the lock to the writes into the
+    * file buffer rather than one lock hand-off per record.
+    */
+   private void append(final PendingAppend pending) throws Exception
+   {
+      pendingAppends.add(pending);
+
+      lockAppend.lock();
+      try
+      {
+         int count = 0;
+
+         PendingAppend next;
+
+         while ((!pending.done || count < MAX_APPEND_BATCH) && (next = pendingAppends.poll()) != null)
+         {
+            try
+            {
+               JournalFile usedFile = appendRecord(next.encoder,
+                                                   next.completeTransaction,
+                                                   next.sync,
+                                                   next.transaction,
+                                                   next.completion);
+
+               next.appended(usedFile);
+            }
+            catch (Throwable e)
+            {
+               next.error = e;
+            }
+
+            next.done = true;
+
+            count++;
+         }
+      }
+      finally
+      {
+         lockAppend.unlock();
+      }
+
+      if (pending.encoder instanceof JournalEncodedRecord)
+      {
+         ((JournalEncodedRecord)pending.encoder).release();
+      }
+
+      if (pending.error instanceof Exception)
+      {
+         throw (Exception)pending.error;
+      }
+      else if (pending.error != null)
+      {
+         throw (Error)pending.error;
+      }
+   }
+
    /**
     * @param completeTransaction If the appendRecord is for a prepare or commit, where we should
     *           update the number of pendingTransactions on the current file
@@ -2947,6 +3031,46 @@ public class JournalImpl extends JournalBase implements TestableJournal, Journal
    }
 
    // Inner classes
+
+   /**
+    * A record queued to be appended by {@link JournalImpl#append(PendingAppend)}.
+    */
+   private abstract static class PendingAppend
+   {
+      final JournalInternalRecord encoder;
+
+      final boolean completeTransaction;
+
+      final boolean sync;
+
+      final JournalTransaction transaction;
+
+      final IOAsyncTask completion;
+
+      // guarded by lockAppend
+
+      boolean done;
+
+      Throwable error;
+
+      PendingAppend(final JournalInternalRecord record,
+                    final boolean completeTransaction,
+                    final boolean sync,
+                    final JournalTransaction tx,
+                    final IOAsyncTask callback)
+      {
+         encoder = record;
+         this.completeTransaction = completeTransaction;
+         this.sync = sync;
+         transaction = tx;
+         completion = callback;
+      }
+
+      /**
+       * Accounts for the record once it is written to the given file, holding lockAppend.
+       */
+      abstract void appended(JournalFile usedFile) throws Exception;
+   }
    // ---------------------------------------------------------------------------
 
    // Used on Load
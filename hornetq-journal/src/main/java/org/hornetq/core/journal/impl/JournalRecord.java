@@ -13,16 +13,12 @@
 
 package org.hornetq.core.journal.impl;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import org.hornetq.api.core.Pair;
-
 /**
  * This holds the relationship a record has with other files in regard to reference counting.
  * Note: This class used to be called PosFiles
  *
- * Used on the ref-count for reclaiming
+ * Used on the ref-count for reclaiming. The live records are kept by a {@link JournalRecordIndex},
+ * this is a record removed from the index whose delete still has to be accounted.
  *
  * @author <a href="mailto:clebert.suconic@jboss.org">Clebert Suconic</a>
  * */
@@ -32,31 +28,15 @@ public class JournalRecord
 
    private final int size;
 
-   private List<Pair<JournalFile, Integer>> updateFiles;
+   private final JournalRecordIndex.Updates updates;
 
-   public JournalRecord(final JournalFile addFile, final int size)
+   JournalRecord(final JournalFile addFile, final int size, final JournalRecordIndex.Updates updates)
    {
       this.addFile = addFile;
 
       this.size = size;
 
-      addFile.incPosCount();
-
-      addFile.addSize(size);
-   }
-
-   void addUpdateFile(final JournalFile updateFile, final int size)
-   {
-      if (updateFiles == null)
-      {
-         updateFiles = new ArrayList<Pair<JournalFile, Integer>>();
-      }
-
-      updateFiles.add(new Pair<JournalFile, Integer>(updateFile, size));
-
-      updateFile.incPosCount();
-
-      updateFile.addSize(size);
+      this.updates = updates;
    }
 
    void delete(final JournalFile file)
@@ -64,12 +44,12 @@ public class JournalRecord
       file.incNegCount(addFile);
       addFile.decSize(size);
 
-      if (updateFiles != null)
+      if (updates != null)
       {
-         for (Pair<JournalFile, Integer> updFile : updateFiles)
+         for (int i = 0; i < updates.count; i++)
          {
-            file.incNegCount(updFile.getA());
-            updFile.getA().decSize(updFile.getB());
+            file.incNegCount(updates.files[i]);
+            updates.files[i].decSize(updates.sizes[i]);
          }
       }
    }
@@ -80,14 +60,12 @@ public class JournalRecord
       StringBuilder buffer = new StringBuilder();
       buffer.append("JournalRecord(add=" + addFile.getFile().getFileName());
 
-      if (updateFiles != null)
+      if (updates != null)
       {
-
-         for (Pair<JournalFile, Integer> update : updateFiles)
+         for (int i = 0; i < updates.count; i++)
          {
-            buffer.append(", update=" + update.getA().getFile().getFileName());
+            buffer.append(", update=" + updates.files[i].getFile().getFileName());
          }
-
       }
 
       buffer.append(")");
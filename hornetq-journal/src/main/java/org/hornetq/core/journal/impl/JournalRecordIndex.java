@@ -0,0 +1,425 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.journal.impl;
+
+import java.util.Arrays;
+
+/**
+ * The live records of a journal by ID, with the files holding their add and update records.
+ * <p>
+ * A journal may hold tens of millions of records, so rather than a map of {@link JournalRecord}
+ * this is an open addressing hash table of primitive arrays: a record takes one slot in each
+ * array instead of a boxed key, a map entry and a JournalRecord. The table is split into segments
+ * with their own lock so records can be added and deleted concurrently.
+ * <p>
+ * Like {@link JournalRecord}, the index updates the counters of the files the records are written
+ * to, which the {@link Reclaimer} uses to tell whether a file can be reclaimed.
+ */
+public final class JournalRecordIndex
+{
+   private static final int SEGMENT_SHIFT = 59;
+
+   private static final int SEGMENTS = 1 << 64 - SEGMENT_SHIFT;
+
+   private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+   private final Segment[] segments = new Segment[SEGMENTS];
+
+   public JournalRecordIndex()
+   {
+      for (int i = 0; i < SEGMENTS; i++)
+      {
+         segments[i] = new Segment();
+      }
+   }
+
+   /**
+    * Adds a record written to the given file, replacing any record with the same ID.
+    */
+   public void add(final long id, final JournalFile addFile, final int size)
+   {
+      addFile.incPosCount();
+
+      addFile.addSize(size);
+
+      long hash = hash(id);
+
+      segmentFor(hash).put(id, hash, addFile, size, null);
+   }
+
+   /**
+    * Adds an update of a record written to the given file.
+    *
+    * @return false if there is no such record
+    */
+   public boolean addUpdate(final long id, final JournalFile updateFile, final int size)
+   {
+      long hash = hash(id);
+
+      if (segmentFor(hash).addUpdate(id, hash, updateFile, size))
+      {
+         updateFile.incPosCount();
+
+         updateFile.addSize(size);
+
+         return true;
+      }
+      return false;
+   }
+
+   /**
+    * Removes a record, for its delete record to be accounted with {@link JournalRecord#delete(JournalFile)}
+    * once it is written.
+    *
+    * @return the record, or null if there is no such record
+    */
+   public JournalRecord remove(final long id)
+   {
+      long hash = hash(id);
+
+      return segmentFor(hash).remove(id, hash);
+   }
+
+   /**
+    * Removes a record whose delete record was written to the given file.
+    *
+    * @return false if there is no such record
+    */
+   public boolean delete(final long id, final JournalFile deleteFile)
+   {
+      JournalRecord record = remove(id);
+
+      if (record == null)
+      {
+         return false;
+      }
+
+      record.delete(deleteFile);
+
+      return true;
+   }
+
+   public boolean contains(final long id)
+   {
+      long hash = hash(id);
+
+      return segmentFor(hash).contains(id, hash);
+   }
+
+   public int size()
+   {
+      int size = 0;
+
+      for (Segment segment : segments)
+      {
+         size += segment.size;
+      }
+
+      return size;
+   }
+
+   public void clear()
+   {
+      for (Segment segment : segments)
+      {
+         segment.clear();
+      }
+   }
+
+   /**
+    * Moves the records of another index into this one. Their files were accounted by the other
+    * index.
+    */
+   public void putAll(final JournalRecordIndex other)
+   {
+      for (Segment segment : other.segments)
+      {
+         synchronized (segment)
+         {
+            for (int i = 0; i < segment.files.length; i++)
+            {
+               if (segment.files[i] != null)
+               {
+                  long id = segment.keys[i];
+
+                  long hash = hash(id);
+
+                  segmentFor(hash).put(id, hash, segment.files[i], segment.sizes[i], segment.updates[i]);
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * @return the IDs of the records, in no particular order
+    */
+   public long[] getIDs()
+   {
+      long[] ids = new long[size()];
+
+      int count = 0;
+
+      for (Segment segment : segments)
+      {
+         synchronized (segment)
+         {
+            for (int i = 0; i < segment.files.length; i++)
+            {
+               if (segment.files[i] != null)
+               {
+                  if (count == ids.length)
+                  {
+                     ids = Arrays.copyOf(ids, count * 2 + 1);
+                  }
+                  ids[count++] = segment.keys[i];
+               }
+            }
+         }
+      }
+
+      return count == ids.length ? ids : Arrays.copyOf(ids, count);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "JournalRecordIndex [size=" + size() + "]";
+   }
+
+   private Segment segmentFor(final long hash)
+   {
+      return segments[(int)(hash >>> SEGMENT_SHIFT)];
+   }
+
+   /**
+    * The finalizer of MurmurHash3: IDs are often sequential and their bits must be spread over
+    * both the segment and the slot.
+    */
+   private static long hash(final long id)
+   {
+      long h = id;
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+   }
+
+   /**
+    * The files holding the updates of a record.
+    */
+   static final class Updates
+   {
+      JournalFile[] files = new JournalFile[2];
+
+      int[] sizes = new int[2];
+
+      int count;
+
+      void add(final JournalFile file, final int size)
+      {
+         if (count == files.length)
+         {
+            files = Arrays.copyOf(files, count * 2);
+            sizes = Arrays.copyOf(sizes, count * 2);
+         }
+         files[count] = file;
+         sizes[count] = size;
+         count++;
+      }
+   }
+
+   /**
+    * A linear probing hash table, where a slot is free if it has no file.
+    */
+   private static final class Segment
+   {
+      long[] keys;
+
+      JournalFile[] files;
+
+      int[] sizes;
+
+      Updates[] updates;
+
+      volatile int size;
+
+      Segment()
+      {
+         allocate(INITIAL_SEGMENT_CAPACITY);
+      }
+
+      synchronized void put(final long id,
+                            final long hash,
+                            final JournalFile file,
+                            final int fileSize,
+                            final Updates recordUpdates)
+      {
+         int slot = find(id, hash);
+
+         if (slot < 0)
+         {
+            if ((size + 1) * 4 > files.length * 3)
+            {
+               rehash(files.length * 2);
+
+               slot = find(id, hash);
+            }
+
+            slot = -slot - 1;
+
+            keys[slot] = id;
+
+            size++;
+         }
+
+         files[slot] = file;
+         sizes[slot] = fileSize;
+         updates[slot] = recordUpdates;
+      }
+
+      synchronized boolean addUpdate(final long id, final long hash, final JournalFile file, final int updateSize)
+      {
+         int slot = find(id, hash);
+
+         if (slot < 0)
+         {
+            return false;
+         }
+
+         if (updates[slot] == null)
+         {
+            updates[slot] = new Updates();
+         }
+
+         updates[slot].add(file, updateSize);
+
+         return true;
+      }
+
+      synchronized JournalRecord remove(final long id, final long hash)
+      {
+         int slot = find(id, hash);
+
+         if (slot < 0)
+         {
+            return null;
+         }
+
+         JournalRecord record = new JournalRecord(files[slot], sizes[slot], updates[slot]);
+
+         removeAt(slot);
+
+         size--;
+
+         return record;
+      }
+
+      synchronized boolean contains(final long id, final long hash)
+      {
+         return find(id, hash) >= 0;
+      }
+
+      synchronized void clear()
+      {
+         allocate(INITIAL_SEGMENT_CAPACITY);
+
+         size = 0;
+      }
+
+      /**
+       * @return the slot of the record, or (-insertion point - 1) if there is no such record
+       */
+      private int find(final long id, final long hash)
+      {
+         int mask = files.length - 1;
+
+         for (int slot = (int)hash & mask;; slot = slot + 1 & mask)
+         {
+            if (files[slot] == null)
+            {
+               return -slot - 1;
+            }
+            if (keys[slot] == id)
+            {
+               return slot;
+            }
+         }
+      }
+
+      /**
+       * Frees the slot, moving back the following records which would not be found otherwise.
+       */
+      private void removeAt(final int slot)
+      {
+         int mask = files.length - 1;
+
+         int free = slot;
+
+         for (int next = free + 1 & mask; files[next] != null; next = next + 1 & mask)
+         {
+            int ideal = (int)hash(keys[next]) & mask;
+
+            // the record can move to the free slot if its ideal slot isn't between the two
+            boolean between = free <= next ? free < ideal && ideal <= next : free < ideal || ideal <= next;
+
+            if (!between)
+            {
+               keys[free] = keys[next];
+               files[free] = files[next];
+               sizes[free] = sizes[next];
+               updates[free] = updates[next];
+
+               free = next;
+            }
+         }
+
+         files[free] = null;
+         updates[free] = null;
+      }
+
+      private void rehash(final int capacity)
+      {
+         long[] oldKeys = keys;
+         JournalFile[] oldFiles = files;
+         int[] oldSizes = sizes;
+         Updates[] oldUpdates = updates;
+
+         allocate(capacity);
+
+         for (int i = 0; i < oldFiles.length; i++)
+         {
+            if (oldFiles[i] != null)
+            {
+               int slot = -find(oldKeys[i], hash(oldKeys[i])) - 1;
+
+               keys[slot] = oldKeys[i];
+               files[slot] = oldFiles[i];
+               sizes[slot] = oldSizes[i];
+               updates[slot] = oldUpdates[i];
+            }
+         }
+      }
+
+      private void allocate(final int capacity)
+      {
+         keys = new long[capacity];
+         files = new JournalFile[capacity];
+         sizes = new int[capacity];
+         updates = new Updates[capacity];
+      }
+   }
+}
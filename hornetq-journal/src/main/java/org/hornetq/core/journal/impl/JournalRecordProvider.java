@@ -13,8 +13,6 @@
 
 package org.hornetq.core.journal.impl;
 
-import java.util.Map;
-
 /**
  * This is an interface used only internally.
  *
@@ -30,5 +28,5 @@ public interface JournalRecordProvider
 {
    JournalCompactor getCompactor();
 
-   Map<Long, JournalRecord> getRecords();
+   JournalRecordIndex getRecords();
 }
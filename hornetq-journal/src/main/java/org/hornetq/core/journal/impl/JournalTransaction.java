@@ -264,8 +264,6 @@ public class JournalTransaction
          {
             for (JournalUpdate trUpdate : pos)
             {
-               JournalRecord posFiles = journal.getRecords().get(trUpdate.id);
-
                if (compactor != null && compactor.lookupRecord(trUpdate.id))
                {
                   // This is a case where the transaction was opened after compacting was started,
@@ -273,15 +271,9 @@ public class JournalTransaction
                   // We need to cache the counter update, so compacting will take the correct files when it is done
                   compactor.addCommandUpdate(trUpdate.id, trUpdate.file, trUpdate.size);
                }
-               else if (posFiles == null)
-               {
-                  posFiles = new JournalRecord(trUpdate.file, trUpdate.size);
-
-                  journal.getRecords().put(trUpdate.id, posFiles);
-               }
-               else
+               else if (!journal.getRecords().addUpdate(trUpdate.id, trUpdate.file, trUpdate.size))
                {
-                  posFiles.addUpdateFile(trUpdate.file, trUpdate.size);
+                  journal.getRecords().add(trUpdate.id, trUpdate.file, trUpdate.size);
                }
             }
          }
@@ -296,12 +288,7 @@ public class JournalTransaction
                }
                else
                {
-                  JournalRecord posFiles = journal.getRecords().remove(trDelete.id);
-
-                  if (posFiles != null)
-                  {
-                     posFiles.delete(trDelete.file);
-                  }
+                  journal.getRecords().delete(trDelete.id, trDelete.file);
                }
             }
          }
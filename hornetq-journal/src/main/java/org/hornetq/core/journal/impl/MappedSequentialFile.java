@@ -0,0 +1,609 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.journal.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.HornetQExceptionType;
+import org.hornetq.api.core.HornetQIOErrorException;
+import org.hornetq.api.core.HornetQIllegalStateException;
+import org.hornetq.core.journal.IOAsyncTask;
+import org.hornetq.core.journal.SequentialFile;
+import org.hornetq.core.journal.SequentialFileFactory;
+import org.hornetq.journal.HornetQJournalBundle;
+import org.hornetq.journal.HornetQJournalLogger;
+
+/**
+ * A file accessed through a memory mapping of its whole size.
+ * <p>
+ * Reads are copies from the mapping, with no system call. Writes are copies into the mapping too,
+ * unless they are synced: forcing the pages written through a mapping has the OS write protect
+ * them again, so the next write to each of them faults, which made synced writes several times
+ * slower than NIO ones. Those are written through the channel instead, which shares the same pages
+ * with the mapping. A sync following writes through the mapping forces the mapping as well, as
+ * forcing the channel isn't guaranteed to write the pages dirtied through a mapping everywhere.
+ * <p>
+ * Journal files are filled before they are used, so they are mapped entirely. A file written past
+ * its mapped size (as a page file is, since it grows as it's written) is written through its
+ * channel, and mapped again the next time it's read.
+ * <p>
+ * Files larger than 2GiB can't be mapped, and are read and written through their channel.
+ */
+public final class MappedSequentialFile extends AbstractSequentialFile
+{
+   private FileChannel channel;
+
+   private RandomAccessFile rfile;
+
+   /**
+    * Guards the mapping and the file position. The writes done on the executor take it instead of
+    * the lock of the file, which is held by close while it waits for them.
+    */
+   private final Object mappingLock = new Object();
+
+   /** The mapping of the file, from its start, or null if the file is empty or too large to be mapped */
+   private MappedByteBuffer mappedBuffer;
+
+   /** Whether anything was written through the mapping since it was last forced */
+   private boolean mappingDirty;
+
+   /** The position the next read or write happens at, as the position of a NIO channel */
+   private long filePosition;
+
+   /** So a JVM that can't release mappings only logs it once */
+   private static volatile boolean unmapFailureLogged;
+
+   /** The write semaphore here is only used when writing asynchronously */
+   private Semaphore maxIOSemaphore;
+
+   private final int defaultMaxIO;
+
+   private int maxIO;
+
+   public MappedSequentialFile(final SequentialFileFactory factory,
+                               final String directory,
+                               final String fileName,
+                               final int maxIO,
+                               final Executor writerExecutor)
+   {
+      super(directory, new File(directory + "/" + fileName), factory, writerExecutor);
+      defaultMaxIO = maxIO;
+   }
+
+   public MappedSequentialFile(final SequentialFileFactory factory,
+                               final File file,
+                               final int maxIO,
+                               final Executor writerExecutor)
+   {
+      super(file.getParent(), new File(file.getPath()), factory, writerExecutor);
+      defaultMaxIO = maxIO;
+   }
+
+   public int getAlignment()
+   {
+      return 1;
+   }
+
+   public int calculateBlockStart(final int position)
+   {
+      return position;
+   }
+
+   public synchronized boolean isOpen()
+   {
+      return channel != null;
+   }
+
+   public synchronized void open() throws IOException
+   {
+      open(defaultMaxIO, true);
+   }
+
+   public synchronized void open(final int maxIO, final boolean useExecutor) throws IOException
+   {
+      try
+      {
+         rfile = new RandomAccessFile(getFile(), "rw");
+
+         channel = rfile.getChannel();
+
+         fileSize = channel.size();
+
+         synchronized (mappingLock)
+         {
+            filePosition = 0;
+
+            map();
+         }
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+
+      if (writerExecutor != null && useExecutor)
+      {
+         maxIOSemaphore = new Semaphore(maxIO);
+         this.maxIO = maxIO;
+      }
+   }
+
+   public synchronized void fill(final int position, final int size, final byte fillCharacter) throws IOException
+   {
+      ByteBuffer bb = ByteBuffer.allocate(size);
+
+      for (int i = 0; i < size; i++)
+      {
+         bb.put(fillCharacter);
+      }
+
+      bb.flip();
+
+      try
+      {
+         synchronized (mappingLock)
+         {
+            channel.write(bb, position);
+            channel.force(false);
+
+            fileSize = channel.size();
+
+            filePosition = 0;
+
+            map();
+         }
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+   }
+
+   public synchronized void waitForClose() throws InterruptedException
+   {
+      while (isOpen())
+      {
+         wait();
+      }
+   }
+
+   @Override
+   public synchronized void close() throws IOException, InterruptedException, HornetQException
+   {
+      super.close();
+
+      if (maxIOSemaphore != null)
+      {
+         while (!maxIOSemaphore.tryAcquire(maxIO, 60, TimeUnit.SECONDS))
+         {
+            HornetQJournalLogger.LOGGER.errorClosingFile(getFileName());
+         }
+      }
+
+      maxIOSemaphore = null;
+
+      synchronized (mappingLock)
+      {
+         unmap();
+      }
+
+      try
+      {
+         if (channel != null)
+         {
+            channel.close();
+         }
+
+         if (rfile != null)
+         {
+            rfile.close();
+         }
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+      channel = null;
+
+      rfile = null;
+
+      notifyAll();
+   }
+
+   public int read(final ByteBuffer bytes) throws Exception
+   {
+      return read(bytes, null);
+   }
+
+   public synchronized int read(final ByteBuffer bytes, final IOAsyncTask callback) throws IOException,
+                                                                                   HornetQIllegalStateException
+   {
+      try
+      {
+         if (channel == null)
+         {
+            throw new HornetQIllegalStateException("File " + this.getFileName() + " has a null channel");
+         }
+
+         int bytesRead;
+
+         synchronized (mappingLock)
+         {
+            long available = channel.size() - filePosition;
+
+            if (available <= 0)
+            {
+               // end of file, as a channel would say
+               bytesRead = bytes.hasRemaining() ? -1 : 0;
+            }
+            else
+            {
+               bytesRead = (int)Math.min(bytes.remaining(), available);
+
+               if (isMapped(filePosition + bytesRead) || remap(filePosition + bytesRead))
+               {
+                  ByteBuffer source = mappedBuffer.duplicate();
+                  source.position((int)filePosition);
+                  source.limit((int)filePosition + bytesRead);
+                  bytes.put(source);
+               }
+               else
+               {
+                  bytesRead = channel.read(bytes, filePosition);
+               }
+
+               filePosition += bytesRead;
+            }
+         }
+
+         if (callback != null)
+         {
+            callback.done();
+         }
+
+         bytes.flip();
+
+         return bytesRead;
+      }
+      catch (IOException e)
+      {
+         if (callback != null)
+         {
+            callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getLocalizedMessage());
+         }
+
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+
+         throw e;
+      }
+   }
+
+   /**
+    * Forces the mapping if anything was written through it since the last sync, and then the
+    * channel. Java 7 can only force a whole mapping, which goes through the whole file, so it's
+    * only done when needed: the synced writes go through the channel.
+    */
+   public void sync() throws IOException
+   {
+      FileChannel localChannel = channel;
+
+      if (localChannel != null)
+      {
+         try
+         {
+            synchronized (mappingLock)
+            {
+               forceMapping();
+            }
+
+            localChannel.force(false);
+         }
+         catch (IOException e)
+         {
+            factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+            throw e;
+         }
+      }
+   }
+
+   public long size() throws IOException
+   {
+      FileChannel localChannel = channel;
+
+      if (localChannel == null)
+      {
+         return getFile().length();
+      }
+
+      try
+      {
+         return localChannel.size();
+      }
+      catch (IOException e)
+      {
+         factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         throw e;
+      }
+   }
+
+   @Override
+   public void position(final long pos) throws IOException
+   {
+      synchronized (mappingLock)
+      {
+         super.position(pos);
+         filePosition = pos;
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "MappedSequentialFile " + getFile();
+   }
+
+   public SequentialFile cloneFile()
+   {
+      return new MappedSequentialFile(factory, getFile(), maxIO, writerExecutor);
+   }
+
+   public void writeDirect(final ByteBuffer bytes, final boolean sync, final IOAsyncTask callback)
+   {
+      if (callback == null)
+      {
+         throw new NullPointerException("callback parameter need to be set");
+      }
+
+      try
+      {
+         internalWrite(bytes, sync, callback);
+      }
+      catch (Exception e)
+      {
+         callback.onError(HornetQExceptionType.GENERIC_EXCEPTION.getCode(), e.getMessage());
+      }
+   }
+
+   public void writeDirect(final ByteBuffer bytes, final boolean sync) throws Exception
+   {
+      internalWrite(bytes, sync, null);
+   }
+
+   public void writeInternal(final ByteBuffer bytes) throws Exception
+   {
+      internalWrite(bytes, true, null);
+   }
+
+   @Override
+   protected ByteBuffer newBuffer(int size, final int limit)
+   {
+      // As with NIO, there's no need to allocate a buffer the entire size of the timed buffer
+
+      size = limit;
+
+      return super.newBuffer(size, limit);
+   }
+
+   private void internalWrite(final ByteBuffer bytes, final boolean sync, final IOAsyncTask callback) throws IOException,
+                                                                                                   HornetQIOErrorException,
+                                                                                                   InterruptedException
+   {
+      if (!isOpen())
+      {
+         if (callback != null)
+         {
+            callback.onError(HornetQExceptionType.IO_ERROR.getCode(), "File not opened");
+         }
+         else
+         {
+            throw HornetQJournalBundle.BUNDLE.fileNotOpened();
+         }
+         return;
+      }
+
+      position.addAndGet(bytes.limit());
+
+      if (maxIOSemaphore == null || callback == null)
+      {
+         // if maxIOSemaphore == null, that means we are not using executors and the writes are synchronous
+         try
+         {
+            doInternalWrite(bytes, sync, callback);
+         }
+         catch (IOException e)
+         {
+            factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), this);
+         }
+      }
+      else
+      {
+         // The copy into the mapping is cheap, but a sync is not
+         maxIOSemaphore.acquire();
+
+         writerExecutor.execute(new Runnable()
+         {
+            public void run()
+            {
+               try
+               {
+                  try
+                  {
+                     doInternalWrite(bytes, sync, callback);
+                  }
+                  catch (IOException e)
+                  {
+                     HornetQJournalLogger.LOGGER.errorSubmittingWrite(e);
+                     factory.onIOError(new HornetQIOErrorException(e.getMessage(), e), e.getMessage(), MappedSequentialFile.this);
+                     callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getMessage());
+                  }
+                  catch (Throwable e)
+                  {
+                     HornetQJournalLogger.LOGGER.errorSubmittingWrite(e);
+                     callback.onError(HornetQExceptionType.IO_ERROR.getCode(), e.getMessage());
+                  }
+               }
+               finally
+               {
+                  maxIOSemaphore.release();
+               }
+            }
+         });
+      }
+   }
+
+   private void doInternalWrite(final ByteBuffer bytes, final boolean sync, final IOAsyncTask callback) throws IOException,
+                                                                                                      HornetQIOErrorException
+   {
+      synchronized (mappingLock)
+      {
+         if (channel == null)
+         {
+            throw HornetQJournalBundle.BUNDLE.fileNotOpened();
+         }
+
+         int length = bytes.remaining();
+
+         if (!sync && isMapped(filePosition + length))
+         {
+            ByteBuffer target = mappedBuffer.duplicate();
+            target.position((int)filePosition);
+            target.put(bytes);
+            mappingDirty = true;
+         }
+         else
+         {
+            while (bytes.hasRemaining())
+            {
+               channel.write(bytes, filePosition + length - bytes.remaining());
+            }
+         }
+
+         filePosition += length;
+      }
+
+      if (sync)
+      {
+         sync();
+      }
+
+      if (callback != null)
+      {
+         callback.done();
+      }
+   }
+
+   /**
+    * @return whether the mapping covers the file up to the given position
+    */
+   private boolean isMapped(final long end)
+   {
+      return mappedBuffer != null && end <= mappedBuffer.capacity();
+   }
+
+   /**
+    * Maps the file again if it grew past its mapping up to the given position.
+    * @return whether the file is now mapped up to the given position
+    */
+   private boolean remap(final long end) throws IOException
+   {
+      if (end > (mappedBuffer == null ? 0 : mappedBuffer.capacity()) && end <= channel.size())
+      {
+         map();
+      }
+      return isMapped(end);
+   }
+
+   /**
+    * Must be called holding the mapping lock.
+    */
+   private void forceMapping()
+   {
+      if (mappingDirty)
+      {
+         mappingDirty = false;
+
+         if (mappedBuffer != null)
+         {
+            mappedBuffer.force();
+         }
+      }
+   }
+
+   private void map() throws IOException
+   {
+      unmap();
+
+      long size = channel.size();
+
+      if (size > 0 && size <= Integer.MAX_VALUE)
+      {
+         mappedBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      }
+   }
+
+   /**
+    * There's no public API to release a mapping, which would otherwise only be released when the
+    * buffer is collected, keeping the memory and the file (if deleted) around until then. If the
+    * mapping can't be released here (as on JDKs that don't expose its cleaner) it's left to the GC.
+    */
+   private void unmap()
+   {
+      if (mappedBuffer == null)
+      {
+         return;
+      }
+
+      // the pages written through this mapping must still be written by the next sync
+      forceMapping();
+
+      MappedByteBuffer buffer = mappedBuffer;
+
+      mappedBuffer = null;
+
+      try
+      {
+         Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+         cleanerMethod.setAccessible(true);
+         Object cleaner = cleanerMethod.invoke(buffer);
+         if (cleaner != null)
+         {
+            Method cleanMethod = cleaner.getClass().getMethod("clean");
+            cleanMethod.setAccessible(true);
+            cleanMethod.invoke(cleaner);
+         }
+      }
+      catch (Throwable e)
+      {
+         // left to the GC
+         if (!unmapFailureLogged)
+         {
+            unmapFailureLogged = true;
+            HornetQJournalLogger.LOGGER.errorUnmappingFile(e);
+         }
+      }
+   }
+}
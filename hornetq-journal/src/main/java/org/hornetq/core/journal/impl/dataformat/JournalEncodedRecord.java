@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.journal.impl.dataformat;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
+import org.hornetq.utils.DataConstants;
+
+/**
+ * A record encoded before it is appended, so the encoding is done outside of the append lock.
+ * <p>
+ * Every record starts with its type and the ID of the file it is written to, which is only known
+ * when it is appended: {@link #setFileID(int)} writes it over the encoded bytes. The bytes are kept
+ * in a buffer of the encoding thread, which it gets back with {@link #release()} once the record is
+ * appended.
+ */
+public final class JournalEncodedRecord extends JournalInternalRecord
+{
+   /**
+    * Larger records are encoded as they are appended, where copying them would cost more than
+    * encoding them under the lock.
+    */
+   private static final int MAX_ENCODED_SIZE = 64 * 1024;
+
+   private static final int FILE_ID_POSITION = DataConstants.SIZE_BYTE;
+
+   private static final ThreadLocal<byte[]> threadBuffer = new ThreadLocal<byte[]>();
+
+   private final byte[] data;
+
+   private final int size;
+
+   private JournalEncodedRecord(final byte[] data, final int size)
+   {
+      this.data = data;
+      this.size = size;
+   }
+
+   /**
+    * Encodes the record in the buffer of the calling thread.
+    *
+    * @return the encoded record, or the record itself if it is too large to be encoded beforehand
+    */
+   public static JournalInternalRecord encode(final JournalInternalRecord record)
+   {
+      int size = record.getEncodeSize();
+
+      if (size > MAX_ENCODED_SIZE)
+      {
+         return record;
+      }
+
+      byte[] data = threadBuffer.get();
+
+      if (data == null || data.length < size)
+      {
+         data = new byte[Math.max(size, data == null ? 1024 : Math.min(data.length * 2, MAX_ENCODED_SIZE))];
+      }
+      else
+      {
+         // the buffer is taken until the record is released, so a record encoded in the meantime
+         // (say by a callback appending a record) gets a buffer of its own
+         threadBuffer.set(null);
+      }
+
+      HornetQBuffer buffer = HornetQBuffers.wrappedBuffer(data);
+
+      buffer.writerIndex(0);
+
+      record.encode(buffer);
+
+      return new JournalEncodedRecord(data, size);
+   }
+
+   /**
+    * Gives the buffer of the record back to the thread which encoded it, once it is appended.
+    */
+   public void release()
+   {
+      threadBuffer.set(data);
+   }
+
+   @Override
+   public void setFileID(final int fileID)
+   {
+      super.setFileID(fileID);
+
+      data[FILE_ID_POSITION] = (byte)(fileID >>> 24);
+      data[FILE_ID_POSITION + 1] = (byte)(fileID >>> 16);
+      data[FILE_ID_POSITION + 2] = (byte)(fileID >>> 8);
+      data[FILE_ID_POSITION + 3] = (byte)fileID;
+   }
+
+   public void encode(final HornetQBuffer buffer)
+   {
+      buffer.writeBytes(data, 0, size);
+   }
+
+   @Override
+   public int getEncodeSize()
+   {
+      return size;
+   }
+}
@@ -253,6 +253,11 @@ public interface HornetQJournalLogger extends BasicLogger
    @Message(id = 142034, value = "Exception on submitting write", format = Message.Format.MESSAGE_FORMAT)
    void errorSubmittingWrite(@Cause Throwable e);
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 142035, value = "Could not release the memory mapping of a journal file, mappings will only be released when they are garbage collected",
+            format = Message.Format.MESSAGE_FORMAT)
+   void errorUnmappingFile(@Cause Throwable e);
+
    @LogMessage(level = Logger.Level.ERROR)
    @Message(id = 144000, value = "Failed to delete file {0}", format = Message.Format.MESSAGE_FORMAT)
    void errorDeletingFile(Object e);
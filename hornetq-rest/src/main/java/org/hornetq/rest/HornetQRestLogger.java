@@ -75,6 +75,10 @@ public interface HornetQRestLogger extends BasicLogger
    @Message(id = 182001, value = "shutdown REST subscription because of timeout for: {0}", format = Message.Format.MESSAGE_FORMAT)
    void shutdownRestSubscription(String id);
 
+   @LogMessage(level = Logger.Level.WARN)
+   @Message(id = 182002, value = "Failed to push messages to {0}, they will be redelivered", format = Message.Format.MESSAGE_FORMAT)
+   void errorPushingBatch(@Cause Throwable e, XmlLink link);
+
    @LogMessage(level = Logger.Level.ERROR)
    @Message(id = 184000, value = "Failed to load push store {0}, it is probably corrupted", format = Message.Format.MESSAGE_FORMAT)
    void errorLoadingStore(@Cause Exception e, String name);
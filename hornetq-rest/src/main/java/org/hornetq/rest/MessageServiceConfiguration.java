@@ -15,6 +15,7 @@ public class MessageServiceConfiguration
    private int timeoutTaskInterval = 1;
    private int consumerSessionTimeoutSeconds = 300;
    private int consumerWindowSize = -1;
+   private int consumerPollThreads = 2;
    private boolean defaultDurableSend = false;
    private boolean dupsOk = true;
    private String topicPushStoreDirectory = "topic-push-store";
@@ -142,4 +143,15 @@ public class MessageServiceConfiguration
    {
       this.consumerWindowSize = consumerWindowSize;
    }
+
+   @XmlElement(name = "consumer-poll-threads")
+   public int getConsumerPollThreads()
+   {
+      return consumerPollThreads;
+   }
+
+   public void setConsumerPollThreads(int consumerPollThreads)
+   {
+      this.consumerPollThreads = consumerPollThreads;
+   }
 }
@@ -7,6 +7,7 @@ import java.net.URL;
 import java.util.HashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.xml.bind.JAXBContext;
 
@@ -33,6 +34,7 @@ import org.hornetq.utils.XMLUtil;
 public class MessageServiceManager
 {
    protected ExecutorService threadPool;
+   protected ScheduledExecutorService pollScheduler;
    protected QueueServiceManager queueManager = new QueueServiceManager();
    protected TopicServiceManager topicManager = new TopicServiceManager();
    protected TimeoutTask timeoutTask;
@@ -136,6 +138,7 @@ public class MessageServiceManager
       timeoutTaskInterval = configuration.getTimeoutTaskInterval();
       timeoutTask = new TimeoutTask(timeoutTaskInterval);
       threadPool.execute(timeoutTask);
+      pollScheduler = Executors.newScheduledThreadPool(configuration.getConsumerPollThreads());
 
       DestinationSettings defaultSettings = new DestinationSettings();
       defaultSettings.setConsumerSessionTimeoutSeconds(configuration.getConsumerSessionTimeoutSeconds());
@@ -174,6 +177,7 @@ public class MessageServiceManager
       queueManager.setServerLocator(defaultLocator);
       queueManager.setSessionFactory(sessionFactory);
       queueManager.setTimeoutTask(timeoutTask);
+      queueManager.setPollScheduler(pollScheduler);
       queueManager.setConsumerServerLocator(consumerLocator);
       queueManager.setConsumerSessionFactory(consumerSessionFactory);
       queueManager.setDefaultSettings(defaultSettings);
@@ -186,6 +190,7 @@ public class MessageServiceManager
       topicManager.setServerLocator(defaultLocator);
       topicManager.setSessionFactory(sessionFactory);
       topicManager.setTimeoutTask(timeoutTask);
+      topicManager.setPollScheduler(pollScheduler);
       topicManager.setConsumerServerLocator(consumerLocator);
       topicManager.setConsumerSessionFactory(consumerSessionFactory);
       topicManager.setDefaultSettings(defaultSettings);
@@ -205,5 +210,7 @@ public class MessageServiceManager
       queueManager = null;
       if (topicManager != null) topicManager.stop();
       topicManager = null;
+      if (pollScheduler != null) pollScheduler.shutdownNow();
+      pollScheduler = null;
    }
 }
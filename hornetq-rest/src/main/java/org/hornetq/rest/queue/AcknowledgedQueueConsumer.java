@@ -8,6 +8,8 @@ import org.hornetq.api.core.client.ClientSessionFactory;
 import org.hornetq.rest.HornetQRestLogger;
 import org.hornetq.rest.util.Constants;
 import org.hornetq.rest.util.LinkStrategy;
+import org.jboss.resteasy.annotations.Suspend;
+import org.jboss.resteasy.spi.AsynchronousResponse;
 
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.FormParam;
@@ -46,9 +48,10 @@ public class AcknowledgedQueueConsumer extends QueueConsumer
 
    @Path("acknowledge-next{index}")
    @POST
-   public synchronized Response poll(@HeaderParam(Constants.WAIT_HEADER) @DefaultValue("0") long wait,
-                                     @PathParam("index") long index,
-                                     @Context UriInfo info)
+   public synchronized void poll(@HeaderParam(Constants.WAIT_HEADER) @DefaultValue("0") long wait,
+                                 @PathParam("index") long index,
+                                 @Context UriInfo info,
+                                 @Suspend(MAX_SUSPEND_MILLIS) AsynchronousResponse response)
    {
       HornetQRestLogger.LOGGER.debug("Handling POST request for \"" + info.getPath() + "\"");
 
@@ -62,9 +65,10 @@ public class AcknowledgedQueueConsumer extends QueueConsumer
 
          // redirect to another acknowledge-next
 
-         return Response.status(307).location(URI.create(uri)).build();
+         response.setResponse(Response.status(307).location(URI.create(uri)).build());
+         return;
       }
-      return checkIndexAndPoll(wait, info, info.getMatchedURIs().get(1), index);
+      checkIndexAndPoll(wait, info, info.getMatchedURIs().get(1), index, response);
    }
 
 
@@ -165,15 +169,11 @@ public class AcknowledgedQueueConsumer extends QueueConsumer
    }
 
    @Override
-   protected ClientMessage receiveFromConsumer(long timeoutSecs) throws Exception
+   protected Response consumed(ClientMessage message, UriInfo info, String basePath, long index) throws Exception
    {
-      ClientMessage message = super.receiveFromConsumer(timeoutSecs);
-      if (message != null)
-      {
-         ack = new Acknowledgement((counter++) + startup, message);
-         //System.out.println("---> Setting ack: " + ack.getAckToken());
-      }
-      return message;
+      ack = new Acknowledgement((counter++) + startup, message);
+      //System.out.println("---> Setting ack: " + ack.getAckToken());
+      return super.consumed(message, info, basePath, index);
    }
 
 
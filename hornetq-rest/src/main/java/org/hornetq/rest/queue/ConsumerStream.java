@@ -0,0 +1,102 @@
+package org.hornetq.rest.queue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.rest.HornetQRestLogger;
+
+/**
+ * Writes the messages of a consumer as Server-Sent Events, until the client disconnects or the
+ * consumer is closed.
+ * <p>
+ * Each message is an event with the message ID as its id, and the body of the message as its data.
+ * A comment is written when no message was received for a while, so the connection is kept open.
+ */
+public class ConsumerStream implements StreamingOutput
+{
+   public static final String EVENT_STREAM = "text/event-stream";
+
+   public static final long KEEP_ALIVE_MILLIS = 15000;
+
+   protected final QueueConsumer consumer;
+
+   public ConsumerStream(QueueConsumer consumer)
+   {
+      this.consumer = consumer;
+   }
+
+   public void write(OutputStream output) throws IOException, WebApplicationException
+   {
+      try
+      {
+         while (true)
+         {
+            ClientMessage message;
+            try
+            {
+               message = consumer.streamed(KEEP_ALIVE_MILLIS);
+            }
+            catch (IllegalStateException e)
+            {
+               // closed
+               return;
+            }
+
+            if (message == null)
+            {
+               output.write(toBytes(":\n\n"));
+            }
+            else
+            {
+               output.write(toBytes(toEvent(ConsumedMessage.createConsumedMessage(message))));
+            }
+            output.flush();
+         }
+      }
+      catch (IOException e)
+      {
+         HornetQRestLogger.LOGGER.debug("Stream of consumer " + consumer.getId() + " closed: " + e);
+      }
+      catch (Exception e)
+      {
+         throw new WebApplicationException(e);
+      }
+   }
+
+   protected String toEvent(ConsumedMessage message) throws UnsupportedEncodingException
+   {
+      Response.ResponseBuilder builder = Response.ok();
+      message.build(builder);
+      Object entity = builder.build().getEntity();
+
+      String data;
+      if (entity instanceof byte[])
+      {
+         data = new String((byte[]) entity, "UTF-8");
+      }
+      else
+      {
+         data = String.valueOf(entity);
+      }
+
+      StringBuilder event = new StringBuilder();
+      event.append("id: ").append(message.getMessageID()).append('\n');
+      for (String line : data.split("\r\n|\r|\n", -1))
+      {
+         event.append("data: ").append(line).append('\n');
+      }
+      event.append('\n');
+      return event.toString();
+   }
+
+   private static byte[] toBytes(String text) throws UnsupportedEncodingException
+   {
+      return text.getBytes("UTF-8");
+   }
+}
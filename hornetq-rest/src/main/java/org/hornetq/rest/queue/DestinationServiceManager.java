@@ -1,5 +1,7 @@
 package org.hornetq.rest.queue;
 
+import java.util.concurrent.ScheduledExecutorService;
+
 import org.hornetq.api.core.TransportConfiguration;
 import org.hornetq.api.core.client.ClientSessionFactory;
 import org.hornetq.api.core.client.HornetQClient;
@@ -23,6 +25,7 @@ public abstract class DestinationServiceManager
    protected String pushStoreFile;
    protected DestinationSettings defaultSettings = DestinationSettings.defaultSettings;
    protected TimeoutTask timeoutTask;
+   protected ScheduledExecutorService pollScheduler;
    protected int producerPoolSize;
    protected long producerTimeToLive;
    protected LinkStrategy linkStrategy;
@@ -102,6 +105,19 @@ public abstract class DestinationServiceManager
       this.timeoutTask = timeoutTask;
    }
 
+   /**
+    * @return the executor resuming the polls of the consumers, and timing them out
+    */
+   public ScheduledExecutorService getPollScheduler()
+   {
+      return pollScheduler;
+   }
+
+   public void setPollScheduler(ScheduledExecutorService pollScheduler)
+   {
+      this.pollScheduler = pollScheduler;
+   }
+
    public DestinationSettings getDefaultSettings()
    {
       return defaultSettings;
@@ -163,6 +179,7 @@ public abstract class DestinationServiceManager
       if (consumerSessionFactory == null) consumerSessionFactory = sessionFactory;
 
       if (timeoutTask == null) throw new RuntimeException("TimeoutTask is not set");
+      if (pollScheduler == null) throw new RuntimeException("Poll scheduler is not set");
    }
 
    public abstract void start() throws Exception;
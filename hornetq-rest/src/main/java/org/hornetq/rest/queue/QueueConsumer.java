@@ -1,12 +1,18 @@
 package org.hornetq.rest.queue;
 
 import java.net.URI;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -18,21 +24,35 @@ import org.hornetq.api.core.client.ClientConsumer;
 import org.hornetq.api.core.client.ClientMessage;
 import org.hornetq.api.core.client.ClientSession;
 import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.MessageHandler;
 import org.hornetq.jms.client.SelectorTranslator;
 import org.hornetq.rest.HornetQRestLogger;
 import org.hornetq.rest.util.Constants;
 import org.hornetq.rest.util.LinkStrategy;
+import org.jboss.resteasy.annotations.Suspend;
+import org.jboss.resteasy.spi.AsynchronousResponse;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
 
 /**
  * Auto-acknowleged consumer
+ * <p>
+ * A poll waiting for a message doesn't hold a thread: its response is suspended, and resumed when
+ * a message is delivered to the {@link MessageHandler} set on the consumer while the poll waits, or
+ * when the <code>Accept-Wait</code> time is over.
  *
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  */
 public class QueueConsumer
 {
+   /**
+    * The polls are suspended for as long as this, the <code>Accept-Wait</code> time is enforced by the
+    * consumer itself.
+    */
+   public static final long MAX_SUSPEND_MILLIS = Integer.MAX_VALUE;
+
    protected ClientSessionFactory factory;
    protected ClientSession session;
-   protected ClientConsumer consumer;
+   protected volatile ClientConsumer consumer;
    protected String destination;
    protected boolean closed;
    protected String id;
@@ -47,6 +67,24 @@ public class QueueConsumer
    protected long previousIndex = -1;
    protected ConsumedMessage lastConsumed;
 
+   /**
+    * the poll waiting for a message, if any
+    */
+   protected Poll waitingPoll;
+
+   /**
+    * messages delivered to the message handler, not returned to a poll yet
+    */
+   protected final Queue<ClientMessage> received = new ConcurrentLinkedQueue<ClientMessage>();
+
+   private final Runnable deliverReceived = new Runnable()
+   {
+      public void run()
+      {
+         deliverReceived();
+      }
+   };
+
    public long getConsumeIndex()
    {
       if (lastConsumed == null) return -1;
@@ -98,6 +136,15 @@ public class QueueConsumer
    {
       if (closed) return;
       closed = true;
+      if (waitingPoll != null)
+      {
+         Poll poll = waitingPoll;
+         waitingPoll = null;
+         poll.timeout.cancel(false);
+         poll.respond(null);
+      }
+      // wakes up the streams
+      notifyAll();
       lastConsumed = null;
       previousIndex = -2;
       try
@@ -119,14 +166,17 @@ public class QueueConsumer
       }
       session = null;
       consumer = null;
+      // not acknowledged, so they are redelivered
+      received.clear();
    }
 
 
    @Path("consume-next{index}")
    @POST
-   public synchronized Response poll(@HeaderParam(Constants.WAIT_HEADER) @DefaultValue("0") long wait,
-                                     @PathParam("index") long index,
-                                     @Context UriInfo info)
+   public synchronized void poll(@HeaderParam(Constants.WAIT_HEADER) @DefaultValue("0") long wait,
+                                 @PathParam("index") long index,
+                                 @Context UriInfo info,
+                                 @Suspend(MAX_SUSPEND_MILLIS) AsynchronousResponse response)
    {
       HornetQRestLogger.LOGGER.debug("Handling POST request for \"" + info.getRequestUri() + "\"");
 
@@ -139,66 +189,226 @@ public class QueueConsumer
 
          // redirect to another consume-next
 
-         return Response.status(307).location(URI.create(uri)).build();
+         response.setResponse(Response.status(307).location(URI.create(uri)).build());
+         return;
       }
-      return checkIndexAndPoll(wait, info, info.getMatchedURIs().get(1), index);
+      checkIndexAndPoll(wait, info, info.getMatchedURIs().get(1), index, response);
    }
 
-   protected Response checkIndexAndPoll(long wait, UriInfo info, String basePath, long index)
+   protected void checkIndexAndPoll(long wait, UriInfo info, String basePath, long index, AsynchronousResponse response)
    {
       ping(wait);
 
       if (lastConsumed == null && index > 0)
       {
-         return Response.status(412).entity("You are using an old consume-next link and are out of sync with the JMS session on the server").type("text/plain").build();
+         ping(0);
+         response.setResponse(Response.status(412).entity("You are using an old consume-next link and are out of sync with the JMS session on the server").type("text/plain").build());
+         return;
       }
       if (lastConsumed != null)
       {
          if (index == previousIndex)
          {
+            ping(0);
             String token = Long.toString(lastConsumed.getMessageID());
-            return getMessageResponse(lastConsumed, info, basePath, token).build();
+            response.setResponse(getMessageResponse(lastConsumed, info, basePath, token).build());
+            return;
          }
          if (index != lastConsumed.getMessageID())
          {
-            return Response.status(412).entity("You are using an old consume-next link and are out of sync with the JMS session on the server").type("text/plain").build();
+            ping(0);
+            response.setResponse(Response.status(412).entity("You are using an old consume-next link and are out of sync with the JMS session on the server").type("text/plain").build());
+            return;
          }
       }
 
+      pollWithIndex(wait, info, basePath, index, response);
+   }
+
+   protected void pollWithIndex(long wait, UriInfo info, String basePath, long index, AsynchronousResponse response)
+   {
+      Poll poll = new Poll(info, basePath, index, response);
+
+      // the client gave up on the poll already waiting, and is polling again
+      if (waitingPoll != null)
+      {
+         Poll superseded = waitingPoll;
+         waitingPoll = null;
+         superseded.timeout.cancel(false);
+         superseded.respond(null);
+      }
+
       try
       {
-         return pollWithIndex(wait, info, basePath, index);
+         // set aside by the message handler, before it was removed
+         ClientMessage message = received.poll();
+         if (message == null && wait <= 0)
+         {
+            // the handler of a stream, or of the superseded poll, would take the message otherwise
+            removeMessageHandler();
+            message = received.poll();
+            if (message == null)
+            {
+               message = receive(wait);
+            }
+         }
+         if (message != null || wait <= 0)
+         {
+            poll.respond(message);
+            return;
+         }
+         waitingPoll = poll;
+         setMessageHandler();
+         poll.timeout = serviceManager.getPollScheduler().schedule(poll, wait, TimeUnit.SECONDS);
       }
-      finally
+      catch (Exception e)
       {
-         ping(0); // ping again as we don't want wait time included in timeout.
+         waitingPoll = null;
+         poll.fail(e);
       }
    }
 
-   protected Response pollWithIndex(long wait, UriInfo info, String basePath, long index)
+   /**
+    * Records the message as the last consumed one and acknowledges it, if the consumer is auto-acknowledged.
+    */
+   protected Response consumed(ClientMessage message, UriInfo info, String basePath, long index) throws Exception
    {
-      try
+      previousIndex = index;
+      lastConsumed = ConsumedMessage.createConsumedMessage(message);
+      String token = Long.toString(lastConsumed.getMessageID());
+      Response response = getMessageResponse(lastConsumed, info, basePath, token).build();
+      if (autoAck) message.acknowledge();
+      return response;
+   }
+
+   /**
+    * Streams the messages as Server-Sent Events, one connection for as many messages as there are.
+    * <p>
+    * The stream holds the thread of the request, and only auto-acknowledged consumers can stream.
+    */
+   @Path("consume-stream")
+   @GET
+   @Produces(ConsumerStream.EVENT_STREAM)
+   public synchronized Response stream(@Context UriInfo info)
+   {
+      HornetQRestLogger.LOGGER.debug("Handling GET request for \"" + info.getRequestUri() + "\"");
+
+      if (closed)
+      {
+         return Response.status(Response.Status.GONE).entity("The consumer is closed").type("text/plain").build();
+      }
+      if (!autoAck)
+      {
+         return Response.status(Response.Status.PRECONDITION_FAILED).entity("Only auto-acknowledged consumers can stream messages").type("text/plain").build();
+      }
+      ping(0);
+      return Response.ok(new ConsumerStream(this)).type(ConsumerStream.EVENT_STREAM).build();
+   }
+
+   /**
+    * @return the next message for a stream, already acknowledged, or null if none was delivered in time
+    */
+   protected synchronized ClientMessage streamed(long timeoutMillis) throws Exception
+   {
+      if (closed)
+      {
+         throw new IllegalStateException("The consumer is closed");
+      }
+      ping(0);
+
+      ClientMessage message = null;
+
+      // a poll waiting for a message gets it first
+      if (waitingPoll == null)
       {
-         ClientMessage message = receive(wait);
+         message = received.poll();
          if (message == null)
          {
-            Response.ResponseBuilder builder = Response.status(503).entity("Timed out waiting for message receive.").type("text/plain");
-            setPollTimeoutLinks(info, basePath, builder, Long.toString(index));
-            return builder.build();
+            setMessageHandler();
+            wait(timeoutMillis);
+            if (closed)
+            {
+               throw new IllegalStateException("The consumer is closed");
+            }
+            if (waitingPoll == null)
+            {
+               removeMessageHandler();
+               message = received.poll();
+            }
          }
-         previousIndex = index;
-         lastConsumed = ConsumedMessage.createConsumedMessage(message);
-         String token = Long.toString(lastConsumed.getMessageID());
-         Response response = getMessageResponse(lastConsumed, info, basePath, token).build();
-         if (autoAck) message.acknowledge();
-         return response;
+      }
+      else
+      {
+         wait(timeoutMillis);
+      }
+
+      if (message != null)
+      {
+         message.acknowledge();
+      }
+      return message;
+   }
+
+   protected synchronized void deliverReceived()
+   {
+      if (closed)
+      {
+         return;
+      }
+      Poll poll = waitingPoll;
+      if (poll == null)
+      {
+         // a stream could be waiting
+         notifyAll();
+         return;
+      }
+      ClientMessage message = received.poll();
+      if (message == null)
+      {
+         // taken by another poll
+         return;
+      }
+      waitingPoll = null;
+      poll.timeout.cancel(false);
+      poll.respond(message);
+   }
+
+   protected synchronized void pollTimedOut(Poll poll)
+   {
+      if (waitingPoll != poll)
+      {
+         return;
+      }
+      waitingPoll = null;
+      try
+      {
+         removeMessageHandler();
       }
       catch (Exception e)
       {
-         throw new RuntimeException(e);
+         poll.fail(e);
+         return;
+      }
+      // the message could have been delivered just before
+      poll.respond(received.poll());
+   }
+
+   /**
+    * Sets a handler that takes one message from the consumer, and removes itself.
+    */
+   protected void setMessageHandler() throws HornetQException
+   {
+      if (consumer.getMessageHandler() == null)
+      {
+         consumer.setMessageHandler(new ReceivingHandler(consumer));
       }
    }
 
+   protected void removeMessageHandler() throws HornetQException
+   {
+      consumer.setMessageHandler(null);
+   }
+
    protected void createSession() throws HornetQException
    {
       session = factory.createSession(true, true, 0);
@@ -212,6 +422,12 @@ public class QueueConsumer
          consumer = session.createConsumer(destination, SelectorTranslator.convertToHornetQFilterString(selector));
       }
       HornetQRestLogger.LOGGER.debug("Created consumer: " + consumer);
+      // messages of a previous consumer are redelivered
+      received.clear();
+      if (waitingPoll != null)
+      {
+         setMessageHandler();
+      }
       session.start();
    }
 
@@ -274,4 +490,99 @@ public class QueueConsumer
       String uri = builder.build().toString();
       serviceManager.getLinkStrategy().setLinkHeader(response, "consumer", "consumer", uri, MediaType.APPLICATION_XML);
    }
+
+   /**
+    * A poll, waiting for a message until it times out.
+    */
+   protected class Poll implements Runnable
+   {
+      private final UriInfo info;
+      private final String basePath;
+      private final long index;
+      private final AsynchronousResponse response;
+      private ScheduledFuture<?> timeout;
+
+      protected Poll(UriInfo info, String basePath, long index, AsynchronousResponse response)
+      {
+         // the injected one is only valid in the thread of the request, the poll can be resumed from another one
+         UriInfo requestInfo = ResteasyProviderFactory.getContextData(UriInfo.class);
+         this.info = requestInfo == null ? info : requestInfo;
+         this.basePath = basePath;
+         this.index = index;
+         this.response = response;
+      }
+
+      public void run()
+      {
+         pollTimedOut(this);
+      }
+
+      /**
+       * Called with the lock of the consumer held.
+       */
+      protected void respond(ClientMessage message)
+      {
+         try
+         {
+            if (message == null)
+            {
+               Response.ResponseBuilder builder = Response.status(503).entity("Timed out waiting for message receive.").type("text/plain");
+               setPollTimeoutLinks(info, basePath, builder, Long.toString(index));
+               response.setResponse(builder.build());
+            }
+            else
+            {
+               response.setResponse(consumed(message, info, basePath, index));
+            }
+         }
+         catch (Exception e)
+         {
+            fail(e);
+         }
+         finally
+         {
+            ping(0); // ping again as we don't want wait time included in timeout.
+         }
+      }
+
+      protected void fail(Exception e)
+      {
+         HornetQRestLogger.LOGGER.debug("Failed to poll consumer " + id, e);
+         response.setResponse(Response.serverError().entity(e.toString()).type("text/plain").build());
+      }
+   }
+
+   /**
+    * Takes a single message, so the messages not returned to a poll stay in the consumer and are
+    * redelivered if the consumer is closed.
+    */
+   private class ReceivingHandler implements MessageHandler
+   {
+      private final ClientConsumer receivingConsumer;
+
+      ReceivingHandler(ClientConsumer receivingConsumer)
+      {
+         this.receivingConsumer = receivingConsumer;
+      }
+
+      public void onMessage(ClientMessage message)
+      {
+         // the session was recreated in the mean time
+         if (receivingConsumer != consumer)
+         {
+            return;
+         }
+         received.add(message);
+         try
+         {
+            receivingConsumer.setMessageHandler(null);
+         }
+         catch (HornetQException e)
+         {
+            HornetQRestLogger.LOGGER.debug("Failed to remove message handler from " + receivingConsumer, e);
+         }
+         // not under the lock of the consumer, as closing the consumer waits for onMessage to return
+         serviceManager.getPollScheduler().execute(deliverReceived);
+      }
+   }
 }
@@ -0,0 +1,18 @@
+package org.hornetq.rest.queue.push;
+
+import java.util.List;
+
+import org.hornetq.api.core.client.ClientMessage;
+
+/**
+ * A {@link PushStrategy} able to push several messages at once.
+ */
+public interface BatchPushStrategy extends PushStrategy
+{
+   /**
+    * Pushes the messages as a whole, like {@link #push(ClientMessage)} pushes a single message.
+    * @param messages
+    * @return {@code false} if unable to connect
+    */
+   public boolean push(List<ClientMessage> messages);
+}
@@ -5,9 +5,12 @@ import org.hornetq.api.core.client.*;
 import org.hornetq.jms.client.SelectorTranslator;
 import org.hornetq.rest.HornetQRestLogger;
 import org.hornetq.rest.queue.push.xml.PushRegistration;
+import org.hornetq.utils.HornetQThreadFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
@@ -23,6 +26,7 @@ public class PushConsumer
    protected String id;
    protected PushStrategy strategy;
    protected PushStore store;
+   protected ExecutorService executor;
 
    public PushConsumer(ClientSessionFactory factory, String destination, String id, PushRegistration registration, PushStore store)
    {
@@ -76,6 +80,13 @@ public class PushConsumer
       sessions = new ArrayList<ClientSession>();
       consumers = new ArrayList<ClientConsumer>();
 
+      // pushes messages concurrently or in batches from threads of its own rather than from a message handler
+      boolean windowed = registration.getMaxInFlight() > 1 || registration.getBatchSize() > 1;
+      if (windowed)
+      {
+         executor = Executors.newCachedThreadPool(new HornetQThreadFactory("hornetq-rest-push-" + id, true, Thread.currentThread().getContextClassLoader()));
+      }
+
       for (int i = 0; i < registration.getSessionCount(); i++)
       {
          ClientSession session = factory.createSession(false, false, 0);
@@ -90,7 +101,14 @@ public class PushConsumer
          {
             consumer = session.createConsumer(destination);
          }
-         consumer.setMessageHandler(new PushConsumerMessageHandler(this, session));
+         if (windowed)
+         {
+            executor.execute(new PushConsumerWindow(this, session, consumer, executor));
+         }
+         else
+         {
+            consumer.setMessageHandler(new PushConsumerMessageHandler(this, session));
+         }
          session.start();
          HornetQRestLogger.LOGGER.startingPushConsumer(registration.getTarget());
 
@@ -116,6 +134,11 @@ public class PushConsumer
          }
       }
 
+      if (executor != null)
+      {
+         executor.shutdown();
+      }
+
       try
       {
          if (strategy != null)
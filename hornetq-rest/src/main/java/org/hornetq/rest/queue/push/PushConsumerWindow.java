@@ -0,0 +1,221 @@
+package org.hornetq.rest.queue.push;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.rest.HornetQRestLogger;
+
+/**
+ * Pushes the messages of a session in windows of up to <code>maxInFlight</code> requests of up to
+ * <code>batchSize</code> messages each, the requests of a window being sent at the same time.
+ * <p>
+ * The messages of the requests that succeeded are acknowledged in the transaction of the session,
+ * which is committed once the whole window is done. The messages of the requests that failed are
+ * then rolled back, so they are redelivered.
+ */
+public class PushConsumerWindow implements Runnable
+{
+   private final PushConsumer pushConsumer;
+   private final ClientSession session;
+   private final ClientConsumer consumer;
+   private final ExecutorService executor;
+
+   PushConsumerWindow(PushConsumer pushConsumer, ClientSession session, ClientConsumer consumer, ExecutorService executor)
+   {
+      this.pushConsumer = pushConsumer;
+      this.session = session;
+      this.consumer = consumer;
+      this.executor = executor;
+   }
+
+   public void run()
+   {
+      try
+      {
+         while (!consumer.isClosed())
+         {
+            ClientMessage first = consumer.receive();
+            if (first == null)
+            {
+               // closed
+               return;
+            }
+
+            List<List<ClientMessage>> batches = receiveWindow(first);
+            if (!pushWindow(batches))
+            {
+               return;
+            }
+         }
+      }
+      catch (HornetQException e)
+      {
+         if (!consumer.isClosed())
+         {
+            HornetQRestLogger.LOGGER.debug(this + ": stopped pushing", e);
+         }
+      }
+   }
+
+   /**
+    * @return the messages already received, split in the requests of the window
+    */
+   private List<List<ClientMessage>> receiveWindow(ClientMessage first) throws HornetQException
+   {
+      int batchSize = Math.max(1, pushConsumer.getRegistration().getBatchSize());
+      int maxInFlight = Math.max(1, pushConsumer.getRegistration().getMaxInFlight());
+
+      List<List<ClientMessage>> batches = new ArrayList<List<ClientMessage>>(maxInFlight);
+      List<ClientMessage> batch = new ArrayList<ClientMessage>(batchSize);
+      batch.add(first);
+      batches.add(batch);
+
+      while (true)
+      {
+         if (batch.size() == batchSize)
+         {
+            if (batches.size() == maxInFlight)
+            {
+               break;
+            }
+            batch = new ArrayList<ClientMessage>(batchSize);
+            batches.add(batch);
+         }
+         ClientMessage message = consumer.receiveImmediate();
+         if (message == null)
+         {
+            break;
+         }
+         batch.add(message);
+      }
+
+      if (batch.isEmpty())
+      {
+         batches.remove(batches.size() - 1);
+      }
+      return batches;
+   }
+
+   /**
+    * @return false if the registration was disabled
+    */
+   private boolean pushWindow(List<List<ClientMessage>> batches) throws HornetQException
+   {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(batches.size());
+      for (int i = 1; i < batches.size(); i++)
+      {
+         final List<ClientMessage> batch = batches.get(i);
+         results.add(executor.submit(new Callable<Boolean>()
+         {
+            public Boolean call() throws Exception
+            {
+               return push(batch);
+            }
+         }));
+      }
+
+      // the first one from this thread
+      boolean failed = false;
+      boolean connectionFailed = false;
+      Boolean pushed = pushOrFail(batches.get(0));
+      for (int i = 0; i < batches.size(); i++)
+      {
+         if (i > 0)
+         {
+            pushed = waitFor(results.get(i - 1));
+         }
+         if (pushed == null)
+         {
+            failed = true;
+         }
+         else if (!pushed.booleanValue())
+         {
+            failed = true;
+            connectionFailed = true;
+         }
+         else
+         {
+            for (ClientMessage message : batches.get(i))
+            {
+               message.individualAcknowledge();
+            }
+         }
+      }
+
+      HornetQRestLogger.LOGGER.debug(this + ": committing window of " + batches.size() + " requests");
+      session.commit();
+
+      if (failed)
+      {
+         // redelivers what wasn't acknowledged
+         session.rollback();
+         if (connectionFailed && pushConsumer.getRegistration().isDisableOnFailure())
+         {
+            HornetQRestLogger.LOGGER.errorPushingMessage(pushConsumer.getRegistration().getTarget());
+            pushConsumer.disableFromFailure();
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private boolean push(List<ClientMessage> batch)
+   {
+      PushStrategy strategy = pushConsumer.getStrategy();
+      HornetQRestLogger.LOGGER.debug(this + ": pushing " + batch.size() + " messages via " + strategy);
+      if (strategy instanceof BatchPushStrategy)
+      {
+         return ((BatchPushStrategy) strategy).push(batch);
+      }
+      for (ClientMessage message : batch)
+      {
+         if (!strategy.push(message))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * @return null if the messages were not accepted
+    */
+   private Boolean pushOrFail(List<ClientMessage> batch)
+   {
+      try
+      {
+         return push(batch);
+      }
+      catch (RuntimeException e)
+      {
+         HornetQRestLogger.LOGGER.errorPushingBatch(e, pushConsumer.getRegistration().getTarget());
+         return null;
+      }
+   }
+
+   private Boolean waitFor(Future<Boolean> result)
+   {
+      try
+      {
+         return result.get();
+      }
+      catch (ExecutionException e)
+      {
+         HornetQRestLogger.LOGGER.errorPushingBatch(e.getCause(), pushConsumer.getRegistration().getTarget());
+         return null;
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         return null;
+      }
+   }
+}
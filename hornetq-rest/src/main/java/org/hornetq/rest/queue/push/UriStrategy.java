@@ -32,17 +32,26 @@ import org.jboss.resteasy.client.core.executors.ApacheHttpClient4Executor;
 import org.jboss.resteasy.specimpl.UriBuilderImpl;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
 
 /**
  * @author <a href="mailto:bill@burkecentral.com">Bill Burke</a>
  * @version $Revision: 1 $
  */
-public class UriStrategy implements PushStrategy
+public class UriStrategy implements BatchPushStrategy
 {
-   ThreadSafeClientConnManager connManager = new ThreadSafeClientConnManager();
-   protected HttpClient client = new DefaultHttpClient(connManager);
+   public static final String MULTIPART_MIXED = "multipart/mixed";
+
+   // the connections are pooled for all the registrations
+   private static ThreadSafeClientConnManager sharedConnManager;
+   private static int sharedConnManagerUsers;
+
+   // only taken while started, so a strategy that is never started or stopped doesn't keep the pool open
+   ThreadSafeClientConnManager connManager;
+   protected HttpClient client;
    protected BasicHttpContext localContext;
-   protected ApacheHttpClient4Executor executor = new ApacheHttpClient4Executor(client);
+   protected ApacheHttpClient4Executor executor;
    protected PushRegistration registration;
    protected UriBuilder targetUri;
    protected String method;
@@ -50,8 +59,27 @@ public class UriStrategy implements PushStrategy
 
    UriStrategy()
    {
-      connManager.setDefaultMaxPerRoute(100);
-      connManager.setMaxTotal(1000);
+   }
+
+   private static synchronized ThreadSafeClientConnManager acquireConnectionManager()
+   {
+      if (sharedConnManager == null)
+      {
+         sharedConnManager = new ThreadSafeClientConnManager();
+         sharedConnManager.setDefaultMaxPerRoute(100);
+         sharedConnManager.setMaxTotal(1000);
+      }
+      sharedConnManagerUsers++;
+      return sharedConnManager;
+   }
+
+   private static synchronized void releaseConnectionManager(ThreadSafeClientConnManager connManager)
+   {
+      if (connManager == sharedConnManager && --sharedConnManagerUsers == 0)
+      {
+         sharedConnManager.shutdown();
+         sharedConnManager = null;
+      }
    }
 
    public void setRegistration(PushRegistration reg)
@@ -59,13 +87,27 @@ public class UriStrategy implements PushStrategy
       this.registration = reg;
    }
 
-   public void start() throws Exception
+   public synchronized void start() throws Exception
    {
-      initAuthentication();
-      method = registration.getTarget().getMethod();
-      if (method == null) method = "POST";
-      contentType = registration.getTarget().getType();
-      targetUri = UriBuilderImpl.fromTemplate(registration.getTarget().getHref());
+      if (connManager == null)
+      {
+         connManager = acquireConnectionManager();
+         client = new DefaultHttpClient(connManager);
+         executor = new ApacheHttpClient4Executor(client);
+      }
+      try
+      {
+         initAuthentication();
+         method = registration.getTarget().getMethod();
+         if (method == null) method = "POST";
+         contentType = registration.getTarget().getType();
+         targetUri = UriBuilderImpl.fromTemplate(registration.getTarget().getHref());
+      }
+      catch (Exception e)
+      {
+         stop();
+         throw e;
+      }
    }
 
    protected void initAuthentication()
@@ -92,15 +134,73 @@ public class UriStrategy implements PushStrategy
       }
    }
 
-   public void stop()
+   public synchronized void stop()
    {
-      connManager.shutdown();
+      if (connManager != null)
+      {
+         releaseConnectionManager(connManager);
+         connManager = null;
+      }
    }
 
-   public boolean push(ClientMessage message)
+   public boolean push(final ClientMessage message)
    {
       HornetQRestLogger.LOGGER.debug("Pushing " + message);
-      String uri = createUri(message);
+      return send(createUri(message), new RequestEntity()
+      {
+         public void build(ClientRequest request)
+         {
+            HttpMessageHelper.buildMessage(message, request, contentType);
+         }
+      });
+   }
+
+   /**
+    * Pushes the messages in a single multipart/mixed request, if they can be, or one after the other.
+    */
+   public boolean push(List<ClientMessage> messages)
+   {
+      if (messages.size() == 1 || !isBatchable(messages))
+      {
+         for (ClientMessage message : messages)
+         {
+            if (!push(message))
+            {
+               return false;
+            }
+         }
+         return true;
+      }
+
+      HornetQRestLogger.LOGGER.debug("Pushing " + messages.size() + " messages");
+      final String boundary = UUID.randomUUID().toString();
+      final byte[] body = HttpMessageHelper.buildMultipart(messages, boundary, contentType);
+      return send(createUri(messages.get(0)), new RequestEntity()
+      {
+         public void build(ClientRequest request)
+         {
+            request.body(MULTIPART_MIXED + "; boundary=" + boundary, body);
+         }
+      });
+   }
+
+   /**
+    * @return whether the messages can be sent in a single request
+    */
+   protected boolean isBatchable(List<ClientMessage> messages)
+   {
+      for (ClientMessage message : messages)
+      {
+         if (!HttpMessageHelper.isHttpMessage(message))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   protected boolean send(String uri, RequestEntity entity)
+   {
       for (int i = 0; i < registration.getMaxRetries(); i++)
       {
          long wait = registration.getRetryWaitMillis();
@@ -114,7 +214,7 @@ public class UriStrategy implements PushStrategy
             HornetQRestLogger.LOGGER.debug("Setting XmlHttpHeader: " + header.getName() + "=" + header.getValue());
             request.header(header.getName(), header.getValue());
          }
-         HttpMessageHelper.buildMessage(message, request, contentType);
+         entity.build(request);
          ClientResponse<?> res = null;
          try
          {
@@ -200,6 +300,11 @@ public class UriStrategy implements PushStrategy
       return uri;
    }
 
+   protected interface RequestEntity
+   {
+      void build(ClientRequest request);
+   }
+
    static class PreemptiveAuth implements HttpRequestInterceptor
    {
       public void process(final HttpRequest request, final HttpContext context) throws HttpException, IOException
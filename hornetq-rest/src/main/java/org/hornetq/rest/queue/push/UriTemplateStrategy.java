@@ -1,5 +1,7 @@
 package org.hornetq.rest.queue.push;
 
+import java.util.List;
+
 import org.hornetq.api.core.client.ClientMessage;
 
 /**
@@ -14,4 +16,11 @@ public class UriTemplateStrategy extends UriStrategy
       String uri = targetUri.build(dupId).toString();
       return uri;
    }
+
+   @Override
+   protected boolean isBatchable(List<ClientMessage> messages)
+   {
+      // each message has its own URI
+      return false;
+   }
 }
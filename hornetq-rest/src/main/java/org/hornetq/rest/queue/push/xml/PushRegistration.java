@@ -19,7 +19,7 @@ import javax.xml.bind.annotation.XmlType;
  */
 @XmlRootElement(name = "push-registration")
 @XmlAccessorType(XmlAccessType.PROPERTY)
-@XmlType(propOrder = {"enabled", "destination", "durable", "selector", "target", "maxRetries", "retryWaitMillis", "disableOnFailure", "authenticationMechanism", "headers", "sessionCount"})
+@XmlType(propOrder = {"enabled", "destination", "durable", "selector", "target", "maxRetries", "retryWaitMillis", "disableOnFailure", "authenticationMechanism", "headers", "sessionCount", "maxInFlight", "batchSize"})
 public class PushRegistration implements Serializable
 {
    private static final long serialVersionUID = -2749818399978544262L;
@@ -36,6 +36,8 @@ public class PushRegistration implements Serializable
    private int maxRetries = 10;
    private boolean enabled = true;
    private int sessionCount = 1;
+   private int maxInFlight = 1;
+   private int batchSize = 1;
 
    @XmlElement
    public int getMaxRetries()
@@ -179,6 +181,34 @@ public class PushRegistration implements Serializable
       this.sessionCount = sessionCount;
    }
 
+   /**
+    * @return how many requests each session of the registration pushes at once
+    */
+   @XmlElement
+   public int getMaxInFlight()
+   {
+      return maxInFlight;
+   }
+
+   public void setMaxInFlight(int maxInFlight)
+   {
+      this.maxInFlight = maxInFlight;
+   }
+
+   /**
+    * @return how many messages are pushed in a single request
+    */
+   @XmlElement
+   public int getBatchSize()
+   {
+      return batchSize;
+   }
+
+   public void setBatchSize(int batchSize)
+   {
+      this.batchSize = batchSize;
+   }
+
    @Override
    public String toString()
    {
@@ -194,6 +224,8 @@ public class PushRegistration implements Serializable
               ", disableOnFailure=" + disableOnFailure +
               ", maxRetries=" + maxRetries +
               ", sessionCount=" + sessionCount +
+              ", maxInFlight=" + maxInFlight +
+              ", batchSize=" + batchSize +
               ", enabled=" + enabled +
               '}';
    }
@@ -10,6 +10,8 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.List;
 import java.util.Map.Entry;
@@ -123,6 +125,72 @@ public class HttpMessageHelper
       }
    }
 
+   public static boolean isHttpMessage(ClientMessage message)
+   {
+      Boolean aBoolean = message.getBooleanProperty(POSTED_AS_HTTP_MESSAGE);
+      return aBoolean != null && aBoolean.booleanValue();
+   }
+
+   /**
+    * Builds a multipart/mixed body with a part for each message, the messages must have been posted
+    * as HTTP messages.
+    */
+   public static byte[] buildMultipart(List<ClientMessage> messages, String boundary, String contentType)
+   {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      try
+      {
+         for (ClientMessage message : messages)
+         {
+            writeAscii(out, "--" + boundary + "\r\n");
+            String partType = contentType;
+            for (SimpleString key : message.getPropertyNames())
+            {
+               String k = key.toString();
+               String headerName = HttpHeaderProperty.fromPropertyName(k);
+               if (headerName == null || headerName.contains("content-length"))
+               {
+                  continue;
+               }
+               String value = message.getStringProperty(k);
+               // override default content type if it is set as a message property
+               if (headerName.equalsIgnoreCase("content-type"))
+               {
+                  partType = value;
+               }
+               else
+               {
+                  writeAscii(out, headerName + ": " + value + "\r\n");
+               }
+            }
+            if (partType != null)
+            {
+               writeAscii(out, "Content-Type: " + partType + "\r\n");
+            }
+            writeAscii(out, "\r\n");
+            int size = message.getBodySize();
+            if (size > 0)
+            {
+               byte[] body = new byte[size];
+               message.getBodyBuffer().readBytes(body);
+               out.write(body);
+            }
+            writeAscii(out, "\r\n");
+         }
+         writeAscii(out, "--" + boundary + "--\r\n");
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException(e);
+      }
+      return out.toByteArray();
+   }
+
+   private static void writeAscii(ByteArrayOutputStream out, String text) throws IOException
+   {
+      out.write(text.getBytes("US-ASCII"));
+   }
+
    public static void writeHttpMessage(HttpHeaders headers, byte[] body, ClientMessage message) throws Exception
    {
 
@@ -0,0 +1,196 @@
+package org.hornetq.rest.test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.rest.queue.QueueDeployment;
+import org.hornetq.rest.util.Constants;
+import org.jboss.resteasy.client.ClientRequest;
+import org.jboss.resteasy.client.ClientResponse;
+import org.jboss.resteasy.spi.Link;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static org.jboss.resteasy.test.TestPortProvider.generateURL;
+
+/**
+ * Polls resumed by a message sent while they wait, and messages streamed as Server-Sent Events.
+ */
+public class AsyncConsumerTest extends MessageTestBase
+{
+   @Test
+   public void testMessageSentWhileWaiting() throws Exception
+   {
+      String testName = "testMessageSentWhileWaiting";
+      deployQueue(testName);
+
+      ClientResponse<?> response = Util.head(new ClientRequest(generateURL(Util.getUrlPath(testName))));
+      Link sender = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "create");
+      Link consumers = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "pull-consumers");
+      response = Util.setAutoAck(consumers, true);
+      Link consumeNext = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "consume-next");
+
+      Future<Integer> sent = sendLater(sender, "1", 1000);
+
+      long start = System.currentTimeMillis();
+      ClientResponse<?> res = consumeNext.request().header(Constants.WAIT_HEADER, "30").post(String.class);
+      Assert.assertEquals(200, res.getStatus());
+      Assert.assertEquals("1", res.getEntity(String.class));
+      res.releaseConnection();
+      Assert.assertEquals(201, (int) sent.get(30, TimeUnit.SECONDS));
+      Assert.assertTrue(System.currentTimeMillis() - start < 30000);
+
+      consumeNext = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), res, "consume-next");
+      Link session = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), res, "consumer");
+
+      // times out, and the next poll gets the message sent in the mean time
+      res = consumeNext.request().header(Constants.WAIT_HEADER, "1").post(String.class);
+      res.releaseConnection();
+      Assert.assertEquals(503, res.getStatus());
+      consumeNext = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), res, "consume-next");
+
+      res = sender.request().body("text/plain", "2").post();
+      res.releaseConnection();
+      Assert.assertEquals(201, res.getStatus());
+
+      res = consumeNext.request().header(Constants.WAIT_HEADER, "30").post(String.class);
+      Assert.assertEquals(200, res.getStatus());
+      Assert.assertEquals("2", res.getEntity(String.class));
+      res.releaseConnection();
+
+      Assert.assertEquals(204, session.request().delete().getStatus());
+   }
+
+   @Test
+   public void testAcknowledgedMessageSentWhileWaiting() throws Exception
+   {
+      String testName = "testAcknowledgedMessageSentWhileWaiting";
+      deployQueue(testName);
+
+      ClientResponse<?> response = Util.head(new ClientRequest(generateURL(Util.getUrlPath(testName))));
+      Link sender = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "create");
+      Link consumers = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "pull-consumers");
+      response = Util.setAutoAck(consumers, false);
+      Link ackNext = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "acknowledge-next");
+
+      Future<Integer> sent = sendLater(sender, "1", 1000);
+
+      ClientResponse<?> res = ackNext.request().header(Constants.WAIT_HEADER, "30").post(String.class);
+      Assert.assertEquals(200, res.getStatus());
+      Assert.assertEquals("1", res.getEntity(String.class));
+      res.releaseConnection();
+      Assert.assertEquals(201, (int) sent.get(30, TimeUnit.SECONDS));
+
+      Link ack = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), res, "acknowledgement");
+      Link session = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), res, "consumer");
+      ClientResponse<?> ackRes = ack.request().formParameter("acknowledge", "true").post();
+      ackRes.releaseConnection();
+      Assert.assertEquals(204, ackRes.getStatus());
+
+      Assert.assertEquals(204, session.request().delete().getStatus());
+   }
+
+   @Test
+   public void testStream() throws Exception
+   {
+      String testName = "testStream";
+      deployQueue(testName);
+
+      ClientResponse<?> response = Util.head(new ClientRequest(generateURL(Util.getUrlPath(testName))));
+      Link sender = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "create");
+      Link consumers = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "pull-consumers");
+      response = Util.setAutoAck(consumers, true);
+      Link consumeNext = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), response, "consume-next");
+
+      // gets the consumer link
+      ClientResponse<?> res = consumeNext.request().post(String.class);
+      res.releaseConnection();
+      Assert.assertEquals(503, res.getStatus());
+      Link session = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), res, "consumer");
+
+      res = sender.request().body("text/plain", "1").post();
+      res.releaseConnection();
+      Assert.assertEquals(201, res.getStatus());
+      Future<Integer> sent = sendLater(sender, "2", 1000);
+
+      HttpURLConnection connection = (HttpURLConnection) new URL(session.getHref() + "/consume-stream").openConnection();
+      connection.setReadTimeout(30000);
+      try
+      {
+         Assert.assertEquals(200, connection.getResponseCode());
+         Assert.assertTrue(connection.getContentType().startsWith("text/event-stream"));
+
+         BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+         List<String> data = new ArrayList<String>();
+         String line;
+         while (data.size() < 2 && (line = reader.readLine()) != null)
+         {
+            if (line.startsWith("data: "))
+            {
+               data.add(line.substring("data: ".length()));
+            }
+         }
+         Assert.assertEquals(2, data.size());
+         Assert.assertEquals("1", data.get(0));
+         Assert.assertEquals("2", data.get(1));
+         Assert.assertEquals(201, (int) sent.get(30, TimeUnit.SECONDS));
+      }
+      finally
+      {
+         connection.disconnect();
+      }
+
+      Assert.assertEquals(204, session.request().delete().getStatus());
+   }
+
+   private static void deployQueue(String name) throws Exception
+   {
+      QueueDeployment deployment = new QueueDeployment();
+      deployment.setDuplicatesAllowed(true);
+      deployment.setDurableSend(false);
+      deployment.setName(name);
+      manager.getQueueManager().deploy(deployment);
+   }
+
+   /**
+    * @return the status of the response to the message sent, any failure to send it is thrown by
+    * {@link Future#get}
+    */
+   private static Future<Integer> sendLater(final Link sender, final String body, final long delay)
+   {
+      FutureTask<Integer> send = new FutureTask<Integer>(new Callable<Integer>()
+      {
+         public Integer call() throws Exception
+         {
+            Thread.sleep(delay);
+            // not with the client of the test, it is busy polling
+            HttpURLConnection connection = (HttpURLConnection) new URL(sender.getHref()).openConnection();
+            try
+            {
+               connection.setRequestMethod("POST");
+               connection.setRequestProperty("Content-Type", "text/plain");
+               connection.setDoOutput(true);
+               OutputStream output = connection.getOutputStream();
+               output.write(body.getBytes("UTF-8"));
+               output.close();
+               return connection.getResponseCode();
+            }
+            finally
+            {
+               connection.disconnect();
+            }
+         }
+      });
+      new Thread(send).start();
+      return send;
+   }
+}
@@ -11,9 +11,12 @@ import org.jboss.resteasy.spi.Link;
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.jboss.resteasy.test.TestPortProvider.generateURL;
@@ -198,6 +201,20 @@ public class PushQueueConsumerTest extends MessageTestBase
       }
    }
 
+   @Path("/myBatch")
+   public static class MyBatchResource
+   {
+      public static List<String> contentTypes = new CopyOnWriteArrayList<String>();
+      public static List<String> bodies = new CopyOnWriteArrayList<String>();
+
+      @PUT
+      public void put(@HeaderParam("Content-Type") String contentType, String str)
+      {
+         contentTypes.add(contentType);
+         bodies.add(str);
+      }
+   }
+
    @Test
    public void testUri() throws Exception
    {
@@ -276,6 +293,111 @@ public class PushQueueConsumerTest extends MessageTestBase
       }
    }
 
+   @Test
+   public void testUriWithMaxInFlight() throws Exception
+   {
+      Link pushSubscription = null;
+      String messageContent = "1";
+      final int CONCURRENT = 10;
+
+      try
+      {
+         // The name of the queue used for the test should match the name of the test
+         String queue = "testUriWithMaxInFlight";
+         System.out.println("\n" + queue);
+
+         deployQueue(queue);
+         server.getJaxrsServer().getDeployment().getRegistry().addPerRequestResource(MyConcurrentResource.class);
+         MyConcurrentResource.maxConcurrentInvocations.set(0);
+
+         ClientResponse queueResponse = Util.head(new ClientRequest(generateURL(Util.getUrlPath(queue))));
+         Link destinationForSend = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), queueResponse, "create");
+         Link pushSubscriptions = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), queueResponse, "push-consumers");
+
+         for (int i = 0; i < CONCURRENT; i++)
+         {
+            sendMessage(destinationForSend, messageContent);
+         }
+
+         // a single session pushing all the messages at once
+         PushRegistration reg = createRegistration(generateURL("/myConcurrent"), PushRegistrationType.URI, 1);
+         reg.setMaxInFlight(CONCURRENT);
+         pushSubscription = createPushRegistration(reg, pushSubscriptions);
+
+         long end = System.currentTimeMillis() + 10000;
+         while (MyConcurrentResource.maxConcurrentInvocations.get() < CONCURRENT && System.currentTimeMillis() < end)
+         {
+            Thread.sleep(100);
+         }
+
+         // wait until all the invocations have completed
+         while (MyConcurrentResource.concurrentInvocations.get() > 0)
+         {
+            Thread.sleep(100);
+         }
+
+         Assert.assertEquals(CONCURRENT, MyConcurrentResource.maxConcurrentInvocations.get());
+      }
+      finally
+      {
+         cleanupSubscription(pushSubscription);
+      }
+   }
+
+   @Test
+   public void testUriWithBatchSize() throws Exception
+   {
+      Link pushSubscription = null;
+
+      try
+      {
+         // The name of the queue used for the test should match the name of the test
+         String queue = "testUriWithBatchSize";
+         System.out.println("\n" + queue);
+
+         deployQueue(queue);
+         server.getJaxrsServer().getDeployment().getRegistry().addPerRequestResource(MyBatchResource.class);
+         MyBatchResource.contentTypes.clear();
+         MyBatchResource.bodies.clear();
+
+         ClientResponse queueResponse = Util.head(new ClientRequest(generateURL(Util.getUrlPath(queue))));
+         Link destinationForSend = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), queueResponse, "create");
+         Link pushSubscriptions = MessageTestBase.getLinkByTitle(manager.getQueueManager().getLinkStrategy(), queueResponse, "push-consumers");
+
+         sendMessage(destinationForSend, "1");
+         sendMessage(destinationForSend, "2");
+         sendMessage(destinationForSend, "3");
+
+         PushRegistration reg = createRegistration(generateURL("/myBatch"), PushRegistrationType.URI, 1);
+         reg.setBatchSize(3);
+         pushSubscription = createPushRegistration(reg, pushSubscriptions);
+
+         long end = System.currentTimeMillis() + 10000;
+         while (MyBatchResource.bodies.isEmpty() && System.currentTimeMillis() < end)
+         {
+            Thread.sleep(100);
+         }
+
+         Assert.assertEquals(1, MyBatchResource.bodies.size());
+         String contentType = MyBatchResource.contentTypes.get(0);
+         Assert.assertTrue(contentType, contentType.startsWith("multipart/mixed"));
+         String boundary = contentType.substring(contentType.indexOf("boundary=") + "boundary=".length()).replace("\"", "");
+
+         String[] parts = MyBatchResource.bodies.get(0).split("--" + boundary);
+         // the preamble, the 3 parts and the epilogue
+         Assert.assertEquals(5, parts.length);
+         for (int i = 1; i <= 3; i++)
+         {
+            Assert.assertTrue(parts[i], parts[i].toLowerCase().contains("content-type: text/plain"));
+            Assert.assertTrue(parts[i], parts[i].endsWith("\r\n\r\n" + i + "\r\n"));
+         }
+      }
+      finally
+      {
+         cleanupSubscription(pushSubscription);
+      }
+   }
+
    private void deployQueue(String queueName) throws Exception
    {
       QueueDeployment deployment = new QueueDeployment();
@@ -328,6 +450,11 @@ public class PushQueueConsumerTest extends MessageTestBase
    }
 
    private Link createPushRegistration(String queueToPushTo, Link pushSubscriptions, PushRegistrationType pushRegistrationType, int sessionCount) throws Exception
+   {
+      return createPushRegistration(createRegistration(queueToPushTo, pushRegistrationType, sessionCount), pushSubscriptions);
+   }
+
+   private PushRegistration createRegistration(String queueToPushTo, PushRegistrationType pushRegistrationType, int sessionCount)
    {
       PushRegistration reg = new PushRegistration();
       reg.setDurable(false);
@@ -354,6 +481,11 @@ public class PushQueueConsumerTest extends MessageTestBase
       }
       reg.setTarget(target);
       reg.setSessionCount(sessionCount);
+      return reg;
+   }
+
+   private Link createPushRegistration(PushRegistration reg, Link pushSubscriptions) throws Exception
+   {
       ClientResponse pushRegistrationResponse = pushSubscriptions.request().body("application/xml", reg).post();
       pushRegistrationResponse.releaseConnection();
       Assert.assertEquals(201, pushRegistrationResponse.getStatus());
@@ -154,6 +154,28 @@ public interface Configuration extends Serializable
     */
    void setThreadPoolMaxSize(int maxSize);
 
+   /**
+    * Returns the number of tasks the executor of a queue, session or other component runs in a row before giving its thread back to the thread pool, -1 for no limit. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_EXECUTOR_MAX_TASKS_PER_RUN}.
+    */
+   int getExecutorMaxTasksPerRun();
+
+   /**
+    * Sets the number of tasks the executor of a queue, session or other component runs in a row before giving its thread back to the thread pool.
+    */
+   void setExecutorMaxTasksPerRun(int maxTasksPerRun);
+
+   /**
+    * Returns the time in nanoseconds the executor of a queue, session or other component runs tasks in a row before giving its thread back to the thread pool, -1 for no limit. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_EXECUTOR_MAX_RUN_TIME}.
+    */
+   long getExecutorMaxRunTime();
+
+   /**
+    * Sets the time in nanoseconds the executor of a queue, session or other component runs tasks in a row before giving its thread back to the thread pool.
+    */
+   void setExecutorMaxRunTime(long maxRunTime);
+
    /**
     * Returns the maximum number of threads in the <em>scheduled</em> thread pool of this server. <br>
     * Default value is {@value HornetQDefaultConfiguration#DEFAULT_SCHEDULED_THREAD_POOL_MAX_SIZE}.
@@ -441,6 +463,28 @@ public interface Configuration extends Serializable
     */
    void setFailoverOnServerShutdown(boolean failoverOnServerShutdown);
 
+   /**
+    * Returns the maximum size in bytes of the batches of journal operations replicated to the backup, -1 if every operation is replicated in its own packet. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_REPLICATION_BATCH_SIZE}.
+    */
+   int getReplicationBatchSize();
+
+   /**
+    * Sets the maximum size in bytes of the batches of journal operations replicated to the backup.
+    */
+   void setReplicationBatchSize(int replicationBatchSize);
+
+   /**
+    * Returns the number of batches of journal operations sent to the backup before waiting for the backup to acknowledge one. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_REPLICATION_BATCHES_IN_FLIGHT}.
+    */
+   int getReplicationBatchesInFlight();
+
+   /**
+    * Sets the number of batches of journal operations sent to the backup before waiting for the backup to acknowledge one.
+    */
+   void setReplicationBatchesInFlight(int replicationBatchesInFlight);
+
    /**
     * Sets the cluster password for this server.
     */
@@ -468,6 +512,18 @@ public interface Configuration extends Serializable
     */
    void setPersistIDCache(boolean persist);
 
+   /**
+    * Returns the time in milliseconds a duplicate ID is kept in the cache, -1 if IDs are only removed
+    * when the cache is full. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_ID_CACHE_EXPIRY}.
+    */
+   long getIDCacheExpiry();
+
+   /**
+    * Sets the time in milliseconds a duplicate ID is kept in the cache.
+    */
+   void setIDCacheExpiry(long idCacheExpiry);
+
    // Journal related attributes ------------------------------------------------------------
 
    /**
@@ -562,6 +618,17 @@ public interface Configuration extends Serializable
     */
    void setJournalCompactMinFiles(int minFiles);
 
+   /**
+    * Returns the number of threads reading the journal files when the server starts. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_JOURNAL_LOAD_THREADS}.
+    */
+   int getJournalLoadThreads();
+
+   /**
+    * Sets the number of threads reading the journal files when the server starts.
+    */
+   void setJournalLoadThreads(int journalLoadThreads);
+
    /**
     * Returns the percentage of live data before compacting the journal. <br>
     * Default value is {@value HornetQDefaultConfiguration#DEFAULT_JOURNAL_COMPACT_PERCENTAGE}.
@@ -717,6 +784,17 @@ public interface Configuration extends Serializable
     */
    void setPagingDirectory(String dir);
 
+   /**
+    * Returns the maximum memory in bytes the messages of all the addresses may use together, -1 for no limit. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_GLOBAL_MAX_SIZE}.
+    */
+   long getGlobalMaxSize();
+
+   /**
+    * Sets the maximum memory in bytes the messages of all the addresses may use together.
+    */
+   void setGlobalMaxSize(long maxSize);
+
    // Large Messages Properties ------------------------------------------------------------
 
    /**
@@ -743,6 +821,17 @@ public interface Configuration extends Serializable
     */
    void setWildcardRoutingEnabled(boolean enabled);
 
+   /**
+    * Returns whether the filters of the bindings of an address are indexed to route messages. <br>
+    * Default value is {@value HornetQDefaultConfiguration#DEFAULT_ROUTING_INDEX_ENABLED}.
+    */
+   boolean isRoutingIndexEnabled();
+
+   /**
+    * Sets whether the filters of the bindings of an address are indexed to route messages.
+    */
+   void setRoutingIndexEnabled(boolean routingIndexEnabled);
+
    /**
     * Returns the timeout (in milliseconds) after which transactions is removed from the resource
     * manager after it was created. <br>
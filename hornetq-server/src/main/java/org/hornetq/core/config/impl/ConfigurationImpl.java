@@ -74,6 +74,10 @@ public class ConfigurationImpl implements Configuration
 
    private int threadPoolMaxSize = HornetQDefaultConfiguration.getDefaultThreadPoolMaxSize();
 
+   private int executorMaxTasksPerRun = HornetQDefaultConfiguration.getDefaultExecutorMaxTasksPerRun();
+
+   private long executorMaxRunTime = HornetQDefaultConfiguration.getDefaultExecutorMaxRunTime();
+
    private long securityInvalidationInterval = HornetQDefaultConfiguration.getDefaultSecurityInvalidationInterval();
 
    private boolean securityEnabled = HornetQDefaultConfiguration.isDefaultSecurityEnabled();
@@ -94,6 +98,8 @@ public class ConfigurationImpl implements Configuration
 
    private boolean persistIDCache = HornetQDefaultConfiguration.isDefaultPersistIdCache();
 
+   private long idCacheExpiry = HornetQDefaultConfiguration.getDefaultIdCacheExpiry();
+
    private List<String> incomingInterceptorClassNames = new ArrayList<String>();
 
    private List<String> outgoingInterceptorClassNames = new ArrayList<String>();
@@ -118,6 +124,8 @@ public class ConfigurationImpl implements Configuration
 
    private String pagingDirectory = HornetQDefaultConfiguration.getDefaultPagingDir();
 
+   private long globalMaxSize = HornetQDefaultConfiguration.getDefaultGlobalMaxSize();
+
    // File related attributes -----------------------------------------------------------
 
    private int maxConcurrentPageIO = HornetQDefaultConfiguration.getDefaultMaxConcurrentPageIo();
@@ -140,6 +148,8 @@ public class ConfigurationImpl implements Configuration
 
    protected int journalCompactMinFiles = HornetQDefaultConfiguration.getDefaultJournalCompactMinFiles();
 
+   protected int journalLoadThreads = HornetQDefaultConfiguration.getDefaultJournalLoadThreads();
+
    protected int journalCompactPercentage = HornetQDefaultConfiguration.getDefaultJournalCompactPercentage();
 
    protected int journalFileSize = HornetQDefaultConfiguration.getDefaultJournalFileSize();
@@ -168,6 +178,8 @@ public class ConfigurationImpl implements Configuration
 
    private boolean wildcardRoutingEnabled = HornetQDefaultConfiguration.isDefaultWildcardRoutingEnabled();
 
+   private boolean routingIndexEnabled = HornetQDefaultConfiguration.isDefaultRoutingIndexEnabled();
+
    private boolean messageCounterEnabled = HornetQDefaultConfiguration.isDefaultMessageCounterEnabled();
 
    private long messageCounterSamplePeriod = HornetQDefaultConfiguration.getDefaultMessageCounterSamplePeriod();
@@ -190,6 +202,10 @@ public class ConfigurationImpl implements Configuration
 
    protected boolean failoverOnServerShutdown = HornetQDefaultConfiguration.isDefaultFailoverOnServerShutdown();
 
+   private int replicationBatchSize = HornetQDefaultConfiguration.getDefaultReplicationBatchSize();
+
+   private int replicationBatchesInFlight = HornetQDefaultConfiguration.getDefaultReplicationBatchesInFlight();
+
    // percentage of free memory which triggers warning from the memory manager
    private int memoryWarningThreshold = HornetQDefaultConfiguration.getDefaultMemoryWarningThreshold();
 
@@ -313,6 +329,26 @@ public class ConfigurationImpl implements Configuration
       threadPoolMaxSize = maxSize;
    }
 
+   public int getExecutorMaxTasksPerRun()
+   {
+      return executorMaxTasksPerRun;
+   }
+
+   public void setExecutorMaxTasksPerRun(final int maxTasksPerRun)
+   {
+      executorMaxTasksPerRun = maxTasksPerRun;
+   }
+
+   public long getExecutorMaxRunTime()
+   {
+      return executorMaxRunTime;
+   }
+
+   public void setExecutorMaxRunTime(final long maxRunTime)
+   {
+      executorMaxRunTime = maxRunTime;
+   }
+
    public long getSecurityInvalidationInterval()
    {
       return securityInvalidationInterval;
@@ -487,6 +523,16 @@ public class ConfigurationImpl implements Configuration
       persistIDCache = persist;
    }
 
+   public long getIDCacheExpiry()
+   {
+      return idCacheExpiry;
+   }
+
+   public void setIDCacheExpiry(final long idCacheExpiry)
+   {
+      this.idCacheExpiry = idCacheExpiry;
+   }
+
    public String getBindingsDirectory()
    {
       return bindingsDirectory;
@@ -536,6 +582,16 @@ public class ConfigurationImpl implements Configuration
       return pagingDirectory;
    }
 
+   public long getGlobalMaxSize()
+   {
+      return globalMaxSize;
+   }
+
+   public void setGlobalMaxSize(final long maxSize)
+   {
+      globalMaxSize = maxSize;
+   }
+
    public void setJournalType(final JournalType type)
    {
       journalType = type;
@@ -641,6 +697,16 @@ public class ConfigurationImpl implements Configuration
       wildcardRoutingEnabled = enabled;
    }
 
+   public boolean isRoutingIndexEnabled()
+   {
+      return routingIndexEnabled;
+   }
+
+   public void setRoutingIndexEnabled(final boolean routingIndexEnabled)
+   {
+      this.routingIndexEnabled = routingIndexEnabled;
+   }
+
    public long getTransactionTimeout()
    {
       return transactionTimeout;
@@ -796,6 +862,26 @@ public class ConfigurationImpl implements Configuration
       this.failoverOnServerShutdown = failoverOnServerShutdown;
    }
 
+   public int getReplicationBatchSize()
+   {
+      return replicationBatchSize;
+   }
+
+   public void setReplicationBatchSize(final int replicationBatchSize)
+   {
+      this.replicationBatchSize = replicationBatchSize;
+   }
+
+   public int getReplicationBatchesInFlight()
+   {
+      return replicationBatchesInFlight;
+   }
+
+   public void setReplicationBatchesInFlight(final int replicationBatchesInFlight)
+   {
+      this.replicationBatchesInFlight = replicationBatchesInFlight;
+   }
+
    public void setClusterPassword(final String theclusterPassword)
    {
       clusterPassword = theclusterPassword;
@@ -816,6 +902,16 @@ public class ConfigurationImpl implements Configuration
       journalCompactMinFiles = minFiles;
    }
 
+   public int getJournalLoadThreads()
+   {
+      return journalLoadThreads;
+   }
+
+   public void setJournalLoadThreads(final int journalLoadThreads)
+   {
+      this.journalLoadThreads = journalLoadThreads;
+   }
+
    public void setJournalCompactPercentage(final int percentage)
    {
       journalCompactPercentage = percentage;
@@ -1060,11 +1156,15 @@ public class ConfigurationImpl implements Configuration
       result = prime * result + (createJournalDir ? 1231 : 1237);
       result = prime * result + ((discoveryGroupConfigurations == null) ? 0 : discoveryGroupConfigurations.hashCode());
       result = prime * result + ((divertConfigurations == null) ? 0 : divertConfigurations.hashCode());
+      result = prime * result + (int)(executorMaxRunTime ^ (executorMaxRunTime >>> 32));
+      result = prime * result + executorMaxTasksPerRun;
       result = prime * result + (int)(failbackDelay ^ (failbackDelay >>> 32));
       result = prime * result + (failoverOnServerShutdown ? 1231 : 1237);
       result = prime * result + (fileDeploymentEnabled ? 1231 : 1237);
       result = prime * result + (int)(fileDeploymentScanPeriod ^ (fileDeploymentScanPeriod >>> 32));
+      result = prime * result + (int)(globalMaxSize ^ (globalMaxSize >>> 32));
       result = prime * result + ((groupingHandlerConfiguration == null) ? 0 : groupingHandlerConfiguration.hashCode());
+      result = prime * result + (int)(idCacheExpiry ^ (idCacheExpiry >>> 32));
       result = prime * result + idCacheSize;
       result =
                prime * result +
@@ -1079,6 +1179,7 @@ public class ConfigurationImpl implements Configuration
       result = prime * result + journalCompactPercentage;
       result = prime * result + ((journalDirectory == null) ? 0 : journalDirectory.hashCode());
       result = prime * result + journalFileSize;
+      result = prime * result + journalLoadThreads;
       result = prime * result + journalMaxIO_AIO;
       result = prime * result + journalMaxIO_NIO;
       result = prime * result + journalMinFiles;
@@ -1111,7 +1212,10 @@ public class ConfigurationImpl implements Configuration
       result = prime * result + (persistIDCache ? 1231 : 1237);
       result = prime * result + (persistenceEnabled ? 1231 : 1237);
       result = prime * result + ((queueConfigurations == null) ? 0 : queueConfigurations.hashCode());
+      result = prime * result + replicationBatchesInFlight;
+      result = prime * result + replicationBatchSize;
       result = prime * result + ((replicationClusterName == null) ? 0 : replicationClusterName.hashCode());
+      result = prime * result + (routingIndexEnabled ? 1231 : 1237);
       result = prime * result + (runSyncSpeedTest ? 1231 : 1237);
       result = prime * result + scheduledThreadPoolMaxSize;
       result = prime * result + (securityEnabled ? 1231 : 1237);
@@ -1234,6 +1338,10 @@ public class ConfigurationImpl implements Configuration
       }
       else if (!divertConfigurations.equals(other.divertConfigurations))
          return false;
+      if (executorMaxRunTime != other.executorMaxRunTime)
+         return false;
+      if (executorMaxTasksPerRun != other.executorMaxTasksPerRun)
+         return false;
       if (failbackDelay != other.failbackDelay)
          return false;
       if (failoverOnServerShutdown != other.failoverOnServerShutdown)
@@ -1242,6 +1350,8 @@ public class ConfigurationImpl implements Configuration
          return false;
       if (fileDeploymentScanPeriod != other.fileDeploymentScanPeriod)
          return false;
+      if (globalMaxSize != other.globalMaxSize)
+         return false;
       if (groupingHandlerConfiguration == null)
       {
          if (other.groupingHandlerConfiguration != null)
@@ -1249,6 +1359,8 @@ public class ConfigurationImpl implements Configuration
       }
       else if (!groupingHandlerConfiguration.equals(other.groupingHandlerConfiguration))
          return false;
+      if (idCacheExpiry != other.idCacheExpiry)
+         return false;
       if (idCacheSize != other.idCacheSize)
          return false;
       if (incomingInterceptorClassNames == null)
@@ -1288,6 +1400,8 @@ public class ConfigurationImpl implements Configuration
          return false;
       if (journalFileSize != other.journalFileSize)
          return false;
+      if (journalLoadThreads != other.journalLoadThreads)
+         return false;
       if (journalMaxIO_AIO != other.journalMaxIO_AIO)
          return false;
       if (journalMaxIO_NIO != other.journalMaxIO_NIO)
@@ -1384,6 +1498,10 @@ public class ConfigurationImpl implements Configuration
       }
       else if (!queueConfigurations.equals(other.queueConfigurations))
          return false;
+      if (replicationBatchesInFlight != other.replicationBatchesInFlight)
+         return false;
+      if (replicationBatchSize != other.replicationBatchSize)
+         return false;
       if (replicationClusterName == null)
       {
          if (other.replicationClusterName != null)
@@ -1391,6 +1509,8 @@ public class ConfigurationImpl implements Configuration
       }
       else if (!replicationClusterName.equals(other.replicationClusterName))
          return false;
+      if (routingIndexEnabled != other.routingIndexEnabled)
+         return false;
       if (runSyncSpeedTest != other.runSyncSpeedTest)
          return false;
       if (scheduledThreadPoolMaxSize != other.scheduledThreadPoolMaxSize)
@@ -192,6 +192,10 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
       config.setFailoverOnServerShutdown(getBoolean(e, "failover-on-shutdown",
                                                                          config.isFailoverOnServerShutdown()));
+
+      config.setReplicationBatchSize(getInteger(e, "replication-batch-size", config.getReplicationBatchSize(), Validators.MINUS_ONE_OR_GT_ZERO));
+
+      config.setReplicationBatchesInFlight(getInteger(e, "replication-batches-in-flight", config.getReplicationBatchesInFlight(), Validators.GT_ZERO));
       config.setReplicationClustername(getString(e, "replication-clustername", null, Validators.NO_CHECK));
       config.setBackup(getBoolean(e, "backup", config.isBackup()));
 
@@ -212,6 +216,12 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
       config.setThreadPoolMaxSize(getInteger(e, "thread-pool-max-size", config.getThreadPoolMaxSize(),
                                                                   Validators.MINUS_ONE_OR_GT_ZERO));
 
+      config.setExecutorMaxTasksPerRun(getInteger(e, "executor-max-tasks-per-run", config.getExecutorMaxTasksPerRun(),
+                                                  Validators.MINUS_ONE_OR_GT_ZERO));
+
+      config.setExecutorMaxRunTime(getLong(e, "executor-max-run-time", config.getExecutorMaxRunTime(),
+                                           Validators.MINUS_ONE_OR_GT_ZERO));
+
       config.setSecurityEnabled(getBoolean(e, "security-enabled", config.isSecurityEnabled()));
 
       config.setJMXManagementEnabled(getBoolean(e, "jmx-management-enabled", config.isJMXManagementEnabled()));
@@ -258,6 +268,8 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
       config.setPersistIDCache(getBoolean(e, "persist-id-cache", config.isPersistIDCache()));
 
+      config.setIDCacheExpiry(getLong(e, "id-cache-expiry", config.getIDCacheExpiry(), Validators.MINUS_ONE_OR_GT_ZERO));
+
       config.setManagementAddress(new SimpleString(getString(e,
                                                                                   "management-address",
                                                                                   config.getManagementAddress()
@@ -477,6 +489,9 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
                                                                config.getPagingDirectory(),
                                                                Validators.NOT_NULL_OR_EMPTY));
 
+      config.setGlobalMaxSize(getLong(e, "global-max-size", config.getGlobalMaxSize(),
+                                      Validators.MINUS_ONE_OR_GT_ZERO));
+
       config.setCreateJournalDir(getBoolean(e, "create-journal-dir", config.isCreateJournalDir()));
 
       String s = getString(e,
@@ -510,6 +525,10 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
             config.setJournalType(JournalType.NIO);
          }
       }
+      else if (s.equals(JournalType.MAPPED.toString()))
+      {
+         config.setJournalType(JournalType.MAPPED);
+      }
 
       config.setJournalSyncTransactional(getBoolean(e,
                                                                          "journal-sync-transactional",
@@ -560,6 +579,8 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
       config.setJournalCompactMinFiles(getInteger(e, "journal-compact-min-files", config.getJournalCompactMinFiles(),
                                                   Validators.GE_ZERO));
 
+      config.setJournalLoadThreads(getInteger(e, "journal-load-threads", config.getJournalLoadThreads(), Validators.GT_ZERO));
+
       config.setJournalCompactPercentage(getInteger(e,
                                                                          "journal-compact-percentage",
                                                                          config.getJournalCompactPercentage(),
@@ -578,6 +599,8 @@ public final class FileConfigurationParser extends XMLConfigurationUtil
 
       config.setWildcardRoutingEnabled(getBoolean(e, "wild-card-routing-enabled", config.isWildcardRoutingEnabled()));
 
+      config.setRoutingIndexEnabled(getBoolean(e, "routing-index-enabled", config.isRoutingIndexEnabled()));
+
       config.setMessageCounterEnabled(getBoolean(e, "message-counter-enabled", config.isMessageCounterEnabled()));
 
       config.setMessageCounterSamplePeriod(getLong(e, "message-counter-sample-period",
@@ -0,0 +1,1186 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.filter.impl;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.hornetq.api.core.FilterConstants;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.server.ServerMessage;
+
+/**
+ * Compiles the tree produced by {@link FilterParser} into a tree of immutable expressions.
+ * <p>
+ * {@link Operator} keeps the values of its operands in fields while it is applied, so an
+ * interpreted filter can only be evaluated by one thread at a time. The compiled expressions keep
+ * no state between evaluations: they can be shared by any number of threads without locking, and
+ * apart from the arithmetic operators (which have to box their result) they do not allocate.
+ * <p>
+ * The semantics (three-valued logic, type promotion and the cases reported as errors) are the same
+ * as {@link Operator#apply()}.
+ */
+final class FilterCompiler
+{
+   private static final int NULL = 0;
+
+   private FilterCompiler()
+   {
+      // Utility class
+   }
+
+   /**
+    * @param node the object returned by {@link FilterParser#parse(SimpleString, java.util.Map)}
+    */
+   public static Expression compile(final Object node) throws Exception
+   {
+      if (node instanceof Identifier)
+      {
+         return new IdentifierExpression(((Identifier)node).getName());
+      }
+      else if (node instanceof Operator)
+      {
+         return compileOperator((Operator)node);
+      }
+      else
+      {
+         return new LiteralExpression(node);
+      }
+   }
+
+   private static Expression compileOperator(final Operator op) throws Exception
+   {
+      switch (op.getOperation())
+      {
+         case Operator.EQUAL:
+            return new EqualExpression(op, compile(op.getOper1()), compile(op.getOper2()));
+         case Operator.DIFFERENT:
+            return new DifferentExpression(op, compile(op.getOper1()), compile(op.getOper2()));
+         case Operator.NOT:
+            return new NotExpression(op, compile(op.getOper1()));
+         case Operator.AND:
+            return new AndExpression(op, compile(op.getOper1()), compile(op.getOper2()));
+         case Operator.OR:
+            return new OrExpression(op, compile(op.getOper1()), compile(op.getOper2()));
+         case Operator.GT:
+         case Operator.GE:
+         case Operator.LT:
+         case Operator.LE:
+            return new ComparisonExpression(op, op.getOperation(), compile(op.getOper1()), compile(op.getOper2()));
+         case Operator.BETWEEN:
+         {
+            Expression value = compile(op.getOper1());
+            return new BetweenExpression(new ComparisonExpression(op, Operator.GE, value, compile(op.getOper2())),
+                                         new ComparisonExpression(op, Operator.LE, value, compile(op.getOper3())));
+         }
+         case Operator.NOT_BETWEEN:
+         {
+            Expression value = compile(op.getOper1());
+            return new NotBetweenExpression(new ComparisonExpression(op, Operator.LT, value, compile(op.getOper2())),
+                                            new ComparisonExpression(op, Operator.GT, value, compile(op.getOper3())));
+         }
+         case Operator.NEG:
+            return new NegExpression(op, compile(op.getOper1()));
+         case Operator.ADD:
+         case Operator.SUB:
+         case Operator.MUL:
+         case Operator.DIV:
+            return new ArithmeticExpression(op, op.getOperation(), compile(op.getOper1()), compile(op.getOper2()));
+         case Operator.LIKE:
+         case Operator.NOT_LIKE:
+         case Operator.LIKE_ESCAPE:
+         case Operator.NOT_LIKE_ESCAPE:
+            return compileLike(op);
+         case Operator.IS_NULL:
+            return new IsNullExpression(op, compile(op.getOper1()), false);
+         case Operator.IS_NOT_NULL:
+            return new IsNullExpression(op, compile(op.getOper1()), true);
+         case Operator.IN:
+            return new InExpression(op, compile(op.getOper1()), (Set<?>)op.getOper2(), false);
+         case Operator.NOT_IN:
+            return new InExpression(op, compile(op.getOper1()), (Set<?>)op.getOper2(), true);
+         default:
+            throw new Exception("Unknown operation " + op.getOperation() + " on " + op);
+      }
+   }
+
+   private static Expression compileLike(final Operator op) throws Exception
+   {
+      boolean not = op.getOperation() == Operator.NOT_LIKE || op.getOperation() == Operator.NOT_LIKE_ESCAPE;
+      boolean useEscape = op.getOperation() == Operator.LIKE_ESCAPE || op.getOperation() == Operator.NOT_LIKE_ESCAPE;
+
+      Expression value = compile(op.getOper1());
+
+      // the parser only accepts string literals for the pattern and the escape character, so the
+      // regular expression can be prepared once here instead of on the first evaluation
+      if (!(op.getOper2() instanceof SimpleString) || useEscape && !(op.getOper3() instanceof SimpleString))
+      {
+         return new DynamicLikeExpression(op, value, compile(op.getOper2()), useEscape ? compile(op.getOper3())
+                                                                                      : null, not);
+      }
+
+      RegExp regExp = null;
+      Exception error = null;
+      try
+      {
+         regExp = newRegExp(op.getOper2(), useEscape ? op.getOper3() : null);
+      }
+      catch (Exception e)
+      {
+         // reported on evaluation, as the interpreter would
+         error = e;
+      }
+      return new LikeExpression(op, value, regExp, error, not);
+   }
+
+   private static RegExp newRegExp(final Object pattern, final Object escape) throws Exception
+   {
+      Character escapeChar = null;
+      if (escape != null)
+      {
+         SimpleString escapeString = (SimpleString)escape;
+         if (escapeString.length() != 1)
+         {
+            throw new Exception("LIKE ESCAPE: Bad escape character " + escapeString.toString());
+         }
+         escapeChar = Character.valueOf(escapeString.charAt(0));
+      }
+      return new RegExp(pattern.toString(), escapeChar);
+   }
+
+   /**
+    * @return the class of the value as defined by {@link Operator}, after the same promotion of
+    *         byte/short/int to long and float to double
+    */
+   static int typeOf(final Object value, final Operator op) throws Exception
+   {
+      if (value == null)
+      {
+         return NULL;
+      }
+
+      Class<?> clazz = value.getClass();
+
+      if (clazz == SimpleString.class)
+      {
+         return Operator.SIMPLE_STRING;
+      }
+      else if (clazz == Long.class || clazz == Integer.class || clazz == Short.class || clazz == Byte.class)
+      {
+         return Operator.LONG;
+      }
+      else if (clazz == Double.class || clazz == Float.class)
+      {
+         return Operator.DOUBLE;
+      }
+      else if (clazz == Boolean.class)
+      {
+         return Operator.BOOLEAN;
+      }
+      else
+      {
+         throw new Exception("Bad Object: '" + clazz.getName() + "' for operation: " + op);
+      }
+   }
+
+   static Exception badObject(final int type, final Operator op)
+   {
+      return new Exception("Bad Object: '" + Operator.getClassName(type) + "' for operation: " + op);
+   }
+
+   static Exception badObject(final int expected, final int type, final Operator op)
+   {
+      return new Exception("Bad Object: expected '" + Operator.getClassName(expected) +
+                           "' got '" +
+                           Operator.getClassName(type) +
+                           "' for operation: " +
+                           op);
+   }
+
+   static boolean isNumeric(final int type)
+   {
+      return type == Operator.LONG || type == Operator.DOUBLE;
+   }
+
+   static SimpleString propertyOf(final Expression expression)
+   {
+      if (expression instanceof IdentifierExpression && ((IdentifierExpression)expression).isProperty())
+      {
+         return ((IdentifierExpression)expression).getName();
+      }
+      return null;
+   }
+
+   static Object literalOf(final Expression expression)
+   {
+      if (expression instanceof LiteralExpression)
+      {
+         return ((LiteralExpression)expression).getValue();
+      }
+      return null;
+   }
+
+   // Inner classes -------------------------------------------------
+
+   /**
+    * A compiled filter expression. Implementations are immutable.
+    */
+   abstract static class Expression
+   {
+      /**
+       * @return the value of the expression, {@code null} when it is unknown
+       */
+      abstract Object evaluate(ServerMessage message) throws Exception;
+
+      /**
+       * Evaluates this expression as the root of a filter.
+       */
+      boolean match(final ServerMessage message) throws Exception
+      {
+         Object result = evaluate(message);
+
+         // https://issues.jboss.org/browse/HORNETQ-1188 -
+         // if this was going to NPE anyways, we just return false
+         // invalid properties will just fail the query
+         return result != null && (Boolean)result;
+      }
+
+      /**
+       * @return a condition on a message property which must hold for this expression to be true,
+       *         or null if there's none
+       */
+      IndexableCondition getIndexableCondition()
+      {
+         return null;
+      }
+   }
+
+   abstract static class OperatorExpression extends Expression
+   {
+      /**
+       * Only used to describe errors.
+       */
+      protected final Operator op;
+
+      OperatorExpression(final Operator op)
+      {
+         this.op = op;
+      }
+
+      @Override
+      public String toString()
+      {
+         return op.toString();
+      }
+   }
+
+   static final class LiteralExpression extends Expression
+   {
+      private final Object value;
+
+      LiteralExpression(final Object value)
+      {
+         this.value = value;
+      }
+
+      Object getValue()
+      {
+         return value;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message)
+      {
+         return value;
+      }
+
+      @Override
+      boolean match(final ServerMessage message) throws Exception
+      {
+         throw new Exception("Bad object type: " + value);
+      }
+
+      @Override
+      public String toString()
+      {
+         return String.valueOf(value);
+      }
+   }
+
+   static final class IdentifierExpression extends Expression
+   {
+      private static final int PROPERTY = 0;
+
+      private static final int USERID = 1;
+
+      private static final int PRIORITY = 2;
+
+      private static final int TIMESTAMP = 3;
+
+      private static final int DURABLE = 4;
+
+      private static final int EXPIRATION = 5;
+
+      private static final int SIZE = 6;
+
+      private final SimpleString name;
+
+      private final int header;
+
+      IdentifierExpression(final SimpleString name)
+      {
+         this.name = name;
+         header = headerOf(name);
+      }
+
+      private static int headerOf(final SimpleString name)
+      {
+         if (!name.startsWith(FilterConstants.HORNETQ_PREFIX))
+         {
+            return PROPERTY;
+         }
+         else if (FilterConstants.HORNETQ_USERID.equals(name))
+         {
+            return USERID;
+         }
+         else if (FilterConstants.HORNETQ_PRIORITY.equals(name))
+         {
+            return PRIORITY;
+         }
+         else if (FilterConstants.HORNETQ_TIMESTAMP.equals(name))
+         {
+            return TIMESTAMP;
+         }
+         else if (FilterConstants.HORNETQ_DURABLE.equals(name))
+         {
+            return DURABLE;
+         }
+         else if (FilterConstants.HORNETQ_EXPIRATION.equals(name))
+         {
+            return EXPIRATION;
+         }
+         else if (FilterConstants.HORNETQ_SIZE.equals(name))
+         {
+            return SIZE;
+         }
+         else
+         {
+            return PROPERTY;
+         }
+      }
+
+      SimpleString getName()
+      {
+         return name;
+      }
+
+      /**
+       * @return true if this identifies a message property, and not one of the headers
+       */
+      boolean isProperty()
+      {
+         return header == PROPERTY;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message)
+      {
+         switch (header)
+         {
+            case USERID:
+               // It's the stringified (hex) representation of a user id that can be used in a selector expression
+               return new SimpleString("ID:" + message.getUserID());
+            case PRIORITY:
+               return Integer.valueOf(message.getPriority());
+            case TIMESTAMP:
+               return message.getTimestamp();
+            case DURABLE:
+               return message.isDurable() ? FilterConstants.DURABLE : FilterConstants.NON_DURABLE;
+            case EXPIRATION:
+               return message.getExpiration();
+            case SIZE:
+               return message.getEncodeSize();
+            default:
+               return message.getObjectProperty(name);
+         }
+      }
+
+      @Override
+      boolean match(final ServerMessage message) throws Exception
+      {
+         return (Boolean)evaluate(message);
+      }
+
+      @Override
+      public String toString()
+      {
+         return "Identifier@" + name;
+      }
+   }
+
+   static final class EqualExpression extends OperatorExpression
+   {
+      private final Expression left;
+
+      private final Expression right;
+
+      EqualExpression(final Operator op, final Expression left, final Expression right)
+      {
+         super(op);
+         this.left = left;
+         this.right = right;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg1 = left.evaluate(message);
+         int class1 = typeOf(arg1, op);
+         if (class1 == NULL)
+         {
+            return Boolean.FALSE;
+         }
+
+         Object arg2 = right.evaluate(message);
+         int class2 = typeOf(arg2, op);
+
+         switch (class1)
+         {
+            case Operator.LONG:
+               if (class2 == NULL)
+               {
+                  return null;
+               }
+               if (class2 == Operator.LONG)
+               {
+                  return ((Number)arg1).longValue() == ((Number)arg2).longValue();
+               }
+               if (class2 == Operator.DOUBLE)
+               {
+                  return ((Number)arg1).longValue() == ((Number)arg2).doubleValue();
+               }
+               return Boolean.FALSE;
+            case Operator.DOUBLE:
+               if (class2 == NULL)
+               {
+                  return null;
+               }
+               if (class2 == Operator.LONG)
+               {
+                  return ((Number)arg1).doubleValue() == ((Number)arg2).longValue();
+               }
+               if (class2 == Operator.DOUBLE)
+               {
+                  return ((Number)arg1).doubleValue() == ((Number)arg2).doubleValue();
+               }
+               return Boolean.FALSE;
+            default:
+               if (class2 == NULL)
+               {
+                  return Boolean.FALSE;
+               }
+               if (class2 != class1)
+               {
+                  throw badObject(class1, class2, op);
+               }
+               return arg1.equals(arg2);
+         }
+      }
+
+      @Override
+      IndexableCondition getIndexableCondition()
+      {
+         SimpleString property = propertyOf(left);
+         Object literal = literalOf(right);
+         if (property == null)
+         {
+            property = propertyOf(right);
+            literal = literalOf(left);
+         }
+         if (property == null || !IndexableCondition.isIndexableLiteral(literal))
+         {
+            return null;
+         }
+         return IndexableCondition.equal(property, Collections.singleton(literal));
+      }
+   }
+
+   static final class DifferentExpression extends OperatorExpression
+   {
+      private final Expression left;
+
+      private final Expression right;
+
+      DifferentExpression(final Operator op, final Expression left, final Expression right)
+      {
+         super(op);
+         this.left = left;
+         this.right = right;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg1 = left.evaluate(message);
+         int class1 = typeOf(arg1, op);
+
+         Object arg2 = right.evaluate(message);
+         int class2 = typeOf(arg2, op);
+
+         switch (class1)
+         {
+            case NULL:
+               return class2 != NULL;
+            case Operator.LONG:
+               if (class2 == NULL)
+               {
+                  return null;
+               }
+               if (class2 == Operator.LONG)
+               {
+                  return ((Number)arg1).longValue() != ((Number)arg2).longValue();
+               }
+               if (class2 == Operator.DOUBLE)
+               {
+                  return ((Number)arg1).longValue() != ((Number)arg2).doubleValue();
+               }
+               return Boolean.FALSE;
+            case Operator.DOUBLE:
+               if (class2 == NULL)
+               {
+                  return null;
+               }
+               if (class2 == Operator.LONG)
+               {
+                  return ((Number)arg1).doubleValue() != ((Number)arg2).longValue();
+               }
+               if (class2 == Operator.DOUBLE)
+               {
+                  return ((Number)arg1).doubleValue() != ((Number)arg2).doubleValue();
+               }
+               return Boolean.FALSE;
+            default:
+               if (class2 == NULL)
+               {
+                  return null;
+               }
+               if (class2 != class1)
+               {
+                  throw badObject(class1, class2, op);
+               }
+               return !arg1.equals(arg2);
+         }
+      }
+   }
+
+   static final class NotExpression extends OperatorExpression
+   {
+      private final Expression operand;
+
+      NotExpression(final Operator op, final Expression operand)
+      {
+         super(op);
+         this.operand = operand;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg = operand.evaluate(message);
+         int type = typeOf(arg, op);
+         if (type == NULL)
+         {
+            return null;
+         }
+         if (type != Operator.BOOLEAN)
+         {
+            throw badObject(type, op);
+         }
+         return !(Boolean)arg;
+      }
+   }
+
+   static final class AndExpression extends OperatorExpression
+   {
+      private final Expression left;
+
+      private final Expression right;
+
+      AndExpression(final Operator op, final Expression left, final Expression right)
+      {
+         super(op);
+         this.left = left;
+         this.right = right;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg1 = left.evaluate(message);
+         int class1 = typeOf(arg1, op);
+
+         if (class1 == NULL)
+         {
+            Object arg2 = right.evaluate(message);
+            int class2 = typeOf(arg2, op);
+            if (class2 == NULL)
+            {
+               return null;
+            }
+            if (class2 != Operator.BOOLEAN)
+            {
+               throw badObject(class2, op);
+            }
+            return (Boolean)arg2 ? null : Boolean.FALSE;
+         }
+
+         if (class1 != Operator.BOOLEAN)
+         {
+            throw badObject(class1, op);
+         }
+
+         if (!(Boolean)arg1)
+         {
+            return Boolean.FALSE;
+         }
+
+         Object arg2 = right.evaluate(message);
+         int class2 = typeOf(arg2, op);
+         if (class2 == NULL)
+         {
+            return null;
+         }
+         if (class2 != Operator.BOOLEAN)
+         {
+            throw badObject(class2, op);
+         }
+         return arg2;
+      }
+
+      @Override
+      IndexableCondition getIndexableCondition()
+      {
+         IndexableCondition condition = left.getIndexableCondition();
+         IndexableCondition other = right.getIndexableCondition();
+
+         // equalities select less than ranges
+         if (condition == null || other != null && condition.getType() != IndexableCondition.Type.EQUAL &&
+             other.getType() == IndexableCondition.Type.EQUAL)
+         {
+            condition = other;
+         }
+
+         return condition == null ? null : condition.inexact();
+      }
+   }
+
+   static final class OrExpression extends OperatorExpression
+   {
+      private final Expression left;
+
+      private final Expression right;
+
+      OrExpression(final Operator op, final Expression left, final Expression right)
+      {
+         super(op);
+         this.left = left;
+         this.right = right;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg1 = left.evaluate(message);
+         int class1 = typeOf(arg1, op);
+         if (class1 != NULL)
+         {
+            if (class1 != Operator.BOOLEAN)
+            {
+               throw badObject(class1, op);
+            }
+            if ((Boolean)arg1)
+            {
+               return Boolean.TRUE;
+            }
+         }
+
+         Object arg2 = right.evaluate(message);
+         int class2 = typeOf(arg2, op);
+         if (class2 != NULL)
+         {
+            if (class2 != Operator.BOOLEAN)
+            {
+               throw badObject(class2, op);
+            }
+            if ((Boolean)arg2)
+            {
+               return Boolean.TRUE;
+            }
+         }
+
+         if (class1 != NULL && class2 != NULL)
+         {
+            return Boolean.FALSE;
+         }
+
+         return null;
+      }
+   }
+
+   /**
+    * GT, GE, LT and LE: comparing anything else than numbers is false.
+    */
+   static final class ComparisonExpression extends OperatorExpression
+   {
+      private final int operation;
+
+      private final Expression left;
+
+      private final Expression right;
+
+      ComparisonExpression(final Operator op, final int operation, final Expression left, final Expression right)
+      {
+         super(op);
+         this.operation = operation;
+         this.left = left;
+         this.right = right;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg1 = left.evaluate(message);
+         int class1 = typeOf(arg1, op);
+         if (class1 == NULL)
+         {
+            return null;
+         }
+
+         if (!isNumeric(class1))
+         {
+            return Boolean.FALSE;
+         }
+
+         Object arg2 = right.evaluate(message);
+         int class2 = typeOf(arg2, op);
+         if (class2 == NULL)
+         {
+            return null;
+         }
+
+         if (!isNumeric(class2))
+         {
+            return Boolean.FALSE;
+         }
+
+         int cmp;
+         if (class1 == Operator.LONG && class2 == Operator.LONG)
+         {
+            long l1 = ((Number)arg1).longValue();
+            long l2 = ((Number)arg2).longValue();
+            cmp = l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+         }
+         else
+         {
+            double d1 = class1 == Operator.LONG ? ((Number)arg1).longValue() : ((Number)arg1).doubleValue();
+            double d2 = class2 == Operator.LONG ? ((Number)arg2).longValue() : ((Number)arg2).doubleValue();
+            if (d1 < d2)
+            {
+               cmp = -1;
+            }
+            else if (d1 > d2)
+            {
+               cmp = 1;
+            }
+            else if (d1 == d2)
+            {
+               cmp = 0;
+            }
+            else
+            {
+               // NaN
+               return Boolean.FALSE;
+            }
+         }
+
+         switch (operation)
+         {
+            case Operator.GT:
+               return cmp > 0;
+            case Operator.GE:
+               return cmp >= 0;
+            case Operator.LT:
+               return cmp < 0;
+            default:
+               return cmp <= 0;
+         }
+      }
+
+      @Override
+      IndexableCondition getIndexableCondition()
+      {
+         boolean lower = operation == Operator.GT || operation == Operator.GE;
+         SimpleString property = propertyOf(left);
+         Object literal = literalOf(right);
+         if (property == null)
+         {
+            // 5 < x is x > 5
+            property = propertyOf(right);
+            literal = literalOf(left);
+            lower = !lower;
+         }
+         if (property == null)
+         {
+            return null;
+         }
+         return IndexableCondition.range(property, lower ? IndexableCondition.Type.LOWER_BOUND
+                                                        : IndexableCondition.Type.UPPER_BOUND, literal);
+      }
+   }
+
+   static final class BetweenExpression extends Expression
+   {
+      private final Expression lower;
+
+      private final Expression upper;
+
+      BetweenExpression(final Expression lower, final Expression upper)
+      {
+         this.lower = lower;
+         this.upper = upper;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object res = lower.evaluate(message);
+         if (res == null || !(Boolean)res)
+         {
+            return res;
+         }
+         return upper.evaluate(message);
+      }
+
+      @Override
+      IndexableCondition getIndexableCondition()
+      {
+         return lower.getIndexableCondition();
+      }
+   }
+
+   static final class NotBetweenExpression extends Expression
+   {
+      private final Expression lower;
+
+      private final Expression upper;
+
+      NotBetweenExpression(final Expression lower, final Expression upper)
+      {
+         this.lower = lower;
+         this.upper = upper;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object res = lower.evaluate(message);
+         if (res == null || (Boolean)res)
+         {
+            return res;
+         }
+         return upper.evaluate(message);
+      }
+   }
+
+   static final class NegExpression extends OperatorExpression
+   {
+      private final Expression operand;
+
+      NegExpression(final Operator op, final Expression operand)
+      {
+         super(op);
+         this.operand = operand;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg = operand.evaluate(message);
+         int type = typeOf(arg, op);
+         switch (type)
+         {
+            case NULL:
+               return null;
+            case Operator.DOUBLE:
+               return Double.valueOf(-((Number)arg).doubleValue());
+            case Operator.LONG:
+               return Long.valueOf(-((Number)arg).longValue());
+            default:
+               throw badObject(type, op);
+         }
+      }
+   }
+
+   /**
+    * ADD, SUB, MUL and DIV.
+    */
+   static final class ArithmeticExpression extends OperatorExpression
+   {
+      private final int operation;
+
+      private final Expression left;
+
+      private final Expression right;
+
+      ArithmeticExpression(final Operator op, final int operation, final Expression left, final Expression right)
+      {
+         super(op);
+         this.operation = operation;
+         this.left = left;
+         this.right = right;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg1 = left.evaluate(message);
+         int class1 = typeOf(arg1, op);
+         Object arg2 = right.evaluate(message);
+         int class2 = typeOf(arg2, op);
+
+         if (class1 == NULL || class2 == NULL)
+         {
+            return null;
+         }
+         if (!isNumeric(class1))
+         {
+            throw badObject(class1, op);
+         }
+         if (!isNumeric(class2))
+         {
+            throw badObject(class2, op);
+         }
+
+         if (class1 == Operator.LONG && class2 == Operator.LONG)
+         {
+            long l1 = ((Number)arg1).longValue();
+            long l2 = ((Number)arg2).longValue();
+            switch (operation)
+            {
+               case Operator.SUB:
+                  return Long.valueOf(l1 - l2);
+               case Operator.MUL:
+                  return Long.valueOf(l1 * l2);
+               case Operator.DIV:
+                  return Long.valueOf(l1 / l2);
+               default:
+                  return Long.valueOf(l1 + l2);
+            }
+         }
+
+         double d1 = ((Number)arg1).doubleValue();
+         double d2 = ((Number)arg2).doubleValue();
+         switch (operation)
+         {
+            case Operator.SUB:
+               return Double.valueOf(d1 - d2);
+            case Operator.MUL:
+               return Double.valueOf(d1 * d2);
+            case Operator.DIV:
+               return Double.valueOf(d1 / d2);
+            default:
+               return Double.valueOf(d1 + d2);
+         }
+      }
+   }
+
+   static final class LikeExpression extends OperatorExpression
+   {
+      private final Expression value;
+
+      private final RegExp regExp;
+
+      private final Exception error;
+
+      private final boolean not;
+
+      LikeExpression(final Operator op,
+                     final Expression value,
+                     final RegExp regExp,
+                     final Exception error,
+                     final boolean not)
+      {
+         super(op);
+         this.value = value;
+         this.regExp = regExp;
+         this.error = error;
+         this.not = not;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg = value.evaluate(message);
+         int type = typeOf(arg, op);
+         if (type == NULL)
+         {
+            return null;
+         }
+         if (type != Operator.SIMPLE_STRING)
+         {
+            throw badObject(type, op);
+         }
+         if (error != null)
+         {
+            throw error;
+         }
+         return regExp.isMatch(arg) != not;
+      }
+   }
+
+   /**
+    * LIKE on a pattern which isn't a literal. The parser doesn't produce those, but {@link Operator}
+    * supports them so we do too.
+    */
+   static final class DynamicLikeExpression extends OperatorExpression
+   {
+      private final Expression value;
+
+      private final Expression pattern;
+
+      private final Expression escape;
+
+      private final boolean not;
+
+      DynamicLikeExpression(final Operator op,
+                            final Expression value,
+                            final Expression pattern,
+                            final Expression escape,
+                            final boolean not)
+      {
+         super(op);
+         this.value = value;
+         this.pattern = pattern;
+         this.escape = escape;
+         this.not = not;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg1 = value.evaluate(message);
+         int class1 = typeOf(arg1, op);
+         if (class1 == NULL)
+         {
+            return null;
+         }
+         if (class1 != Operator.SIMPLE_STRING)
+         {
+            throw badObject(class1, op);
+         }
+
+         Object arg2 = pattern.evaluate(message);
+         int class2 = typeOf(arg2, op);
+         if (class2 == NULL)
+         {
+            return Boolean.FALSE;
+         }
+         if (class2 != Operator.SIMPLE_STRING)
+         {
+            throw badObject(class2, op);
+         }
+
+         Object arg3 = null;
+         if (escape != null)
+         {
+            arg3 = escape.evaluate(message);
+            int class3 = typeOf(arg3, op);
+            if (class3 == NULL)
+            {
+               return null;
+            }
+            if (class3 != Operator.SIMPLE_STRING)
+            {
+               throw badObject(class3, op);
+            }
+         }
+
+         return newRegExp(arg2, arg3).isMatch(arg1) != not;
+      }
+   }
+
+   static final class IsNullExpression extends OperatorExpression
+   {
+      private final Expression operand;
+
+      private final boolean not;
+
+      IsNullExpression(final Operator op, final Expression operand, final boolean not)
+      {
+         super(op);
+         this.operand = operand;
+         this.not = not;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         return (typeOf(operand.evaluate(message), op) == NULL) != not;
+      }
+   }
+
+   static final class InExpression extends OperatorExpression
+   {
+      private final Expression operand;
+
+      private final Set<?> values;
+
+      private final boolean not;
+
+      InExpression(final Operator op, final Expression operand, final Set<?> values, final boolean not)
+      {
+         super(op);
+         this.operand = operand;
+         this.values = values;
+         this.not = not;
+      }
+
+      @Override
+      Object evaluate(final ServerMessage message) throws Exception
+      {
+         Object arg = operand.evaluate(message);
+         int type = typeOf(arg, op);
+         if (type == NULL)
+         {
+            return not ? null : Boolean.FALSE;
+         }
+         if (type != Operator.SIMPLE_STRING)
+         {
+            throw badObject(type, op);
+         }
+         return values.contains(arg) != not;
+      }
+
+      @Override
+      IndexableCondition getIndexableCondition()
+      {
+         SimpleString property = propertyOf(operand);
+         if (not || property == null)
+         {
+            return null;
+         }
+         return IndexableCondition.equal(property, values);
+      }
+   }
+}
@@ -14,9 +14,7 @@
 package org.hornetq.core.filter.impl;
 
 import java.util.HashMap;
-import java.util.Map;
 
-import org.hornetq.api.core.FilterConstants;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
@@ -62,11 +60,7 @@ public class FilterImpl implements Filter
 
    private final SimpleString sfilterString;
 
-   private final Map<SimpleString, Identifier> identifiers;
-
-   private final Object result;
-
-   private final Class<? extends Object> resultType;
+   private final FilterCompiler.Expression expression;
 
    // Static ---------------------------------------------------------
 
@@ -91,28 +85,35 @@ public class FilterImpl implements Filter
       }
 
       HashMap<SimpleString, Identifier> identifierMap = new HashMap<SimpleString, Identifier>();
-      Object result0;
+      FilterCompiler.Expression expression;
       try
       {
-         result0 = new FilterParser().parse(filterStr, identifierMap);
+         Object result = new FilterParser().parse(filterStr, identifierMap);
+         expression = FilterCompiler.compile(result);
       }
       catch (Throwable e)
       {
          HornetQServerLogger.LOGGER.invalidFilter(e, filterStr);
          throw HornetQMessageBundle.BUNDLE.invalidFilter(e, filterStr);
       }
-      return new FilterImpl(filterStr, identifierMap, result0);
+      return new FilterImpl(filterStr, expression);
    }
 
    // Constructors ---------------------------------------------------
 
-   private FilterImpl(final SimpleString str, final HashMap<SimpleString, Identifier> identifierMap,
-                      final Object result0)
+   private FilterImpl(final SimpleString str, final FilterCompiler.Expression expression)
    {
       sfilterString = str;
-      identifiers = identifierMap;
-      this.result = result0;
-      resultType = result.getClass();
+      this.expression = expression;
+   }
+
+   /**
+    * @return a condition on a message property which holds whenever this filter matches, or null
+    *         if the filter can't be indexed
+    */
+   public IndexableCondition getIndexableCondition()
+   {
+      return expression.getIndexableCondition();
    }
 
    // Filter implementation ---------------------------------------------------------------------
@@ -122,55 +123,14 @@ public class FilterImpl implements Filter
       return sfilterString;
    }
 
-   public synchronized boolean match(final ServerMessage message)
+   /**
+    * The compiled expression is immutable, so this can be called concurrently.
+    */
+   public boolean match(final ServerMessage message)
    {
       try
       {
-         // Set the identifiers values
-
-         for (Identifier id : identifiers.values())
-         {
-            Object val = null;
-
-            if (id.getName().startsWith(FilterConstants.HORNETQ_PREFIX))
-            {
-               // Look it up as header fields
-               val = getHeaderFieldValue(message, id.getName());
-            }
-
-            if (val == null)
-            {
-               val = message.getObjectProperty(id.getName());
-            }
-
-            id.setValue(val);
-
-         }
-
-         if (resultType.equals(Identifier.class))
-         {
-            return (Boolean)((Identifier)result).getValue();
-         }
-         else if (resultType.equals(Operator.class))
-         {
-            Operator op = (Operator)result;
-            Object result = op.apply();
-            if (result == null)
-            {
-               // https://issues.jboss.org/browse/HORNETQ-1188 -
-               // if this was going to NPE anyways, we just return false
-               // invalid properties will just fail the query
-               return false;
-            }
-            else
-            {
-               return (Boolean)result;
-            }
-         }
-         else
-         {
-            throw new Exception("Bad object type: " + result);
-         }
+         return expression.match(message);
       }
       catch (Exception e)
       {
@@ -214,39 +174,4 @@ public class FilterImpl implements Filter
    {
       return "FilterImpl [sfilterString=" + sfilterString + "]";
    }
-
-   // Private --------------------------------------------------------------------------
-
-   private Object getHeaderFieldValue(final ServerMessage msg, final SimpleString fieldName)
-   {
-      if (FilterConstants.HORNETQ_USERID.equals(fieldName))
-      {
-         // It's the stringified (hex) representation of a user id that can be used in a selector expression
-         return new SimpleString("ID:" + msg.getUserID());
-      }
-      else if (FilterConstants.HORNETQ_PRIORITY.equals(fieldName))
-      {
-         return Integer.valueOf(msg.getPriority());
-      }
-      else if (FilterConstants.HORNETQ_TIMESTAMP.equals(fieldName))
-      {
-         return msg.getTimestamp();
-      }
-      else if (FilterConstants.HORNETQ_DURABLE.equals(fieldName))
-      {
-         return msg.isDurable() ? FilterConstants.DURABLE : FilterConstants.NON_DURABLE;
-      }
-      else if (FilterConstants.HORNETQ_EXPIRATION.equals(fieldName))
-      {
-         return msg.getExpiration();
-      }
-      else if (FilterConstants.HORNETQ_SIZE.equals(fieldName))
-      {
-         return msg.getEncodeSize();
-      }
-      else
-      {
-         return null;
-      }
-   }
 }
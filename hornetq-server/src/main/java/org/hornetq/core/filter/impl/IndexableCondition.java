@@ -0,0 +1,223 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.filter.impl;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.hornetq.api.core.SimpleString;
+
+/**
+ * A condition on a single message property that must hold for a filter to match.
+ * <p>
+ * It is used to index filters: a message whose property does not satisfy the condition can not
+ * match the filter, so the filter doesn't need to be evaluated. When the condition is
+ * {@link #isExact() exact} the filter matches if and only if the condition holds.
+ *
+ * @see FilterImpl#getIndexableCondition()
+ */
+public final class IndexableCondition
+{
+   public enum Type
+   {
+      /**
+       * The property {@link #keyOf(Object) key} is one of {@link IndexableCondition#getKeys()}.
+       */
+      EQUAL,
+
+      /**
+       * The property is a number greater than (or equal to) {@link IndexableCondition#getBound()}.
+       */
+      LOWER_BOUND,
+
+      /**
+       * The property is a number lower than (or equal to) {@link IndexableCondition#getBound()}.
+       */
+      UPPER_BOUND
+   }
+
+   /**
+    * Above this, longs can't all be represented as doubles and the filters compare longs with
+    * doubles as doubles.
+    */
+   private static final double MAX_EXACT_DOUBLE = 9007199254740992d;
+
+   private final SimpleString property;
+
+   private final Type type;
+
+   private final Set<Object> keys;
+
+   private final double bound;
+
+   private final boolean exact;
+
+   private IndexableCondition(final SimpleString property,
+                              final Type type,
+                              final Set<Object> keys,
+                              final double bound,
+                              final boolean exact)
+   {
+      this.property = property;
+      this.type = type;
+      this.keys = keys;
+      this.bound = bound;
+      this.exact = exact;
+   }
+
+   static IndexableCondition equal(final SimpleString property, final Set<?> values)
+   {
+      Set<Object> keys = new HashSet<Object>();
+      for (Object value : values)
+      {
+         Object key = keyOf(value);
+         if (key == null)
+         {
+            return null;
+         }
+         keys.add(key);
+      }
+      return new IndexableCondition(property, Type.EQUAL, Collections.unmodifiableSet(keys), 0, true);
+   }
+
+   static IndexableCondition range(final SimpleString property, final Type type, final Object bound)
+   {
+      if (!(bound instanceof Number))
+      {
+         return null;
+      }
+      double value = ((Number)bound).doubleValue();
+      if (Double.isNaN(value))
+      {
+         return null;
+      }
+      // ranges are compared as doubles, ties are not decided here
+      return new IndexableCondition(property, type, null, value, false);
+   }
+
+   /**
+    * @return a copy of this condition which doesn't imply that the filter matches
+    */
+   IndexableCondition inexact()
+   {
+      return exact ? new IndexableCondition(property, type, keys, bound, false) : this;
+   }
+
+   /**
+    * Normalizes a property value so that two values a filter considers equal have equal keys.
+    * <p>
+    * Numbers are compared by value whatever their type (an int 5 is equal to a double 5.0), and
+    * strings and booleans only equal values of the same type.
+    *
+    * @return the key, or null if the value can't be indexed
+    */
+   public static Object keyOf(final Object value)
+   {
+      if (value == null)
+      {
+         return null;
+      }
+
+      Class<?> clazz = value.getClass();
+
+      if (clazz == SimpleString.class || clazz == Boolean.class)
+      {
+         return value;
+      }
+      else if (clazz == Long.class)
+      {
+         return value;
+      }
+      else if (clazz == Integer.class || clazz == Short.class || clazz == Byte.class)
+      {
+         return Long.valueOf(((Number)value).longValue());
+      }
+      else if (clazz == Double.class || clazz == Float.class)
+      {
+         double d = ((Number)value).doubleValue();
+         if (Double.isNaN(d))
+         {
+            return null;
+         }
+         if (d == Math.rint(d) && Math.abs(d) < MAX_EXACT_DOUBLE)
+         {
+            return Long.valueOf((long)d);
+         }
+         return Double.valueOf(d);
+      }
+      else
+      {
+         return null;
+      }
+   }
+
+   /**
+    * @return true if the value of a literal can be used in an equality index
+    */
+   static boolean isIndexableLiteral(final Object value)
+   {
+      if (value instanceof Number)
+      {
+         return Math.abs(((Number)value).doubleValue()) < MAX_EXACT_DOUBLE;
+      }
+      return keyOf(value) != null;
+   }
+
+   public SimpleString getProperty()
+   {
+      return property;
+   }
+
+   public Type getType()
+   {
+      return type;
+   }
+
+   /**
+    * @return the keys of the values of the property which satisfy an {@link Type#EQUAL} condition
+    */
+   public Set<Object> getKeys()
+   {
+      return keys;
+   }
+
+   /**
+    * @return the bound of a {@link Type#LOWER_BOUND} or {@link Type#UPPER_BOUND} condition
+    */
+   public double getBound()
+   {
+      return bound;
+   }
+
+   /**
+    * @return true if the filter matches whenever the condition holds
+    */
+   public boolean isExact()
+   {
+      return exact;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "IndexableCondition [property=" + property +
+             ", type=" +
+             type +
+             (type == Type.EQUAL ? ", keys=" + keys : ", bound=" + bound) +
+             ", exact=" +
+             exact +
+             "]";
+   }
+}
@@ -192,6 +192,19 @@ public class AddressControlImpl extends AbstractControl implements AddressContro
       }
    }
 
+   public long getAddressSize() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return pagingManager.getPageStore(address).getAddressSize();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public boolean isPaging() throws Exception
    {
       clearIO();
@@ -227,6 +240,58 @@ public class AddressControlImpl extends AbstractControl implements AddressContro
       }
    }
 
+   public long getDuplicateIDCacheHits() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return postOffice.getDuplicateIDCache(address).getHits();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getDuplicateIDCacheMisses() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return postOffice.getDuplicateIDCache(address).getMisses();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getDuplicateIDCacheEvictions() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return postOffice.getDuplicateIDCache(address).getEvictions();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getDuplicateIDCacheExpirations() throws Exception
+   {
+      clearIO();
+      try
+      {
+         return postOffice.getDuplicateIDCache(address).getExpirations();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    @Override
    protected MBeanOperationInfo[] fillMBeanOperationInfo()
    {
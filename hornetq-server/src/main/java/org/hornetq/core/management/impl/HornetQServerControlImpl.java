@@ -45,6 +45,7 @@ import org.hornetq.api.core.management.DivertControl;
 import org.hornetq.api.core.management.HornetQServerControl;
 import org.hornetq.api.core.management.NotificationType;
 import org.hornetq.api.core.management.QueueControl;
+import org.hornetq.core.buffers.impl.BufferPool;
 import org.hornetq.core.config.BridgeConfiguration;
 import org.hornetq.core.config.Configuration;
 import org.hornetq.core.config.DivertConfiguration;
@@ -55,6 +56,7 @@ import org.hornetq.core.persistence.config.PersistedAddressSetting;
 import org.hornetq.core.persistence.config.PersistedRoles;
 import org.hornetq.core.postoffice.PostOffice;
 import org.hornetq.core.remoting.server.RemotingService;
+import org.hornetq.core.replication.ReplicationManager;
 import org.hornetq.core.security.CheckType;
 import org.hornetq.core.security.Role;
 import org.hornetq.core.server.HornetQMessageBundle;
@@ -181,6 +183,98 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public long getReplicationLagBytes()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         ReplicationManager replicationManager = server.getReplicationManager();
+         return replicationManager == null ? 0 : replicationManager.getLagBytes();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getReplicationLagOperations()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         ReplicationManager replicationManager = server.getReplicationManager();
+         return replicationManager == null ? 0 : replicationManager.getLagOperations();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getBufferPoolPooledBytes()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return BufferPool.getInstance().getPooledBytes();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getBufferPoolUsedBytes()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return BufferPool.getInstance().getUsedBytes();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getBufferPoolAllocations()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return BufferPool.getInstance().getAllocations();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getBufferPoolReuses()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return BufferPool.getInstance().getReuses();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public String getBindingsDirectory()
    {
       checkStarted();
@@ -443,6 +537,36 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public long getGlobalSize()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return server.getPagingManager().getGlobalSize();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getGlobalMaxSize()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return server.getPagingManager().getGlobalMaxSize();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public int getScheduledThreadPoolMaxSize()
    {
       checkStarted();
@@ -758,6 +882,51 @@ public class HornetQServerControlImpl extends AbstractControl implements HornetQ
       }
    }
 
+   public int getScheduledMessageCount()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return server.getScheduledDeliveryWheel().getScheduledCount();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getScheduledDeliveryAverageLag()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return server.getScheduledDeliveryWheel().getAverageLag();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getScheduledDeliveryMaxLag()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         return server.getScheduledDeliveryWheel().getMaxLag();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public void enableMessageCounters()
    {
       checkStarted();
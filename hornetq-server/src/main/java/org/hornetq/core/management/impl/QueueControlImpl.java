@@ -18,6 +18,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.MBeanOperationInfo;
 
@@ -41,6 +43,7 @@ import org.hornetq.core.server.ServerConsumer;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.impl.AddressSettings;
 import org.hornetq.utils.LinkedListIterator;
+import org.hornetq.utils.OrderedExecutorFactory.OrderedExecutor;
 import org.hornetq.utils.json.JSONArray;
 import org.hornetq.utils.json.JSONException;
 import org.hornetq.utils.json.JSONObject;
@@ -242,6 +245,74 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
       }
    }
 
+   public int getExecutorPendingTasks()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         OrderedExecutor executor = getOrderedExecutor();
+
+         return executor == null ? 0 : executor.getPendingTasks();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getExecutorCompletedTasks()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         OrderedExecutor executor = getOrderedExecutor();
+
+         return executor == null ? 0 : executor.getExecutedTasks();
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getExecutorAverageTaskLatency()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         OrderedExecutor executor = getOrderedExecutor();
+
+         return executor == null ? 0 : TimeUnit.NANOSECONDS.toMicros(executor.getAverageTaskLatency());
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
+   public long getExecutorRunTime()
+   {
+      checkStarted();
+
+      clearIO();
+      try
+      {
+         OrderedExecutor executor = getOrderedExecutor();
+
+         return executor == null ? 0 : TimeUnit.NANOSECONDS.toMillis(executor.getRunTime());
+      }
+      finally
+      {
+         blockOnIO();
+      }
+   }
+
    public long getMessagesAdded()
    {
       checkStarted();
@@ -951,6 +1022,16 @@ public class QueueControlImpl extends AbstractControl implements QueueControl
 
    // Private -------------------------------------------------------
 
+   /**
+    * @return the executor of the queue, or null if it keeps no statistics
+    */
+   private OrderedExecutor getOrderedExecutor()
+   {
+      Executor executor = queue.getExecutor();
+
+      return executor instanceof OrderedExecutor ? (OrderedExecutor)executor : null;
+   }
+
    private void checkStarted()
    {
       if (!postOffice.isStarted())
@@ -79,6 +79,35 @@ public interface PagingManager extends HornetQComponent, HierarchicalRepositoryC
 
    void resumeCleanup();
 
+   /**
+    * Adds to the memory used by the messages of all the addresses, as the memory used by one of them changes.
+    * @param size the bytes added, negative if removed
+    * @param addressSize the memory used by the address once the bytes were added
+    */
+   void addGlobalSize(int size, long addressSize);
+
+   /**
+    * Returns the memory used by the messages of all the addresses.
+    */
+   long getGlobalSize();
+
+   /**
+    * Returns the maximum memory the messages of all the addresses may use together, -1 for no limit.
+    */
+   long getGlobalMaxSize();
+
+   /**
+    * Returns whether an address using the given memory has to page, drop or block because of the global
+    * budget, that is if all the addresses use more than it and this one uses more than its share of it.
+    */
+   boolean isGlobalFull(long addressSize);
+
+   /**
+    * Called by a store blocking producers because of the global budget, so it is told once memory is freed.
+    * @see PagingStore#globalMemoryFreed()
+    */
+   void blockedOnGlobalSize(PagingStore store);
+
    /**
     * Lock the manager. This method should not be called during normal PagingManager usage.
     */
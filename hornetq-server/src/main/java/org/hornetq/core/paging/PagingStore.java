@@ -117,6 +117,13 @@ public interface PagingStore extends HornetQComponent
 
    boolean checkMemory(Runnable runnable);
 
+   /**
+    * Releases the producers blocked on this store if it is no longer full, as the memory used by the messages
+    * of all the addresses went below the global budget.
+    * @see PagingManager#blockedOnGlobalSize(PagingStore)
+    */
+   void globalMemoryFreed();
+
    /**
     * Write lock the PagingStore.
     * @param timeout milliseconds to wait for the lock. If value is {@literal -1} then wait
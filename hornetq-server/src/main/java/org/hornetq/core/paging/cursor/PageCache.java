@@ -29,6 +29,11 @@ public interface PageCache extends SoftValueHashMap.ValueCache
 
    int getNumberOfMessages();
 
+   /**
+    * @return the size of the cached messages as they are encoded on the page file
+    */
+   long getSizeInBytes();
+
    void setMessages(PagedMessage[] messages);
 
    PagedMessage[] getMessages();
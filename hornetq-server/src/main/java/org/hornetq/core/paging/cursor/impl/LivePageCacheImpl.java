@@ -36,6 +36,8 @@ public class LivePageCacheImpl implements LivePageCache
 
    private boolean isLive = true;
 
+   private long sizeInBytes;
+
    public LivePageCacheImpl(final Page page)
    {
       this.page = page;
@@ -102,6 +104,13 @@ public class LivePageCacheImpl implements LivePageCache
          ((LargeServerMessage)message.getMessage()).incrementDelayDeletionCount();
       }
       this.messages.add(message);
+      this.sizeInBytes += message.getEncodeSize() + Page.SIZE_RECORD;
+   }
+
+   @Override
+   public synchronized long getSizeInBytes()
+   {
+      return sizeInBytes;
    }
 
    @Override
@@ -38,6 +38,8 @@ class PageCacheImpl implements PageCache
 
    private PagedMessage[] messages;
 
+   private long sizeInBytes;
+
    private final Page page;
 
    // Static --------------------------------------------------------
@@ -89,9 +91,20 @@ class PageCacheImpl implements PageCache
 
    public void setMessages(final PagedMessage[] messages)
    {
+      long size = 0;
+      for (PagedMessage message : messages)
+      {
+         size += message.getEncodeSize() + Page.SIZE_RECORD;
+      }
+      this.sizeInBytes = size;
       this.messages = messages;
    }
 
+   public long getSizeInBytes()
+   {
+      return sizeInBytes;
+   }
+
    public int getNumberOfMessages()
    {
       lock.readLock().lock();
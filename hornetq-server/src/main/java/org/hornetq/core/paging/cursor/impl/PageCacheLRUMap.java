@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.paging.cursor.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.hornetq.core.paging.cursor.PageCache;
+import org.hornetq.core.server.HornetQServerLogger;
+
+/**
+ * The page caches of a {@link PageCursorProviderImpl}, by page ID.
+ * <p>
+ * Once the cached messages take more than the maximum size, the least recently used caches are
+ * evicted until they fit again. The cache of the page being written (a live cache) is never
+ * evicted, as it is still being filled. As the size of a cache is only known once its page is read,
+ * {@link #checkSize()} must be called after a cache is filled.
+ * <p>
+ * This isn't thread safe, the callers synchronize on it.
+ */
+final class PageCacheLRUMap
+{
+   private final boolean isTrace = HornetQServerLogger.LOGGER.isTraceEnabled();
+
+   // in access order, so the first entry is the least recently used
+   private final LinkedHashMap<Long, PageCache> caches = new LinkedHashMap<Long, PageCache>(16, 0.75f, true);
+
+   private long maxSizeInBytes;
+
+   PageCacheLRUMap(final long maxSizeInBytes)
+   {
+      this.maxSizeInBytes = maxSizeInBytes;
+   }
+
+   public void setMaxSizeInBytes(final long maxSizeInBytes)
+   {
+      this.maxSizeInBytes = maxSizeInBytes;
+      checkSize();
+   }
+
+   public long getMaxSizeInBytes()
+   {
+      return maxSizeInBytes;
+   }
+
+   /**
+    * @return the cache of the page, which becomes the most recently used, or null if it isn't cached
+    */
+   public PageCache get(final long pageId)
+   {
+      return caches.get(pageId);
+   }
+
+   public void put(final PageCache cache)
+   {
+      caches.put(cache.getPageId(), cache);
+      checkSize();
+   }
+
+   public PageCache remove(final long pageId)
+   {
+      return caches.remove(pageId);
+   }
+
+   public int size()
+   {
+      return caches.size();
+   }
+
+   public void clear()
+   {
+      caches.clear();
+   }
+
+   public Collection<PageCache> values()
+   {
+      return new ArrayList<PageCache>(caches.values());
+   }
+
+   /**
+    * @return the size of the cached messages
+    */
+   public long getSizeInBytes()
+   {
+      long size = 0;
+      for (PageCache cache : caches.values())
+      {
+         size += cache.getSizeInBytes();
+      }
+      return size;
+   }
+
+   /**
+    * Evicts the least recently used caches while the cached messages take more than the maximum size.
+    */
+   public void checkSize()
+   {
+      long size = getSizeInBytes();
+
+      Iterator<PageCache> iterator = caches.values().iterator();
+
+      while (size > maxSizeInBytes && iterator.hasNext())
+      {
+         PageCache cache = iterator.next();
+
+         if (!cache.isLive())
+         {
+            if (isTrace)
+            {
+               HornetQServerLogger.LOGGER.trace("Evicting " + cache + " from the page cache, as the cache takes " +
+                                                size + " bytes");
+            }
+            size -= cache.getSizeInBytes();
+            iterator.remove();
+         }
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "PageCacheLRUMap [size=" + caches.size() + ", maxSizeInBytes=" + maxSizeInBytes + "]";
+   }
+}
@@ -36,7 +36,7 @@ import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.transaction.Transaction;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.utils.FutureLatch;
-import org.hornetq.utils.SoftValueHashMap;
+
 /**
  * A PageProviderIMpl
  *
@@ -69,7 +69,14 @@ public class PageCursorProviderImpl implements PageCursorProvider
    // This is the same executor used at the PageStoreImpl. One Executor per pageStore
    private final Executor executor;
 
-   private final SoftValueHashMap<Long, PageCache> softCache;
+   private final PageCacheLRUMap caches;
+
+   /**
+    * The position of the messages on the pages which were read a message at a time
+    */
+   private final ConcurrentMap<Long, int[]> pageIndexes = new ConcurrentHashMap<Long, int[]>();
+
+   private int maxCacheSize;
 
    private final ConcurrentMap<Long, PageSubscription> activeCursors = new ConcurrentHashMap<Long, PageSubscription>();
 
@@ -85,7 +92,8 @@ public class PageCursorProviderImpl implements PageCursorProvider
       this.pagingStore = pagingStore;
       this.storageManager = storageManager;
       this.executor = executor;
-      this.softCache = new SoftValueHashMap<Long, PageCache>(maxCacheSize);
+      this.maxCacheSize = maxCacheSize;
+      this.caches = new PageCacheLRUMap(getMaxCacheSizeInBytes());
    }
 
    // Public --------------------------------------------------------
@@ -115,9 +123,28 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    public PagedMessage getMessage(final PagePosition pos)
    {
-      PageCache cache = getPageCache(pos.getPageNr());
+      PageCache cache;
 
-      if (cache == null || pos.getMessageNr() >= cache.getNumberOfMessages())
+      synchronized (caches)
+      {
+         cache = caches.get(pos.getPageNr());
+      }
+
+      if (cache == null)
+      {
+         // The page is not on cache, so instead of reading the whole page we only read this message
+         PagedMessage message = readMessage(pos);
+
+         if (message == null)
+         {
+            // sanity check, this should never happen unless there's a bug
+            throw new IllegalStateException("Invalid messageNumber passed = " + pos + " on page " + pos.getPageNr());
+         }
+
+         return message;
+      }
+
+      if (pos.getMessageNr() >= cache.getNumberOfMessages())
       {
          // sanity check, this should never happen unless there's a bug
          throw new IllegalStateException("Invalid messageNumber passed = " + pos + " on " + cache);
@@ -139,14 +166,14 @@ public class PageCursorProviderImpl implements PageCursorProvider
       {
          boolean needToRead = false;
          PageCache cache = null;
-         synchronized (softCache)
+         synchronized (caches)
          {
             if (pageId > pagingStore.getCurrentWritingPage())
             {
                return null;
             }
 
-            cache = softCache.get(pageId);
+            cache = caches.get(pageId);
             if (cache == null)
             {
                if (!pagingStore.checkPageFileExists((int)pageId))
@@ -163,7 +190,7 @@ public class PageCursorProviderImpl implements PageCursorProvider
                {
                   HornetQServerLogger.LOGGER.trace("adding " + pageId +  " into cursor = " + this.pagingStore.getAddress());
                }
-               softCache.put(pageId, cache);
+               caches.put(cache);
             }
          }
 
@@ -181,6 +208,12 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
                List<PagedMessage> pgdMessages = page.read(storageManager);
                cache.setMessages(pgdMessages.toArray(new PagedMessage[pgdMessages.size()]));
+
+               // the size of the cache is only known now
+               synchronized (caches)
+               {
+                  caches.checkSize();
+               }
             }
             finally
             {
@@ -209,31 +242,36 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    public void addPageCache(PageCache cache)
    {
-      synchronized (softCache)
+      synchronized (caches)
       {
-         softCache.put(cache.getPageId(), cache);
+         caches.put(cache);
       }
    }
 
    public void setCacheMaxSize(final int size)
    {
-      softCache.setMaxElements(size);
+      synchronized (caches)
+      {
+         maxCacheSize = size;
+         caches.setMaxSizeInBytes(getMaxCacheSizeInBytes());
+      }
    }
 
    public int getCacheSize()
    {
-      synchronized (softCache)
+      synchronized (caches)
       {
-         return softCache.size();
+         return caches.size();
       }
    }
 
    public void clearCache()
    {
-      synchronized (softCache)
+      synchronized (caches)
       {
-         softCache.clear();
+         caches.clear();
       }
+      pageIndexes.clear();
    }
 
    public void processReload() throws Exception
@@ -514,9 +552,9 @@ public class PageCursorProviderImpl implements PageCursorProvider
          {
             PageCache cache;
             PagedMessage[] pgdMessages;
-            synchronized (softCache)
+            synchronized (caches)
             {
-               cache = softCache.get((long)depagedPage.getPageId());
+               cache = caches.get(depagedPage.getPageId());
             }
 
             if (isTrace)
@@ -560,10 +598,11 @@ public class PageCursorProviderImpl implements PageCursorProvider
             depagedPage.delete(pgdMessages);
             onDeletePage(depagedPage);
 
-            synchronized (softCache)
+            synchronized (caches)
             {
-               softCache.remove((long)depagedPage.getPageId());
+               caches.remove(depagedPage.getPageId());
             }
+            pageIndexes.remove((long)depagedPage.getPageId());
          }
       }
       catch (Exception ex)
@@ -625,7 +664,7 @@ public class PageCursorProviderImpl implements PageCursorProvider
    public void printDebug()
    {
       System.out.println("Debug information for PageCursorProviderImpl:");
-      for (PageCache cache : softCache.values())
+      for (PageCache cache : caches.values())
       {
          System.out.println("Cache " + cache);
       }
@@ -643,6 +682,89 @@ public class PageCursorProviderImpl implements PageCursorProvider
 
    // Private -------------------------------------------------------
 
+   /**
+    * The cache holds up to {@code page-max-cache-size} pages worth of messages
+    */
+   private long getMaxCacheSizeInBytes()
+   {
+      return maxCacheSize * pagingStore.getPageSizeBytes();
+   }
+
+   /**
+    * Reads a single message from its page file, seeking straight to its position. The position of
+    * the messages is read the first time a message is read from a page, and kept until the page is
+    * deleted.
+    *
+    * @return the message, or null if there's no such message
+    */
+   private PagedMessage readMessage(final PagePosition pos)
+   {
+      final long pageId = pos.getPageNr();
+
+      if (pageId > pagingStore.getCurrentWritingPage() || pos.getMessageNr() < 0)
+      {
+         return null;
+      }
+
+      try
+      {
+         if (!pagingStore.checkPageFileExists((int)pageId))
+         {
+            return null;
+         }
+
+         Page page = pagingStore.createPage((int)pageId);
+
+         storageManager.beforePageRead();
+
+         try
+         {
+            page.open();
+
+            int[] offsets = pageIndexes.get(pageId);
+
+            if (offsets == null || pos.getMessageNr() >= offsets.length)
+            {
+               offsets = page.readIndex(storageManager);
+
+               // the page being written is still growing, so its index is only good for now
+               if (pageId < pagingStore.getCurrentWritingPage())
+               {
+                  pageIndexes.put(pageId, offsets);
+               }
+            }
+
+            if (pos.getMessageNr() >= offsets.length)
+            {
+               return null;
+            }
+
+            if (isTrace)
+            {
+               HornetQServerLogger.LOGGER.trace("Reading message " + pos + " from page " + pageId + " on address = " +
+                                                pagingStore.getAddress());
+            }
+
+            return page.readMessage(storageManager, offsets[pos.getMessageNr()]);
+         }
+         finally
+         {
+            try
+            {
+               page.close();
+            }
+            catch (Throwable ignored)
+            {
+            }
+            storageManager.afterPageRead();
+         }
+      }
+      catch (Exception e)
+      {
+         throw new RuntimeException("Couldn't complete paging due to an IO Exception on Paging - " + e.getMessage(), e);
+      }
+   }
+
    /**
     * This method is synchronized because we want it to be atomic with the cursors being used
     */
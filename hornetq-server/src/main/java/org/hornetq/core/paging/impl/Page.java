@@ -15,6 +15,7 @@ package org.hornetq.core.paging.impl;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -48,6 +49,16 @@ public final class Page implements Comparable<Page>
 
    private static final byte END_BYTE = (byte)'}';
 
+   /**
+    * The size of the buffer a page file is read with, a record larger than that is read with a buffer of its own size
+    */
+   private static final int READ_BUFFER_SIZE = 100 * 1024;
+
+   /**
+    * The size of the buffer a single message is read with, enough for most messages to be read at once
+    */
+   private static final int MESSAGE_READ_BUFFER_SIZE = 4 * 1024;
+
    // Attributes ----------------------------------------------------
 
    private final int pageId;
@@ -101,82 +112,163 @@ public final class Page implements Comparable<Page>
          HornetQServerLogger.LOGGER.debug("reading page " + this.pageId + " on address = " + storeName);
       }
 
+      ArrayList<PagedMessage> messages = new ArrayList<PagedMessage>();
+
+      readFile(storage, messages);
+
+      return messages;
+   }
+
+   /**
+    * Reads the position of every message on the page file, without decoding the messages.
+    * @return the position of each message on the file, by message number
+    * @see #readMessage(StorageManager, int)
+    */
+   public synchronized int[] readIndex(StorageManager storage) throws Exception
+   {
+      if (isDebug)
+      {
+         HornetQServerLogger.LOGGER.debug("indexing page " + this.pageId + " on address = " + storeName);
+      }
+
+      return readFile(storage, null);
+   }
+
+   /**
+    * Reads a single message, seeking straight to its position on the page file.
+    * @param offset the position of the message, as given by {@link #readIndex(StorageManager)}
+    */
+   public synchronized PagedMessage readMessage(StorageManager storage, int offset) throws Exception
+   {
       if (!file.isOpen())
       {
          throw HornetQMessageBundle.BUNDLE.invalidPageIO();
       }
 
-      ArrayList<PagedMessage> messages = new ArrayList<PagedMessage>();
-
-      size.set((int)file.size());
-      // Using direct buffer, as described on https://jira.jboss.org/browse/HORNETQ-467
-      ByteBuffer directBuffer = storage.allocateDirectBuffer((int)file.size());
+      PageReader reader = new PageReader(storage, file, MESSAGE_READ_BUFFER_SIZE);
 
       try
       {
+         HornetQBuffer fileBuffer = reader.read(offset, Page.SIZE_RECORD);
 
-         file.position(0);
-         file.read(directBuffer);
+         if (fileBuffer == null || fileBuffer.readByte() != Page.START_BYTE)
+         {
+            throw new IllegalStateException("There is no message at position " + offset + " on " + this);
+         }
 
-         directBuffer.rewind();
+         int messageSize = fileBuffer.readInt();
 
-         HornetQBuffer fileBuffer = HornetQBuffers.wrappedBuffer(directBuffer);
-         fileBuffer.writerIndex(fileBuffer.capacity());
+         fileBuffer = reader.read(offset, messageSize + Page.SIZE_RECORD);
 
-         while (fileBuffer.readable())
+         if (messageSize < 0 || fileBuffer == null)
          {
-            final int position = fileBuffer.readerIndex();
+            throw new IllegalStateException("There is no message at position " + offset + " on " + this);
+         }
+
+         fileBuffer.skipBytes(Page.SIZE_RECORD - DataConstants.SIZE_BYTE);
+
+         return decodeMessage(storage, fileBuffer);
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   /**
+    * Reads the records of the file a buffer at a time, instead of reading the whole file at once.
+    * @param messages where the decoded messages are added, or null to only read the position of the messages
+    * @return the position of each message on the file
+    */
+   private int[] readFile(final StorageManager storage, final List<PagedMessage> messages) throws Exception
+   {
+      if (!file.isOpen())
+      {
+         throw HornetQMessageBundle.BUNDLE.invalidPageIO();
+      }
+
+      int[] offsets = new int[16];
 
-            byte byteRead = fileBuffer.readByte();
+      int count = 0;
 
-            if (byteRead == Page.START_BYTE)
+      PageReader reader = new PageReader(storage, file, READ_BUFFER_SIZE);
+
+      size.set(reader.fileSize);
+
+      try
+      {
+         int position = 0;
+
+         while (position < reader.fileSize)
+         {
+            HornetQBuffer fileBuffer = reader.read(position, Page.SIZE_RECORD);
+
+            if (fileBuffer == null || fileBuffer.readByte() != Page.START_BYTE)
             {
-               if (fileBuffer.readerIndex() + DataConstants.SIZE_INT < fileBuffer.capacity())
-               {
-                  int messageSize = fileBuffer.readInt();
-                  int oldPos = fileBuffer.readerIndex();
-                  if (fileBuffer.readerIndex() + messageSize < fileBuffer.capacity() &&
-                           fileBuffer.getByte(oldPos + messageSize) == Page.END_BYTE)
-                  {
-                     PagedMessage msg = new PagedMessageImpl();
-                     msg.decode(fileBuffer);
-                     byte b = fileBuffer.readByte();
-                     if (b != Page.END_BYTE)
-                     {
-                        // Sanity Check: This would only happen if there is a bug on decode or any internal code, as
-                        // this
-                        // constraint was already checked
-                        throw new IllegalStateException("Internal error, it wasn't possible to locate END_BYTE " + b);
-                     }
-                     msg.initMessage(storage);
-                     if (isTrace)
-                     {
-                        HornetQServerLogger.LOGGER.trace("Reading message " + msg + " on pageId=" + this.pageId + " for address=" + storeName);
-                     }
-                     messages.add(msg);
-                  }
-                  else
-                  {
-                     markFileAsSuspect(file.getFileName(), position, messages.size());
-                     break;
-                  }
-               }
+               markFileAsSuspect(file.getFileName(), position, count);
+               break;
             }
-            else
+
+            int messageSize = fileBuffer.readInt();
+
+            int recordSize = messageSize + Page.SIZE_RECORD;
+
+            fileBuffer = messageSize < 0 ? null : reader.read(position, recordSize);
+
+            if (fileBuffer == null || fileBuffer.getByte(fileBuffer.readerIndex() + recordSize - 1) != Page.END_BYTE)
             {
-               markFileAsSuspect(file.getFileName(), position, messages.size());
+               markFileAsSuspect(file.getFileName(), position, count);
                break;
             }
+
+            if (messages != null)
+            {
+               fileBuffer.skipBytes(Page.SIZE_RECORD - DataConstants.SIZE_BYTE);
+
+               messages.add(decodeMessage(storage, fileBuffer));
+            }
+
+            if (count == offsets.length)
+            {
+               offsets = Arrays.copyOf(offsets, count * 2);
+            }
+
+            offsets[count++] = position;
+
+            position += recordSize;
          }
       }
       finally
       {
-         storage.freeDirectBuffer(directBuffer);
+         reader.close();
       }
 
-      numberOfMessages.set(messages.size());
+      numberOfMessages.set(count);
 
-      return messages;
+      return Arrays.copyOf(offsets, count);
+   }
+
+   /**
+    * Decodes the message of a record, with the buffer positioned after the record size
+    */
+   private PagedMessage decodeMessage(final StorageManager storage, final HornetQBuffer fileBuffer)
+   {
+      PagedMessage msg = new PagedMessageImpl();
+      msg.decode(fileBuffer);
+      byte b = fileBuffer.readByte();
+      if (b != Page.END_BYTE)
+      {
+         // Sanity Check: This would only happen if there is a bug on decode or any internal code, as
+         // this
+         // constraint was already checked
+         throw new IllegalStateException("Internal error, it wasn't possible to locate END_BYTE " + b);
+      }
+      msg.initMessage(storage);
+      if (isTrace)
+      {
+         HornetQServerLogger.LOGGER.trace("Reading message " + msg + " on pageId=" + this.pageId + " for address=" + storeName);
+      }
+      return msg;
    }
 
    public synchronized void write(final PagedMessage message) throws Exception
@@ -192,13 +284,7 @@ public final class Page implements Comparable<Page>
       HornetQBuffer wrap = HornetQBuffers.wrappedBuffer(buffer);
       wrap.clear();
 
-      wrap.writeByte(Page.START_BYTE);
-      wrap.writeInt(0);
-      int startIndex = wrap.writerIndex();
-      message.encode(wrap);
-      int endIndex = wrap.writerIndex();
-      wrap.setInt(1, endIndex - startIndex); // The encoded length
-      wrap.writeByte(Page.END_BYTE);
+      encodeRecord(message, wrap);
 
       buffer.rewind();
 
@@ -215,6 +301,79 @@ public final class Page implements Comparable<Page>
       storageManager.pageWrite(message, pageId);
    }
 
+   /**
+    * Writes the records of several messages with a single write on the file.
+    * @param records the records of the messages, as encoded by {@link #encodeRecord(PagedMessage)}
+    */
+   public synchronized void write(final List<PagedMessage> messages, final List<HornetQBuffer> records) throws Exception
+   {
+      if (!file.isOpen())
+      {
+
+         return;
+      }
+
+      int recordsSize = 0;
+
+      for (HornetQBuffer record : records)
+      {
+         recordsSize += record.writerIndex();
+      }
+
+      ByteBuffer buffer = fileFactory.newBuffer(recordsSize);
+
+      HornetQBuffer wrap = HornetQBuffers.wrappedBuffer(buffer);
+      wrap.clear();
+
+      for (HornetQBuffer record : records)
+      {
+         wrap.writeBytes(record, 0, record.writerIndex());
+      }
+
+      buffer.rewind();
+
+      file.writeDirect(buffer, false);
+
+      for (PagedMessage message : messages)
+      {
+         if (pageCache != null)
+         {
+            pageCache.addLiveMessage(message);
+         }
+
+         numberOfMessages.incrementAndGet();
+
+         storageManager.pageWrite(message, pageId);
+      }
+
+      size.addAndGet(buffer.limit());
+   }
+
+   /**
+    * Encodes the record of a message, so it can be done before the message is written to any page.
+    * @see #write(List, List)
+    */
+   public static HornetQBuffer encodeRecord(final PagedMessage message)
+   {
+      HornetQBuffer record = HornetQBuffers.fixedBuffer(message.getEncodeSize() + Page.SIZE_RECORD);
+
+      encodeRecord(message, record);
+
+      return record;
+   }
+
+   private static void encodeRecord(final PagedMessage message, final HornetQBuffer wrap)
+   {
+      int recordStart = wrap.writerIndex();
+      wrap.writeByte(Page.START_BYTE);
+      wrap.writeInt(0);
+      int startIndex = wrap.writerIndex();
+      message.encode(wrap);
+      int endIndex = wrap.writerIndex();
+      wrap.setInt(recordStart + 1, endIndex - startIndex); // The encoded length
+      wrap.writeByte(Page.END_BYTE);
+   }
+
    public void sync() throws Exception
    {
       file.sync();
@@ -375,4 +534,89 @@ public final class Page implements Comparable<Page>
    {
       return file;
    }
+
+   // Inner classes -------------------------------------------------
+
+   /**
+    * Reads a page file through a buffer, which is filled from the file as the records are read.
+    */
+   private static final class PageReader
+   {
+      private final StorageManager storage;
+
+      private final SequentialFile file;
+
+      private final int fileSize;
+
+      private final int bufferSize;
+
+      private ByteBuffer directBuffer;
+
+      private HornetQBuffer fileBuffer;
+
+      /**
+       * The position on the file of the first byte on the buffer
+       */
+      private int bufferPosition;
+
+      PageReader(final StorageManager storage, final SequentialFile file, final int bufferSize) throws Exception
+      {
+         this.storage = storage;
+         this.file = file;
+         this.fileSize = (int)file.size();
+         this.bufferSize = bufferSize;
+      }
+
+      /**
+       * Makes sure the given bytes of the file are on the buffer, reading them from the file if they aren't.
+       * @return the buffer, with the reader index at the given position, or null if the file ends before the given bytes
+       */
+      HornetQBuffer read(final int position, final int length) throws Exception
+      {
+         if (position < 0 || length < 0 || (long)position + length > fileSize)
+         {
+            return null;
+         }
+
+         if (fileBuffer == null || position < bufferPosition || position + length > bufferPosition + fileBuffer.writerIndex())
+         {
+            if (directBuffer == null || directBuffer.capacity() < length)
+            {
+               close();
+               // Using direct buffer, as described on https://jira.jboss.org/browse/HORNETQ-467
+               directBuffer = storage.allocateDirectBuffer(Math.max(length, Math.min(fileSize, bufferSize)));
+            }
+
+            int bytesToRead = Math.min(directBuffer.capacity(), fileSize - position);
+
+            directBuffer.clear();
+            directBuffer.limit(bytesToRead);
+
+            file.position(position);
+            file.read(directBuffer);
+
+            directBuffer.position(0);
+            directBuffer.limit(bytesToRead);
+
+            fileBuffer = HornetQBuffers.wrappedBuffer(directBuffer);
+            fileBuffer.writerIndex(bytesToRead);
+
+            bufferPosition = position;
+         }
+
+         fileBuffer.readerIndex(position - bufferPosition);
+
+         return fileBuffer;
+      }
+
+      void close()
+      {
+         if (directBuffer != null)
+         {
+            storage.freeDirectBuffer(directBuffer);
+            directBuffer = null;
+            fileBuffer = null;
+         }
+      }
+   }
 }
@@ -13,11 +13,15 @@
 
 package org.hornetq.core.paging.impl;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.hornetq.api.core.SimpleString;
@@ -59,6 +63,17 @@ public final class PagingManagerImpl implements PagingManager
    private final ConcurrentMap</*TransactionID*/Long, PageTransactionInfo> transactions =
             new ConcurrentHashMap<Long, PageTransactionInfo>();
 
+   private final long globalMaxSize;
+
+   private final AtomicLong globalSizeInBytes = new AtomicLong();
+
+   // The addresses using some memory, which share the global budget
+   private final AtomicInteger activeStores = new AtomicInteger();
+
+   // The stores blocking producers because of the global budget, to be told once memory is freed
+   private final Set<PagingStore> blockedStores =
+            Collections.newSetFromMap(new ConcurrentHashMap<PagingStore, Boolean>());
+
    // Static
    // --------------------------------------------------------------------------------------------------------------------------
 
@@ -69,9 +84,20 @@ public final class PagingManagerImpl implements PagingManager
 
    public PagingManagerImpl(final PagingStoreFactory pagingSPI,
                             final HierarchicalRepository<AddressSettings> addressSettingsRepository)
+   {
+      this(pagingSPI, addressSettingsRepository, -1);
+   }
+
+   /**
+    * @param globalMaxSize the maximum memory the messages of all the addresses may use together, -1 for no limit
+    */
+   public PagingManagerImpl(final PagingStoreFactory pagingSPI,
+                            final HierarchicalRepository<AddressSettings> addressSettingsRepository,
+                            final long globalMaxSize)
    {
       pagingStoreFactory = pagingSPI;
       this.addressSettingsRepository = addressSettingsRepository;
+      this.globalMaxSize = globalMaxSize;
       addressSettingsRepository.registerListener(this);
    }
 
@@ -134,6 +160,64 @@ public final class PagingManagerImpl implements PagingManager
       }
    }
 
+   public void addGlobalSize(final int size, final long addressSize)
+   {
+      long previousAddressSize = addressSize - size;
+
+      if (previousAddressSize <= 0 && addressSize > 0)
+      {
+         activeStores.incrementAndGet();
+      }
+      else if (previousAddressSize > 0 && addressSize <= 0)
+      {
+         activeStores.decrementAndGet();
+      }
+
+      long newGlobalSize = globalSizeInBytes.addAndGet(size);
+
+      if (size < 0 && globalMaxSize != -1 && newGlobalSize <= globalMaxSize && !blockedStores.isEmpty())
+      {
+         Iterator<PagingStore> iterator = blockedStores.iterator();
+
+         while (iterator.hasNext())
+         {
+            PagingStore store = iterator.next();
+
+            // the store registers itself again if it is still full
+            iterator.remove();
+
+            store.globalMemoryFreed();
+         }
+      }
+   }
+
+   public long getGlobalSize()
+   {
+      return globalSizeInBytes.get();
+   }
+
+   public long getGlobalMaxSize()
+   {
+      return globalMaxSize;
+   }
+
+   public boolean isGlobalFull(final long addressSize)
+   {
+      if (globalMaxSize == -1 || globalSizeInBytes.get() <= globalMaxSize)
+      {
+         return false;
+      }
+
+      // Addresses under their fair share are left alone, so the largest ones are the ones to page, drop or block.
+      // Until the budget is reached any address may borrow the share the others don't use.
+      return addressSize > globalMaxSize / Math.max(1, activeStores.get());
+   }
+
+   public void blockedOnGlobalSize(final PagingStore store)
+   {
+      blockedStores.add(store);
+   }
+
    public SimpleString[] getStoreNames()
    {
       Set<SimpleString> names = stores.keySet();
@@ -176,6 +260,7 @@ public final class PagingManagerImpl implements PagingManager
          PagingStore store = stores.remove(storeName);
          if (store != null)
          {
+            blockedStores.remove(store);
             store.stop();
          }
       }
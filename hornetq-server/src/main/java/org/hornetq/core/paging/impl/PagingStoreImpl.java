@@ -13,6 +13,7 @@
 
 package org.hornetq.core.paging.impl;
 
+import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.SequentialFileFactory;
@@ -111,6 +112,9 @@ public class PagingStoreImpl implements PagingStore
 
    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
+   // Messages encoded by producers, waiting for whoever holds the write lock next to append them to the current page
+   private final Queue<PageWrite> pendingWrites = new ConcurrentLinkedQueue<PageWrite>();
+
    private volatile boolean running = false;
 
    private final boolean syncNonTransactional;
@@ -725,19 +729,27 @@ public class PagingStoreImpl implements PagingStore
 
    public boolean checkMemory(final Runnable runWhenAvailable)
    {
-      if (addressFullMessagePolicy == AddressFullMessagePolicy.BLOCK && maxSize != -1)
+      if (addressFullMessagePolicy == AddressFullMessagePolicy.BLOCK)
       {
-         if (sizeInBytes.get() > maxSize)
+         long addressSize = sizeInBytes.get();
+
+         if (isOverMaxSize(addressSize))
          {
             OurRunnable ourRunnable = new OurRunnable(runWhenAvailable);
 
+            if (pagingManager.isGlobalFull(addressSize))
+            {
+               // registered before the check below, so memory freed by other addresses after it releases us
+               pagingManager.blockedOnGlobalSize(this);
+            }
+
             onMemoryFreedRunnables.add(ourRunnable);
 
             // We check again to avoid a race condition where the size can come down just after the element
             // has been added, but the check to execute was done before the element was added
             // NOTE! We do not fix this race by locking the whole thing, doing this check provides
             // MUCH better performance in a highly concurrent environment
-            if (sizeInBytes.get() <= maxSize)
+            if (!isOverMaxSize(sizeInBytes.get()))
             {
                // run it now
                ourRunnable.run();
@@ -746,9 +758,9 @@ public class PagingStoreImpl implements PagingStore
             return true;
          }
       }
-      else if (addressFullMessagePolicy == AddressFullMessagePolicy.FAIL && maxSize != -1)
+      else if (addressFullMessagePolicy == AddressFullMessagePolicy.FAIL)
       {
-         if (sizeInBytes.get() > maxSize)
+         if (isOverMaxSize(sizeInBytes.get()))
          {
             return false;
          }
@@ -759,20 +771,45 @@ public class PagingStoreImpl implements PagingStore
       return true;
    }
 
+   public void globalMemoryFreed()
+   {
+      if (onMemoryFreedRunnables.isEmpty())
+      {
+         return;
+      }
+
+      long addressSize = sizeInBytes.get();
+
+      if (!isOverMaxSize(addressSize))
+      {
+         executor.execute(memoryFreedRunnablesExecutor);
+      }
+      else if (pagingManager.isGlobalFull(addressSize))
+      {
+         // other addresses took the memory back in the meantime
+         pagingManager.blockedOnGlobalSize(this);
+
+         if (!isOverMaxSize(sizeInBytes.get()))
+         {
+            executor.execute(memoryFreedRunnablesExecutor);
+         }
+      }
+   }
+
    public void addSize(final int size)
    {
+      // The size is kept whatever the policy, as it counts towards the global budget
+      final long addressSize = sizeInBytes.addAndGet(size);
+
+      pagingManager.addGlobalSize(size, addressSize);
+
       if (addressFullMessagePolicy == AddressFullMessagePolicy.BLOCK)
       {
-         if (maxSize != -1)
+         if (!isOverMaxSize(addressSize))
          {
-            long newSize = sizeInBytes.addAndGet(size);
-
-            if (newSize <= maxSize)
+            if (!onMemoryFreedRunnables.isEmpty())
             {
-               if (!onMemoryFreedRunnables.isEmpty())
-               {
-                  executor.execute(memoryFreedRunnablesExecutor);
-               }
+               executor.execute(memoryFreedRunnablesExecutor);
             }
          }
 
@@ -780,11 +817,9 @@ public class PagingStoreImpl implements PagingStore
       }
       else if (addressFullMessagePolicy == AddressFullMessagePolicy.PAGE)
       {
-         final long addressSize = sizeInBytes.addAndGet(size);
-
          if (size > 0)
          {
-            if (maxSize > 0 && addressSize > maxSize)
+            if (maxSize > 0 && addressSize > maxSize || pagingManager.isGlobalFull(addressSize))
             {
                if (startPaging())
                {
@@ -798,11 +833,6 @@ public class PagingStoreImpl implements PagingStore
 
          return;
       }
-      else if (addressFullMessagePolicy == AddressFullMessagePolicy.DROP || addressFullMessagePolicy == AddressFullMessagePolicy.FAIL)
-      {
-         sizeInBytes.addAndGet(size);
-      }
-
    }
 
    @Override
@@ -859,6 +889,22 @@ public class PagingStoreImpl implements PagingStore
       }
 
 
+      if (!message.isDurable())
+      {
+         // The address should never be transient when paging (even for non-persistent messages when paging)
+         // This will force everything to be persisted
+         message.forceAddress(address);
+      }
+
+      final long transactionID = tx == null ? -1 : tx.getID();
+      PagedMessage pagedMessage = new PagedMessageImpl(message, getQueueIDs(listCtx), transactionID);
+
+      // The message is encoded before taking any lock, so producers only wait for each other to append the
+      // records to the page, which is done by whoever gets the lock first for all the records pending by then
+      PageWrite write = new PageWrite(pagedMessage, Page.encodeRecord(pagedMessage), tx, listCtx);
+
+      pendingWrites.add(write);
+
       managerLock.lock();
       try
       {
@@ -866,63 +912,147 @@ public class PagingStoreImpl implements PagingStore
 
          try
          {
-            if (!paging)
+            if (!write.done)
             {
-               return false;
+               writePending();
             }
+         }
+         finally
+         {
+            lock.writeLock().unlock();
+         }
+      }
+      finally
+      {
+         managerLock.unlock();
+      }
 
-            if (!message.isDurable())
-            {
-               // The address should never be transient when paging (even for non-persistent messages when paging)
-               // This will force everything to be persisted
-               message.forceAddress(address);
-            }
+      if (write.exception != null)
+      {
+         throw write.exception;
+      }
+
+      if (!write.paged)
+      {
+         return false;
+      }
+
+      if (tx == null && syncNonTransactional)
+      {
+         sync();
+      }
+
+      return true;
+   }
+
+   /**
+    * Appends the records of all the pending writes to the current page, with one write on the file per page used.
+    * <p/>
+    * Must be called holding the write lock. Exceptions are given to the producers of the messages that failed.
+    */
+   private void writePending()
+   {
+      List<PageWrite> batch = new ArrayList<PageWrite>();
+
+      int batchStart = 0;
 
-            final long transactionID = tx == null ? -1 : tx.getID();
-            PagedMessage pagedMessage = new PagedMessageImpl(message, routeQueues(tx, listCtx), transactionID);
+      PageWrite write = null;
 
-            if (message.isLargeMessage())
+      try
+      {
+         while ((write = pendingWrites.poll()) != null)
+         {
+            if (!paging)
             {
-               ((LargeServerMessage) message).setPaged();
+               write.done(false);
+               continue;
             }
 
-            int bytesToWrite = pagedMessage.getEncodeSize() + Page.SIZE_RECORD;
+            int bytesToWrite = write.record.writerIndex();
 
-            if (currentPageSize.addAndGet(bytesToWrite) > pageSize && currentPage.getNumberOfMessages() > 0)
+            if (currentPageSize.addAndGet(bytesToWrite) > pageSize &&
+               (currentPage.getNumberOfMessages() > 0 || batch.size() > batchStart))
             {
+               writeBatch(batch, batchStart);
+               batchStart = batch.size();
+
                // Make sure nothing is currently validating or using currentPage
                openNewPage();
                currentPageSize.addAndGet(bytesToWrite);
             }
 
-            currentPage.write(pagedMessage);
+            batch.add(write);
+         }
 
-            if (isTrace)
-            {
-               HornetQServerLogger.LOGGER.trace("Paging message " + pagedMessage + " on pageStore " + this.getStoreName() +
-                  " pageId=" + currentPage.getPageId());
-            }
+         writeBatch(batch, batchStart);
+      }
+      catch (Exception e)
+      {
+         // the write being handled isn't in the batch yet if the page couldn't be rolled over
+         if (write != null && !batch.contains(write))
+         {
+            batch.add(write);
+         }
 
-            if (tx != null)
-            {
-               installPageTransaction(tx, listCtx);
-               tx.setWaitBeforeCommit(true);
-            }
-            else if (syncNonTransactional)
+         for (PageWrite failed : batch)
+         {
+            if (!failed.done)
             {
-               sync();
+               failed.exception = e;
+               failed.done(false);
             }
-
-            return true;
          }
-         finally
+      }
+   }
+
+   /**
+    * Writes the messages added to the batch since the given index to the current page.
+    */
+   private void writeBatch(final List<PageWrite> batch, final int start) throws Exception
+   {
+      if (start == batch.size())
+      {
+         return;
+      }
+
+      List<PagedMessage> messages = new ArrayList<PagedMessage>(batch.size() - start);
+      List<HornetQBuffer> records = new ArrayList<HornetQBuffer>(batch.size() - start);
+
+      for (PageWrite write : batch.subList(start, batch.size()))
+      {
+         ServerMessage message = write.pagedMessage.getMessage();
+
+         if (message.isLargeMessage())
          {
-            lock.writeLock().unlock();
+            ((LargeServerMessage) message).setPaged();
          }
+
+         // A paged message doesn't hold any memory of the address, so acknowledging it must not release any
+         message.setPagingStore(null);
+
+         messages.add(write.pagedMessage);
+         records.add(write.record);
       }
-      finally
+
+      currentPage.write(messages, records);
+
+      for (PageWrite write : batch.subList(start, batch.size()))
       {
-         managerLock.unlock();
+         if (isTrace)
+         {
+            HornetQServerLogger.LOGGER.trace("Paging message " + write.pagedMessage + " on pageStore " + this.getStoreName() +
+               " pageId=" + currentPage.getPageId());
+         }
+
+         routeQueues(write.tx, write.listCtx);
+
+         if (write.tx != null)
+         {
+            installPageTransaction(write.tx, write.listCtx);
+            write.tx.setWaitBeforeCommit(true);
+         }
+
+         write.done(true);
       }
    }
 
@@ -943,7 +1073,7 @@ public class PagingStoreImpl implements PagingStore
       getCursorProvider().resumeCleanup();
    }
 
-   private long[] routeQueues(Transaction tx, RouteContextList ctx) throws Exception
+   private static long[] getQueueIDs(RouteContextList ctx)
    {
       List<org.hornetq.core.server.Queue> durableQueues = ctx.getDurableQueues();
       List<org.hornetq.core.server.Queue> nonDurableQueues = ctx.getNonDurableQueues();
@@ -952,20 +1082,31 @@ public class PagingStoreImpl implements PagingStore
 
       for (org.hornetq.core.server.Queue q : durableQueues)
       {
-         q.getPageSubscription().getCounter().increment(tx, 1);
-         q.getPageSubscription().notEmpty();
          ids[i++] = q.getID();
       }
 
       for (org.hornetq.core.server.Queue q : nonDurableQueues)
       {
-         q.getPageSubscription().getCounter().increment(tx, 1);
-         q.getPageSubscription().notEmpty();
          ids[i++] = q.getID();
       }
       return ids;
    }
 
+   private void routeQueues(Transaction tx, RouteContextList ctx) throws Exception
+   {
+      for (org.hornetq.core.server.Queue q : ctx.getDurableQueues())
+      {
+         q.getPageSubscription().getCounter().increment(tx, 1);
+         q.getPageSubscription().notEmpty();
+      }
+
+      for (org.hornetq.core.server.Queue q : ctx.getNonDurableQueues())
+      {
+         q.getPageSubscription().getCounter().increment(tx, 1);
+         q.getPageSubscription().notEmpty();
+      }
+   }
+
    private void installPageTransaction(final Transaction tx, final RouteContextList listCtx) throws Exception
    {
       FinishPageMessageOperation pgOper = (FinishPageMessageOperation)tx.getProperty(TransactionPropertyIndexes.PAGE_TRANSACTION);
@@ -984,6 +1125,46 @@ public class PagingStoreImpl implements PagingStore
       return;
    }
 
+   /**
+    * A message encoded by its producer, waiting to be appended to the current page.
+    * <p/>
+    * Its fields are only changed holding the write lock, which the producer takes before reading them.
+    */
+   private static final class PageWrite
+   {
+      final PagedMessage pagedMessage;
+
+      final HornetQBuffer record;
+
+      final Transaction tx;
+
+      final RouteContextList listCtx;
+
+      boolean done;
+
+      // false if the store left paging mode before the message was written
+      boolean paged;
+
+      Exception exception;
+
+      PageWrite(final PagedMessage pagedMessage,
+                final HornetQBuffer record,
+                final Transaction tx,
+                final RouteContextList listCtx)
+      {
+         this.pagedMessage = pagedMessage;
+         this.record = record;
+         this.tx = tx;
+         this.listCtx = listCtx;
+      }
+
+      void done(final boolean paged)
+      {
+         this.paged = paged;
+         done = true;
+      }
+   }
+
    private static class FinishPageMessageOperation implements TransactionOperation
    {
       private final PageTransactionInfo pageTransaction;
@@ -1137,7 +1318,18 @@ public class PagingStoreImpl implements PagingStore
    // To be used on isDropMessagesWhenFull
    private boolean isFull()
    {
-      return maxSize > 0 && getAddressSize() > maxSize;
+      long addressSize = getAddressSize();
+
+      return maxSize > 0 && addressSize > maxSize || pagingManager.isGlobalFull(addressSize);
+   }
+
+   /**
+    * @return whether producers have to block, or fail, as the address uses more memory than its own maximum or
+    *         than its share of the global budget
+    */
+   private boolean isOverMaxSize(final long addressSize)
+   {
+      return maxSize != -1 && addressSize > maxSize || pagingManager.isGlobalFull(addressSize);
    }
 
    @Override
@@ -38,4 +38,24 @@ public interface DuplicateIDCache
    void load(List<Pair<byte[], Long>> theIds) throws Exception;
 
    void load(final Transaction tx, final byte[] duplID);
+
+   /**
+    * Returns the number of times {@link #contains(byte[])} found the ID.
+    */
+   long getHits();
+
+   /**
+    * Returns the number of times {@link #contains(byte[])} didn't find the ID.
+    */
+   long getMisses();
+
+   /**
+    * Returns the number of IDs removed as the cache was full.
+    */
+   long getEvictions();
+
+   /**
+    * Returns the number of IDs removed as they were older than the cache expiry.
+    */
+   long getExpirations();
 }
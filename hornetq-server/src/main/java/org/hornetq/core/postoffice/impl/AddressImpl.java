@@ -12,11 +12,11 @@
  */
 package org.hornetq.core.postoffice.impl;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Collection;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.postoffice.Address;
+import org.hornetq.utils.ConcurrentHashSet;
 
 /**
  * splits an address string into its hierarchical parts split by '.'
@@ -31,13 +31,13 @@ public class AddressImpl implements Address
 
    private final boolean containsWildCard;
 
-   private final List<Address> linkedAddresses = new ArrayList<Address>();
+   private final ConcurrentHashSet<Address> linkedAddresses = new ConcurrentHashSet<Address>();
 
    public AddressImpl(final SimpleString address)
    {
       this.address = address;
       addressParts = address.split(WildcardAddressManager.DELIM);
-      containsWildCard = address.contains(WildcardAddressManager.SINGLE_WORD) || address.contains(WildcardAddressManager.ANY_WORDS);
+      containsWildCard = AddressTrie.containsWildCard(address);
    }
 
    public SimpleString getAddress()
@@ -55,17 +55,14 @@ public class AddressImpl implements Address
       return containsWildCard;
    }
 
-   public List<Address> getLinkedAddresses()
+   public Collection<Address> getLinkedAddresses()
    {
       return linkedAddresses;
    }
 
    public void addLinkedAddress(final Address address)
    {
-      if(!linkedAddresses.contains(address))
-      {
-         linkedAddresses.add(address);
-      }
+      linkedAddresses.add(address);
    }
 
    public void removeLinkedAddress(final Address actualAddress)
@@ -73,75 +70,46 @@ public class AddressImpl implements Address
       linkedAddresses.remove(actualAddress);
    }
 
+   /**
+    * '*' matches exactly one word and '#' any sequence of zero or more words, so 'a.#.b' matches
+    * 'a.b' as well as 'a.x.y.b', as the wildcard syntax is documented and {@link AddressTrie}
+    * matches it.
+    */
    public boolean matches(final Address add)
    {
       if (containsWildCard == add.containsWildCard())
       {
          return address.equals(add.getAddress());
       }
-      int pos = 0;
-      int matchPos = 0;
+      return matches(0, add.getAddressParts(), 0);
+   }
 
-      SimpleString nextToMatch;
-      for (; matchPos < add.getAddressParts().length;)
+   private boolean matches(int pos, final SimpleString[] matchParts, int matchPos)
+   {
+      for (; matchPos < matchParts.length; matchPos++)
       {
-         if (pos >= addressParts.length)
+         SimpleString currMatch = matchParts[matchPos];
+         if (currMatch.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
          {
-            // test for # as last address part
-            return pos + 1 == add.getAddressParts().length && add.getAddressParts()[pos].equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING);
-         }
-         SimpleString curr = addressParts[pos];
-         SimpleString next = addressParts.length > pos + 1 ? addressParts[pos + 1] : null;
-         SimpleString currMatch = add.getAddressParts()[matchPos];
-         if (currMatch.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING))
-         {
-            pos++;
-            matchPos++;
-         }
-         else if (currMatch.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
-         {
-            if (matchPos == addressParts.length - 1)
-            {
-               pos++;
-               matchPos++;
-            }
-            else if (next == null)
+            // try the rest of the wildcard after each number of words '#' could stand for
+            for (int next = pos; next <= addressParts.length; next++)
             {
-               return false;
-            }
-            else if (matchPos == add.getAddressParts().length - 1)
-            {
-               return true;
-            }
-            else
-            {
-               nextToMatch = add.getAddressParts()[matchPos + 1];
-               while (curr != null)
-               {
-                  if (curr.equals(nextToMatch))
-                  {
-                     break;
-                  }
-                  pos++;
-                  curr = next;
-                  next = addressParts.length > pos + 1 ? addressParts[pos + 1] : null;
-               }
-               if (curr == null)
+               if (matches(next, matchParts, matchPos + 1))
                {
-                  return false;
+                  return true;
                }
-               matchPos++;
             }
+            return false;
          }
-         else
+         if (pos >= addressParts.length)
          {
-            if (!curr.equals(currMatch))
-            {
-               return false;
-            }
-            pos++;
-            matchPos++;
+            return false;
+         }
+         if (!currMatch.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING) && !currMatch.equals(addressParts[pos]))
+         {
+            return false;
          }
+         pos++;
       }
       return pos == addressParts.length;
    }
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.postoffice.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hornetq.api.core.SimpleString;
+
+/**
+ * A map of addresses to values, kept as a tree of the words of the addresses, so the addresses
+ * matching a wildcard address, or the wildcard addresses matching an address, are found by walking
+ * the words of the address instead of checking every address.
+ * <p>
+ * As for {@link AddressImpl#matches(org.hornetq.core.postoffice.Address)}, a wildcard address only
+ * matches addresses without wildcards, and is otherwise only matched by the same address.
+ * <p>
+ * The lookups don't lock, the updates are serialized.
+ */
+final class AddressTrie<V>
+{
+   private final Node<V> root = new Node<V>(null, null);
+
+   private volatile int wildcards;
+
+   public V get(final SimpleString address)
+   {
+      Node<V> node = root;
+
+      for (SimpleString word : address.split(WildcardAddressManager.DELIM))
+      {
+         node = node.getChild(word);
+
+         if (node == null)
+         {
+            return null;
+         }
+      }
+
+      return node.value;
+   }
+
+   /**
+    * @return the previous value of the address, or null
+    */
+   public synchronized V put(final SimpleString address, final V value)
+   {
+      Node<V> node = root;
+
+      for (SimpleString word : address.split(WildcardAddressManager.DELIM))
+      {
+         Node<V> child = node.getChild(word);
+
+         if (child == null)
+         {
+            child = node.addChild(word);
+         }
+
+         node = child;
+      }
+
+      V previous = node.value;
+
+      if (previous == null)
+      {
+         node.wildcard = containsWildCard(address);
+
+         if (node.wildcard)
+         {
+            wildcards++;
+         }
+      }
+
+      node.value = value;
+
+      return previous;
+   }
+
+   /**
+    * @return the value of the address, or null
+    */
+   public synchronized V remove(final SimpleString address)
+   {
+      Node<V> node = root;
+
+      for (SimpleString word : address.split(WildcardAddressManager.DELIM))
+      {
+         node = node.getChild(word);
+
+         if (node == null)
+         {
+            return null;
+         }
+      }
+
+      V previous = node.value;
+
+      if (previous != null)
+      {
+         node.value = null;
+
+         if (node.wildcard)
+         {
+            wildcards--;
+         }
+
+         // remove the words no longer used by any address
+         while (node.parent != null && node.value == null && node.isLeaf())
+         {
+            node.parent.removeChild(node.word);
+            node = node.parent;
+         }
+      }
+
+      return previous;
+   }
+
+   /**
+    * @return whether any wildcard address is in the trie
+    */
+   public boolean hasWildcards()
+   {
+      return wildcards > 0;
+   }
+
+   public synchronized void clear()
+   {
+      root.clear();
+      wildcards = 0;
+   }
+
+   /**
+    * @return the values of the addresses without wildcards matching the wildcard address
+    */
+   public Collection<V> getMatching(final SimpleString wildcardAddress)
+   {
+      Set<Node<V>> matches = Collections.newSetFromMap(new IdentityHashMap<Node<V>, Boolean>());
+
+      match(root, wildcardAddress.split(WildcardAddressManager.DELIM), 0, matches);
+
+      return values(matches);
+   }
+
+   /**
+    * @return the values of the wildcard addresses matching the address
+    */
+   public Collection<V> getMatchingWildcards(final SimpleString address)
+   {
+      Set<Node<V>> matches = Collections.newSetFromMap(new IdentityHashMap<Node<V>, Boolean>());
+
+      if (hasWildcards() && !containsWildCard(address))
+      {
+         matchWildcards(root, address.split(WildcardAddressManager.DELIM), 0, matches);
+      }
+
+      return values(matches);
+   }
+
+   static boolean containsWildCard(final SimpleString address)
+   {
+      return address.contains(WildcardAddressManager.SINGLE_WORD) || address.contains(WildcardAddressManager.ANY_WORDS);
+   }
+
+   private static <V> void match(final Node<V> node,
+                                 final SimpleString[] words,
+                                 final int index,
+                                 final Set<Node<V>> matches)
+   {
+      if (index == words.length)
+      {
+         if (node.value != null && !node.wildcard)
+         {
+            matches.add(node);
+         }
+         return;
+      }
+
+      SimpleString word = words[index];
+
+      if (word.equals(WildcardAddressManager.ANY_WORDS_SIMPLESTRING))
+      {
+         // no word at all
+         match(node, words, index + 1, matches);
+
+         // or one more word, still matching any words after it
+         for (Node<V> child : node.getChildren())
+         {
+            match(child, words, index, matches);
+         }
+      }
+      else if (word.equals(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING))
+      {
+         for (Node<V> child : node.getChildren())
+         {
+            match(child, words, index + 1, matches);
+         }
+      }
+      else
+      {
+         Node<V> child = node.getChild(word);
+
+         if (child != null)
+         {
+            match(child, words, index + 1, matches);
+         }
+      }
+   }
+
+   private static <V> void matchWildcards(final Node<V> node,
+                                          final SimpleString[] words,
+                                          final int index,
+                                          final Set<Node<V>> matches)
+   {
+      Node<V> anyWords = node.getChild(WildcardAddressManager.ANY_WORDS_SIMPLESTRING);
+
+      if (anyWords != null)
+      {
+         for (int i = index; i <= words.length; i++)
+         {
+            matchWildcards(anyWords, words, i, matches);
+         }
+      }
+
+      if (index == words.length)
+      {
+         if (node.value != null && node.wildcard)
+         {
+            matches.add(node);
+         }
+         return;
+      }
+
+      Node<V> child = node.getChild(words[index]);
+
+      if (child != null)
+      {
+         matchWildcards(child, words, index + 1, matches);
+      }
+
+      Node<V> singleWord = node.getChild(WildcardAddressManager.SINGLE_WORD_SIMPLESTRING);
+
+      if (singleWord != null)
+      {
+         matchWildcards(singleWord, words, index + 1, matches);
+      }
+   }
+
+   private static <V> Collection<V> values(final Set<Node<V>> nodes)
+   {
+      List<V> values = new ArrayList<V>(nodes.size());
+
+      for (Node<V> node : nodes)
+      {
+         V value = node.value;
+
+         // it could have been removed in the mean time
+         if (value != null)
+         {
+            values.add(value);
+         }
+      }
+
+      return values;
+   }
+
+   private static final class Node<V>
+   {
+      final Node<V> parent;
+
+      final SimpleString word;
+
+      // created with the first child, as most nodes are the last word of an address
+      private volatile ConcurrentMap<SimpleString, Node<V>> children;
+
+      volatile V value;
+
+      volatile boolean wildcard;
+
+      Node(final Node<V> parent, final SimpleString word)
+      {
+         this.parent = parent;
+         this.word = word;
+      }
+
+      Node<V> getChild(final SimpleString childWord)
+      {
+         ConcurrentMap<SimpleString, Node<V>> theChildren = children;
+
+         return theChildren == null ? null : theChildren.get(childWord);
+      }
+
+      Collection<Node<V>> getChildren()
+      {
+         ConcurrentMap<SimpleString, Node<V>> theChildren = children;
+
+         return theChildren == null ? Collections.<Node<V>> emptyList() : theChildren.values();
+      }
+
+      // the updates are called from the synchronized methods of the trie
+
+      Node<V> addChild(final SimpleString childWord)
+      {
+         if (children == null)
+         {
+            children = new ConcurrentHashMap<SimpleString, Node<V>>(4, 0.75f, 1);
+         }
+
+         Node<V> child = new Node<V>(this, childWord);
+
+         children.put(childWord, child);
+
+         return child;
+      }
+
+      void removeChild(final SimpleString childWord)
+      {
+         children.remove(childWord);
+      }
+
+      boolean isLeaf()
+      {
+         return children == null || children.isEmpty();
+      }
+
+      void clear()
+      {
+         children = null;
+      }
+   }
+}
@@ -68,11 +68,30 @@ public final class BindingsImpl implements Bindings
 
    private final SimpleString name;
 
+   private final boolean useRoutingIndex;
+
+   private final Object routingIndexLock = new Object();
+
+   private volatile RoutingIndex routingIndex = RoutingIndex.EMPTY;
+
    public BindingsImpl(final SimpleString name, final GroupingHandler groupingHandler, final PagingStore pageStore)
+   {
+      this(name, groupingHandler, pageStore, false);
+   }
+
+   /**
+    * @param useRoutingIndex if true, the filters of the bindings are indexed so that routing a
+    *           message doesn't require evaluating them all. See {@link RoutingIndex}.
+    */
+   public BindingsImpl(final SimpleString name,
+                       final GroupingHandler groupingHandler,
+                       final PagingStore pageStore,
+                       final boolean useRoutingIndex)
    {
       this.groupingHandler = groupingHandler;
       this.pageStore = pageStore;
       this.name = name;
+      this.useRoutingIndex = useRoutingIndex;
    }
 
    public void setRouteWhenNoConsumers(final boolean routeWhenNoConsumers)
@@ -114,6 +133,8 @@ public final class BindingsImpl implements Bindings
          }
 
          bindings.add(binding);
+
+         updateRoutingIndex();
       }
 
       bindingsMap.put(binding.getID(), binding);
@@ -145,6 +166,8 @@ public final class BindingsImpl implements Bindings
             {
                routingNameBindingMap.remove(routingName);
             }
+
+            updateRoutingIndex();
          }
       }
 
@@ -283,7 +306,19 @@ public final class BindingsImpl implements Bindings
             {
                HornetQServerLogger.LOGGER.trace("Routing message " + message + " on binding=" + this);
             }
-            for (Map.Entry<SimpleString, List<Binding>> entry : routingNameBindingMap.entrySet())
+
+            Map<SimpleString, List<Binding>> bindingsToRoute = routingNameBindingMap;
+
+            if (useRoutingIndex)
+            {
+               RoutingIndex index = routingIndex;
+
+               index.route(message, context);
+
+               bindingsToRoute = index.getUnindexed();
+            }
+
+            for (Map.Entry<SimpleString, List<Binding>> entry : bindingsToRoute.entrySet())
             {
                SimpleString routingName = entry.getKey();
 
@@ -313,6 +348,21 @@ public final class BindingsImpl implements Bindings
       return "BindingsImpl [name=" + name + "]";
    }
 
+   /**
+    * Rebuilds the routing index after a change of the routing names. Routing uses the previous
+    * index until the new one is published, like it would with a concurrent change of the map.
+    */
+   private void updateRoutingIndex()
+   {
+      if (useRoutingIndex)
+      {
+         synchronized (routingIndexLock)
+         {
+            routingIndex = RoutingIndex.build(routingNameBindingMap);
+         }
+      }
+   }
+
    /**
     * This code has a race on the assigned value to routing names.
     * <p>
@@ -557,6 +607,13 @@ public final class BindingsImpl implements Bindings
 
       out.println();
 
+      if (useRoutingIndex)
+      {
+         out.println("RoutingIndex: " + routingIndex);
+
+         out.println();
+      }
+
       out.println("ExclusiveBindings:");
       if (exclusiveBindings.isEmpty())
       {
@@ -13,10 +13,8 @@
 
 package org.hornetq.core.postoffice.impl;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.hornetq.api.core.Pair;
 import org.hornetq.api.core.SimpleString;
@@ -31,6 +29,11 @@ import org.hornetq.core.transaction.TransactionOperationAbstract;
  * A DuplicateIDCacheImpl
  *
  * A fixed size rotating cache of last X duplicate ids.
+ * <p>
+ * The ids are kept in rings of primitive arrays, indexed by open addressing hash tables, so there
+ * is no object allocated per id. Large caches are split in stripes by the hash of the ids, each one
+ * with its own lock and a part of the size, so the senders of an address don't all contend on the
+ * same lock. When an expiry is set the ids are also removed once they are older than it.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  *
@@ -38,19 +41,19 @@ import org.hornetq.core.transaction.TransactionOperationAbstract;
  */
 public class DuplicateIDCacheImpl implements DuplicateIDCache
 {
-   // ByteHolder, position
-   private final Map<ByteArrayHolder, Integer> cache = new ConcurrentHashMap<ByteArrayHolder, Integer>();
+   // Caches smaller than this are not striped, so they keep exactly the last X ids
+   private static final int MIN_STRIPE_SIZE = 4096;
 
-   private final SimpleString address;
+   private static final int MAX_STRIPES = 16;
 
-   // Note - deliberately typed as ArrayList since we want to ensure fast indexed
-   // based array access
-   private final ArrayList<Pair<ByteArrayHolder, Long>> ids;
+   private final SimpleString address;
 
-   private int pos;
+   private final Stripe[] stripes;
 
    private final int cacheSize;
 
+   private final long expiry;
+
    private final StorageManager storageManager;
 
    private final boolean persist;
@@ -59,37 +62,66 @@ public class DuplicateIDCacheImpl implements DuplicateIDCache
                                final int size,
                                final StorageManager storageManager,
                                final boolean persist)
+   {
+      this(address, size, -1, storageManager, persist);
+   }
+
+   /**
+    * @param expiry the time in milliseconds an id is kept in the cache, -1 to keep them until the
+    *           cache is full
+    */
+   public DuplicateIDCacheImpl(final SimpleString address,
+                               final int size,
+                               final long expiry,
+                               final StorageManager storageManager,
+                               final boolean persist)
    {
       this.address = address;
 
       cacheSize = size;
 
-      ids = new ArrayList<Pair<ByteArrayHolder, Long>>(size);
+      this.expiry = expiry;
 
       this.storageManager = storageManager;
 
       this.persist = persist;
+
+      int numberOfStripes = 1;
+
+      while (numberOfStripes < MAX_STRIPES && size / (numberOfStripes * 2) >= MIN_STRIPE_SIZE)
+      {
+         numberOfStripes *= 2;
+      }
+
+      stripes = new Stripe[numberOfStripes];
+
+      for (int i = 0; i < numberOfStripes; i++)
+      {
+         // the first stripes take the remainder
+         stripes[i] = new Stripe(size / numberOfStripes + (i < size % numberOfStripes ? 1 : 0));
+      }
    }
 
    public void load(final List<Pair<byte[], Long>> theIds) throws Exception
    {
-      int count = 0;
-
       long txID = -1;
 
+      long now = System.currentTimeMillis();
+
       for (Pair<byte[], Long> id : theIds)
       {
-         if (count < cacheSize)
-         {
-            ByteArrayHolder bah = new ByteArrayHolder(id.getA());
+         int hash = hash(id.getA());
 
-            Pair<ByteArrayHolder, Long> pair = new Pair<ByteArrayHolder, Long>(bah, id.getB());
+         Stripe stripe = stripeFor(hash);
 
-            cache.put(bah, ids.size());
+         boolean added;
 
-            ids.add(pair);
+         synchronized (stripe)
+         {
+            added = stripe.load(id.getA(), hash, id.getB(), now);
          }
-         else
+
+         if (!added)
          {
             // cache size has been reduced in config - delete the extra records
             if (txID == -1)
@@ -99,57 +131,41 @@ public class DuplicateIDCacheImpl implements DuplicateIDCache
 
             storageManager.deleteDuplicateIDTransactional(txID, id.getB());
          }
-
-         count++;
       }
 
       if (txID != -1)
       {
          storageManager.commit(txID);
       }
-
-      pos = ids.size();
-
-      if (pos == cacheSize)
-      {
-         pos = 0;
-      }
-
    }
 
 
    public void deleteFromCache(byte [] duplicateID) throws Exception
    {
-      ByteArrayHolder bah = new ByteArrayHolder(duplicateID);
+      int hash = hash(duplicateID);
 
-      Integer posUsed = cache.remove(bah);
+      Stripe stripe = stripeFor(hash);
 
-      if (posUsed != null)
+      synchronized (stripe)
       {
-         Pair<ByteArrayHolder, Long> id;
-
-         synchronized (this)
-         {
-            id = ids.get(posUsed.intValue());
-
-            if (id.getA().equals(bah))
-            {
-               id.setA(null);
-               storageManager.deleteDuplicateID(id.getB());
-               id.setB(null);
-            }
-         }
+         stripe.delete(duplicateID, hash);
       }
-
    }
 
 
    public boolean contains(final byte[] duplID)
    {
-      return cache.get(new ByteArrayHolder(duplID)) != null;
+      int hash = hash(duplID);
+
+      Stripe stripe = stripeFor(hash);
+
+      synchronized (stripe)
+      {
+         return stripe.contains(duplID, hash, expiry > 0 ? System.currentTimeMillis() - expiry : Long.MIN_VALUE);
+      }
    }
 
-   public synchronized void addToCache(final byte[] duplID, final Transaction tx) throws Exception
+   public void addToCache(final byte[] duplID, final Transaction tx) throws Exception
    {
       long recordID = -1;
 
@@ -184,154 +200,395 @@ public class DuplicateIDCacheImpl implements DuplicateIDCache
       tx.addOperation(new AddDuplicateIDOperation(duplID, tx.getID()));
    }
 
-   private synchronized void addToCacheInMemory(final byte[] duplID, final long recordID)
+   public long getHits()
    {
-      ByteArrayHolder holder = new ByteArrayHolder(duplID);
-
-      cache.put(holder, pos);
+      long hits = 0;
+      for (Stripe stripe : stripes)
+      {
+         synchronized (stripe)
+         {
+            hits += stripe.hits;
+         }
+      }
+      return hits;
+   }
 
-      Pair<ByteArrayHolder, Long> id;
+   public long getMisses()
+   {
+      long misses = 0;
+      for (Stripe stripe : stripes)
+      {
+         synchronized (stripe)
+         {
+            misses += stripe.misses;
+         }
+      }
+      return misses;
+   }
 
-      if (pos < ids.size())
+   public long getEvictions()
+   {
+      long evictions = 0;
+      for (Stripe stripe : stripes)
       {
-         // Need fast array style access here -hence ArrayList typing
-         id = ids.get(pos);
+         synchronized (stripe)
+         {
+            evictions += stripe.evictions;
+         }
+      }
+      return evictions;
+   }
 
-         // The id here might be null if it was explicit deleted
-         if (id.getA() != null)
+   public long getExpirations()
+   {
+      long expirations = 0;
+      for (Stripe stripe : stripes)
+      {
+         synchronized (stripe)
          {
-            cache.remove(id.getA());
+            expirations += stripe.expirations;
+         }
+      }
+      return expirations;
+   }
 
-            // Record already exists - we delete the old one and add the new one
-            // Note we can't use update since journal update doesn't let older records get
-            // reclaimed
+   @Override
+   public String toString()
+   {
+      return "DuplicateIDCacheImpl [address=" + address +
+             ", cacheSize=" +
+             cacheSize +
+             ", expiry=" +
+             expiry +
+             ", stripes=" +
+             stripes.length +
+             "]";
+   }
 
-            if (id.getB() != null)
-            {
-               try
-               {
-                  storageManager.deleteDuplicateID(id.getB());
-               }
-               catch (Exception e)
-               {
-                  HornetQServerLogger.LOGGER.errorDeletingDuplicateCache(e);
-               }
-            }
-         }
+   private void addToCacheInMemory(final byte[] duplID, final long recordID)
+   {
+      int hash = hash(duplID);
 
-         id.setA(holder);
+      Stripe stripe = stripeFor(hash);
 
-         // The recordID could be negative if the duplicateCache is configured to not persist,
-         // -1 would mean null on this case
-         id.setB(recordID >= 0 ? recordID : null);
+      synchronized (stripe)
+      {
+         long now = System.currentTimeMillis();
 
-         holder.pos = pos;
+         if (expiry > 0)
+         {
+            stripe.expire(now - expiry);
+         }
+
+         stripe.add(duplID, hash, recordID, now);
       }
-      else
-      {
-         id = new Pair<ByteArrayHolder, Long>(holder, recordID >= 0 ? recordID : null);
+   }
 
-         ids.add(id);
+   private Stripe stripeFor(final int hash)
+   {
+      // the table slots use the low bits of the hash, so the stripes use the high ones
+      return stripes[(hash >>> 24) & (stripes.length - 1)];
+   }
 
-         holder.pos = pos;
+   private void deleteRecord(final long recordID)
+   {
+      // The recordID could be negative if the duplicateCache is configured to not persist
+      if (recordID >= 0)
+      {
+         try
+         {
+            storageManager.deleteDuplicateID(recordID);
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.errorDeletingDuplicateCache(e);
+         }
       }
+   }
+
+   private static int hash(final byte[] bytes)
+   {
+      int hash = 0;
 
-      if (pos++ == cacheSize - 1)
+      for (byte b : bytes)
       {
-         pos = 0;
+         hash = 31 * hash + b;
       }
+
+      // the ids are often UUIDs or counters, spread their bits over the whole int
+      hash *= 0x9E3779B9;
+
+      return hash ^ (hash >>> 16);
    }
 
-   private final class AddDuplicateIDOperation extends TransactionOperationAbstract
+   /**
+    * A ring of the last ids added to a stripe, in the order they were added, with a linear probing
+    * table from the hash of the ids to their position in the ring.
+    * <p>
+    * A deleted id leaves a hole in the ring, which is reused once the ring comes back to it.
+    * <p>
+    * This isn't thread safe, the callers synchronize on it.
+    */
+   private final class Stripe
    {
-      final byte[] duplID;
+      private final int capacity;
 
-      final long recordID;
+      // the ring, allocated on the first id as most addresses never use duplicate detection
+      private byte[][] ids;
 
-      volatile boolean done;
+      private int[] hashes;
 
-      AddDuplicateIDOperation(final byte[] duplID, final long recordID)
+      private long[] recordIDs;
+
+      private long[] times;
+
+      private int head;
+
+      // the number of positions used in the ring, including the holes
+      private int size;
+
+      // the position in the ring + 1, 0 for an empty slot
+      private int[] table;
+
+      private int mask;
+
+      long hits;
+
+      long misses;
+
+      long evictions;
+
+      long expirations;
+
+      Stripe(final int capacity)
       {
-         this.duplID = duplID;
-         this.recordID = recordID;
+         this.capacity = capacity;
       }
 
-      private void process()
+      boolean contains(final byte[] duplID, final int hash, final long expiredBefore)
       {
-         if (!done)
+         int slot = find(duplID, hash);
+
+         if (slot >= 0 && times[table[slot] - 1] >= expiredBefore)
          {
-            addToCacheInMemory(duplID, recordID);
+            hits++;
+            return true;
+         }
+         else
+         {
+            misses++;
+            return false;
+         }
+      }
 
-            done = true;
+      void add(final byte[] duplID, final int hash, final long recordID, final long time)
+      {
+         if (capacity == 0)
+         {
+            deleteRecord(recordID);
+            return;
          }
+
+         // an id added again replaces the previous one, so it only goes when the new one does
+         delete(duplID, hash);
+
+         if (size == capacity)
+         {
+            if (ids[head] != null)
+            {
+               evictions++;
+            }
+
+            // Record already exists - we delete the old one and add the new one
+            // Note we can't use update since journal update doesn't let older records get
+            // reclaimed
+            removeHead();
+         }
+
+         insert(duplID, hash, recordID, time);
       }
 
-      @Override
-      public void afterCommit(final Transaction tx)
+      boolean load(final byte[] duplID, final int hash, final long recordID, final long time)
       {
-         process();
+         if (size == capacity)
+         {
+            return false;
+         }
+
+         delete(duplID, hash);
+
+         insert(duplID, hash, recordID, time);
+
+         return true;
       }
 
-      @Override
-      public List<MessageReference> getRelatedMessageReferences()
+      void delete(final byte[] duplID, final int hash)
       {
-         return null;
+         int slot = find(duplID, hash);
+
+         if (slot >= 0)
+         {
+            int position = table[slot] - 1;
+
+            removeSlot(slot);
+
+            ids[position] = null;
+
+            deleteRecord(recordIDs[position]);
+
+            recordIDs[position] = -1;
+         }
       }
-   }
 
-   private static final class ByteArrayHolder
-   {
-      ByteArrayHolder(final byte[] bytes)
+      void expire(final long expiredBefore)
       {
-         this.bytes = bytes;
+         while (size > 0 && times[head] < expiredBefore)
+         {
+            if (ids[head] != null)
+            {
+               expirations++;
+            }
+
+            removeHead();
+         }
       }
 
-      final byte[] bytes;
+      private void insert(final byte[] duplID, final int hash, final long recordID, final long time)
+      {
+         if (ids == null)
+         {
+            ids = new byte[capacity][];
+            hashes = new int[capacity];
+            recordIDs = new long[capacity];
+            times = new long[capacity];
+
+            // at most half full, so the probes stay short
+            int tableSize = Integer.highestOneBit(capacity) << 2;
+            table = new int[tableSize];
+            mask = tableSize - 1;
+         }
 
-      int hash;
+         int position = (head + size) % capacity;
 
-      int pos;
+         ids[position] = duplID;
+         hashes[position] = hash;
+         recordIDs[position] = recordID;
+         times[position] = time;
 
-      @Override
-      public boolean equals(final Object other)
+         size++;
+
+         int slot = hash & mask;
+
+         while (table[slot] != 0)
+         {
+            slot = (slot + 1) & mask;
+         }
+
+         table[slot] = position + 1;
+      }
+
+      private void removeHead()
       {
-         if (other instanceof ByteArrayHolder)
+         if (ids[head] != null)
          {
-            ByteArrayHolder s = (ByteArrayHolder)other;
+            removeSlot(find(ids[head], hashes[head]));
+
+            ids[head] = null;
+
+            deleteRecord(recordIDs[head]);
+         }
 
-            if (bytes.length != s.bytes.length)
+         recordIDs[head] = -1;
+
+         head = (head + 1) % capacity;
+
+         size--;
+      }
+
+      private int find(final byte[] duplID, final int hash)
+      {
+         if (table == null)
+         {
+            return -1;
+         }
+
+         int slot = hash & mask;
+
+         while (table[slot] != 0)
+         {
+            int position = table[slot] - 1;
+
+            if (hashes[position] == hash && Arrays.equals(ids[position], duplID))
             {
-               return false;
+               return slot;
             }
 
-            for (int i = 0; i < bytes.length; i++)
+            slot = (slot + 1) & mask;
+         }
+
+         return -1;
+      }
+
+      /**
+       * Empties the slot, moving back the entries after it that would no longer be found.
+       */
+      private void removeSlot(int slot)
+      {
+         table[slot] = 0;
+
+         int next = (slot + 1) & mask;
+
+         while (table[next] != 0)
+         {
+            int home = hashes[table[next] - 1] & mask;
+
+            // the entry can fill the empty slot if its home is not between the slot and itself
+            if (((next - home) & mask) >= ((next - slot) & mask))
             {
-               if (bytes[i] != s.bytes[i])
-               {
-                  return false;
-               }
+               table[slot] = table[next];
+               table[next] = 0;
+               slot = next;
             }
 
-            return true;
+            next = (next + 1) & mask;
          }
-         else
+      }
+   }
+
+   private final class AddDuplicateIDOperation extends TransactionOperationAbstract
+   {
+      final byte[] duplID;
+
+      final long recordID;
+
+      volatile boolean done;
+
+      AddDuplicateIDOperation(final byte[] duplID, final long recordID)
+      {
+         this.duplID = duplID;
+         this.recordID = recordID;
+      }
+
+      private void process()
+      {
+         if (!done)
          {
-            return false;
+            addToCacheInMemory(duplID, recordID);
+
+            done = true;
          }
       }
 
       @Override
-      public int hashCode()
+      public void afterCommit(final Transaction tx)
       {
-         if (hash == 0)
-         {
-            for (byte b : bytes)
-            {
-               hash = 31 * hash + b;
-            }
-         }
+         process();
+      }
 
-         return hash;
+      @Override
+      public List<MessageReference> getRelatedMessageReferences()
+      {
+         return null;
       }
    }
 }
@@ -112,10 +112,14 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
    private final ConcurrentMap<SimpleString, DuplicateIDCache> duplicateIDCaches = new ConcurrentHashMap<SimpleString, DuplicateIDCache>();
 
+   private final boolean enableRoutingIndex;
+
    private final int idCacheSize;
 
    private final boolean persistIDCache;
 
+   private final long idCacheExpiry;
+
    private final Map<SimpleString, QueueInfo> queueInfos = new HashMap<SimpleString, QueueInfo>();
 
    private final Object notificationLock = new Object();
@@ -132,8 +136,10 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
                          final long reaperPeriod,
                          final int reaperPriority,
                          final boolean enableWildCardRouting,
+                         final boolean enableRoutingIndex,
                          final int idCacheSize,
                          final boolean persistIDCache,
+                         final long idCacheExpiry,
                          final HierarchicalRepository<AddressSettings> addressSettingsRepository)
 
    {
@@ -158,10 +164,14 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
          addressManager = new SimpleAddressManager(this);
       }
 
+      this.enableRoutingIndex = enableRoutingIndex;
+
       this.idCacheSize = idCacheSize;
 
       this.persistIDCache = persistIDCache;
 
+      this.idCacheExpiry = idCacheExpiry;
+
       this.addressSettingsRepository = addressSettingsRepository;
 
       this.server = server;
@@ -779,7 +789,7 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
       if (cache == null)
       {
-         cache = new DuplicateIDCacheImpl(address, idCacheSize, storageManager, persistIDCache);
+         cache = new DuplicateIDCacheImpl(address, idCacheSize, idCacheExpiry, storageManager, persistIDCache);
 
          DuplicateIDCache oldCache = duplicateIDCaches.putIfAbsent(address, cache);
 
@@ -1422,6 +1432,9 @@ public class PostOfficeImpl implements PostOffice, NotificationListener, Binding
 
    public Bindings createBindings(final SimpleString address) throws Exception
    {
-      return new BindingsImpl(address, server.getGroupingHandler(), pagingManager.getPageStore(address));
+      return new BindingsImpl(address,
+                              server.getGroupingHandler(),
+                              pagingManager.getPageStore(address),
+                              enableRoutingIndex);
    }
 }
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.postoffice.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
+import org.hornetq.core.filter.impl.IndexableCondition;
+import org.hornetq.core.postoffice.Binding;
+import org.hornetq.core.server.RoutingContext;
+import org.hornetq.core.server.ServerMessage;
+
+/**
+ * An immutable index of the bindings of a {@link BindingsImpl}, used to route a message without
+ * evaluating the filter of every binding.
+ * <p>
+ * Only routing names with a single binding are indexed, as those are routed to whenever their
+ * filter matches (e.g. the subscriptions of a topic). Their filters are indexed by the condition
+ * returned by {@link FilterImpl#getIndexableCondition()}: equalities and IN lists go into a hash
+ * table per property and numeric ranges into arrays sorted by bound, so routing a message costs
+ * one lookup per indexed property plus the bindings it matches. Filters are only evaluated when
+ * the condition is not enough to decide.
+ * <p>
+ * Everything else is left for the regular round robin in {@link BindingsImpl}.
+ */
+final class RoutingIndex
+{
+   static final RoutingIndex EMPTY = new RoutingIndex(new Binding[0],
+                                                      new PropertyIndex[0],
+                                                      Collections.<SimpleString, List<Binding>> emptyMap());
+
+   private final Binding[] unfiltered;
+
+   private final PropertyIndex[] properties;
+
+   private final Map<SimpleString, List<Binding>> unindexed;
+
+   private RoutingIndex(final Binding[] unfiltered,
+                        final PropertyIndex[] properties,
+                        final Map<SimpleString, List<Binding>> unindexed)
+   {
+      this.unfiltered = unfiltered;
+      this.properties = properties;
+      this.unindexed = unindexed;
+   }
+
+   static RoutingIndex build(final Map<SimpleString, List<Binding>> routingNameBindingMap)
+   {
+      List<Binding> unfiltered = new ArrayList<Binding>();
+      Map<SimpleString, PropertyIndex> properties = new LinkedHashMap<SimpleString, PropertyIndex>();
+      Map<SimpleString, List<Binding>> unindexed = new HashMap<SimpleString, List<Binding>>();
+
+      for (Map.Entry<SimpleString, List<Binding>> entry : routingNameBindingMap.entrySet())
+      {
+         List<Binding> bindings = entry.getValue();
+
+         Binding binding = bindings.size() == 1 ? getFirst(bindings) : null;
+
+         if (binding == null)
+         {
+            unindexed.put(entry.getKey(), bindings);
+            continue;
+         }
+
+         Filter filter = binding.getFilter();
+
+         if (filter == null)
+         {
+            unfiltered.add(binding);
+            continue;
+         }
+
+         IndexableCondition condition = filter instanceof FilterImpl ? ((FilterImpl)filter).getIndexableCondition()
+                                                                     : null;
+         if (condition == null)
+         {
+            unindexed.put(entry.getKey(), bindings);
+            continue;
+         }
+
+         PropertyIndex index = properties.get(condition.getProperty());
+         if (index == null)
+         {
+            index = new PropertyIndex(condition.getProperty());
+            properties.put(condition.getProperty(), index);
+         }
+         index.add(condition, binding);
+      }
+
+      PropertyIndex[] propertyIndexes = properties.values().toArray(new PropertyIndex[properties.size()]);
+      for (PropertyIndex index : propertyIndexes)
+      {
+         index.sort();
+      }
+
+      return new RoutingIndex(unfiltered.toArray(new Binding[unfiltered.size()]), propertyIndexes, unindexed);
+   }
+
+   private static Binding getFirst(final List<Binding> bindings)
+   {
+      try
+      {
+         return bindings.get(0);
+      }
+      catch (IndexOutOfBoundsException e)
+      {
+         // removed concurrently
+         return null;
+      }
+   }
+
+   /**
+    * Routes the message to the indexed bindings it matches.
+    */
+   void route(final ServerMessage message, final RoutingContext context) throws Exception
+   {
+      for (Binding binding : unfiltered)
+      {
+         binding.route(message, context);
+      }
+
+      for (PropertyIndex index : properties)
+      {
+         index.route(message, context);
+      }
+   }
+
+   /**
+    * @return the routing names that have to be routed without the index
+    */
+   Map<SimpleString, List<Binding>> getUnindexed()
+   {
+      return unindexed;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "RoutingIndex [unfiltered=" + unfiltered.length +
+             ", properties=" +
+             Arrays.toString(properties) +
+             ", unindexed=" +
+             unindexed.keySet() +
+             "]";
+   }
+
+   private static final class Entry
+   {
+      final Binding binding;
+
+      final boolean exact;
+
+      final double bound;
+
+      Entry(final Binding binding, final boolean exact, final double bound)
+      {
+         this.binding = binding;
+         this.exact = exact;
+         this.bound = bound;
+      }
+
+      void route(final ServerMessage message, final RoutingContext context) throws Exception
+      {
+         if (exact || binding.getFilter().match(message))
+         {
+            binding.route(message, context);
+         }
+      }
+   }
+
+   private static final class PropertyIndex
+   {
+      private static final Entry[] NO_ENTRIES = new Entry[0];
+
+      private final SimpleString property;
+
+      private final Map<Object, List<Entry>> equalities = new HashMap<Object, List<Entry>>();
+
+      private final List<Entry> lowerBoundList = new ArrayList<Entry>();
+
+      private final List<Entry> upperBoundList = new ArrayList<Entry>();
+
+      private Map<Object, Entry[]> equalityIndex;
+
+      /**
+       * Sorted by ascending bound.
+       */
+      private Entry[] lowerBounds;
+
+      /**
+       * Sorted by descending bound.
+       */
+      private Entry[] upperBounds;
+
+      PropertyIndex(final SimpleString property)
+      {
+         this.property = property;
+      }
+
+      void add(final IndexableCondition condition, final Binding binding)
+      {
+         switch (condition.getType())
+         {
+            case EQUAL:
+               for (Object key : condition.getKeys())
+               {
+                  List<Entry> entries = equalities.get(key);
+                  if (entries == null)
+                  {
+                     entries = new ArrayList<Entry>();
+                     equalities.put(key, entries);
+                  }
+                  entries.add(new Entry(binding, condition.isExact(), 0));
+               }
+               break;
+            case LOWER_BOUND:
+               lowerBoundList.add(new Entry(binding, false, condition.getBound()));
+               break;
+            default:
+               upperBoundList.add(new Entry(binding, false, condition.getBound()));
+         }
+      }
+
+      void sort()
+      {
+         equalityIndex = new HashMap<Object, Entry[]>(equalities.size() * 2);
+         for (Map.Entry<Object, List<Entry>> entry : equalities.entrySet())
+         {
+            equalityIndex.put(entry.getKey(), entry.getValue().toArray(new Entry[entry.getValue().size()]));
+         }
+
+         lowerBounds = lowerBoundList.toArray(NO_ENTRIES);
+         Arrays.sort(lowerBounds, new Comparator<Entry>()
+         {
+            public int compare(final Entry e1, final Entry e2)
+            {
+               return Double.compare(e1.bound, e2.bound);
+            }
+         });
+
+         upperBounds = upperBoundList.toArray(NO_ENTRIES);
+         Arrays.sort(upperBounds, new Comparator<Entry>()
+         {
+            public int compare(final Entry e1, final Entry e2)
+            {
+               return Double.compare(e2.bound, e1.bound);
+            }
+         });
+      }
+
+      void route(final ServerMessage message, final RoutingContext context) throws Exception
+      {
+         Object value = message.getObjectProperty(property);
+
+         // none of the indexed conditions is true for a missing property
+         if (value == null)
+         {
+            return;
+         }
+
+         if (!equalityIndex.isEmpty())
+         {
+            Object key = IndexableCondition.keyOf(value);
+
+            Entry[] entries = key == null ? null : equalityIndex.get(key);
+
+            if (entries != null)
+            {
+               for (Entry entry : entries)
+               {
+                  entry.route(message, context);
+               }
+            }
+         }
+
+         if ((lowerBounds.length > 0 || upperBounds.length > 0) && value instanceof Number)
+         {
+            double number = ((Number)value).doubleValue();
+
+            // a long may not be exactly represented as a double so ties are left to the filter,
+            // which won't be wrong as the conversion keeps the order
+            for (Entry entry : lowerBounds)
+            {
+               if (entry.bound > number)
+               {
+                  break;
+               }
+               entry.route(message, context);
+            }
+
+            for (Entry entry : upperBounds)
+            {
+               if (entry.bound < number)
+               {
+                  break;
+               }
+               entry.route(message, context);
+            }
+         }
+      }
+
+      @Override
+      public String toString()
+      {
+         return property + "[equalities=" + equalities.size() +
+                ", lowerBounds=" +
+                lowerBounds.length +
+                ", upperBounds=" +
+                upperBounds.length +
+                "]";
+      }
+   }
+}
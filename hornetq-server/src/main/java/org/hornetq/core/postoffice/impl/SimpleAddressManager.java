@@ -17,7 +17,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.hornetq.api.core.SimpleString;
-import org.hornetq.core.postoffice.Address;
 import org.hornetq.core.postoffice.AddressManager;
 import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.Bindings;
@@ -49,6 +48,12 @@ public class SimpleAddressManager implements AddressManager
    
    private final ConcurrentHashSet<SimpleString> pendingDeletes = new ConcurrentHashSet<SimpleString>();
 
+   /**
+    * The bindings of {@link #nameMap} by address, so the bindings matching an address are found
+    * without checking every binding
+    */
+   private final AddressTrie<Map<SimpleString, Binding>> bindingsByAddress = new AddressTrie<Map<SimpleString, Binding>>();
+
    private final BindingsFactory bindingsFactory;
 
    public SimpleAddressManager(final BindingsFactory bindingsFactory)
@@ -68,6 +73,8 @@ public class SimpleAddressManager implements AddressManager
          HornetQServerLogger.LOGGER.debug("Adding binding " + binding + " with address = " + binding.getUniqueName(), new Exception ("trace"));
       }
 
+      addToAddressIndex(binding);
+
       return addMappingInternal(binding.getAddress(), binding);
    }
 
@@ -96,12 +103,15 @@ public class SimpleAddressManager implements AddressManager
             public void afterRollback(Transaction tx)
             {
                nameMap.put(uniqueName, binding);
+               addToAddressIndex(binding);
                pendingDeletes.remove(uniqueName);
             }
 
          });
       }
 
+      removeFromAddressIndex(binding);
+
       removeBindingInternal(binding.getAddress(), uniqueName);
 
       return binding;
@@ -124,20 +134,29 @@ public class SimpleAddressManager implements AddressManager
 
    public Bindings getMatchingBindings(final SimpleString address) throws Exception
    {
-      Address add = new AddressImpl(address);
-
       Bindings bindings = bindingsFactory.createBindings(address);
 
-      for (Binding binding : nameMap.values())
-      {
-         Address addCheck = new AddressImpl(binding.getAddress());
+      Map<SimpleString, Binding> sameAddress = bindingsByAddress.get(address);
 
-         if (addCheck.matches(add))
+      if (sameAddress != null)
+      {
+         for (Binding binding : sameAddress.values())
          {
             bindings.addBinding(binding);
          }
       }
 
+      if (AddressTrie.containsWildCard(address))
+      {
+         for (Map<SimpleString, Binding> matching : bindingsByAddress.getMatching(address))
+         {
+            for (Binding binding : matching.values())
+            {
+               bindings.addBinding(binding);
+            }
+         }
+      }
+
       return bindings;
    }
 
@@ -145,6 +164,42 @@ public class SimpleAddressManager implements AddressManager
    {
       nameMap.clear();
       mappings.clear();
+      bindingsByAddress.clear();
+   }
+
+   private void addToAddressIndex(final Binding binding)
+   {
+      synchronized (bindingsByAddress)
+      {
+         Map<SimpleString, Binding> bindings = bindingsByAddress.get(binding.getAddress());
+
+         if (bindings == null)
+         {
+            bindings = new ConcurrentHashMap<SimpleString, Binding>();
+
+            bindingsByAddress.put(binding.getAddress(), bindings);
+         }
+
+         bindings.put(binding.getUniqueName(), binding);
+      }
+   }
+
+   private void removeFromAddressIndex(final Binding binding)
+   {
+      synchronized (bindingsByAddress)
+      {
+         Map<SimpleString, Binding> bindings = bindingsByAddress.get(binding.getAddress());
+
+         if (bindings != null)
+         {
+            bindings.remove(binding.getUniqueName());
+
+            if (bindings.isEmpty())
+            {
+               bindingsByAddress.remove(binding.getAddress());
+            }
+         }
+      }
    }
 
    protected void removeBindingInternal(final SimpleString address, final SimpleString bindableName)
@@ -13,9 +13,6 @@
 package org.hornetq.core.postoffice.impl;
 
 import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.postoffice.Address;
@@ -43,11 +40,9 @@ public class WildcardAddressManager extends SimpleAddressManager
 
    /**
     * These are all the addresses, we use this so we can link back from the actual address to its linked wilcard addresses
-    * or vice versa
+    * or vice versa. As they are kept by words, linking an address only walks the addresses it matches.
     */
-   private final Map<SimpleString, Address> addresses = new ConcurrentHashMap<SimpleString, Address>();
-
-   private final Map<SimpleString, Address> wildCardAddresses = new ConcurrentHashMap<SimpleString, Address>();
+   private final AddressTrie<Address> addresses = new AddressTrie<Address>();
 
    public WildcardAddressManager(final BindingsFactory bindingsFactory)
    {
@@ -60,7 +55,7 @@ public class WildcardAddressManager extends SimpleAddressManager
       Bindings bindings = super.getBindingsForRoutingAddress(address);
 
       // this should only happen if we're routing to an address that has no mappings when we're running checkAllowable
-      if (bindings == null && !wildCardAddresses.isEmpty())
+      if (bindings == null && addresses.hasWildcards())
       {
          Address add = addAndUpdateAddressMap(address);
          if (!add.containsWildCard())
@@ -150,77 +145,37 @@ public class WildcardAddressManager extends SimpleAddressManager
    {
       super.clear();
       addresses.clear();
-      wildCardAddresses.clear();
    }
 
    private Address getAddress(final SimpleString address)
    {
-      Address add = new AddressImpl(address);
-      Address actualAddress;
-      if (add.containsWildCard())
-      {
-         actualAddress = wildCardAddresses.get(address);
-      }
-      else
-      {
-         actualAddress = addresses.get(address);
-      }
-      return actualAddress != null ? actualAddress : add;
+      Address actualAddress = addresses.get(address);
+      return actualAddress != null ? actualAddress : new AddressImpl(address);
    }
 
    private synchronized Address addAndUpdateAddressMap(final SimpleString address)
    {
-      Address add = new AddressImpl(address);
-      Address actualAddress;
-      if (add.containsWildCard())
-      {
-         actualAddress = wildCardAddresses.get(address);
-      }
-      else
-      {
-         actualAddress = addresses.get(address);
-      }
+      Address actualAddress = addresses.get(address);
       if (actualAddress == null)
       {
-         actualAddress = add;
-         addAddress(address, actualAddress);
+         actualAddress = new AddressImpl(address);
+         addresses.put(address, actualAddress);
       }
+      Collection<Address> matchingAddresses;
       if (actualAddress.containsWildCard())
       {
-         for (Address destAdd : addresses.values())
-         {
-            if (destAdd.matches(actualAddress))
-            {
-               destAdd.addLinkedAddress(actualAddress);
-               actualAddress.addLinkedAddress(destAdd);
-            }
-         }
+         matchingAddresses = addresses.getMatching(address);
       }
       else
       {
-         for (Address destAdd : wildCardAddresses.values())
-         {
-            if (actualAddress.matches(destAdd))
-            {
-               destAdd.addLinkedAddress(actualAddress);
-               actualAddress.addLinkedAddress(destAdd);
-
-            }
-         }
-      }
-      return actualAddress;
-   }
-
-   private void addAddress(final SimpleString address, final Address actualAddress)
-   {
-      if (actualAddress.containsWildCard())
-      {
-         wildCardAddresses.put(address, actualAddress);
+         matchingAddresses = addresses.getMatchingWildcards(address);
       }
-      else
+      for (Address destAdd : matchingAddresses)
       {
-         addresses.put(address, actualAddress);
+         destAdd.addLinkedAddress(actualAddress);
+         actualAddress.addLinkedAddress(destAdd);
       }
+      return actualAddress;
    }
 
    private synchronized void removeAndUpdateAddressMap(final Address address) throws Exception
@@ -229,8 +184,7 @@ public class WildcardAddressManager extends SimpleAddressManager
       Bindings bindings = super.getBindingsForRoutingAddress(address.getAddress());
       if (bindings == null || bindings.getBindings().size() == 0)
       {
-         List<Address> addresses = address.getLinkedAddresses();
-         for (Address address1 : addresses)
+         for (Address address1 : address.getLinkedAddresses())
          {
             address1.removeLinkedAddress(address);
             Bindings linkedBindings = super.getBindingsForRoutingAddress(address1.getAddress());
@@ -245,13 +199,6 @@ public class WildcardAddressManager extends SimpleAddressManager
 
    private void removeAddress(final Address add)
    {
-      if (add.containsWildCard())
-      {
-         wildCardAddresses.remove(add.getAddress());
-      }
-      else
-      {
-         addresses.remove(add.getAddress());
-      }
+      addresses.remove(add.getAddress());
    }
 }
@@ -12,14 +12,19 @@
  */
 package org.hornetq.core.protocol.core.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.protocol.core.Channel;
+import org.hornetq.core.protocol.core.FileRegion;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionProducerCreditsFailMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionProducerCreditsMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveContinuationMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveLargeMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
+import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.spi.core.protocol.ProtocolManager;
 import org.hornetq.spi.core.protocol.SessionCallback;
@@ -67,6 +72,15 @@ public final class CoreSessionCallback implements SessionCallback
       return packet.getPacketSize();
    }
 
+   public int sendLargeMessageContinuation(long consumerID, FileRegion body, boolean continues)
+   {
+      Packet packet = new SessionReceiveContinuationMessage(consumerID, body, continues);
+
+      channel.send(packet);
+
+      return packet.getPacketSize();
+   }
+
    public int sendMessage(ServerMessage message, long consumerID, int deliveryCount)
    {
       Packet packet = new SessionReceiveMessage(consumerID, message, deliveryCount);
@@ -81,6 +95,25 @@ public final class CoreSessionCallback implements SessionCallback
       return size;
    }
 
+   public int sendMessages(List<MessageReference> references, long consumerID)
+   {
+      List<Packet> packets = new ArrayList<Packet>(references.size());
+
+      for (MessageReference reference : references)
+      {
+         packets.add(new SessionReceiveMessage(consumerID, reference.getMessage(), reference.getDeliveryCount()));
+      }
+
+      int size = 0;
+
+      for (Packet packet : channel.sendBatched(packets))
+      {
+         size += packet.getPacketSize();
+      }
+
+      return size;
+   }
+
    public void sendProducerCreditsMessage(int credits, SimpleString address)
    {
       Packet packet = new SessionProducerCreditsMessage(credits, address);
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.protocol.core.impl.wireformat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.core.protocol.ServerPacketDecoder;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+
+/**
+ * Several replication packets sent to the backup at once, and acknowledged with a single
+ * {@link ReplicationResponseMessage}.
+ * <p>
+ * The packets are encoded one after the other, as they would be sent on their own.
+ */
+public final class ReplicationBatchMessage extends PacketImpl
+{
+   private int count;
+
+   /** the encoded packets, only set when sending */
+   private HornetQBuffer encodedPackets;
+
+   /** the decoded packets, only set when receiving */
+   private List<Packet> packets;
+
+   public ReplicationBatchMessage(final int count, final HornetQBuffer encodedPackets)
+   {
+      this();
+      this.count = count;
+      this.encodedPackets = encodedPackets;
+   }
+
+   public ReplicationBatchMessage()
+   {
+      super(PacketImpl.REPLICATION_BATCH);
+   }
+
+   @Override
+   public void encodeRest(final HornetQBuffer buffer)
+   {
+      buffer.writeInt(count);
+      buffer.writeBytes(encodedPackets, 0, encodedPackets.writerIndex());
+   }
+
+   @Override
+   public void decodeRest(final HornetQBuffer buffer)
+   {
+      count = buffer.readInt();
+      packets = new ArrayList<Packet>(count);
+      for (int i = 0; i < count; i++)
+      {
+         // the length doesn't include the length int
+         int length = buffer.readInt();
+         packets.add(ServerPacketDecoder.INSTANCE.decode(buffer.readSlice(length)));
+      }
+   }
+
+   public int getCount()
+   {
+      return count;
+   }
+
+   /**
+    * @return the packets of the batch, in the order they were replicated
+    */
+   public List<Packet> getPackets()
+   {
+      return packets;
+   }
+
+   @Override
+   public String toString()
+   {
+      return getParentString() + ", count=" + count + "]";
+   }
+}
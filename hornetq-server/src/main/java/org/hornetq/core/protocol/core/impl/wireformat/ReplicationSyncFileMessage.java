@@ -9,13 +9,16 @@ import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager.JournalContent;
+import org.hornetq.core.protocol.core.FileRegion;
+import org.hornetq.core.protocol.core.FileRegionPacket;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.spi.core.protocol.RemotingConnection;
 
 /**
  * Message is used to sync {@link SequentialFile}s to a backup server. The {@link FileType} controls
  * which extra information is sent.
  */
-public final class ReplicationSyncFileMessage extends PacketImpl
+public final class ReplicationSyncFileMessage extends PacketImpl implements FileRegionPacket
 {
 
    /**
@@ -29,6 +32,7 @@ public final class ReplicationSyncFileMessage extends PacketImpl
    private long fileId;
    private int dataSize;
    private ByteBuffer byteBuffer;
+   private FileRegion fileRegion;
    private byte[] byteArray;
    private SimpleString pageStoreName;
    private FileType fileType;
@@ -76,6 +80,17 @@ public final class ReplicationSyncFileMessage extends PacketImpl
       determineType();
    }
 
+   public ReplicationSyncFileMessage(JournalContent content, SimpleString storeName, long id, FileRegion region)
+   {
+      this();
+      this.fileRegion = region;
+      this.pageStoreName = storeName;
+      this.dataSize = region.getSize();
+      this.fileId = id;
+      this.journalType = content;
+      determineType();
+   }
+
    private void determineType()
    {
       if (journalType != null)
@@ -123,7 +138,14 @@ public final class ReplicationSyncFileMessage extends PacketImpl
        */
       if (dataSize > 0)
       {
-         buffer.writeBytes(byteBuffer);
+         if (fileRegion != null)
+         {
+            fileRegion.encode(buffer);
+         }
+         else
+         {
+            buffer.writeBytes(byteBuffer);
+         }
       }
    }
 
@@ -159,6 +181,16 @@ public final class ReplicationSyncFileMessage extends PacketImpl
       }
    }
 
+   public FileRegion getFileRegion()
+   {
+      return fileRegion;
+   }
+
+   public HornetQBuffer encodeWithoutFileRegion(final RemotingConnection connection)
+   {
+      return encodeWithoutFileRegion(connection, fileRegion);
+   }
+
    public long getId()
    {
       return fileId;
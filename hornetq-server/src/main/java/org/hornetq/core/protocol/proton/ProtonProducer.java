@@ -29,6 +29,7 @@ import org.apache.qpid.proton.amqp.transport.ErrorCondition;
 import org.apache.qpid.proton.engine.Delivery;
 import org.apache.qpid.proton.engine.Receiver;
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.protocol.proton.exceptions.HornetQAMQPException;
 import org.hornetq.core.server.HornetQMessageBundle;
@@ -60,7 +61,8 @@ public class ProtonProducer implements ProtonDeliveryHandler
       this.protonProtocolManager = protonProtocolManager;
       this.receiver = receiver;
       this.address = ((Target) receiver.getRemoteTarget()).getAddress();
-      buffer = connection.createBuffer(1024);
+      // kept for the whole life of the link, so not one of the pooled buffers of the connection
+      buffer = HornetQBuffers.dynamicBuffer(1024);
    }
 
    /*
@@ -30,11 +30,13 @@ import org.apache.qpid.proton.engine.impl.TransportImpl;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.client.HornetQClient;
 import org.hornetq.core.persistence.OperationContext;
+import org.hornetq.core.protocol.core.FileRegion;
 import org.hornetq.core.protocol.proton.exceptions.HornetQAMQPException;
 import org.hornetq.core.protocol.proton.exceptions.HornetQAMQPInternalErrorException;
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.HornetQServerLogger;
+import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.ServerSession;
 import org.hornetq.spi.core.protocol.SessionCallback;
@@ -143,6 +145,17 @@ public class ProtonSession implements SessionCallback
       return 0;
    }
 
+   @Override
+   public int sendMessages(List<MessageReference> references, long consumerID)
+   {
+      int size = 0;
+      for (MessageReference reference : references)
+      {
+         size += sendMessage(reference.getMessage(), consumerID, reference.getDeliveryCount());
+      }
+      return size;
+   }
+
    @Override
    public int sendLargeMessage(ServerMessage message, long consumerID, long bodySize, int deliveryCount)
    {
@@ -155,6 +168,12 @@ public class ProtonSession implements SessionCallback
       return 0;
    }
 
+   @Override
+   public int sendLargeMessageContinuation(long consumerID, FileRegion body, boolean continues)
+   {
+      return 0;
+   }
+
    @Override
    public void closed()
    {
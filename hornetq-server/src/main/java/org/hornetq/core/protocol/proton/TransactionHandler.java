@@ -7,6 +7,7 @@ import org.apache.qpid.proton.amqp.transport.ErrorCondition;
 import org.apache.qpid.proton.engine.Delivery;
 import org.apache.qpid.proton.engine.Receiver;
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.core.protocol.proton.exceptions.HornetQAMQPException;
 
 /**
@@ -26,7 +27,8 @@ public class TransactionHandler implements ProtonDeliveryHandler
       this.coordinator = coordinator;
       this.protonProtocolManager = protonProtocolManager;
       this.protonSession = protonSession;
-      buffer = connection.createBuffer(1024);
+      // kept for the whole life of the link, so not one of the pooled buffers of the connection
+      buffer = HornetQBuffers.dynamicBuffer(1024);
    }
 
    @Override
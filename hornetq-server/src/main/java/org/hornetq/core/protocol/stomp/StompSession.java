@@ -13,6 +13,7 @@
 package org.hornetq.core.protocol.stomp;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
@@ -27,8 +28,10 @@ import org.hornetq.core.message.impl.MessageImpl;
 import org.hornetq.core.persistence.OperationContext;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.persistence.impl.journal.LargeServerMessageImpl;
+import org.hornetq.core.protocol.core.FileRegion;
 import org.hornetq.core.remoting.impl.netty.TransportConstants;
 import org.hornetq.core.server.LargeServerMessage;
+import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.QueueQueryResult;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.ServerSession;
@@ -92,6 +95,16 @@ public class StompSession implements SessionCallback
    {
    }
 
+   public int sendMessages(List<MessageReference> references, long consumerID)
+   {
+      int size = 0;
+      for (MessageReference reference : references)
+      {
+         size += sendMessage(reference.getMessage(), consumerID, reference.getDeliveryCount());
+      }
+      return size;
+   }
+
    public int sendMessage(ServerMessage serverMessage, long consumerID, int deliveryCount)
    {
       LargeServerMessageImpl largeMessage = null;
@@ -177,6 +190,11 @@ public class StompSession implements SessionCallback
       return 0;
    }
 
+   public int sendLargeMessageContinuation(long consumerID, FileRegion body, boolean continues)
+   {
+      return 0;
+   }
+
    public int sendLargeMessage(ServerMessage msg, long consumerID, long bodySize, int deliveryCount)
    {
       return 0;
@@ -12,6 +12,7 @@
  */
 package org.hornetq.core.remoting.impl.invm;
 
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
@@ -29,6 +30,7 @@ import org.hornetq.spi.core.remoting.BufferHandler;
 import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
 import org.hornetq.spi.core.remoting.ReadyListener;
+import org.hornetq.utils.DataConstants;
 import org.hornetq.utils.UUIDGenerator;
 
 /**
@@ -136,12 +138,36 @@ public class InVMConnection implements Connection
       write(buffer, false, false);
    }
 
+   /**
+    * Hands the packets of a buffer holding several of them (as a batch of packets is written at
+    * once) one at a time to the handler, as a Netty frame decoder would.
+    */
+   private void bufferReceived(final HornetQBuffer buffer, int length)
+   {
+      while (true)
+      {
+         int start = buffer.readerIndex() - DataConstants.SIZE_INT;
+         HornetQBuffer packet = buffer.copy(start, DataConstants.SIZE_INT + length);
+         packet.readInt();
+         handler.bufferReceived(id, packet);
+
+         buffer.readerIndex(start + DataConstants.SIZE_INT + length);
+         if (!buffer.readable())
+         {
+            return;
+         }
+         length = buffer.readInt();
+      }
+   }
+
    public void write(final HornetQBuffer buffer, final boolean flush, final boolean batch)
    {
       final HornetQBuffer copied = buffer.copy(0, buffer.capacity());
 
       copied.setIndex(buffer.readerIndex(), buffer.writerIndex());
 
+      HornetQBuffers.release(buffer);
+
       try
       {
          executor.execute(new Runnable()
@@ -152,12 +178,19 @@ public class InVMConnection implements Connection
                {
                   if (!closed)
                   {
-                     copied.readInt(); // read and discard
+                     int length = copied.readInt(); // read and discard
                      if (isTrace)
                      {
                         HornetQServerLogger.LOGGER.trace(InVMConnection.this + "::Sending inVM packet");
                      }
-                     handler.bufferReceived(id, copied);
+                     if (copied.readerIndex() + length >= copied.writerIndex())
+                     {
+                        handler.bufferReceived(id, copied);
+                     }
+                     else
+                     {
+                        bufferReceived(copied, length);
+                     }
                   }
                }
                catch (Exception e)
@@ -206,6 +239,20 @@ public class InVMConnection implements Connection
 
    }
 
+   public boolean isFileRegionSupported()
+   {
+      return false;
+   }
+
+   public void write(final HornetQBuffer buffer,
+                     final int offset,
+                     final FileChannel file,
+                     final long position,
+                     final int size)
+   {
+      throw new UnsupportedOperationException("InVM connections don't transfer file regions");
+   }
+
    public String getRemoteAddress()
    {
       return "invm:" + serverID;
@@ -229,6 +276,11 @@ public class InVMConnection implements Connection
       return defaultHornetQPrincipal;
    }
 
+   public boolean isDirectDeliver()
+   {
+      return false;
+   }
+
    public static void setFlushEnabled(boolean enable)
    {
       flushEnabled = enable;
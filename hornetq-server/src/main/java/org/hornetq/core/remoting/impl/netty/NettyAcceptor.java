@@ -169,6 +169,8 @@ public class NettyAcceptor implements Acceptor
 
    private final long batchDelay;
 
+   private final boolean coalesceWrites;
+
    private final boolean directDeliver;
 
 
@@ -305,6 +307,10 @@ public class NettyAcceptor implements Acceptor
                                                        TransportConstants.DEFAULT_BATCH_DELAY,
                                                        configuration);
 
+      coalesceWrites = ConfigurationHelper.getBooleanProperty(TransportConstants.COALESCE_WRITES_PROP_NAME,
+                                                              TransportConstants.DEFAULT_COALESCE_WRITES,
+                                                              configuration);
+
       directDeliver = ConfigurationHelper.getBooleanProperty(TransportConstants.DIRECT_DELIVER,
                                                              TransportConstants.DEFAULT_DIRECT_DELIVER,
                                                              configuration);
@@ -692,7 +698,12 @@ public class NettyAcceptor implements Acceptor
       {
          Listener connectionListener = new Listener();
 
-         NettyConnection nc = new NettyConnection(configuration, e.getChannel(), connectionListener, !httpEnabled && batchDelay > 0, directDeliver);
+         NettyConnection nc = new NettyConnection(configuration,
+                                                  e.getChannel(),
+                                                  connectionListener,
+                                                  !httpEnabled && batchDelay > 0,
+                                                  !httpEnabled && coalesceWrites,
+                                                  directDeliver);
 
          connectionListener.connectionCreated(NettyAcceptor.this, nc, ProtocolType.CORE);
 
@@ -0,0 +1,509 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.remoting.impl.netty4;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelGroupFuture;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.management.NotificationType;
+import org.hornetq.core.remoting.impl.netty.TransportConstants;
+import org.hornetq.core.security.HornetQPrincipal;
+import org.hornetq.core.server.HornetQComponent;
+import org.hornetq.core.server.HornetQMessageBundle;
+import org.hornetq.core.server.HornetQServerLogger;
+import org.hornetq.core.server.cluster.ClusterConnection;
+import org.hornetq.core.server.management.Notification;
+import org.hornetq.core.server.management.NotificationService;
+import org.hornetq.spi.core.protocol.ProtocolType;
+import org.hornetq.spi.core.remoting.Acceptor;
+import org.hornetq.spi.core.remoting.BufferHandler;
+import org.hornetq.spi.core.remoting.Connection;
+import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
+import org.hornetq.utils.ConfigurationHelper;
+import org.hornetq.utils.TypedProperties;
+
+/**
+ * A TCP acceptor on the event loops of Netty 4, using the native epoll transport when it is
+ * available.
+ * <p>
+ * The connections are served by a fixed number of event loops, whatever their number. It can run
+ * next to the {@link org.hornetq.core.remoting.impl.netty.NettyAcceptor}, which is still the one
+ * supporting SSL, HTTP and STOMP over web sockets.
+ */
+public class Netty4Acceptor implements Acceptor
+{
+   private final ClusterConnection clusterConnection;
+
+   private ServerBootstrap bootstrap;
+
+   private EventLoopGroup bossGroup;
+
+   private EventLoopGroup workerGroup;
+
+   private volatile ChannelGroup serverChannelGroup;
+
+   private volatile ChannelGroup channelGroup;
+
+   private final BufferHandler handler;
+
+   private final ConnectionLifeCycleListener listener;
+
+   private final ProtocolType protocol;
+
+   private final String host;
+
+   private final int port;
+
+   private final boolean tcpNoDelay;
+
+   private final int backlog;
+
+   private final int tcpSendBufferSize;
+
+   private final int tcpReceiveBufferSize;
+
+   private final int nioRemotingThreads;
+
+   private final boolean useEpoll;
+
+   private final int writeBufferHighWaterMark;
+
+   private final int writeBufferLowWaterMark;
+
+   private final ConcurrentMap<Object, Netty4Connection> connections = new ConcurrentHashMap<Object, Netty4Connection>();
+
+   private final Map<String, Object> configuration;
+
+   private final ScheduledExecutorService scheduledThreadPool;
+
+   private NotificationService notificationService;
+
+   private boolean paused;
+
+   private BatchFlusher flusher;
+
+   private ScheduledFuture<?> batchFlusherFuture;
+
+   private final long batchDelay;
+
+   private final boolean directDeliver;
+
+   public Netty4Acceptor(final ClusterConnection clusterConnection,
+                         final Map<String, Object> configuration,
+                         final BufferHandler handler,
+                         final ConnectionLifeCycleListener listener,
+                         final Executor threadPool,
+                         final ScheduledExecutorService scheduledThreadPool)
+   {
+      this.clusterConnection = clusterConnection;
+
+      this.configuration = configuration;
+
+      this.handler = handler;
+
+      this.listener = listener;
+
+      String protocolStr = ConfigurationHelper.getStringProperty(TransportConstants.PROTOCOL_PROP_NAME,
+                                                                 TransportConstants.DEFAULT_PROTOCOL,
+                                                                 configuration);
+      protocol = ProtocolType.valueOf(protocolStr.toUpperCase());
+
+      if (protocol != ProtocolType.CORE && protocol != ProtocolType.STOMP && protocol != ProtocolType.AMQP)
+      {
+         throw new IllegalArgumentException("The " + protocol + " protocol is not supported by the Netty 4 acceptor");
+      }
+
+      host = ConfigurationHelper.getStringProperty(TransportConstants.HOST_PROP_NAME,
+                                                   TransportConstants.DEFAULT_HOST,
+                                                   configuration);
+      port = ConfigurationHelper.getIntProperty(TransportConstants.PORT_PROP_NAME,
+                                                TransportConstants.DEFAULT_PORT,
+                                                configuration);
+
+      nioRemotingThreads = ConfigurationHelper.getIntProperty(TransportConstants.NIO_REMOTING_THREADS_PROPNAME,
+                                                              -1,
+                                                              configuration);
+      backlog = ConfigurationHelper.getIntProperty(TransportConstants.BACKLOG_PROP_NAME,
+                                                   -1,
+                                                   configuration);
+
+      tcpNoDelay = ConfigurationHelper.getBooleanProperty(TransportConstants.TCP_NODELAY_PROPNAME,
+                                                          TransportConstants.DEFAULT_TCP_NODELAY,
+                                                          configuration);
+      tcpSendBufferSize = ConfigurationHelper.getIntProperty(TransportConstants.TCP_SENDBUFFER_SIZE_PROPNAME,
+                                                             TransportConstants.DEFAULT_TCP_SENDBUFFER_SIZE,
+                                                             configuration);
+      tcpReceiveBufferSize = ConfigurationHelper.getIntProperty(TransportConstants.TCP_RECEIVEBUFFER_SIZE_PROPNAME,
+                                                                TransportConstants.DEFAULT_TCP_RECEIVEBUFFER_SIZE,
+                                                                configuration);
+
+      useEpoll = ConfigurationHelper.getBooleanProperty(Netty4TransportConstants.USE_EPOLL_PROP_NAME,
+                                                        Netty4TransportConstants.DEFAULT_USE_EPOLL,
+                                                        configuration);
+
+      writeBufferHighWaterMark = ConfigurationHelper.getIntProperty(Netty4TransportConstants.WRITE_BUFFER_HIGH_WATER_MARK_PROPNAME,
+                                                                    Netty4TransportConstants.DEFAULT_WRITE_BUFFER_HIGH_WATER_MARK,
+                                                                    configuration);
+      writeBufferLowWaterMark = ConfigurationHelper.getIntProperty(Netty4TransportConstants.WRITE_BUFFER_LOW_WATER_MARK_PROPNAME,
+                                                                   Netty4TransportConstants.DEFAULT_WRITE_BUFFER_LOW_WATER_MARK,
+                                                                   configuration);
+
+      this.scheduledThreadPool = scheduledThreadPool;
+
+      batchDelay = ConfigurationHelper.getLongProperty(TransportConstants.BATCH_DELAY,
+                                                       TransportConstants.DEFAULT_BATCH_DELAY,
+                                                       configuration);
+
+      directDeliver = ConfigurationHelper.getBooleanProperty(TransportConstants.DIRECT_DELIVER,
+                                                             TransportConstants.DEFAULT_DIRECT_DELIVER,
+                                                             configuration);
+   }
+
+   public synchronized void start() throws Exception
+   {
+      if (bootstrap != null)
+      {
+         // Already started
+         return;
+      }
+
+      boolean epoll = useEpoll && Netty4Transport.isEpollAvailable();
+
+      bossGroup = Netty4Transport.createEventLoopGroup(1, "hornetq-netty4-acceptor-boss", epoll);
+
+      workerGroup = Netty4Transport.createEventLoopGroup(Netty4Transport.getRemotingThreads(nioRemotingThreads),
+                                                         "hornetq-netty4-acceptor",
+                                                         epoll);
+
+      bootstrap = new ServerBootstrap();
+
+      bootstrap.group(bossGroup, workerGroup);
+      bootstrap.channel(Netty4Transport.getServerSocketChannelClass(epoll));
+
+      channelGroup = new DefaultChannelGroup("hornetq-accepted-channels", GlobalEventExecutor.INSTANCE);
+
+      serverChannelGroup = new DefaultChannelGroup("hornetq-acceptor-channels", GlobalEventExecutor.INSTANCE);
+
+      bootstrap.childHandler(new ChannelInitializer<Channel>()
+      {
+         @Override
+         protected void initChannel(final Channel channel) throws Exception
+         {
+            Netty4Transport.setWriteBufferWaterMarks(channel.config(), writeBufferHighWaterMark, writeBufferLowWaterMark);
+
+            if (protocol == ProtocolType.CORE)
+            {
+               channel.pipeline().addLast(new Netty4FrameDecoder());
+            }
+            // With STOMP & AMQP the decoding is handled in the StompFrame class
+
+            channel.pipeline().addLast(new Netty4ServerChannelHandler(channelGroup, handler, new Listener()));
+         }
+      });
+
+      // Bind
+      bootstrap.option(ChannelOption.SO_REUSEADDR, true);
+      if (backlog != -1)
+      {
+         bootstrap.option(ChannelOption.SO_BACKLOG, backlog);
+      }
+      bootstrap.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT);
+      bootstrap.childOption(ChannelOption.TCP_NODELAY, tcpNoDelay);
+      if (tcpReceiveBufferSize != -1)
+      {
+         bootstrap.childOption(ChannelOption.SO_RCVBUF, tcpReceiveBufferSize);
+      }
+      if (tcpSendBufferSize != -1)
+      {
+         bootstrap.childOption(ChannelOption.SO_SNDBUF, tcpSendBufferSize);
+      }
+      bootstrap.childOption(ChannelOption.SO_REUSEADDR, true);
+      bootstrap.childOption(ChannelOption.SO_KEEPALIVE, true);
+
+      startServerChannels();
+
+      paused = false;
+
+      if (notificationService != null)
+      {
+         TypedProperties props = new TypedProperties();
+         props.putSimpleStringProperty(new SimpleString("factory"),
+                                       new SimpleString(Netty4AcceptorFactory.class.getName()));
+         props.putSimpleStringProperty(new SimpleString("host"), new SimpleString(host));
+         props.putIntProperty(new SimpleString("port"), port);
+         Notification notification = new Notification(null, NotificationType.ACCEPTOR_STARTED, props);
+         notificationService.sendNotification(notification);
+      }
+
+      if (batchDelay > 0)
+      {
+         flusher = new BatchFlusher();
+
+         batchFlusherFuture = scheduledThreadPool.scheduleWithFixedDelay(flusher,
+                                                                         batchDelay,
+                                                                         batchDelay,
+                                                                         TimeUnit.MILLISECONDS);
+      }
+
+      HornetQServerLogger.LOGGER.startedNettyAcceptor(Netty4Transport.getVersion(epoll), host, port, protocol);
+   }
+
+   private void startServerChannels()
+   {
+      String[] hosts = TransportConfiguration.splitHosts(host);
+      for (String h : hosts)
+      {
+         Channel serverChannel = bootstrap.bind(new InetSocketAddress(h, port)).syncUninterruptibly().channel();
+         serverChannelGroup.add(serverChannel);
+      }
+   }
+
+   public Map<String, Object> getConfiguration()
+   {
+      return this.configuration;
+   }
+
+   public synchronized void stop()
+   {
+      if (bootstrap == null)
+      {
+         return;
+      }
+
+      if (batchFlusherFuture != null)
+      {
+         batchFlusherFuture.cancel(false);
+
+         flusher.cancel();
+
+         flusher = null;
+
+         batchFlusherFuture = null;
+      }
+
+      // serverChannelGroup may have been closed in pause()
+      serverChannelGroup.close().awaitUninterruptibly();
+      ChannelGroupFuture future = channelGroup.close().awaitUninterruptibly();
+
+      if (!future.isSuccess())
+      {
+         HornetQServerLogger.LOGGER.nettyChannelGroupError();
+      }
+
+      bossGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS).awaitUninterruptibly();
+      workerGroup.shutdownGracefully(0, 10, TimeUnit.SECONDS).awaitUninterruptibly();
+
+      bossGroup = null;
+      workerGroup = null;
+      bootstrap = null;
+
+      for (Connection connection : connections.values())
+      {
+         listener.connectionDestroyed(connection.getID());
+      }
+
+      connections.clear();
+
+      if (notificationService != null)
+      {
+         TypedProperties props = new TypedProperties();
+         props.putSimpleStringProperty(new SimpleString("factory"),
+                                       new SimpleString(Netty4AcceptorFactory.class.getName()));
+         props.putSimpleStringProperty(new SimpleString("host"), new SimpleString(host));
+         props.putIntProperty(new SimpleString("port"), port);
+         Notification notification = new Notification(null, NotificationType.ACCEPTOR_STOPPED, props);
+         try
+         {
+            notificationService.sendNotification(notification);
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+         }
+      }
+
+      paused = false;
+   }
+
+   public synchronized boolean isStarted()
+   {
+      return bootstrap != null;
+   }
+
+   public synchronized void pause()
+   {
+      if (paused)
+      {
+         return;
+      }
+
+      if (bootstrap == null)
+      {
+         return;
+      }
+
+      // We *pause* the acceptor so no new connections are made
+      ChannelGroupFuture future = serverChannelGroup.close().awaitUninterruptibly();
+      if (!future.isSuccess())
+      {
+         HornetQServerLogger.LOGGER.nettyChannelGroupBindError();
+      }
+      paused = true;
+   }
+
+   public void setNotificationService(final NotificationService notificationService)
+   {
+      this.notificationService = notificationService;
+   }
+
+   /**
+    * not allowed
+    * @param defaultHornetQPrincipal
+    */
+   public void setDefaultHornetQPrincipal(final HornetQPrincipal defaultHornetQPrincipal)
+   {
+      throw new IllegalStateException("unsecure connections not allowed");
+   }
+
+   /**
+    * only InVM acceptors should allow this
+    * @return
+    */
+   public boolean isUnsecurable()
+   {
+      return false;
+   }
+
+   @Override
+   public ClusterConnection getClusterConnection()
+   {
+      return clusterConnection;
+   }
+
+   // Inner classes -----------------------------------------------------------------------------
+
+   private final class Netty4ServerChannelHandler extends Netty4ChannelHandler
+   {
+      Netty4ServerChannelHandler(final ChannelGroup group,
+                                 final BufferHandler handler,
+                                 final ConnectionLifeCycleListener listener)
+      {
+         super(group, handler, listener);
+      }
+
+      @Override
+      public void channelActive(final ChannelHandlerContext ctx) throws Exception
+      {
+         Listener connectionListener = new Listener();
+
+         Netty4Connection nc = new Netty4Connection(configuration,
+                                                    ctx.channel(),
+                                                    id,
+                                                    connectionListener,
+                                                    batchDelay > 0,
+                                                    directDeliver);
+
+         connectionListener.connectionCreated(Netty4Acceptor.this, nc, protocol);
+
+         active = true;
+
+         ctx.fireChannelActive();
+      }
+   }
+
+   private class Listener implements ConnectionLifeCycleListener
+   {
+      public void connectionCreated(final HornetQComponent component, final Connection connection, final ProtocolType protocol)
+      {
+         if (connections.putIfAbsent(connection.getID(), (Netty4Connection)connection) != null)
+         {
+            throw HornetQMessageBundle.BUNDLE.connectionExists(connection.getID());
+         }
+
+         listener.connectionCreated(component, connection, Netty4Acceptor.this.protocol);
+      }
+
+      public void connectionDestroyed(final Object connectionID)
+      {
+         if (connections.remove(connectionID) != null)
+         {
+            listener.connectionDestroyed(connectionID);
+         }
+      }
+
+      public void connectionException(final Object connectionID, final HornetQException me)
+      {
+         // Execute on different thread to avoid deadlocks
+         new Thread()
+         {
+            @Override
+            public void run()
+            {
+               listener.connectionException(connectionID, me);
+            }
+         }.start();
+      }
+
+      public void connectionReadyForWrites(final Object connectionID, final boolean ready)
+      {
+         Netty4Connection conn = connections.get(connectionID);
+
+         if (conn != null)
+         {
+            conn.fireReady(ready);
+         }
+      }
+   }
+
+   private class BatchFlusher implements Runnable
+   {
+      private boolean cancelled;
+
+      public synchronized void run()
+      {
+         if (!cancelled)
+         {
+            for (Connection connection : connections.values())
+            {
+               connection.checkFlushBatchBuffer();
+            }
+         }
+      }
+
+      public synchronized void cancel()
+      {
+         cancelled = true;
+      }
+   }
+}
@@ -54,6 +54,7 @@ import org.hornetq.core.protocol.core.impl.wireformat.BackupReplicationStartFail
 import org.hornetq.core.protocol.core.impl.wireformat.HornetQExceptionMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddTXMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCommitMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteTXMessage;
@@ -154,16 +155,45 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
    @Override
    public void handlePacket(final Packet packet)
    {
-      PacketImpl response = new ReplicationResponseMessage();
-      final byte type=packet.getType();
+      if (!started)
+      {
+         return;
+      }
 
-      try
+      PacketImpl response;
+
+      if (packet.getType() == PacketImpl.REPLICATION_BATCH)
       {
-            if (!started)
+         // the whole batch is acknowledged with one response, or with the failure of one of its packets
+         response = null;
+         for (Packet batchedPacket : ((ReplicationBatchMessage)packet).getPackets())
+         {
+            PacketImpl packetResponse = handleReplicationPacket(batchedPacket);
+            if (response == null || packetResponse.getType() == PacketImpl.EXCEPTION)
             {
-               return;
+               response = packetResponse;
             }
+         }
+         if (response == null)
+         {
+            response = new ReplicationResponseMessage();
+         }
+      }
+      else
+      {
+         response = handleReplicationPacket(packet);
+      }
 
+      channel.send(response);
+   }
+
+   private PacketImpl handleReplicationPacket(final Packet packet)
+   {
+      PacketImpl response = new ReplicationResponseMessage();
+      final byte type=packet.getType();
+
+      try
+      {
             if (type == PacketImpl.REPLICATION_APPEND)
             {
                handleAppendAddRecord((ReplicationAddMessage) packet);
@@ -240,7 +270,7 @@ public final class ReplicationEndpoint implements ChannelHandler, HornetQCompone
          response =
                   new HornetQExceptionMessage(HornetQMessageBundle.BUNDLE.replicationUnhandledError(e));
       }
-      channel.send(response);
+      return response;
    }
 
    /**
@@ -14,7 +14,6 @@
 package org.hornetq.core.replication;
 
 import java.io.FileInputStream;
-import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -25,8 +24,14 @@ import java.util.Map.Entry;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.hornetq.api.config.HornetQDefaultConfiguration;
 import org.hornetq.api.core.HornetQBuffer;
+import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQExceptionType;
 import org.hornetq.api.core.Pair;
@@ -42,11 +47,14 @@ import org.hornetq.core.persistence.impl.journal.OperationContextImpl;
 import org.hornetq.core.protocol.core.Channel;
 import org.hornetq.core.protocol.core.ChannelHandler;
 import org.hornetq.core.protocol.core.CoreRemotingConnection;
+import org.hornetq.core.protocol.core.FileRegion;
+import org.hornetq.core.protocol.core.FileRegionPacket;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.ChannelImpl.CHANNEL_ID;
 import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationAddTXMessage;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationCommitMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteMessage;
 import org.hornetq.core.protocol.core.impl.wireformat.ReplicationDeleteTXMessage;
@@ -70,6 +78,12 @@ import org.hornetq.utils.ExecutorFactory;
  * use case).
  * <p>
  * Its equivalent in the backup server is {@link ReplicationEndpoint}.
+ * <p>
+ * Unless the batch size is -1 or the backup runs a version that doesn't know batches, the
+ * packets are not sent one by one but added to a
+ * {@link ReplicationBatchMessage}. The batch is sent when it is full, or as soon as fewer batches
+ * than allowed are waiting for the backup to acknowledge them. The backup acknowledges a whole
+ * batch with a single response, which completes the operations of the batch.
  * @author <mailto:clebert.suconic@jboss.org">Clebert Suconic</a>
  * @see ReplicationEndpoint
  */
@@ -102,6 +116,9 @@ public final class ReplicationManager implements HornetQComponent
       }
    }
 
+   /** The size of the parts the files are sent in during the synchronization */
+   private static final int SYNC_CHUNK_SIZE = 1 << 17;
+
    private final ResponseHandler responseHandler = new ResponseHandler();
 
    private final Channel replicatingChannel;
@@ -116,8 +133,38 @@ public final class ReplicationManager implements HornetQComponent
 
    private final Queue<OperationContext> pendingTokens = new ConcurrentLinkedQueue<OperationContext>();
 
+   /** What each of the responses still expected from the backup acknowledges, in sending order */
+   private final Queue<PendingResponse> pendingResponses = new ConcurrentLinkedQueue<PendingResponse>();
+
    private final ExecutorFactory executorFactory;
 
+   /** The maximum size in bytes of a batch, or -1 if every packet is sent on its own */
+   private final int batchSize;
+
+   private final int maxBatchesInFlight;
+
+   private final AtomicInteger batchesInFlight = new AtomicInteger();
+
+   private final Executor flushExecutor;
+
+   private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+   private final Runnable flushRunner = new FlushRunner();
+
+   // The batch being filled, guarded by the replicationLock
+
+   private HornetQBuffer batch;
+
+   private volatile int batchCount;
+
+   private int batchBytes;
+
+   // What was replicated and not acknowledged yet
+
+   private final AtomicLong lagBytes = new AtomicLong();
+
+   private final AtomicLong lagOperations = new AtomicLong();
+
    private SessionFailureListener failureListener;
 
    private CoreRemotingConnection remotingConnection;
@@ -128,10 +175,31 @@ public final class ReplicationManager implements HornetQComponent
     * @param remotingConnection
     */
    public ReplicationManager(CoreRemotingConnection remotingConnection, final ExecutorFactory executorFactory)
+   {
+      this(remotingConnection,
+           executorFactory,
+           HornetQDefaultConfiguration.getDefaultReplicationBatchSize(),
+           HornetQDefaultConfiguration.getDefaultReplicationBatchesInFlight());
+   }
+
+   /**
+    * @param batchSize the maximum size in bytes of a batch of packets, -1 to send every packet on
+    *           its own
+    * @param maxBatchesInFlight the number of batches sent before waiting for the backup to
+    *           acknowledge one
+    */
+   public ReplicationManager(CoreRemotingConnection remotingConnection,
+                             final ExecutorFactory executorFactory,
+                             final int batchSize,
+                             final int maxBatchesInFlight)
    {
       this.executorFactory = executorFactory;
       this.replicatingChannel = remotingConnection.getChannel(CHANNEL_ID.REPLICATION.id, -1);
       this.remotingConnection = remotingConnection;
+      // a backup running an older version doesn't know batches, and would never acknowledge one
+      this.batchSize = replicatingChannel.supports(PacketImpl.REPLICATION_BATCH) ? batchSize : -1;
+      this.maxBatchesInFlight = maxBatchesInFlight;
+      this.flushExecutor = executorFactory.getExecutor();
    }
 
    public void appendUpdateRecord(final byte journalID, final ADD_OPERATION_TYPE operation, final long id,
@@ -335,9 +403,36 @@ public final class ReplicationManager implements HornetQComponent
                HornetQServerLogger.LOGGER.errorCompletingCallbackOnReplicationManager(e);
             }
          }
+
+         pendingResponses.clear();
+         batchesInFlight.set(0);
+         if (batch != null)
+         {
+            batch.clear();
+         }
+         batchCount = 0;
+         batchBytes = 0;
+         lagBytes.set(0);
+         lagOperations.set(0);
       }
    }
 
+   /**
+    * @return the size in bytes of the operations replicated to the backup and not acknowledged yet
+    */
+   public long getLagBytes()
+   {
+      return lagBytes.get();
+   }
+
+   /**
+    * @return the number of operations replicated to the backup and not acknowledged yet
+    */
+   public long getLagOperations()
+   {
+      return lagOperations.get();
+   }
+
    /** A list of tokens that are still waiting for replications to be completed */
    public Set<OperationContext> getActiveTokens()
    {
@@ -378,7 +473,19 @@ public final class ReplicationManager implements HornetQComponent
          if (enabled)
          {
             pendingTokens.add(repliToken);
-            replicatingChannel.send(packet);
+            lagOperations.incrementAndGet();
+
+            if (!isBatched(packet))
+            {
+               flushBatch();
+               replicatingChannel.send(packet);
+               lagBytes.addAndGet(packet.getPacketSize());
+               pendingResponses.add(new PendingResponse(1, packet.getPacketSize(), false));
+            }
+            else
+            {
+               addToBatch(packet);
+            }
          }
          else
          {
@@ -395,6 +502,77 @@ public final class ReplicationManager implements HornetQComponent
       }
    }
 
+   private boolean isBatched(final Packet packet)
+   {
+      // the bytes of a file region are not copied into a batch, and the backup must know the live
+      // is stopping before the executors are stopped
+      return batchSize >= 0 && !(packet instanceof FileRegionPacket) &&
+               packet.getType() != PacketImpl.REPLICATION_SCHEDULED_FAILOVER;
+   }
+
+   /**
+    * Must be called holding the replicationLock.
+    */
+   private void addToBatch(final Packet packet)
+   {
+      packet.setChannelID(replicatingChannel.getID());
+      HornetQBuffer encoded = packet.encode(remotingConnection);
+      int size = encoded.writerIndex();
+
+      if (batch == null)
+      {
+         batch = HornetQBuffers.dynamicBuffer(batchSize);
+      }
+      batch.writeBytes(encoded, 0, size);
+      HornetQBuffers.release(encoded);
+      batchCount++;
+      batchBytes += size;
+      lagBytes.addAndGet(size);
+
+      if (batchBytes >= batchSize)
+      {
+         flushBatch();
+      }
+      else
+      {
+         scheduleFlush();
+      }
+   }
+
+   /**
+    * Sends the batch being filled, if any. Must be called holding the replicationLock.
+    */
+   private void flushBatch()
+   {
+      if (batchCount == 0)
+      {
+         return;
+      }
+
+      // the response may come before send returns
+      pendingResponses.add(new PendingResponse(batchCount, batchBytes, true));
+      batchesInFlight.incrementAndGet();
+
+      // the batch is encoded by send, so its buffer can be reused afterwards
+      replicatingChannel.send(new ReplicationBatchMessage(batchCount, batch));
+
+      batch.clear();
+      batchCount = 0;
+      batchBytes = 0;
+   }
+
+   /**
+    * Flushes the batch being filled from the executor if fewer batches than allowed wait for the
+    * backup. Otherwise it is flushed when the backup acknowledges a batch.
+    */
+   private void scheduleFlush()
+   {
+      if (batchCount > 0 && batchesInFlight.get() < maxBatchesInFlight && flushScheduled.compareAndSet(false, true))
+      {
+         flushExecutor.execute(flushRunner);
+      }
+   }
+
    /**
     * @throws IllegalStateException By default, all replicated packets generate a replicated
     *            response. If your packets are triggering this exception, it may be because the
@@ -402,14 +580,36 @@ public final class ReplicationManager implements HornetQComponent
     */
    private void replicated()
    {
-      OperationContext ctx = pendingTokens.poll();
+      // called from the connection, so it must not wait for the replicationLock, which is held
+      // while the packets are written
+      PendingResponse response = pendingResponses.poll();
 
-      if (ctx == null)
+      if (response == null)
       {
          throw new IllegalStateException("Missing replication token on the queue.");
       }
 
-      ctx.replicationDone();
+      if (response.batch)
+      {
+         batchesInFlight.decrementAndGet();
+      }
+
+      lagBytes.addAndGet(-response.bytes);
+      lagOperations.addAndGet(-response.operations);
+
+      for (int i = 0; i < response.operations; i++)
+      {
+         OperationContext ctx = pendingTokens.poll();
+
+         if (ctx == null)
+         {
+            throw new IllegalStateException("Missing replication token on the queue.");
+         }
+
+         ctx.replicationDone();
+      }
+
+      scheduleFlush();
    }
 
    // Inner classes -------------------------------------------------
@@ -443,6 +643,38 @@ public final class ReplicationManager implements HornetQComponent
       }
    }
 
+   private static final class PendingResponse
+   {
+      final int operations;
+
+      final int bytes;
+
+      final boolean batch;
+
+      PendingResponse(final int operations, final int bytes, final boolean batch)
+      {
+         this.operations = operations;
+         this.bytes = bytes;
+         this.batch = batch;
+      }
+   }
+
+   private final class FlushRunner implements Runnable
+   {
+      public void run()
+      {
+         flushScheduled.set(false);
+
+         synchronized (replicationLock)
+         {
+            if (enabled && batchesInFlight.get() < maxBatchesInFlight)
+            {
+               flushBatch();
+            }
+         }
+      }
+   }
+
    private final class ResponseHandler implements ChannelHandler
    {
      public void handlePacket(final Packet packet)
@@ -553,30 +785,25 @@ public final class ReplicationManager implements HornetQComponent
             final FileChannel channel = fis.getChannel();
             try
             {
-               final ByteBuffer buffer = ByteBuffer.allocate(1 << 17);
+               long position = 0;
                while (true)
                {
-                  buffer.clear();
-                  final int bytesRead = channel.read(buffer);
-                  int toSend = bytesRead;
-                  if (bytesRead > 0)
+                  // the bytes are read from the file by the connection, or by the packet when encoded
+                  final long available = Math.min(channel.size() - position, maxBytesToSend);
+                  final int toSend = (int)Math.min(available, SYNC_CHUNK_SIZE);
+
+                  if (toSend <= 0)
                   {
-                     if (bytesRead >= maxBytesToSend)
-                     {
-                        toSend = (int)maxBytesToSend;
-                        maxBytesToSend = 0;
-                     }
-                     else
-                     {
-                        maxBytesToSend = maxBytesToSend - bytesRead;
-                     }
-                     buffer.limit(toSend);
+                     // sending -1 or 0 bytes will close the file at the backup
+                     sendReplicatePacket(new ReplicationSyncFileMessage(content, pageStore, id, -1, null));
+                     break;
                   }
-                  buffer.rewind();
 
-                  // sending -1 or 0 bytes will close the file at the backup
-                  sendReplicatePacket(new ReplicationSyncFileMessage(content, pageStore, id, toSend, buffer));
-                  if (bytesRead == -1 || bytesRead == 0 || maxBytesToSend == 0)
+                  sendReplicatePacket(new ReplicationSyncFileMessage(content, pageStore, id,
+                                                                     new FileRegion(channel, position, toSend)));
+                  position += toSend;
+                  maxBytesToSend -= toSend;
+                  if (maxBytesToSend == 0)
                      break;
                }
             }
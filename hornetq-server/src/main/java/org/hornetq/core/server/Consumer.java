@@ -49,6 +49,16 @@ public interface Consumer
     */
    void proceedDeliver(MessageReference reference) throws Exception;
 
+   /**
+    * This will proceed with the actual delivery of several references accepted by
+    * {@link #handle(MessageReference)}, in the order they were accepted, as
+    * {@link #proceedDeliver(MessageReference)} would for each of them.
+    * This is where a consumer can deliver them all at once.
+    * @throws PartialDeliveryException if it failed after delivering some of the references
+    * @throws Exception if none of the references were delivered
+    */
+   void proceedDeliver(List<MessageReference> references) throws Exception;
+
    Filter getFilter();
 
    /**
@@ -40,6 +40,7 @@ import org.hornetq.core.server.cluster.ClusterConnection;
 import org.hornetq.core.server.cluster.ClusterManager;
 import org.hornetq.core.server.group.GroupingHandler;
 import org.hornetq.core.server.impl.ConnectorsService;
+import org.hornetq.core.server.impl.ScheduledDeliveryWheel;
 import org.hornetq.core.server.management.ManagementService;
 import org.hornetq.core.settings.HierarchicalRepository;
 import org.hornetq.core.settings.impl.AddressSettings;
@@ -201,6 +202,11 @@ public interface HornetQServer extends HornetQComponent
 
    ScheduledExecutorService getScheduledPool();
 
+   /**
+    * @return the wheel scheduling the deliveries of the messages with a delivery time
+    */
+   ScheduledDeliveryWheel getScheduledDeliveryWheel();
+
    ExecutorFactory getExecutorFactory();
 
    void setGroupingHandler(GroupingHandler groupingHandler);
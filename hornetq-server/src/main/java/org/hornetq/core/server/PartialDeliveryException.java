@@ -0,0 +1,39 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.server;
+
+/**
+ * Thrown by {@link Consumer#proceedDeliver(java.util.List)} when the delivery failed after some
+ * of the references were already delivered, so only the others are given back to the queue.
+ */
+public class PartialDeliveryException extends Exception
+{
+   private static final long serialVersionUID = 2843591847416376207L;
+
+   private final int delivered;
+
+   public PartialDeliveryException(final int delivered, final Throwable cause)
+   {
+      super(cause);
+      this.delivered = delivered;
+   }
+
+   /**
+    * @return how many references, from the first one, were delivered before the failure
+    */
+   public int getDelivered()
+   {
+      return delivered;
+   }
+}
@@ -111,6 +111,11 @@ public interface ServerSession
 
    void send(ServerMessage message, boolean direct) throws Exception;
 
+   /**
+    * Sends the messages in order, as {@link #send(ServerMessage, boolean)} would one by one.
+    */
+   void send(List<ServerMessage> messages, boolean direct) throws Exception;
+
    void sendLarge(MessageInternal msg) throws Exception;
 
    void forceConsumerDelivery(long consumerID, long sequence) throws Exception;
@@ -618,6 +618,11 @@ public class BridgeImpl implements Bridge, SessionFailureListener, SendAcknowled
       // no op
    }
 
+   public void proceedDeliver(List<MessageReference> refs)
+   {
+      // no op
+   }
+
    public void connectionFailed(final HornetQException me, boolean failedOver)
    {
       HornetQServerLogger.LOGGER.bridgeConnectionFailed(me, failedOver);
@@ -222,6 +222,11 @@ public class Redistributor implements Consumer
       // no op
    }
 
+   public void proceedDeliver(List<MessageReference> refs)
+   {
+      // no op
+   }
+
 
    private void internalExecute(final Runnable runnable)
    {
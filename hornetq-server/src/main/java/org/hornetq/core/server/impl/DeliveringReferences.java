@@ -0,0 +1,318 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.server.impl;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.hornetq.core.server.MessageReference;
+
+/**
+ * The references delivered to a consumer and not acknowledged yet, in delivery order and indexed
+ * by message ID.
+ * <p>
+ * Acknowledging in order polls the oldest reference, while individual acknowledgements, cancels
+ * and expiries remove a reference by its message ID: both take constant time, whatever the number
+ * of references in flight. The same message ID may be delivered more than once, in which case
+ * {@link #remove(long)} takes the oldest reference carrying it.
+ * <p>
+ * All the methods are synchronized, as references are added by the delivering thread while the
+ * session acknowledges them.
+ */
+public final class DeliveringReferences
+{
+   private static final int INITIAL_CAPACITY = 16;
+
+   private static final class Node
+   {
+      final long messageID;
+
+      final MessageReference ref;
+
+      Node previous;
+
+      Node next;
+
+      // the next node in the same bucket of the table
+      Node nextInBucket;
+
+      // the next node delivered with the same message ID, only linked from the node in the table
+      Node nextSameID;
+
+      Node(final long messageID, final MessageReference ref)
+      {
+         this.messageID = messageID;
+         this.ref = ref;
+      }
+   }
+
+   private Node[] table = new Node[INITIAL_CAPACITY];
+
+   private Node head;
+
+   private Node tail;
+
+   private int size;
+
+   public synchronized void add(final MessageReference ref)
+   {
+      Node node = new Node(ref.getMessage().getMessageID(), ref);
+
+      if (tail == null)
+      {
+         head = node;
+      }
+      else
+      {
+         tail.next = node;
+         node.previous = tail;
+      }
+
+      tail = node;
+
+      size++;
+
+      int bucket = bucket(node.messageID, table.length);
+
+      for (Node indexed = table[bucket]; indexed != null; indexed = indexed.nextInBucket)
+      {
+         if (indexed.messageID == node.messageID)
+         {
+            while (indexed.nextSameID != null)
+            {
+               indexed = indexed.nextSameID;
+            }
+
+            indexed.nextSameID = node;
+
+            return;
+         }
+      }
+
+      node.nextInBucket = table[bucket];
+      table[bucket] = node;
+
+      if (size > table.length - (table.length >> 2))
+      {
+         resize();
+      }
+   }
+
+   /**
+    * @return the oldest reference, removed, or null if there is none
+    */
+   public synchronized MessageReference poll()
+   {
+      Node node = head;
+
+      if (node == null)
+      {
+         return null;
+      }
+
+      // the oldest reference is the oldest one of its message ID too
+      unindex(node);
+
+      unlink(node);
+
+      return node.ref;
+   }
+
+   /**
+    * @return the oldest reference, or null if there is none
+    */
+   public synchronized MessageReference peek()
+   {
+      return head == null ? null : head.ref;
+   }
+
+   /**
+    * @return the oldest reference for the message ID, removed, or null if there is none
+    */
+   public synchronized MessageReference remove(final long messageID)
+   {
+      int bucket = bucket(messageID, table.length);
+
+      for (Node node = table[bucket]; node != null; node = node.nextInBucket)
+      {
+         if (node.messageID == messageID)
+         {
+            unindex(node);
+
+            unlink(node);
+
+            return node.ref;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Removes all the references.
+    *
+    * @return the references removed, in delivery order
+    */
+   public synchronized LinkedList<MessageReference> removeAll()
+   {
+      LinkedList<MessageReference> refs = new LinkedList<MessageReference>();
+
+      copyTo(refs);
+
+      clear();
+
+      return refs;
+   }
+
+   /**
+    * Adds all the references to the list, in delivery order.
+    */
+   public synchronized void copyTo(final List<MessageReference> refs)
+   {
+      for (Node node = head; node != null; node = node.next)
+      {
+         refs.add(node.ref);
+      }
+   }
+
+   public synchronized void clear()
+   {
+      if (size > 0)
+      {
+         table = new Node[INITIAL_CAPACITY];
+         head = null;
+         tail = null;
+         size = 0;
+      }
+   }
+
+   public synchronized int size()
+   {
+      return size;
+   }
+
+   public synchronized boolean isEmpty()
+   {
+      return size == 0;
+   }
+
+   // Private -------------------------------------------------------
+
+   private static int bucket(final long messageID, final int length)
+   {
+      int hash = (int)(messageID ^ messageID >>> 32);
+
+      // message IDs are sequential, spreading the high bits keeps the buckets balanced anyway
+      hash ^= hash >>> 16;
+
+      return hash & length - 1;
+   }
+
+   /**
+    * Replaces the node in the table by the next one with the same message ID, if any.
+    */
+   private void unindex(final Node node)
+   {
+      int bucket = bucket(node.messageID, table.length);
+
+      Node previous = null;
+
+      for (Node indexed = table[bucket]; indexed != null; indexed = indexed.nextInBucket)
+      {
+         if (indexed == node)
+         {
+            Node replacement = node.nextSameID;
+
+            if (replacement == null)
+            {
+               replacement = node.nextInBucket;
+            }
+            else
+            {
+               replacement.nextInBucket = node.nextInBucket;
+            }
+
+            if (previous == null)
+            {
+               table[bucket] = replacement;
+            }
+            else
+            {
+               previous.nextInBucket = replacement;
+            }
+
+            node.nextInBucket = null;
+            node.nextSameID = null;
+
+            return;
+         }
+
+         previous = indexed;
+      }
+   }
+
+   private void unlink(final Node node)
+   {
+      if (node.previous == null)
+      {
+         head = node.next;
+      }
+      else
+      {
+         node.previous.next = node.next;
+      }
+
+      if (node.next == null)
+      {
+         tail = node.previous;
+      }
+      else
+      {
+         node.next.previous = node.previous;
+      }
+
+      node.previous = null;
+      node.next = null;
+
+      if (--size == 0 && table.length > INITIAL_CAPACITY)
+      {
+         // don't keep the table of a burst of deliveries
+         table = new Node[INITIAL_CAPACITY];
+      }
+   }
+
+   private void resize()
+   {
+      Node[] newTable = new Node[table.length << 1];
+
+      for (Node bucket : table)
+      {
+         Node node = bucket;
+
+         while (node != null)
+         {
+            Node next = node.nextInBucket;
+
+            int index = bucket(node.messageID, newTable.length);
+
+            node.nextInBucket = newTable[index];
+            newTable[index] = node;
+
+            node = next;
+         }
+      }
+
+      table = newTable;
+   }
+}
@@ -227,6 +227,8 @@ public class HornetQServerImpl implements HornetQServer
 
    private volatile ScheduledExecutorService scheduledPool;
 
+   private volatile ScheduledDeliveryWheel scheduledDeliveryWheel;
+
    private volatile ExecutorFactory executorFactory;
 
    private final HierarchicalRepository<Set<Role>> securityRepository;
@@ -667,6 +669,7 @@ public class HornetQServerImpl implements HornetQServer
       }
 
       scheduledPool = null;
+      scheduledDeliveryWheel = null;
       threadPool = null;
 
       if (securityStore != null)
@@ -876,6 +879,11 @@ public class HornetQServerImpl implements HornetQServer
       return scheduledPool;
    }
 
+   public ScheduledDeliveryWheel getScheduledDeliveryWheel()
+   {
+      return scheduledDeliveryWheel;
+   }
+
    public Configuration getConfiguration()
    {
       return configuration;
@@ -1376,14 +1384,17 @@ public class HornetQServerImpl implements HornetQServer
 
    private PagingManager createPagingManager()
    {
-
-      return new PagingManagerImpl(new PagingStoreFactoryNIO(storageManager, configuration.getPagingDirectory(),
+      PagingStoreFactoryNIO storeFactory = new PagingStoreFactoryNIO(storageManager, configuration.getPagingDirectory(),
          configuration.getJournalBufferSize_NIO(),
          scheduledPool,
          executorFactory,
          configuration.isJournalSyncNonTransactional(),
-         shutdownOnCriticalIO),
-      addressSettingsRepository);
+         shutdownOnCriticalIO);
+
+      // page files are mapped as the journal files are
+      storeFactory.setMappedFiles(configuration.getJournalType() == JournalType.MAPPED);
+
+      return new PagingManagerImpl(storeFactory, addressSettingsRepository, configuration.getGlobalMaxSize());
    }
 
    /**
@@ -1448,12 +1459,16 @@ public class HornetQServerImpl implements HornetQServer
          threadPool = Executors.newFixedThreadPool(configuration.getThreadPoolMaxSize(), tFactory);
       }
 
-      executorFactory = new OrderedExecutorFactory(threadPool);
+      executorFactory = new OrderedExecutorFactory(threadPool,
+                                                   configuration.getExecutorMaxTasksPerRun(),
+                                                   configuration.getExecutorMaxRunTime());
       scheduledPool = new ScheduledThreadPoolExecutor(configuration.getScheduledThreadPoolMaxSize(),
          new HornetQThreadFactory("HornetQ-scheduled-threads",
             false,
             getThisClassLoader()));
 
+      scheduledDeliveryWheel = new ScheduledDeliveryWheel(scheduledPool);
+
       managementService = new ManagementServiceImpl(mbeanServer, configuration);
 
       if (configuration.getMemoryMeasureInterval() != -1)
@@ -1490,7 +1505,11 @@ public class HornetQServerImpl implements HornetQServer
          configuration.getClusterPassword(),
          managementService);
 
-      queueFactory = new QueueFactoryImpl(executorFactory, scheduledPool, addressSettingsRepository, storageManager);
+      queueFactory = new QueueFactoryImpl(executorFactory,
+         scheduledPool,
+         scheduledDeliveryWheel,
+         addressSettingsRepository,
+         storageManager);
 
       pagingManager = createPagingManager();
 
@@ -1505,8 +1524,10 @@ public class HornetQServerImpl implements HornetQServer
          configuration.getMessageExpiryScanPeriod(),
          configuration.getMessageExpiryThreadPriority(),
          configuration.isWildcardRoutingEnabled(),
+         configuration.isRoutingIndexEnabled(),
          configuration.getIDCacheSize(),
          configuration.isPersistIDCache(),
+         configuration.getIDCacheExpiry(),
          addressSettingsRepository);
 
       // This can't be created until node id is set
@@ -2818,7 +2839,9 @@ public class HornetQServerImpl implements HornetQServer
          ReplicationFailureListener listener = new ReplicationFailureListener();
          rc.addCloseListener(listener);
          rc.addFailureListener(listener);
-         replicationManager = new ReplicationManager(rc, executorFactory);
+         replicationManager =
+                  new ReplicationManager(rc, executorFactory, configuration.getReplicationBatchSize(),
+                                         configuration.getReplicationBatchesInFlight());
          replicationManager.start();
          Thread t = new Thread(new Runnable()
          {
@@ -54,6 +54,7 @@ public class LastValueQueue extends QueueImpl
                          final boolean durable,
                          final boolean temporary,
                          final ScheduledExecutorService scheduledExecutor,
+                         final ScheduledDeliveryWheel scheduledDeliveryWheel,
                          final PostOffice postOffice,
                          final StorageManager storageManager,
                          final HierarchicalRepository<AddressSettings> addressSettingsRepository,
@@ -67,6 +68,7 @@ public class LastValueQueue extends QueueImpl
             durable,
             temporary,
             scheduledExecutor,
+            scheduledDeliveryWheel,
             postOffice,
             storageManager,
             addressSettingsRepository,
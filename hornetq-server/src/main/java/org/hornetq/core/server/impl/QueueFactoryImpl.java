@@ -40,6 +40,8 @@ public class QueueFactoryImpl implements QueueFactory
 
    protected final ScheduledExecutorService scheduledExecutor;
 
+   protected final ScheduledDeliveryWheel scheduledDeliveryWheel;
+
    /** This is required for delete-all-reference to work correctly with paging, and controlling global-size */
    protected PostOffice postOffice;
 
@@ -51,11 +53,22 @@ public class QueueFactoryImpl implements QueueFactory
                            final ScheduledExecutorService scheduledExecutor,
                            final HierarchicalRepository<AddressSettings> addressSettingsRepository,
                            final StorageManager storageManager)
+   {
+      this(executorFactory, scheduledExecutor, null, addressSettingsRepository, storageManager);
+   }
+
+   public QueueFactoryImpl(final ExecutorFactory executorFactory,
+                           final ScheduledExecutorService scheduledExecutor,
+                           final ScheduledDeliveryWheel scheduledDeliveryWheel,
+                           final HierarchicalRepository<AddressSettings> addressSettingsRepository,
+                           final StorageManager storageManager)
    {
       this.addressSettingsRepository = addressSettingsRepository;
 
       this.scheduledExecutor = scheduledExecutor;
 
+      this.scheduledDeliveryWheel = scheduledDeliveryWheel;
+
       this.storageManager = storageManager;
 
       this.executorFactory = executorFactory;
@@ -87,6 +100,7 @@ public class QueueFactoryImpl implements QueueFactory
                                     durable,
                                     temporary,
                                     scheduledExecutor,
+                                    scheduledDeliveryWheel,
                                     postOffice,
                                     storageManager,
                                     addressSettingsRepository,
@@ -102,6 +116,7 @@ public class QueueFactoryImpl implements QueueFactory
                                durable,
                                temporary,
                                scheduledExecutor,
+                               scheduledDeliveryWheel,
                                postOffice,
                                storageManager,
                                addressSettingsRepository,
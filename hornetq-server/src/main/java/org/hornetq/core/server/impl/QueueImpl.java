@@ -17,8 +17,8 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +31,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
@@ -46,6 +47,7 @@ import org.hornetq.core.server.HandleStatus;
 import org.hornetq.core.server.HornetQServer;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.PartialDeliveryException;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.RoutingContext;
 import org.hornetq.core.server.ScheduledDeliveryHandler;
@@ -88,6 +90,12 @@ public class QueueImpl implements Queue
 
    public static final int MAX_DELIVERIES_IN_LOOP = 1000;
 
+   /** The references handed to consumers while holding the lock once, each consumer delivering its own at once */
+   public static final int MAX_DELIVERIES_IN_BATCH = 100;
+
+   /** Management scans of the queue only hold its lock for this many references at a time, so they don't stall deliveries */
+   public static final int MAX_SCANNED_IN_LOCK = 1000;
+
    public static final int CHECK_QUEUE_SIZE_PERIOD = 100;
 
    /** If The system gets slow for any reason, this is the maximum time an Delivery or
@@ -122,6 +130,14 @@ public class QueueImpl implements Queue
    // This is to avoid locking the queue on the producer
    private final ConcurrentLinkedQueue<MessageReference> intermediateMessageReferences = new ConcurrentLinkedQueue<MessageReference>();
 
+   // Messages cancelled or rolled back enter returnedMessageReferences
+   // Before they are added to the head of messageReferences
+   // This is to avoid locking the queue on the consumer when it cancels or rolls back
+   private final ConcurrentLinkedQueue<MessageReference> returnedMessageReferences = new ConcurrentLinkedQueue<MessageReference>();
+
+   // The quantity of references on returnedMessageReferences, as its size() would go through all of them
+   private final AtomicInteger returnedReferences = new AtomicInteger(0);
+
    // This is where messages are stored
    private final PriorityLinkedList<MessageReference> messageReferences = new PriorityLinkedListImpl<MessageReference>(QueueImpl.NUM_PRIORITIES);
 
@@ -138,7 +154,7 @@ public class QueueImpl implements Queue
 
    private final ScheduledDeliveryHandler scheduledDeliveryHandler;
 
-   private long messagesAdded;
+   private final AtomicLong messagesAdded = new AtomicLong(0);
 
    protected final AtomicInteger deliveringCount = new AtomicInteger(0);
 
@@ -173,7 +189,7 @@ public class QueueImpl implements Queue
 
    // We cache the consumers here since we don't want to include the redistributor
 
-   private final Set<Consumer> consumerSet = new HashSet<Consumer>();
+   private final Set<Consumer> consumerSet = new ConcurrentHashSet<Consumer>();
 
    private final Map<SimpleString, Consumer> groups = new HashMap<SimpleString, Consumer>();
 
@@ -285,6 +301,39 @@ public class QueueImpl implements Queue
                     final StorageManager storageManager,
                     final HierarchicalRepository<AddressSettings> addressSettingsRepository,
                     final Executor executor)
+   {
+      this(id,
+           address,
+           name,
+           filter,
+           pageSubscription,
+           durable,
+           temporary,
+           scheduledExecutor,
+           null,
+           postOffice,
+           storageManager,
+           addressSettingsRepository,
+           executor);
+   }
+
+   /**
+    * @param scheduledDeliveryWheel the wheel scheduling the deliveries of the queue, or null for
+    *           the queue to have its own wheel on the scheduledExecutor
+    */
+   public QueueImpl(final long id,
+                    final SimpleString address,
+                    final SimpleString name,
+                    final Filter filter,
+                    final PageSubscription pageSubscription,
+                    final boolean durable,
+                    final boolean temporary,
+                    final ScheduledExecutorService scheduledExecutor,
+                    final ScheduledDeliveryWheel scheduledDeliveryWheel,
+                    final PostOffice postOffice,
+                    final StorageManager storageManager,
+                    final HierarchicalRepository<AddressSettings> addressSettingsRepository,
+                    final Executor executor)
    {
       this.id = id;
 
@@ -308,7 +357,14 @@ public class QueueImpl implements Queue
 
       this.scheduledExecutor = scheduledExecutor;
 
-      scheduledDeliveryHandler = new ScheduledDeliveryHandlerImpl(scheduledExecutor);
+      if (scheduledDeliveryWheel != null)
+      {
+         scheduledDeliveryHandler = new ScheduledDeliveryHandlerImpl(scheduledDeliveryWheel);
+      }
+      else
+      {
+         scheduledDeliveryHandler = new ScheduledDeliveryHandlerImpl(scheduledExecutor);
+      }
 
       if (addressSettingsRepository != null)
       {
@@ -408,31 +464,47 @@ public class QueueImpl implements Queue
    }
 
    /* Called when a message is cancelled back into the queue */
-   public synchronized void addHead(final MessageReference ref)
+   public void addHead(final MessageReference ref)
    {
-      flushDeliveriesInTransit();
-      if (scheduledDeliveryHandler.checkAndSchedule(ref, false))
-      {
-         return;
-      }
-
-      internalAddHead(ref);
+      returnToHead(ref);
 
-      directDeliver = false;
+      deliverAsync();
    }
 
    /* Called when a message is cancelled back into the queue */
-   public synchronized void addHead(final List<MessageReference> refs)
+   public void addHead(final List<MessageReference> refs)
    {
-      flushDeliveriesInTransit();
       for (MessageReference ref: refs)
       {
          addHead(ref);
       }
+   }
 
-      resetAllIterators();
+   /**
+    * The reference is only added to the head of the queue by {@link #pollReturned()}, so the caller
+    * doesn't need to lock the queue. The caller has to make sure a delivery is scheduled afterwards.
+    * <p>
+    * There's no need to wait for the deliveries in transit first: the delivery runner only polls
+    * the returned references once the deliveries it had in transit are done, and direct deliveries
+    * are done holding the lock the returned references are polled with.
+    * @param ref
+    */
+   private void returnToHead(final MessageReference ref)
+   {
+      if (scheduledDeliveryHandler.checkAndSchedule(ref, false))
+      {
+         return;
+      }
 
-      deliverAsync();
+      queueMemorySize.addAndGet(ref.getMessageMemoryEstimate());
+
+      refAdded(ref);
+
+      returnedReferences.incrementAndGet();
+
+      returnedMessageReferences.add(ref);
+
+      directDeliver = false;
    }
 
    public synchronized void reload(final MessageReference ref)
@@ -445,7 +517,7 @@ public class QueueImpl implements Queue
 
       directDeliver = false;
 
-      messagesAdded++;
+      messagesAdded.incrementAndGet();
    }
 
    public void addTail(final MessageReference ref)
@@ -457,10 +529,7 @@ public class QueueImpl implements Queue
    {
       if (scheduledDeliveryHandler.checkAndSchedule(ref, true))
       {
-         synchronized (this)
-         {
-            messagesAdded++;
-         }
+         messagesAdded.incrementAndGet();
 
          return;
       }
@@ -477,6 +546,7 @@ public class QueueImpl implements Queue
              lastDirectDeliveryCheck = System.currentTimeMillis();
 
              if (intermediateMessageReferences.isEmpty() &&
+                 returnedReferences.get() == 0 &&
                  messageReferences.isEmpty() &&
                  !pageIterator.hasNext() &&
                  !pageSubscription.isPaging())
@@ -793,12 +863,12 @@ public class QueueImpl implements Queue
       super.finalize();
    }
 
-   public synchronized int getConsumerCount()
+   public int getConsumerCount()
    {
       return consumerSet.size();
    }
 
-   public synchronized Set<Consumer> getConsumers()
+   public Set<Consumer> getConsumers()
    {
       return consumerSet;
    }
@@ -833,6 +903,10 @@ public class QueueImpl implements Queue
 
    public LinkedListIterator<MessageReference> iterator()
    {
+      synchronized (this)
+      {
+         pollReturned();
+      }
       return new SynchronizedIterator(messageReferences.iterator());
    }
 
@@ -921,29 +995,27 @@ public class QueueImpl implements Queue
 
    public long getInstantMessageCount()
    {
-      synchronized (this)
+      // an instant value, read without locking the queue so polling it doesn't hold deliveries
+      if (pageSubscription != null)
       {
-         if (pageSubscription != null)
-         {
-            // messageReferences will have depaged messages which we need to discount from the counter as they are
-            // counted on the pageSubscription as well
-            return messageReferences.size() + getScheduledCount() +
-                   deliveringCount.get() +
-                   pageSubscription.getMessageCount();
-         }
-         else
-         {
-            return messageReferences.size() + getScheduledCount() + deliveringCount.get();
-         }
+         // messageReferences will have depaged messages which we need to discount from the counter as they are
+         // counted on the pageSubscription as well
+         return messageReferences.size() + returnedReferences.get() + getScheduledCount() +
+                deliveringCount.get() +
+                pageSubscription.getMessageCount();
+      }
+      else
+      {
+         return messageReferences.size() + returnedReferences.get() + getScheduledCount() + deliveringCount.get();
       }
    }
 
-   public synchronized int getScheduledCount()
+   public int getScheduledCount()
    {
       return scheduledDeliveryHandler.getScheduledCount();
    }
 
-   public synchronized List<MessageReference> getScheduledMessages()
+   public List<MessageReference> getScheduledMessages()
    {
       return scheduledDeliveryHandler.getScheduledReferences();
    }
@@ -1059,17 +1131,14 @@ public class QueueImpl implements Queue
       getRefsOperation(tx).addAck(reference);
    }
 
-   public synchronized void cancel(final MessageReference reference, final long timeBase) throws Exception
+   public void cancel(final MessageReference reference, final long timeBase) throws Exception
    {
       deliveringCount.decrementAndGet();
       if (checkRedelivery(reference, timeBase))
       {
-         if (!scheduledDeliveryHandler.checkAndSchedule(reference, false))
-         {
-            internalAddHead(reference);
-         }
+         returnToHead(reference);
 
-         resetAllIterators();
+         deliverAsync();
       }
    }
 
@@ -1114,15 +1183,15 @@ public class QueueImpl implements Queue
       return getInstantMessagesAdded();
    }
 
-   public synchronized long getInstantMessagesAdded()
+   public long getInstantMessagesAdded()
    {
       if (pageSubscription != null)
       {
-         return messagesAdded + pageSubscription.getCounter().getValue() - pagedReferences.get();
+         return messagesAdded.get() + pageSubscription.getCounter().getValue() - pagedReferences.get();
       }
       else
       {
-         return messagesAdded;
+         return messagesAdded.get();
       }
     }
 
@@ -1131,7 +1200,7 @@ public class QueueImpl implements Queue
       return deleteMatchingReferences(null);
    }
 
-   public synchronized int deleteMatchingReferences(final Filter filter1) throws Exception
+   public int deleteMatchingReferences(final Filter filter1) throws Exception
    {
       return iterQueue(filter1, new QueueIterateAction()
       {
@@ -1151,12 +1220,15 @@ public class QueueImpl implements Queue
     * Instead of duplicate the feature we created an abstract class where you pass the logic for
     * each message. Too bad there's not such thing as a function pointer in Java (as there is in
     * scala).
+    * <p>
+    * The queue is only locked for {@link #MAX_SCANNED_IN_LOCK} references at a time while the
+    * references in memory are scanned, so deliveries can go on in the meantime.
     * @param filter1
     * @param messageAction
     * @return
     * @throws Exception
     */
-   private synchronized int iterQueue(final Filter filter1, QueueIterateAction messageAction) throws Exception
+   private int iterQueue(final Filter filter1, QueueIterateAction messageAction) throws Exception
    {
       int count = 0;
       int txCount = 0;
@@ -1166,100 +1238,118 @@ public class QueueImpl implements Queue
       LinkedListIterator<MessageReference> iter = iterator();
       try
       {
-
-         while (iter.hasNext())
+         boolean hasNext = true;
+         while (hasNext)
          {
-            MessageReference ref = iter.next();
-
-            if (ref.isPaged() && queueDestroyed)
+            synchronized (this)
             {
-               // this means the queue is being removed
-               // hence paged references are just going away through
-               // page cleanup
-               continue;
-            }
+               for (int scanned = 0; scanned < MAX_SCANNED_IN_LOCK && (hasNext = iter.hasNext()); scanned++)
+               {
+                  MessageReference ref = iter.next();
 
-            if (filter1 == null || filter1.match(ref.getMessage()))
-            {
-               messageAction.actMessage(tx, ref);
-               iter.remove();
-               txCount++;
-               count++;
+                  if (ref.isPaged() && queueDestroyed)
+                  {
+                     // this means the queue is being removed
+                     // hence paged references are just going away through
+                     // page cleanup
+                     continue;
+                  }
+
+                  if (filter1 == null || filter1.match(ref.getMessage()))
+                  {
+                     messageAction.actMessage(tx, ref);
+                     iter.remove();
+                     txCount++;
+                     count++;
+                  }
+               }
             }
          }
 
-         if (txCount > 0)
+         synchronized (this)
          {
-            tx.commit();
+            return iterScheduledAndPaged(filter1, messageAction, tx, count, txCount);
+         }
+      }
+      finally
+      {
+         iter.close();
+      }
+   }
 
-            tx = new TransactionImpl(storageManager);
+   private int iterScheduledAndPaged(final Filter filter1,
+                                     final QueueIterateAction messageAction,
+                                     Transaction tx,
+                                     int count,
+                                     int txCount) throws Exception
+   {
+      if (txCount > 0)
+      {
+         tx.commit();
 
-            txCount = 0;
-         }
+         tx = new TransactionImpl(storageManager);
 
-         List<MessageReference> cancelled = scheduledDeliveryHandler.cancel(filter1);
-         for (MessageReference messageReference : cancelled)
-         {
-            messageAction.actMessage(tx, messageReference);
-            count++;
-            txCount++;
-         }
+         txCount = 0;
+      }
 
-         if (txCount > 0)
-         {
-            tx.commit();
-            tx = new TransactionImpl(storageManager);
-            txCount = 0;
-         }
+      List<MessageReference> cancelled = scheduledDeliveryHandler.cancel(filter1);
+      for (MessageReference messageReference : cancelled)
+      {
+         messageAction.actMessage(tx, messageReference);
+         count++;
+         txCount++;
+      }
 
+      if (txCount > 0)
+      {
+         tx.commit();
+         tx = new TransactionImpl(storageManager);
+         txCount = 0;
+      }
 
-         if (pageIterator != null && !queueDestroyed)
-         {
-            // System.out.println("QueueMemorySize before depage = " + queueMemorySize.get());
-            while (pageIterator.hasNext())
-            {
-               PagedReference reference = pageIterator.next();
-               pageIterator.remove();
 
-               if (filter1 == null || filter1.match(reference.getMessage()))
-               {
-                  count++;
-                  txCount++;
-                  messageAction.actMessage(tx, reference);
-               }
-               else
-               {
-                  addTail(reference, false);
-               }
+      if (pageIterator != null && !queueDestroyed)
+      {
+         // System.out.println("QueueMemorySize before depage = " + queueMemorySize.get());
+         while (pageIterator.hasNext())
+         {
+            PagedReference reference = pageIterator.next();
+            pageIterator.remove();
 
-               if (txCount > 0 && txCount % 500 == 0)
-               {
-                  tx.commit();
-                  tx = new TransactionImpl(storageManager);
-                  txCount = 0;
-               }
+            if (filter1 == null || filter1.match(reference.getMessage()))
+            {
+               count++;
+               txCount++;
+               messageAction.actMessage(tx, reference);
+            }
+            else
+            {
+               addTail(reference, false);
             }
-         }
 
-         if (txCount > 0)
-         {
-            tx.commit();
-            tx = null;
+            if (txCount > 0 && txCount % 500 == 0)
+            {
+               tx.commit();
+               tx = new TransactionImpl(storageManager);
+               txCount = 0;
+            }
          }
+      }
 
+      if (txCount > 0)
+      {
+         tx.commit();
+         tx = null;
+      }
 
 
-         if (filter != null && !queueDestroyed && pageSubscription != null)
-         {
-            scheduleDepage(false);
-         }
 
-         return count;
-      }
-      finally
+      if (filter != null && !queueDestroyed && pageSubscription != null)
       {
-         iter.close();
+         scheduleDepage(false);
       }
+
+      return count;
    }
 
    public void destroyPaging() throws Exception
@@ -1375,7 +1465,7 @@ public class QueueImpl implements Queue
       }
    }
 
-   public synchronized int expireReferences(final Filter filter) throws Exception
+   public int expireReferences(final Filter filter) throws Exception
    {
       if (expiryAddress != null && expiryAddress.equals(this.address))
       {
@@ -1392,17 +1482,23 @@ public class QueueImpl implements Queue
 
       try
       {
-
-         while (iter.hasNext())
+         boolean hasNext = true;
+         while (hasNext)
          {
-            MessageReference ref = iter.next();
-            if (filter == null || filter.match(ref.getMessage()))
+            synchronized (this)
             {
-               deliveringCount.incrementAndGet();
-               expire(tx, ref);
-               iter.remove();
-               refRemoved(ref);
-               count++;
+               for (int scanned = 0; scanned < MAX_SCANNED_IN_LOCK && (hasNext = iter.hasNext()); scanned++)
+               {
+                  MessageReference ref = iter.next();
+                  if (filter == null || filter.match(ref.getMessage()))
+                  {
+                     deliveringCount.incrementAndGet();
+                     expire(tx, ref);
+                     iter.remove();
+                     refRemoved(ref);
+                     count++;
+                  }
+               }
             }
          }
 
@@ -1439,6 +1535,7 @@ public class QueueImpl implements Queue
 
       public void run()
       {
+         LinkedListIterator<MessageReference> iter;
          synchronized (QueueImpl.this)
          {
             if (queueDestroyed)
@@ -1446,51 +1543,61 @@ public class QueueImpl implements Queue
                return;
             }
 
-            LinkedListIterator<MessageReference> iter = iterator();
+            iter = iterator();
+         }
 
-            try
+         try
+         {
+            boolean expired = false;
+            boolean hasElements = false;
+            boolean hasNext = true;
+            // the queue is only locked for a few references at a time, so the scan doesn't stall deliveries
+            while (hasNext)
             {
-               boolean expired = false;
-               boolean hasElements = false;
-               while (postOffice.isStarted() && iter.hasNext())
+               synchronized (QueueImpl.this)
                {
-                  hasElements = true;
-                  MessageReference ref = iter.next();
-                  try
+                  for (int scanned = 0; scanned < MAX_SCANNED_IN_LOCK && (hasNext = postOffice.isStarted() && iter.hasNext()); scanned++)
                   {
-                     if (ref.getMessage().isExpired())
+                     hasElements = true;
+                     MessageReference ref = iter.next();
+                     try
                      {
-                        deliveringCount.incrementAndGet();
-                        expired = true;
-                        expire(ref);
-                        iter.remove();
-                        refRemoved(ref);
+                        if (ref.getMessage().isExpired())
+                        {
+                           deliveringCount.incrementAndGet();
+                           expired = true;
+                           expire(ref);
+                           iter.remove();
+                           refRemoved(ref);
+                        }
+                     }
+                     catch (Exception e)
+                     {
+                        HornetQServerLogger.LOGGER.errorExpiringReferencesOnQueue(e, ref);
                      }
                   }
-                  catch (Exception e)
-                  {
-                     HornetQServerLogger.LOGGER.errorExpiringReferencesOnQueue(e, ref);
-                  }
-
                }
+            }
 
+            synchronized (QueueImpl.this)
+            {
                // If empty we need to schedule depaging to make sure we would depage expired messages as well
                if ((!hasElements || expired) && pageIterator != null && pageIterator.hasNext())
                {
                   scheduleDepage(true);
                }
             }
-            finally
+         }
+         finally
+         {
+            try
+            {
+               iter.close();
+            }
+            catch (Throwable ignored)
             {
-               try
-               {
-                  iter.close();
-               }
-               catch (Throwable ignored)
-               {
-               }
-               scannerRunning.decrementAndGet();
             }
+            scannerRunning.decrementAndGet();
          }
       }
    }
@@ -1594,9 +1701,9 @@ public class QueueImpl implements Queue
       return moveReferences(filter, toAddress, false);
    }
 
-   public synchronized int moveReferences(final Filter filter,
-                                          final SimpleString toAddress,
-                                          final boolean rejectDuplicates) throws Exception
+   public int moveReferences(final Filter filter,
+                                final SimpleString toAddress,
+                                final boolean rejectDuplicates) throws Exception
    {
       final DuplicateIDCache targetDuplicateCache = postOffice.getDuplicateIDCache(toAddress);
 
@@ -1783,17 +1890,43 @@ public class QueueImpl implements Queue
     * The caller of this method requires synchronized on the queue.
     * I'm not going to add synchronized to this method just for a precaution,
     * as I'm not 100% sure this won't cause any extra runtime.
+    * The reference was already accounted for when it was given back, on {@link #returnToHead(MessageReference)}.
     * @param ref
     */
    private void internalAddHead(final MessageReference ref)
    {
-      queueMemorySize.addAndGet(ref.getMessageMemoryEstimate());
-      refAdded(ref);
       messageReferences.addHead(ref, ref.getMessage().getPriority());
    }
 
+   /**
+    * Adds the references given back by {@link #returnToHead(MessageReference)} to the head of the
+    * queue, in the order they were given back. The caller requires synchronized on the queue.
+    */
+   private void pollReturned()
+   {
+      MessageReference ref;
+
+      boolean returned = false;
+
+      while ((ref = returnedMessageReferences.poll()) != null)
+      {
+         internalAddHead(ref);
+
+         returnedReferences.decrementAndGet();
+
+         returned = true;
+      }
+
+      if (returned)
+      {
+         // the consumers may have gone past the head already
+         resetAllIterators();
+      }
+   }
+
    private synchronized void doInternalPoll()
    {
+      pollReturned();
 
       int added = 0;
       MessageReference ref;
@@ -1802,7 +1935,7 @@ public class QueueImpl implements Queue
       {
          internalAddTail(ref);
 
-         messagesAdded++;
+         messagesAdded.incrementAndGet();
          if (added++ > MAX_DELIVERIES_IN_LOOP)
          {
             // if we just keep polling from the intermediate we could starve in case there's a sustained load
@@ -1838,7 +1971,7 @@ public class QueueImpl implements Queue
 
       while (true)
       {
-         if (handled == MAX_DELIVERIES_IN_LOOP)
+         if (handled >= MAX_DELIVERIES_IN_LOOP)
          {
             // Schedule another one - we do this to prevent a single thread getting caught up in this loop for too
             // long
@@ -1860,168 +1993,212 @@ public class QueueImpl implements Queue
             return;
          }
 
+         // The references handled while holding the lock, to be delivered to each consumer at once
+         Map<Consumer, List<MessageReference>> handledRefs = new LinkedHashMap<Consumer, List<MessageReference>>();
 
-         MessageReference ref;
-
-         Consumer handledconsumer = null;
+         int batched = 0;
 
-         synchronized (this)
-         {
+         boolean stopped = false;
 
-            // Need to do these checks inside the synchronized
-            if (paused || consumerList.isEmpty())
-            {
-               return;
-            }
+         boolean finished = false;
 
-            if (messageReferences.size() == 0)
-            {
-               break;
-            }
+         boolean allBusy = false;
 
-            if (endPos < 0 || consumersChanged)
+         synchronized (this)
+         {
+            while (batched < MAX_DELIVERIES_IN_BATCH && handled < MAX_DELIVERIES_IN_LOOP)
             {
-               consumersChanged = false;
+               MessageReference ref;
 
-               size = consumerList.size();
+               Consumer handledconsumer = null;
 
-               endPos = pos -1;
+               // Need to do these checks inside the synchronized
+               if (paused || consumerList.isEmpty())
+               {
+                  stopped = true;
+                  break;
+               }
 
-               if (endPos < 0)
+               if (messageReferences.size() == 0)
                {
-                  endPos = size -1;
-                  noDelivery = 0;
+                  finished = true;
+                  break;
                }
-            }
 
-            ConsumerHolder holder = consumerList.get(pos);
+               if (endPos < 0 || consumersChanged)
+               {
+                  consumersChanged = false;
 
-            Consumer consumer = holder.consumer;
+                  size = consumerList.size();
 
-            if (holder.iter == null)
-            {
-               holder.iter = messageReferences.iterator();
-            }
+                  endPos = pos -1;
 
-            if (holder.iter.hasNext())
-            {
-               ref = holder.iter.next();
-            }
-            else
-            {
-               ref = null;
-            }
-            if (ref == null)
-            {
-               noDelivery++;
-            }
-            else
-            {
-               if (checkExpired(ref))
-               {
-                  if (isTrace)
+                  if (endPos < 0)
                   {
-                     HornetQServerLogger.LOGGER.trace("Reference " + ref + " being expired");
+                     endPos = size -1;
+                     noDelivery = 0;
                   }
-                  holder.iter.remove();
+               }
 
-                  refRemoved(ref);
+               ConsumerHolder holder = consumerList.get(pos);
 
-                  handled++;
+               Consumer consumer = holder.consumer;
 
-                  continue;
+               if (holder.iter == null)
+               {
+                  holder.iter = messageReferences.iterator();
                }
 
-               Consumer groupConsumer = null;
-
-               if (isTrace)
+               if (holder.iter.hasNext())
+               {
+                  ref = holder.iter.next();
+               }
+               else
+               {
+                  ref = null;
+               }
+               if (ref == null)
                {
-                  HornetQServerLogger.LOGGER.trace("Queue " + this.getName() + " is delivering reference " + ref);
+                  noDelivery++;
                }
+               else
+               {
+                  if (checkExpired(ref))
+                  {
+                     if (isTrace)
+                     {
+                        HornetQServerLogger.LOGGER.trace("Reference " + ref + " being expired");
+                     }
+                     holder.iter.remove();
 
-               // If a group id is set, then this overrides the consumer chosen round-robin
+                     refRemoved(ref);
 
-               SimpleString groupID = ref.getMessage().getSimpleStringProperty(Message.HDR_GROUP_ID);
+                     handled++;
 
-               if (groupID != null)
-               {
-                  groupConsumer = groups.get(groupID);
+                     continue;
+                  }
 
-                  if (groupConsumer != null)
+                  Consumer groupConsumer = null;
+
+                  if (isTrace)
                   {
-                     consumer = groupConsumer;
+                     HornetQServerLogger.LOGGER.trace("Queue " + this.getName() + " is delivering reference " + ref);
                   }
-               }
 
-               HandleStatus status = handle(ref, consumer);
+                  // If a group id is set, then this overrides the consumer chosen round-robin
 
-               if (status == HandleStatus.HANDLED)
-               {
-
-                  deliveriesInTransit.countUp();
+                  SimpleString groupID = ref.getMessage().getSimpleStringProperty(Message.HDR_GROUP_ID);
 
-                  handledconsumer = consumer;
+                  if (groupID != null)
+                  {
+                     groupConsumer = groups.get(groupID);
 
-                  holder.iter.remove();
+                     if (groupConsumer != null)
+                     {
+                        consumer = groupConsumer;
+                     }
+                  }
 
-                  refRemoved(ref);
+                  HandleStatus status = handle(ref, consumer);
 
-                  if (groupID != null && groupConsumer == null)
+                  if (status == HandleStatus.HANDLED)
                   {
-                     groups.put(groupID, consumer);
-                  }
 
-                  handled++;
-               }
-               else if (status == HandleStatus.BUSY)
-               {
-                  holder.iter.repeat();
+                     deliveriesInTransit.countUp();
 
-                  noDelivery++;
-               }
-               else if (status == HandleStatus.NO_MATCH)
-               {
-                  // nothing to be done on this case, the iterators will just jump next
-               }
-            }
+                     handledconsumer = consumer;
 
-            if (pos == endPos)
-            {
-               // Round robin'd all
+                     List<MessageReference> consumerRefs = handledRefs.get(consumer);
 
-               if (noDelivery == size)
-               {
-                  if (handledconsumer != null)
+                     if (consumerRefs == null)
+                     {
+                        consumerRefs = new ArrayList<MessageReference>();
+
+                        handledRefs.put(consumer, consumerRefs);
+                     }
+
+                     consumerRefs.add(ref);
+
+                     batched++;
+
+                     holder.iter.remove();
+
+                     refRemoved(ref);
+
+                     if (groupID != null && groupConsumer == null)
+                     {
+                        groups.put(groupID, consumer);
+                     }
+
+                     handled++;
+                  }
+                  else if (status == HandleStatus.BUSY)
+                  {
+                     holder.iter.repeat();
+
+                     noDelivery++;
+                  }
+                  else if (status == HandleStatus.NO_MATCH)
                   {
-                     // this shouldn't really happen,
-                     // however I'm keeping this as an assertion case future developers ever change the logic here on this class
-                     HornetQServerLogger.LOGGER.warn("Internal error! Delivery logic has identified a non delivery and still handled a consumer!");
+                     // nothing to be done on this case, the iterators will just jump next
                   }
-                  else
+               }
+
+               if (pos == endPos)
+               {
+                  // Round robin'd all
+
+                  if (noDelivery == size)
                   {
-                     if (HornetQServerLogger.LOGGER.isDebugEnabled())
+                     if (handledconsumer != null)
                      {
-                        HornetQServerLogger.LOGGER.debug(this + "::All the consumers were busy, giving up now");
+                        // this shouldn't really happen,
+                        // however I'm keeping this as an assertion case future developers ever change the logic here on this class
+                        HornetQServerLogger.LOGGER.warn("Internal error! Delivery logic has identified a non delivery and still handled a consumer!");
+                     }
+                     else
+                     {
+                        if (HornetQServerLogger.LOGGER.isDebugEnabled())
+                        {
+                           HornetQServerLogger.LOGGER.debug(this + "::All the consumers were busy, giving up now");
+                        }
+
+                        // the next round starts over from this consumer
+                        noDelivery = 0;
+
+                        endPos = -1;
+
+                        allBusy = true;
+
+                        break;
                      }
-                     break;
                   }
+
+                  noDelivery = 0;
                }
 
-               noDelivery = 0;
+               pos++;
+
+               if (pos == size)
+               {
+                  pos = 0;
+               }
             }
+         }
 
-            pos++;
+         proceedDeliveries(handledRefs);
 
-            if (pos == size)
-            {
-               pos = 0;
-            }
+         if (stopped)
+         {
+            return;
          }
 
-          if (handledconsumer != null)
-          {
-              proceedDeliver(handledconsumer, ref);
-          }
+         // The consumers may have been busy only because of what they were just handed, so unless
+         // nothing was handed at all they are tried again
+         if (finished || allBusy && batched == 0)
+         {
+            break;
+         }
       }
 
       if (pageIterator != null && messageReferences.size() == 0 && pageSubscription.isPaging() && pageIterator.hasNext() && !depagePending)
@@ -2387,7 +2564,7 @@ public class QueueImpl implements Queue
                   groups.put(groupID, consumer);
                }
 
-               messagesAdded++;
+               messagesAdded.incrementAndGet();
 
                deliveriesInTransit.countUp();
                proceedDeliver(consumer, ref);
@@ -2404,6 +2581,69 @@ public class QueueImpl implements Queue
       }
    }
 
+   private void proceedDeliveries(final Map<Consumer, List<MessageReference>> handledRefs)
+   {
+      for (Map.Entry<Consumer, List<MessageReference>> entry : handledRefs.entrySet())
+      {
+         List<MessageReference> references = entry.getValue();
+
+         if (references.size() == 1)
+         {
+            proceedDeliver(entry.getKey(), references.get(0));
+         }
+         else
+         {
+            proceedDeliver(entry.getKey(), references);
+         }
+      }
+   }
+
+   private void proceedDeliver(Consumer consumer, List<MessageReference> references)
+   {
+      try
+      {
+         consumer.proceedDeliver(references);
+      }
+      catch (Throwable t)
+      {
+         // The references the consumer already delivered must not be delivered again
+         int delivered = 0;
+
+         if (t instanceof PartialDeliveryException)
+         {
+            delivered = ((PartialDeliveryException)t).getDelivered();
+            t = t.getCause();
+         }
+
+         HornetQServerLogger.LOGGER.removingBadConsumer(t, consumer, references.get(delivered));
+
+         // If the consumer throws an exception we remove the consumer
+         try
+         {
+            removeConsumer(consumer);
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.errorRemovingConsumer(e);
+         }
+
+         // The messages failed to be delivered, hence we try again, in their original order
+         for (int i = references.size() - 1; i >= delivered; i--)
+         {
+            returnToHead(references.get(i));
+         }
+
+         deliverAsync();
+      }
+      finally
+      {
+         for (int i = 0; i < references.size(); i++)
+         {
+            deliveriesInTransit.countDown();
+         }
+      }
+   }
+
    private void proceedDeliver(Consumer consumer, MessageReference reference)
    {
       try
@@ -2414,21 +2654,20 @@ public class QueueImpl implements Queue
       {
          HornetQServerLogger.LOGGER.removingBadConsumer(t, consumer, reference);
 
-         synchronized (this)
+         // If the consumer throws an exception we remove the consumer
+         try
          {
-            // If the consumer throws an exception we remove the consumer
-            try
-            {
-               removeConsumer(consumer);
-            }
-            catch (Exception e)
-            {
-               HornetQServerLogger.LOGGER.errorRemovingConsumer(e);
-            }
-
-            // The message failed to be delivered, hence we try again
-            addHead(reference);
+            removeConsumer(consumer);
+         }
+         catch (Exception e)
+         {
+            HornetQServerLogger.LOGGER.errorRemovingConsumer(e);
          }
+
+         // The message failed to be delivered, hence we try again
+         returnToHead(reference);
+
+         deliverAsync();
       }
       finally
       {
@@ -2463,7 +2702,10 @@ public class QueueImpl implements Queue
       }
    }
 
-   private synchronized HandleStatus handle(final MessageReference reference, final Consumer consumer)
+   /**
+    * The caller of this method requires synchronized on the queue.
+    */
+   private HandleStatus handle(final MessageReference reference, final Consumer consumer)
    {
       HandleStatus status;
       try
@@ -2585,9 +2827,9 @@ public class QueueImpl implements Queue
       return delay;
    }
 
-   public synchronized void resetMessagesAdded()
+   public void resetMessagesAdded()
    {
-	  messagesAdded = 0;
+      messagesAdded.set(0);
    }
 
 
@@ -2667,10 +2909,7 @@ public class QueueImpl implements Queue
 
             QueueImpl queue = entry.getKey();
 
-            synchronized (queue)
-            {
-               queue.postRollback(refs);
-            }
+            queue.postRollback(refs);
          }
       }
 
@@ -2679,10 +2918,7 @@ public class QueueImpl implements Queue
       {
          for (MessageReference ref : refsToAck)
          {
-            synchronized (ref.getQueue())
-            {
-               postAcknowledge(ref);
-            }
+            postAcknowledge(ref);
          }
 
          if (pagedMessagesToPostACK != null)
@@ -2858,7 +3094,7 @@ public class QueueImpl implements Queue
             pageIter = pageSubscription.iterator();
          }
          interIterator = intermediateMessageReferences.iterator();
-         messagesIterator = new SynchronizedIterator(messageReferences.iterator());
+         messagesIterator = QueueImpl.this.iterator();
       }
 
       @Override
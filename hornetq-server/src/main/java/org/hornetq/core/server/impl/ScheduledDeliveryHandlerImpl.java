@@ -13,22 +13,26 @@
 package org.hornetq.core.server.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 import org.hornetq.core.filter.Filter;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.ScheduledDeliveryHandler;
+import org.hornetq.core.server.impl.ScheduledDeliveryWheel.Timeout;
 
 /**
  * Handles scheduling deliveries to a queue at the correct time.
+ * <p>
+ * The references are scheduled on a {@link ScheduledDeliveryWheel}, usually shared by all the
+ * queues of the server, and indexed by message ID so they can be removed without a scan.
  *
  * @author <a href="mailto:tim.fox@jboss.com">Tim Fox</a>
  * @author <a href="ataylor@redhat.com">Andy Taylor</a>
@@ -39,45 +43,65 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
 {
    private static final boolean trace = HornetQServerLogger.LOGGER.isTraceEnabled();
 
-   private final ScheduledExecutorService scheduledExecutor;
+   private static final Comparator<Timeout> SEQUENCE_ORDER = new Comparator<Timeout>()
+   {
+      public int compare(final Timeout t1, final Timeout t2)
+      {
+         return t1.sequence < t2.sequence ? -1 : t1.sequence == t2.sequence ? 0 : 1;
+      }
+   };
+
+   private final ScheduledDeliveryWheel wheel;
 
    private final Object lockDelivery = new Object();
 
-   private final LinkedList<MessageReference> scheduledReferences = new LinkedList<MessageReference>();
+   /**
+    * The scheduled references by message ID.
+    */
+   private final Map<Long, Timeout> scheduledReferences = new HashMap<Long, Timeout>();
+
+   // guarded by scheduledReferences
+
+   private int scheduledCount;
+
+   private long headSequence;
+
+   private long tailSequence;
 
    public ScheduledDeliveryHandlerImpl(final ScheduledExecutorService scheduledExecutor)
    {
-      this.scheduledExecutor = scheduledExecutor;
+      this(scheduledExecutor == null ? null : new ScheduledDeliveryWheel(scheduledExecutor));
+   }
+
+   public ScheduledDeliveryHandlerImpl(final ScheduledDeliveryWheel wheel)
+   {
+      this.wheel = wheel;
    }
 
    public boolean checkAndSchedule(final MessageReference ref, final boolean tail)
    {
       long deliveryTime = ref.getScheduledDeliveryTime();
 
-      if (deliveryTime > 0 && scheduledExecutor != null)
+      if (deliveryTime > 0 && wheel != null)
       {
          if (ScheduledDeliveryHandlerImpl.trace)
          {
             HornetQServerLogger.LOGGER.trace("Scheduling delivery for " + ref + " to occur at " + deliveryTime);
          }
 
-         ScheduledDeliveryRunnable runnable = new ScheduledDeliveryRunnable(ref.getScheduledDeliveryTime());
-
          synchronized (scheduledReferences)
          {
-            if (tail)
-            {
-               // We do the opposite what the parameter says as the Runnable will always add it to the head
-               scheduledReferences.addFirst(ref);
-            }
-            else
-            {
-               // We do the opposite what the parameter says as the Runnable will always add it to the head
-               scheduledReferences.add(ref);
-            }
-         }
+            // We do the opposite what the parameter says as the references are always delivered to the head
+            Timeout timeout = new Timeout(this, ref, tail ? --headSequence : ++tailSequence);
+
+            wheel.add(timeout, deliveryTime);
+
+            Timeout sameID = scheduledReferences.put(ref.getMessage().getMessageID(), timeout);
 
-         scheduleDelivery(runnable, deliveryTime);
+            timeout.sameID = sameID;
+
+            scheduledCount++;
+         }
 
          return true;
       }
@@ -88,7 +112,7 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
    {
       synchronized (scheduledReferences)
       {
-         return scheduledReferences.size();
+         return scheduledCount;
       }
    }
 
@@ -98,7 +122,10 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
 
       synchronized (scheduledReferences)
       {
-         refs.addAll(scheduledReferences);
+         for (Timeout timeout : getTimeouts())
+         {
+            refs.add(timeout.ref);
+         }
       }
       return refs;
    }
@@ -109,15 +136,13 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
 
       synchronized (scheduledReferences)
       {
-         Iterator<MessageReference> iter = scheduledReferences.iterator();
-
-         while (iter.hasNext())
+         for (Timeout timeout : getTimeouts())
          {
-            MessageReference ref = iter.next();
-            if (filter == null || filter.match(ref.getMessage()))
+            if (filter == null || filter.match(timeout.ref.getMessage()))
             {
-               iter.remove();
-               refs.add(ref);
+               unindex(timeout);
+               wheel.remove(timeout);
+               refs.add(timeout.ref);
             }
          }
       }
@@ -128,84 +153,128 @@ public class ScheduledDeliveryHandlerImpl implements ScheduledDeliveryHandler
    {
       synchronized (scheduledReferences)
       {
-         Iterator<MessageReference> iter = scheduledReferences.iterator();
-         while (iter.hasNext())
+         Timeout timeout = scheduledReferences.get(id);
+
+         if (timeout != null)
          {
-            MessageReference ref = iter.next();
-            if (ref.getMessage().getMessageID() == id)
-            {
-               iter.remove();
-               return ref;
-            }
+            unindex(timeout);
+            wheel.remove(timeout);
+            return timeout.ref;
          }
       }
 
       return null;
    }
 
-   private void scheduleDelivery(final ScheduledDeliveryRunnable runnable, final long deliveryTime)
+   /**
+    * Delivers the references whose delivery time has come.
+    * <p>
+    * Called by the wheel, the references may have been cancelled in the meantime.
+    */
+   void deliver(final List<Timeout> timeouts)
    {
-      long now = System.currentTimeMillis();
+      HashMap<Queue, LinkedList<MessageReference>> refs = new HashMap<Queue, LinkedList<MessageReference>>();
+
+      synchronized (lockDelivery)
+      {
+         synchronized (scheduledReferences)
+         {
+            Collections.sort(timeouts, SEQUENCE_ORDER);
+
+            for (Timeout timeout : timeouts)
+            {
+               if (!unindex(timeout))
+               {
+                  continue;
+               }
+
+               MessageReference reference = timeout.ref;
+
+               reference.setScheduledDeliveryTime(0);
 
-      long delay = deliveryTime - now;
+               LinkedList<MessageReference> references = refs.get(reference.getQueue());
 
-      if (delay < 0)
+               if (references == null)
+               {
+                  references = new LinkedList<MessageReference>();
+                  refs.put(reference.getQueue(), references);
+               }
+
+               references.add(reference);
+            }
+         }
+
+         for (Map.Entry<Queue, LinkedList<MessageReference>> entry : refs.entrySet())
+         {
+            entry.getKey().addHead(entry.getValue());
+         }
+
+         // Just to speed up GC
+         refs.clear();
+      }
+   }
+
+   /**
+    * @return the scheduled timeouts, in delivery order
+    */
+   private List<Timeout> getTimeouts()
+   {
+      List<Timeout> timeouts = new ArrayList<Timeout>(scheduledCount);
+
+      for (Timeout timeout : scheduledReferences.values())
       {
-         delay = 0;
+         for (Timeout t = timeout; t != null; t = t.sameID)
+         {
+            timeouts.add(t);
+         }
       }
 
-      scheduledExecutor.schedule(runnable, delay, TimeUnit.MILLISECONDS);
+      Collections.sort(timeouts, SEQUENCE_ORDER);
+
+      return timeouts;
    }
 
-   private class ScheduledDeliveryRunnable implements Runnable
+   /**
+    * @return false if the timeout was not indexed anymore
+    */
+   private boolean unindex(final Timeout timeout)
    {
-      private final long scheduledTime;
+      long id = timeout.ref.getMessage().getMessageID();
 
-      public ScheduledDeliveryRunnable(final long scheduledTime)
+      Timeout head = scheduledReferences.get(id);
+
+      if (head == timeout)
       {
-         this.scheduledTime = scheduledTime;
+         if (timeout.sameID == null)
+         {
+            scheduledReferences.remove(id);
+         }
+         else
+         {
+            scheduledReferences.put(id, timeout.sameID);
+         }
       }
-
-      public void run()
+      else
       {
-         HashMap<Queue, LinkedList<MessageReference>> refs = new HashMap<Queue, LinkedList<MessageReference>>();
+         Timeout previous = head;
 
-         synchronized (lockDelivery)
+         while (previous != null && previous.sameID != timeout)
          {
-            synchronized (scheduledReferences)
-            {
-
-               Iterator<MessageReference> iter = scheduledReferences.iterator();
-               while (iter.hasNext())
-               {
-                  MessageReference reference = iter.next();
-                  if (reference.getScheduledDeliveryTime() <= this.scheduledTime)
-                  {
-                     iter.remove();
-
-                     reference.setScheduledDeliveryTime(0);
+            previous = previous.sameID;
+         }
 
-                     LinkedList<MessageReference> references = refs.get(reference.getQueue());
+         if (previous == null)
+         {
+            return false;
+         }
 
-                     if (references == null)
-                     {
-                        references = new LinkedList<MessageReference>();
-                        refs.put(reference.getQueue(), references);
-                     }
+         previous.sameID = timeout.sameID;
+      }
 
-                     references.add(reference);
-                  }
-               }
-            }
+      timeout.sameID = null;
 
-            for (Map.Entry<Queue, LinkedList<MessageReference>> entry : refs.entrySet())
-            {
-               entry.getKey().addHead(entry.getValue());
-            }
+      scheduledCount--;
 
-            // Just to speed up GC
-            refs.clear();
-         }
-      }
+      return true;
    }
 }
@@ -0,0 +1,370 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.server.impl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.core.server.HornetQServerLogger;
+import org.hornetq.core.server.MessageReference;
+
+/**
+ * A hashed timing wheel holding the scheduled references of the queues of a server.
+ * <p>
+ * References are hashed by delivery time into a ring of buckets which cover one tick each, so
+ * scheduling or cancelling a delivery is constant time whatever the number of scheduled messages.
+ * A single task advances the wheel on the scheduled executor, only while something is scheduled,
+ * and hands the references that are due to their {@link ScheduledDeliveryHandlerImpl} in one batch
+ * per handler. References keep their absolute deadline, so the ones due after more than a
+ * revolution stay in their bucket until it comes round again.
+ * <p>
+ * A reference is never delivered before its delivery time, and at most about one tick after it.
+ */
+public final class ScheduledDeliveryWheel
+{
+   public static final long DEFAULT_TICK = 5;
+
+   public static final int DEFAULT_WHEEL_SIZE = 8192;
+
+   private final ScheduledExecutorService scheduledExecutor;
+
+   private final long tick;
+
+   private final int mask;
+
+   private final Timeout[] buckets;
+
+   private final long origin = System.nanoTime();
+
+   /**
+    * The difference between {@link System#currentTimeMillis()} and the clock of the wheel.
+    */
+   private final long offset = System.currentTimeMillis() - now();
+
+   private final Runnable ticker = new Runnable()
+   {
+      public void run()
+      {
+         try
+         {
+            advance();
+         }
+         catch (Throwable t)
+         {
+            // the ticker must not stop as long as there are scheduled references
+            HornetQServerLogger.LOGGER.errorDeliveringScheduledMessages(t);
+         }
+      }
+   };
+
+   // guarded by this
+
+   private long currentTick;
+
+   private int size;
+
+   private ScheduledFuture<?> future;
+
+   private long deliveredCount;
+
+   private long totalLag;
+
+   private long maxLag;
+
+   public ScheduledDeliveryWheel(final ScheduledExecutorService scheduledExecutor)
+   {
+      this(scheduledExecutor, DEFAULT_TICK, DEFAULT_WHEEL_SIZE);
+   }
+
+   /**
+    * @param tick the duration covered by a bucket, in milliseconds
+    * @param wheelSize the number of buckets, a power of 2
+    */
+   public ScheduledDeliveryWheel(final ScheduledExecutorService scheduledExecutor, final long tick, final int wheelSize)
+   {
+      if (tick <= 0)
+      {
+         throw new IllegalArgumentException("tick must be positive: " + tick);
+      }
+      if (wheelSize <= 0 || (wheelSize & wheelSize - 1) != 0)
+      {
+         throw new IllegalArgumentException("wheelSize must be a power of 2: " + wheelSize);
+      }
+      this.scheduledExecutor = scheduledExecutor;
+      this.tick = tick;
+      mask = wheelSize - 1;
+      buckets = new Timeout[wheelSize];
+   }
+
+   /**
+    * @return the number of references waiting for their delivery time
+    */
+   public synchronized int getScheduledCount()
+   {
+      return size;
+   }
+
+   /**
+    * @return the number of references delivered since the wheel was created
+    */
+   public synchronized long getDeliveredCount()
+   {
+      return deliveredCount;
+   }
+
+   /**
+    * @return the average time, in milliseconds, between the delivery time of the references and
+    *         the moment they were actually delivered
+    */
+   public synchronized long getAverageLag()
+   {
+      return deliveredCount == 0 ? 0 : totalLag / deliveredCount;
+   }
+
+   /**
+    * @return the longest time, in milliseconds, a reference was delivered after its delivery time
+    */
+   public synchronized long getMaxLag()
+   {
+      return maxLag;
+   }
+
+   public long getTick()
+   {
+      return tick;
+   }
+
+   /**
+    * Schedules the timeout to expire at the given time, as returned by
+    * {@link System#currentTimeMillis()}.
+    */
+   synchronized void add(final Timeout timeout, final long deliveryTime)
+   {
+      long now = now();
+
+      if (future == null)
+      {
+         currentTick = now / tick;
+         future = scheduledExecutor.scheduleAtFixedRate(ticker, tick, tick, TimeUnit.MILLISECONDS);
+      }
+
+      // the wheel runs on its own clock, like the executor delays did, but references with the same
+      // delivery time must expire on the same tick
+      timeout.deadline = Math.max(now, deliveryTime - offset);
+
+      long deadlineTick = (timeout.deadline + tick - 1) / tick;
+
+      if (deadlineTick <= currentTick)
+      {
+         deadlineTick = currentTick + 1;
+      }
+
+      timeout.deadlineTick = deadlineTick;
+
+      link(timeout, (int)(deadlineTick & mask));
+
+      size++;
+   }
+
+   /**
+    * @return false if the timeout had already expired or been removed
+    */
+   synchronized boolean remove(final Timeout timeout)
+   {
+      if (timeout.bucket < 0)
+      {
+         return false;
+      }
+
+      unlink(timeout);
+
+      size--;
+
+      return true;
+   }
+
+   void advance()
+   {
+      List<Timeout> expired = new ArrayList<Timeout>();
+
+      synchronized (this)
+      {
+         long now = now();
+
+         long targetTick = now / tick;
+
+         // a full revolution visits every bucket, whatever the delay of the ticker
+         long ticks = Math.min(targetTick - currentTick, buckets.length);
+
+         for (long t = currentTick + 1; ticks > 0; t++, ticks--)
+         {
+            Timeout timeout = buckets[(int)(t & mask)];
+
+            while (timeout != null)
+            {
+               Timeout next = timeout.next;
+
+               if (timeout.deadlineTick <= targetTick)
+               {
+                  unlink(timeout);
+
+                  size--;
+
+                  long lag = now - timeout.deadline;
+
+                  totalLag += lag;
+
+                  maxLag = Math.max(maxLag, lag);
+
+                  expired.add(timeout);
+               }
+
+               timeout = next;
+            }
+         }
+
+         if (targetTick > currentTick)
+         {
+            currentTick = targetTick;
+         }
+
+         deliveredCount += expired.size();
+
+         if (size == 0 && future != null)
+         {
+            future.cancel(false);
+
+            future = null;
+         }
+      }
+
+      if (expired.isEmpty())
+      {
+         return;
+      }
+
+      Map<ScheduledDeliveryHandlerImpl, List<Timeout>> batches = new IdentityHashMap<ScheduledDeliveryHandlerImpl, List<Timeout>>();
+
+      for (Timeout timeout : expired)
+      {
+         List<Timeout> batch = batches.get(timeout.handler);
+
+         if (batch == null)
+         {
+            batch = new ArrayList<Timeout>();
+
+            batches.put(timeout.handler, batch);
+         }
+
+         batch.add(timeout);
+      }
+
+      for (Map.Entry<ScheduledDeliveryHandlerImpl, List<Timeout>> entry : batches.entrySet())
+      {
+         entry.getKey().deliver(entry.getValue());
+      }
+   }
+
+   private long now()
+   {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - origin);
+   }
+
+   private void link(final Timeout timeout, final int bucket)
+   {
+      Timeout head = buckets[bucket];
+
+      timeout.bucket = bucket;
+      timeout.prev = null;
+      timeout.next = head;
+
+      if (head != null)
+      {
+         head.prev = timeout;
+      }
+
+      buckets[bucket] = timeout;
+   }
+
+   private void unlink(final Timeout timeout)
+   {
+      if (timeout.prev == null)
+      {
+         buckets[timeout.bucket] = timeout.next;
+      }
+      else
+      {
+         timeout.prev.next = timeout.next;
+      }
+
+      if (timeout.next != null)
+      {
+         timeout.next.prev = timeout.prev;
+      }
+
+      timeout.bucket = -1;
+      timeout.prev = null;
+      timeout.next = null;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ScheduledDeliveryWheel [tick=" + tick + ", wheelSize=" + buckets.length + "]";
+   }
+
+   /**
+    * A reference waiting in the wheel.
+    */
+   static final class Timeout
+   {
+      final ScheduledDeliveryHandlerImpl handler;
+
+      final MessageReference ref;
+
+      /**
+       * The position of the reference among the references of its handler.
+       */
+      final long sequence;
+
+      /**
+       * The next timeout of the handler with the same message ID, if any.
+       */
+      Timeout sameID;
+
+      // guarded by the wheel
+
+      long deadline;
+
+      long deadlineTick;
+
+      int bucket = -1;
+
+      Timeout prev;
+
+      Timeout next;
+
+      Timeout(final ScheduledDeliveryHandlerImpl handler, final MessageReference ref, final long sequence)
+      {
+         this.handler = handler;
+         this.ref = ref;
+         this.sequence = sequence;
+      }
+   }
+}
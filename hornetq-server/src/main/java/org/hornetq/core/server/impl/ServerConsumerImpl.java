@@ -13,10 +13,12 @@
 
 package org.hornetq.core.server.impl;
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -31,15 +33,19 @@ import org.hornetq.api.core.management.ManagementHelper;
 import org.hornetq.api.core.management.NotificationType;
 import org.hornetq.core.client.impl.ClientConsumerImpl;
 import org.hornetq.core.filter.Filter;
+import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.message.BodyEncoder;
 import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.QueueBinding;
+import org.hornetq.core.protocol.core.FileRegion;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
 import org.hornetq.core.server.HandleStatus;
 import org.hornetq.core.server.HornetQServerLogger;
 import org.hornetq.core.server.HornetQMessageBundle;
 import org.hornetq.core.server.LargeServerMessage;
 import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.PartialDeliveryException;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.ServerConsumer;
 import org.hornetq.core.server.ServerMessage;
@@ -50,6 +56,7 @@ import org.hornetq.core.transaction.Transaction;
 import org.hornetq.core.transaction.impl.TransactionImpl;
 import org.hornetq.spi.core.protocol.SessionCallback;
 import org.hornetq.spi.core.remoting.ReadyListener;
+import org.hornetq.utils.DataConstants;
 import org.hornetq.utils.FutureLatch;
 import org.hornetq.utils.LinkedListIterator;
 import org.hornetq.utils.TypedProperties;
@@ -96,6 +103,15 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
    private volatile AtomicInteger availableCredits = new AtomicInteger(0);
 
+   /**
+    * The references handled but not delivered yet, and an estimate of the credits they will take.
+    * The queue may hand several references over before delivering them, so they are counted
+    * against the available credits in the meantime.
+    */
+   private final AtomicInteger pendingDeliveries = new AtomicInteger(0);
+
+   private final AtomicInteger pendingCredits = new AtomicInteger(0);
+
    private boolean started;
 
    private volatile LargeMessageDeliverer largeMessageDeliverer = null;
@@ -117,7 +133,7 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
    private final StorageManager storageManager;
 
-   private final java.util.Queue<MessageReference> deliveringRefs = new ConcurrentLinkedQueue<MessageReference>();
+   private final DeliveringReferences deliveringRefs = new DeliveringReferences();
 
    private final SessionCallback callback;
 
@@ -241,13 +257,15 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
    {
       synchronized(lock)
       {
-         refList.addAll(deliveringRefs);
+         deliveringRefs.copyTo(refList);
       }
    }
 
    public HandleStatus handle(final MessageReference ref) throws Exception
    {
-      if (availableCredits != null && availableCredits.get() <= 0)
+      AtomicInteger credits = availableCredits;
+
+      if (credits != null && credits.get() - pendingCredits.get() <= 0)
       {
          if (HornetQServerLogger.LOGGER.isDebugEnabled())
          {
@@ -347,6 +365,10 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
             largeMessageDeliverer = new LargeMessageDeliverer((LargeServerMessage) message, ref);
          }
 
+         pendingDeliveries.incrementAndGet();
+
+         pendingCredits.addAndGet(estimatePacketSize(message));
+
          lockDelivery.readLock().lock();
 
          return HandleStatus.HANDLED;
@@ -361,16 +383,7 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
          if (message.isLargeMessage() && supportLargeMessage)
          {
-            if (largeMessageDeliverer == null)
-            {
-               // This can't really happen as handle had already crated the deliverer
-               // instead of throwing an exception in weird cases there is no problem on just go ahead and create it
-               // again here
-               largeMessageDeliverer = new LargeMessageDeliverer((LargeServerMessage)message, reference);
-            }
-            // The deliverer was prepared during handle, as we can't have more than one pending large message
-            // as it would return busy if there is anything pending
-            largeMessageDeliverer.deliver();
+            deliverLargeMessage(reference, message);
          }
          else
          {
@@ -379,10 +392,88 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       }
       finally
       {
-         lockDelivery.readLock().unlock();
+         delivered();
       }
    }
 
+   public void proceedDeliver(List<MessageReference> references) throws Exception
+   {
+      // how many references were written, the queue takes back only the others on a failure
+      int written = 0;
+
+      try
+      {
+         // the standard messages are written at once, up to a large message if there is one
+         int firstStandard = 0;
+
+         for (int i = 0; i < references.size(); i++)
+         {
+            MessageReference reference = references.get(i);
+
+            ServerMessage message = reference.getMessage();
+
+            if (message.isLargeMessage() && supportLargeMessage)
+            {
+               deliverStandardMessages(references.subList(firstStandard, i));
+
+               written = i;
+
+               firstStandard = i + 1;
+
+               deliverLargeMessage(reference, message);
+
+               written = i + 1;
+            }
+         }
+
+         deliverStandardMessages(references.subList(firstStandard, references.size()));
+      }
+      catch (Exception e)
+      {
+         if (written == 0)
+         {
+            throw e;
+         }
+
+         throw new PartialDeliveryException(written, e);
+      }
+      finally
+      {
+         for (int i = 0; i < references.size(); i++)
+         {
+            delivered();
+         }
+      }
+   }
+
+   private void deliverLargeMessage(final MessageReference reference, final ServerMessage message) throws Exception
+   {
+      if (largeMessageDeliverer == null)
+      {
+         // This can't really happen as handle had already crated the deliverer
+         // instead of throwing an exception in weird cases there is no problem on just go ahead and create it
+         // again here
+         largeMessageDeliverer = new LargeMessageDeliverer((LargeServerMessage)message, reference);
+      }
+      // The deliverer was prepared during handle, as we can't have more than one pending large message
+      // as it would return busy if there is anything pending
+      largeMessageDeliverer.deliver();
+   }
+
+   /**
+    * Releases what {@link #handle(MessageReference)} took for a reference once it is delivered.
+    */
+   private void delivered()
+   {
+      if (pendingDeliveries.decrementAndGet() == 0)
+      {
+         // nothing is pending anymore, the estimates don't need to add up
+         pendingCredits.set(0);
+      }
+
+      lockDelivery.readLock().unlock();
+   }
+
    public Filter getFilter()
    {
       return filter;
@@ -537,33 +628,36 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       if (!deliveringRefs.isEmpty())
       {
-         for (MessageReference ref : deliveringRefs)
+         if (performACK)
          {
+            // the oldest reference was consumed, so it is acknowledged rather than cancelled
+            MessageReference ref = deliveringRefs.peek();
+
             if (isTrace)
             {
                HornetQServerLogger.LOGGER.trace("Cancelling reference for messageID = " + ref.getMessage().getMessageID() + ", ref = " + ref);
             }
-            if (performACK)
-            {
-               acknowledge(false, tx, ref.getMessage().getMessageID());
 
-               performACK = false;
-            }
-            else
+            acknowledge(false, tx, ref.getMessage().getMessageID());
+         }
+
+         for (MessageReference ref : deliveringRefs.removeAll())
+         {
+            if (isTrace)
             {
-               if (!failed)
-               {
-                  // We don't decrement delivery count if the client failed, since there's a possibility that refs
-                  // were actually delivered but we just didn't get any acks for them
-                  // before failure
-                  ref.decrementDeliveryCount();
-               }
+               HornetQServerLogger.LOGGER.trace("Cancelling reference for messageID = " + ref.getMessage().getMessageID() + ", ref = " + ref);
+            }
 
-               refs.add(ref);
+            if (!failed)
+            {
+               // We don't decrement delivery count if the client failed, since there's a possibility that refs
+               // were actually delivered but we just didn't get any acks for them
+               // before failure
+               ref.decrementDeliveryCount();
             }
-         }
 
-         deliveringRefs.clear();
+            refs.add(ref);
+         }
       }
 
       return refs;
@@ -573,19 +667,11 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
    {
       synchronized (lock)
       {
-         // This is to make sure that the delivery process has finished any pending delivery
-         // otherwise a message may sneak in on the client while we are trying to stop the consumer
-         lockDelivery.writeLock().lock();
-         try
-         {
-            this.started = browseOnly || started;
-         }
-         finally
-         {
-            lockDelivery.writeLock().unlock();
-         }
+         this.started = browseOnly || started;
       }
 
+      waitForPendingDeliveries();
+
       // Outside the lock
       if (started)
       {
@@ -593,23 +679,28 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       }
    }
 
+   /**
+    * This is to make sure that the delivery process has finished any pending delivery
+    * otherwise a message may sneak in on the client while we are trying to stop the consumer.
+    * <p>
+    * It waits outside the lock, as the queue may still be handing this consumer references along
+    * with those it was handed already, which will be refused now.
+    */
+   private void waitForPendingDeliveries()
+   {
+      lockDelivery.writeLock().lock();
+      lockDelivery.writeLock().unlock();
+   }
+
    public void setTransferring(final boolean transferring)
    {
       synchronized (lock)
       {
-         // This is to make sure that the delivery process has finished any pending delivery
-         // otherwise a message may sneak in on the client while we are trying to stop the consumer
-         lockDelivery.writeLock().lock();
-         try
-         {
-            this.transferring = transferring;
-         }
-         finally
-         {
-            lockDelivery.writeLock().unlock();
-         }
+         this.transferring = transferring;
       }
 
+      waitForPendingDeliveries();
+
       // Outside the lock
       if (transferring)
       {
@@ -816,25 +907,7 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       // Expiries can come in out of sequence with respect to delivery order
 
-      Iterator<MessageReference> iter = deliveringRefs.iterator();
-
-      MessageReference ref = null;
-
-      while (iter.hasNext())
-      {
-         MessageReference theRef = iter.next();
-
-         if (theRef.getMessage().getMessageID() == messageID)
-         {
-            iter.remove();
-
-            ref = theRef;
-
-            break;
-         }
-      }
-
-      return ref;
+      return deliveringRefs.remove(messageID);
    }
 
    public void readyForWriting(final boolean ready)
@@ -912,6 +985,23 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
    {
       int packetSize = callback.sendMessage(message, id, ref.getDeliveryCount());
 
+      takeCredits(packetSize);
+   }
+
+   private void deliverStandardMessages(final List<MessageReference> refs)
+   {
+      if (refs.size() == 1)
+      {
+         deliverStandardMessage(refs.get(0), refs.get(0).getMessage());
+      }
+      else if (!refs.isEmpty())
+      {
+         takeCredits(callback.sendMessages(refs, id));
+      }
+   }
+
+   private void takeCredits(final int packetSize)
+   {
       if (availableCredits != null)
       {
          availableCredits.addAndGet(-packetSize);
@@ -926,6 +1016,14 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
       }
    }
 
+   /**
+    * @return about the size of the packet the message will be sent in, slightly more if anything
+    */
+   private static int estimatePacketSize(final ServerMessage message)
+   {
+      return PacketImpl.PACKET_HEADERS_SIZE + message.getEncodeSize() + DataConstants.SIZE_LONG + DataConstants.SIZE_INT;
+   }
+
    // Inner classes
    // ------------------------------------------------------------------------
 
@@ -967,6 +1065,9 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
       private BodyEncoder context;
 
+      /** The body is sent from this file when the message has one, see {@link #openBodyFile()} */
+      private FileChannel bodyFile;
+
       public LargeMessageDeliverer(final LargeServerMessage message, final MessageReference ref) throws Exception
       {
          largeMessage = message;
@@ -1003,7 +1104,12 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
                sizePendingLargeMessage = context.getLargeBodySize();
 
-               context.open();
+               bodyFile = openBodyFile();
+
+               if (bodyFile == null)
+               {
+                  context.open();
+               }
 
                sentInitialPacket = true;
 
@@ -1050,18 +1156,31 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
 
                localChunkLen = (int)Math.min(sizePendingLargeMessage - positionPendingLargeMessage, minLargeMessageSize);
 
-               HornetQBuffer bodyBuffer = HornetQBuffers.fixedBuffer(localChunkLen);
+               boolean continues = positionPendingLargeMessage + localChunkLen < sizePendingLargeMessage;
+
+               int packetSize;
+
+               if (bodyFile != null)
+               {
+                  // the connection can transfer the region without reading it into memory
+                  packetSize = callback.sendLargeMessageContinuation(id,
+                                                                     new FileRegion(bodyFile,
+                                                                                    positionPendingLargeMessage,
+                                                                                    localChunkLen),
+                                                                     continues);
+               }
+               else
+               {
+                  HornetQBuffer bodyBuffer = HornetQBuffers.fixedBuffer(localChunkLen);
 
-               context.encode(bodyBuffer, localChunkLen);
+                  context.encode(bodyBuffer, localChunkLen);
 
-               byte[] body = bodyBuffer.toByteBuffer().array();
+                  byte[] body = bodyBuffer.toByteBuffer().array();
 
-               int packetSize = callback.sendLargeMessageContinuation(id,
-                                                                      body,
-                                                                      positionPendingLargeMessage + localChunkLen < sizePendingLargeMessage,
-                                                                      false);
+                  packetSize = callback.sendLargeMessageContinuation(id, body, continues, false);
+               }
 
-               int chunkLen = body.length;
+               int chunkLen = localChunkLen;
 
                if (availableCredits != null)
                {
@@ -1112,7 +1231,20 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
                // On that case we just ignore this call
                return;
             }
-            if (context != null)
+            if (bodyFile != null)
+            {
+               try
+               {
+                  bodyFile.close();
+               }
+               catch (IOException e)
+               {
+                  HornetQServerLogger.LOGGER.warn(e.getMessage(), e);
+               }
+
+               bodyFile = null;
+            }
+            else if (context != null)
             {
                context.close();
             }
@@ -1132,6 +1264,21 @@ public class ServerConsumerImpl implements ServerConsumer, ReadyListener
             largeMessage = null;
          }
       }
+
+      /**
+       * @return a channel reading the file of the message, or null if the message has no file
+       */
+      private FileChannel openBodyFile() throws Exception
+      {
+         SequentialFile file = largeMessage.getFile();
+
+         if (file == null)
+         {
+            return null;
+         }
+
+         return new FileInputStream(file.getJavaFile()).getChannel();
+      }
    }
 
    private class BrowserDeliverer implements Runnable
@@ -279,7 +279,10 @@ public class ServerMessageImpl extends MessageImpl implements ServerMessage
 
       // On the server side, we reset the address to point to the instance of address in the paging store
       // Otherwise each message would have its own copy of the address String which would take up more memory
-      address = pagingStore.getAddress();
+      if (pagingStore != null)
+      {
+         address = pagingStore.getAddress();
+      }
    }
 
    public synchronized void forceAddress(final SimpleString address)
@@ -1324,6 +1324,14 @@ public class ServerSessionImpl implements ServerSession, FailureListener
       }
    }
 
+   public void send(final List<ServerMessage> messages, final boolean direct) throws Exception
+   {
+      for (ServerMessage message : messages)
+      {
+         send(message, direct);
+      }
+   }
+
    public void sendContinuations(final int packetSize,
                                  final long messageBodySize,
                                  final byte[] body,
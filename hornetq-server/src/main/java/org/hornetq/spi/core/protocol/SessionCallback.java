@@ -13,7 +13,11 @@
 
 package org.hornetq.spi.core.protocol;
 
+import java.util.List;
+
 import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.protocol.core.FileRegion;
+import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.spi.core.remoting.ReadyListener;
 
@@ -32,10 +36,23 @@ public interface SessionCallback
 
    int sendMessage(ServerMessage message, long consumerID, int deliveryCount);
 
+   /**
+    * Sends the messages of the references, as {@link #sendMessage(ServerMessage, long, int)} would
+    * send each of them, but at once if the protocol allows it.
+    * @return the total size of what was sent
+    */
+   int sendMessages(List<MessageReference> references, long consumerID);
+
    int sendLargeMessage(ServerMessage message, long consumerID, long bodySize, int deliveryCount);
 
    int sendLargeMessageContinuation(long consumerID, byte[] body, boolean continues, boolean requiresResponse);
 
+   /**
+    * Sends a part of the body of a large message as a region of its file, so the connection can
+    * transfer it without reading it into memory.
+    */
+   int sendLargeMessageContinuation(long consumerID, FileRegion body, boolean continues);
+
    void closed();
 
    void addReadyListener(ReadyListener listener);
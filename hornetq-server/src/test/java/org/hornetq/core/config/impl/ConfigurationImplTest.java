@@ -61,9 +61,11 @@ public class ConfigurationImplTest extends UnitTestCase
                           conf.isJournalSyncNonTransactional());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalFileSize(), conf.getJournalFileSize());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalMinFiles(), conf.getJournalMinFiles());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalLoadThreads(), conf.getJournalLoadThreads());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalMaxIoAio(), conf.getJournalMaxIO_AIO());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalMaxIoNio(), conf.getJournalMaxIO_NIO());
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultWildcardRoutingEnabled(), conf.isWildcardRoutingEnabled());
+      Assert.assertEquals(HornetQDefaultConfiguration.isDefaultRoutingIndexEnabled(), conf.isRoutingIndexEnabled());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultTransactionTimeout(), conf.getTransactionTimeout());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultMessageExpiryScanPeriod(), conf.getMessageExpiryScanPeriod()); // OK
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultMessageExpiryThreadPriority(),
@@ -81,11 +83,14 @@ public class ConfigurationImplTest extends UnitTestCase
                           conf.isPersistDeliveryCountBeforeDelivery());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultFileDeployerScanPeriod(), conf.getFileDeployerScanPeriod());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultThreadPoolMaxSize(), conf.getThreadPoolMaxSize());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultExecutorMaxTasksPerRun(), conf.getExecutorMaxTasksPerRun());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultExecutorMaxRunTime(), conf.getExecutorMaxRunTime());
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultJmxManagementEnabled(), conf.isJMXManagementEnabled());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultConnectionTtlOverride(), conf.getConnectionTTLOverride());
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultAsyncConnectionExecutionEnabled(),
                           conf.isAsyncConnectionExecutionEnabled());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultPagingDir(), conf.getPagingDirectory());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultGlobalMaxSize(), conf.getGlobalMaxSize());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultLargeMessagesDir(), conf.getLargeMessagesDirectory());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactPercentage(), conf.getJournalCompactPercentage());
       Assert.assertEquals(JournalConstants.DEFAULT_JOURNAL_BUFFER_TIMEOUT_AIO, conf.getJournalBufferTimeout_AIO());
@@ -100,6 +105,10 @@ public class ConfigurationImplTest extends UnitTestCase
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultMessageCounterSamplePeriod(), conf.getMessageCounterSamplePeriod());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultIdCacheSize(), conf.getIDCacheSize());
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultPersistIdCache(), conf.isPersistIDCache());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultIdCacheExpiry(), conf.getIDCacheExpiry());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultReplicationBatchSize(), conf.getReplicationBatchSize());
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultReplicationBatchesInFlight(),
+                          conf.getReplicationBatchesInFlight());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultServerDumpInterval(), conf.getServerDumpInterval());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultMemoryWarningThreshold(), conf.getMemoryWarningThreshold());
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultMemoryMeasureInterval(), conf.getMemoryMeasureInterval());
@@ -219,6 +228,14 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setThreadPoolMaxSize(i);
          Assert.assertEquals(i, conf.getThreadPoolMaxSize());
 
+         i = RandomUtil.randomInt();
+         conf.setExecutorMaxTasksPerRun(i);
+         Assert.assertEquals(i, conf.getExecutorMaxTasksPerRun());
+
+         l = RandomUtil.randomLong();
+         conf.setExecutorMaxRunTime(l);
+         Assert.assertEquals(l, conf.getExecutorMaxRunTime());
+
          SimpleString ss = RandomUtil.randomSimpleString();
          conf.setManagementNotificationAddress(ss);
          Assert.assertEquals(ss, conf.getManagementNotificationAddress());
@@ -235,10 +252,30 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setPersistIDCache(b);
          Assert.assertEquals(b, conf.isPersistIDCache());
 
+         l = RandomUtil.randomLong();
+         conf.setIDCacheExpiry(l);
+         Assert.assertEquals(l, conf.getIDCacheExpiry());
+
+         i = RandomUtil.randomInt();
+         conf.setReplicationBatchSize(i);
+         Assert.assertEquals(i, conf.getReplicationBatchSize());
+
+         i = RandomUtil.randomInt();
+         conf.setReplicationBatchesInFlight(i);
+         Assert.assertEquals(i, conf.getReplicationBatchesInFlight());
+
          i = RandomUtil.randomInt();
          conf.setJournalCompactMinFiles(i);
          Assert.assertEquals(i, conf.getJournalCompactMinFiles());
 
+      i = RandomUtil.randomInt();
+      conf.setJournalLoadThreads(i);
+      Assert.assertEquals(i, conf.getJournalLoadThreads());
+
+         i = RandomUtil.randomInt();
+         conf.setJournalLoadThreads(i);
+         Assert.assertEquals(i, conf.getJournalLoadThreads());
+
          i = RandomUtil.randomInt();
          conf.setJournalCompactPercentage(i);
          Assert.assertEquals(i, conf.getJournalCompactPercentage());
@@ -275,6 +312,10 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setPagingDirectory(s);
          Assert.assertEquals(s, conf.getPagingDirectory());
 
+         l = RandomUtil.randomLong();
+         conf.setGlobalMaxSize(l);
+         Assert.assertEquals(l, conf.getGlobalMaxSize());
+
          s = RandomUtil.randomString();
          conf.setLargeMessagesDirectory(s);
          Assert.assertEquals(s, conf.getLargeMessagesDirectory());
@@ -283,6 +324,10 @@ public class ConfigurationImplTest extends UnitTestCase
          conf.setWildcardRoutingEnabled(b);
          Assert.assertEquals(b, conf.isWildcardRoutingEnabled());
 
+         b = RandomUtil.randomBoolean();
+         conf.setRoutingIndexEnabled(b);
+         Assert.assertEquals(b, conf.isRoutingIndexEnabled());
+
          l = RandomUtil.randomLong();
          conf.setTransactionTimeout(l);
          Assert.assertEquals(l, conf.getTransactionTimeout());
@@ -434,6 +479,14 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setThreadPoolMaxSize(i);
       Assert.assertEquals(i, conf.getThreadPoolMaxSize());
 
+      i = RandomUtil.randomInt();
+      conf.setExecutorMaxTasksPerRun(i);
+      Assert.assertEquals(i, conf.getExecutorMaxTasksPerRun());
+
+      l = RandomUtil.randomLong();
+      conf.setExecutorMaxRunTime(l);
+      Assert.assertEquals(l, conf.getExecutorMaxRunTime());
+
 
       SimpleString ss = RandomUtil.randomSimpleString();
       conf.setManagementNotificationAddress(ss);
@@ -451,6 +504,18 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setPersistIDCache(b);
       Assert.assertEquals(b, conf.isPersistIDCache());
 
+      l = RandomUtil.randomLong();
+      conf.setIDCacheExpiry(l);
+      Assert.assertEquals(l, conf.getIDCacheExpiry());
+
+      i = RandomUtil.randomInt();
+      conf.setReplicationBatchSize(i);
+      Assert.assertEquals(i, conf.getReplicationBatchSize());
+
+      i = RandomUtil.randomInt();
+      conf.setReplicationBatchesInFlight(i);
+      Assert.assertEquals(i, conf.getReplicationBatchesInFlight());
+
       i = RandomUtil.randomInt();
       conf.setJournalCompactMinFiles(i);
       Assert.assertEquals(i, conf.getJournalCompactMinFiles());
@@ -491,6 +556,10 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setPagingDirectory(s);
       Assert.assertEquals(s, conf.getPagingDirectory());
 
+      l = RandomUtil.randomLong();
+      conf.setGlobalMaxSize(l);
+      Assert.assertEquals(l, conf.getGlobalMaxSize());
+
       s = RandomUtil.randomString();
       conf.setLargeMessagesDirectory(s);
       Assert.assertEquals(s, conf.getLargeMessagesDirectory());
@@ -499,6 +568,10 @@ public class ConfigurationImplTest extends UnitTestCase
       conf.setWildcardRoutingEnabled(b);
       Assert.assertEquals(b, conf.isWildcardRoutingEnabled());
 
+      b = RandomUtil.randomBoolean();
+      conf.setRoutingIndexEnabled(b);
+      Assert.assertEquals(b, conf.isRoutingIndexEnabled());
+
       l = RandomUtil.randomLong();
       conf.setTransactionTimeout(l);
       Assert.assertEquals(l, conf.getTransactionTimeout());
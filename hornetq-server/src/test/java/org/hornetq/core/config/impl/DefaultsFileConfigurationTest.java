@@ -46,6 +46,10 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultThreadPoolMaxSize(), conf.getThreadPoolMaxSize());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultExecutorMaxTasksPerRun(), conf.getExecutorMaxTasksPerRun());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultExecutorMaxRunTime(), conf.getExecutorMaxRunTime());
+
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultSecurityInvalidationInterval(),
                           conf.getSecurityInvalidationInterval());
 
@@ -88,6 +92,13 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultPersistIdCache(), conf.isPersistIDCache());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultIdCacheExpiry(), conf.getIDCacheExpiry());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultReplicationBatchSize(), conf.getReplicationBatchSize());
+
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultReplicationBatchesInFlight(),
+                          conf.getReplicationBatchesInFlight());
+
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultBindingsDirectory(), conf.getBindingsDirectory());
 
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalDir(), conf.getJournalDirectory());
@@ -103,6 +114,8 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactMinFiles(), conf.getJournalCompactMinFiles());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalLoadThreads(), conf.getJournalLoadThreads());
+
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalCompactPercentage(), conf.getJournalCompactPercentage());
 
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultJournalMinFiles(), conf.getJournalMinFiles());
@@ -125,10 +138,14 @@ public class DefaultsFileConfigurationTest extends ConfigurationImplTest
 
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultPagingDir(), conf.getPagingDirectory());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.getDefaultGlobalMaxSize(), conf.getGlobalMaxSize());
+
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultLargeMessagesDir(), conf.getLargeMessagesDirectory());
 
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultWildcardRoutingEnabled(), conf.isWildcardRoutingEnabled());
 
+      Assert.assertEquals(HornetQDefaultConfiguration.isDefaultRoutingIndexEnabled(), conf.isRoutingIndexEnabled());
+
       Assert.assertEquals(HornetQDefaultConfiguration.getDefaultTransactionTimeout(), conf.getTransactionTimeout());
 
       Assert.assertEquals(HornetQDefaultConfiguration.isDefaultMessageCounterEnabled(), conf.isMessageCounterEnabled());
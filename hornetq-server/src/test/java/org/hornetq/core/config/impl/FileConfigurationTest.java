@@ -49,9 +49,12 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(true, conf.isFileDeploymentEnabled());
       Assert.assertEquals(12345, conf.getScheduledThreadPoolMaxSize());
       Assert.assertEquals(54321, conf.getThreadPoolMaxSize());
+      Assert.assertEquals(500, conf.getExecutorMaxTasksPerRun());
+      Assert.assertEquals(5000000, conf.getExecutorMaxRunTime());
       Assert.assertEquals(false, conf.isSecurityEnabled());
       Assert.assertEquals(5423, conf.getSecurityInvalidationInterval());
       Assert.assertEquals(true, conf.isWildcardRoutingEnabled());
+      Assert.assertEquals(true, conf.isRoutingIndexEnabled());
       Assert.assertEquals(new SimpleString("Giraffe"), conf.getManagementAddress());
       Assert.assertEquals(new SimpleString("Whatever"), conf.getManagementNotificationAddress());
       Assert.assertEquals("Frog", conf.getClusterUser());
@@ -68,10 +71,14 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(8, conf.getMessageExpiryThreadPriority());
       Assert.assertEquals(127, conf.getIDCacheSize());
       Assert.assertEquals(true, conf.isPersistIDCache());
+      Assert.assertEquals(60000, conf.getIDCacheExpiry());
       Assert.assertEquals(true, conf.isBackup());
       Assert.assertEquals(true, conf.isSharedStore());
+      Assert.assertEquals(32768, conf.getReplicationBatchSize());
+      Assert.assertEquals(4, conf.getReplicationBatchesInFlight());
       Assert.assertEquals(true, conf.isPersistDeliveryCountBeforeDelivery());
       Assert.assertEquals("pagingdir", conf.getPagingDirectory());
+      Assert.assertEquals(104857600, conf.getGlobalMaxSize());
       Assert.assertEquals("somedir", conf.getBindingsDirectory());
       Assert.assertEquals(false, conf.isCreateBindingsDir());
 
@@ -88,6 +95,7 @@ public class FileConfigurationTest extends ConfigurationImplTest
       Assert.assertEquals(12345678, conf.getJournalFileSize());
       Assert.assertEquals(100, conf.getJournalMinFiles());
       Assert.assertEquals(123, conf.getJournalCompactMinFiles());
+      Assert.assertEquals(4, conf.getJournalLoadThreads());
       Assert.assertEquals(33, conf.getJournalCompactPercentage());
 
       Assert.assertEquals("largemessagesdir", conf.getLargeMessagesDirectory());
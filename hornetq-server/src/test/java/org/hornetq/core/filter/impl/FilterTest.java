@@ -12,6 +12,9 @@
  */
 
 package org.hornetq.core.filter.impl;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Before;
 
 import org.junit.Test;
@@ -687,6 +690,78 @@ public class FilterTest extends SilentTestCase
       Assert.assertTrue(filter.match(message));
    }
 
+   @Test
+   public void testDoubleGreaterOrEqualLong() throws Exception
+   {
+      filter = FilterImpl.createFilter(new SimpleString("MyDouble >= 0"));
+
+      message.putDoubleProperty(new SimpleString("MyDouble"), -0.5);
+      Assert.assertFalse(filter.match(message));
+
+      message.putDoubleProperty(new SimpleString("MyDouble"), 0.5);
+      Assert.assertTrue(filter.match(message));
+   }
+
+   @Test
+   public void testConcurrentMatch() throws Exception
+   {
+      filter = FilterImpl.createFilter(new SimpleString("region = 'EU' AND type IN ('a', 'b') AND price BETWEEN 10 AND 20"));
+
+      final int numberOfThreads = 10;
+      final int numberOfMatches = 10000;
+
+      final ServerMessage[] messages = new ServerMessage[numberOfThreads];
+      for (int i = 0; i < numberOfThreads; i++)
+      {
+         messages[i] = new ServerMessageImpl(i, 1000);
+         messages[i].putStringProperty(new SimpleString("region"), new SimpleString(i % 2 == 0 ? "EU" : "US"));
+         messages[i].putStringProperty(new SimpleString("type"), new SimpleString("a"));
+         messages[i].putIntProperty(new SimpleString("price"), 15);
+      }
+
+      final CountDownLatch start = new CountDownLatch(1);
+      final AtomicInteger errors = new AtomicInteger(0);
+
+      Thread[] threads = new Thread[numberOfThreads];
+      for (int i = 0; i < numberOfThreads; i++)
+      {
+         final ServerMessage threadMessage = messages[i];
+         final boolean expected = i % 2 == 0;
+         threads[i] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+                  for (int j = 0; j < numberOfMatches; j++)
+                  {
+                     if (filter.match(threadMessage) != expected)
+                     {
+                        errors.incrementAndGet();
+                     }
+                  }
+               }
+               catch (InterruptedException e)
+               {
+                  errors.incrementAndGet();
+               }
+            }
+         };
+         threads[i].start();
+      }
+
+      start.countDown();
+
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      Assert.assertEquals(0, errors.get());
+   }
+
    @Test
    public void testStringLongToken() throws Exception
    {
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.paging.cursor.impl;
+
+import org.hornetq.core.paging.PagedMessage;
+import org.hornetq.core.paging.cursor.PageCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PageCacheLRUMapTest extends Assert
+{
+   @Test
+   public void testEvictLeastRecentlyUsed()
+   {
+      PageCacheLRUMap map = new PageCacheLRUMap(300);
+
+      map.put(new FakePageCache(1, 100));
+      map.put(new FakePageCache(2, 100));
+      map.put(new FakePageCache(3, 100));
+
+      assertEquals(3, map.size());
+      assertEquals(300, map.getSizeInBytes());
+
+      // page 1 becomes the most recently used, so page 2 is the first to go
+      assertNotNull(map.get(1));
+
+      map.put(new FakePageCache(4, 100));
+
+      assertEquals(3, map.size());
+      assertNull(map.get(2));
+      assertNotNull(map.get(1));
+      assertNotNull(map.get(3));
+      assertNotNull(map.get(4));
+   }
+
+   @Test
+   public void testEvictBySize()
+   {
+      PageCacheLRUMap map = new PageCacheLRUMap(300);
+
+      map.put(new FakePageCache(1, 100));
+      map.put(new FakePageCache(2, 100));
+
+      // a single large page takes the place of both
+      map.put(new FakePageCache(3, 250));
+
+      assertEquals(1, map.size());
+      assertNotNull(map.get(3));
+      assertEquals(250, map.getSizeInBytes());
+   }
+
+   @Test
+   public void testCheckSizeAfterFill()
+   {
+      PageCacheLRUMap map = new PageCacheLRUMap(300);
+
+      map.put(new FakePageCache(1, 200));
+
+      // the page is only read after it is cached
+      FakePageCache cache = new FakePageCache(2, 0);
+      map.put(cache);
+
+      assertEquals(2, map.size());
+
+      cache.size = 200;
+      map.checkSize();
+
+      assertEquals(1, map.size());
+      assertSame(cache, map.get(2));
+   }
+
+   @Test
+   public void testLiveCacheNotEvicted()
+   {
+      PageCacheLRUMap map = new PageCacheLRUMap(100);
+
+      FakePageCache live = new FakePageCache(1, 200);
+      live.live = true;
+
+      map.put(live);
+      map.put(new FakePageCache(2, 50));
+
+      assertEquals(1, map.size());
+      assertSame(live, map.get(1));
+
+      // once closed it can go
+      live.live = false;
+      map.setMaxSizeInBytes(50);
+
+      assertEquals(0, map.size());
+   }
+
+   @Test
+   public void testRemove()
+   {
+      PageCacheLRUMap map = new PageCacheLRUMap(1000);
+
+      map.put(new FakePageCache(1, 100));
+      map.put(new FakePageCache(2, 100));
+
+      assertNotNull(map.remove(1));
+      assertNull(map.remove(1));
+      assertEquals(1, map.size());
+      assertEquals(100, map.getSizeInBytes());
+
+      map.clear();
+
+      assertEquals(0, map.size());
+   }
+
+   private static final class FakePageCache implements PageCache
+   {
+      private final long pageId;
+
+      long size;
+
+      boolean live;
+
+      FakePageCache(final long pageId, final long size)
+      {
+         this.pageId = pageId;
+         this.size = size;
+      }
+
+      public long getPageId()
+      {
+         return pageId;
+      }
+
+      public int getNumberOfMessages()
+      {
+         return 0;
+      }
+
+      public long getSizeInBytes()
+      {
+         return size;
+      }
+
+      public void setMessages(final PagedMessage[] messages)
+      {
+      }
+
+      public PagedMessage[] getMessages()
+      {
+         return new PagedMessage[0];
+      }
+
+      public boolean isLive()
+      {
+         return live;
+      }
+
+      public PagedMessage getMessage(final int messageNumber)
+      {
+         return null;
+      }
+
+      public void lock()
+      {
+      }
+
+      public void unlock()
+      {
+      }
+
+      public void close()
+      {
+      }
+   }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.postoffice.impl;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.hornetq.api.core.SimpleString;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AddressTrieTest extends Assert
+{
+   private static final String[] ADDRESSES = { "news",
+                                               "news.europe",
+                                               "news.europe.sport",
+                                               "news.europe.politics",
+                                               "news.europe.politics.regional",
+                                               "news.usa",
+                                               "news.usa.sport",
+                                               "entertainment" };
+
+   private static final String[] WILDCARDS = { "news.europe.#",
+                                               "news.*",
+                                               "news.*.sport",
+                                               "#",
+                                               "#.sport",
+                                               "news.#.regional",
+                                               "*.*.*.*",
+                                               "news.europe.sport#" };
+
+   @Test
+   public void testGetPutRemove()
+   {
+      AddressTrie<String> trie = new AddressTrie<String>();
+
+      assertNull(trie.put(new SimpleString("a.b.c"), "1"));
+      assertNull(trie.put(new SimpleString("a.b"), "2"));
+      assertEquals("1", trie.put(new SimpleString("a.b.c"), "3"));
+
+      assertEquals("3", trie.get(new SimpleString("a.b.c")));
+      assertEquals("2", trie.get(new SimpleString("a.b")));
+      assertNull(trie.get(new SimpleString("a")));
+      assertNull(trie.get(new SimpleString("a.b.c.d")));
+
+      assertEquals("2", trie.remove(new SimpleString("a.b")));
+      assertNull(trie.remove(new SimpleString("a.b")));
+      assertNull(trie.get(new SimpleString("a.b")));
+      assertEquals("3", trie.get(new SimpleString("a.b.c")));
+
+      assertFalse(trie.hasWildcards());
+      trie.put(new SimpleString("a.*"), "4");
+      assertTrue(trie.hasWildcards());
+      trie.remove(new SimpleString("a.*"));
+      assertFalse(trie.hasWildcards());
+
+      trie.clear();
+      assertNull(trie.get(new SimpleString("a.b.c")));
+   }
+
+   @Test
+   public void testGetMatching()
+   {
+      AddressTrie<String> trie = createTrie();
+
+      for (String wildcard : WILDCARDS)
+      {
+         Set<String> expected = new HashSet<String>();
+
+         for (String address : ADDRESSES)
+         {
+            if (new AddressImpl(new SimpleString(address)).matches(new AddressImpl(new SimpleString(wildcard))))
+            {
+               expected.add(address);
+            }
+         }
+
+         assertEquals(wildcard, expected, toSet(trie.getMatching(new SimpleString(wildcard))));
+      }
+
+      assertEquals(toSet(Arrays.asList("news.europe", "news.usa")), toSet(trie.getMatching(new SimpleString("news.*"))));
+      assertEquals(toSet(Arrays.asList("news.europe.politics.regional")),
+                   toSet(trie.getMatching(new SimpleString("news.#.regional"))));
+
+      // '#' stands for zero words as well
+      assertMatches("a.b", "a.#.b");
+      assertMatches("a", "#.a");
+      assertMatches("a.b.c", "a.#.#.c");
+   }
+
+   private static void assertMatches(final String address, final String wildcard)
+   {
+      AddressTrie<String> trie = new AddressTrie<String>();
+      trie.put(new SimpleString(address), address);
+
+      assertTrue(new AddressImpl(new SimpleString(address)).matches(new AddressImpl(new SimpleString(wildcard))));
+      assertEquals(toSet(Arrays.asList(address)), toSet(trie.getMatching(new SimpleString(wildcard))));
+   }
+
+   @Test
+   public void testGetMatchingWildcards()
+   {
+      AddressTrie<String> trie = createTrie();
+
+      for (String address : ADDRESSES)
+      {
+         Set<String> expected = new HashSet<String>();
+
+         for (String wildcard : WILDCARDS)
+         {
+            if (new AddressImpl(new SimpleString(address)).matches(new AddressImpl(new SimpleString(wildcard))))
+            {
+               expected.add(wildcard);
+            }
+         }
+
+         assertEquals(address, expected, toSet(trie.getMatchingWildcards(new SimpleString(address))));
+      }
+
+      assertEquals(toSet(Arrays.asList("news.europe.#", "news.*.sport", "#", "#.sport")),
+                   toSet(trie.getMatchingWildcards(new SimpleString("news.europe.sport"))));
+   }
+
+   @Test
+   public void testWildcardOnlyMatchesItself()
+   {
+      AddressTrie<String> trie = createTrie();
+
+      for (String wildcard : WILDCARDS)
+      {
+         assertFalse(toSet(trie.getMatching(new SimpleString("#"))).contains(wildcard));
+         assertEquals(wildcard, trie.get(new SimpleString(wildcard)));
+      }
+
+      assertTrue(trie.getMatchingWildcards(new SimpleString("news.*")).isEmpty());
+   }
+
+   @Test
+   public void testRemoveKeepsOtherAddresses()
+   {
+      AddressTrie<String> trie = createTrie();
+
+      for (String address : ADDRESSES)
+      {
+         if (address.startsWith("news.europe"))
+         {
+            trie.remove(new SimpleString(address));
+         }
+      }
+
+      assertEquals(toSet(Arrays.asList("news", "news.usa", "news.usa.sport")),
+                   toSet(trie.getMatching(new SimpleString("news.#"))));
+
+      assertEquals(toSet(Arrays.asList("news.*.sport", "#", "#.sport")),
+                   toSet(trie.getMatchingWildcards(new SimpleString("news.usa.sport"))));
+   }
+
+   private static AddressTrie<String> createTrie()
+   {
+      AddressTrie<String> trie = new AddressTrie<String>();
+
+      for (String address : ADDRESSES)
+      {
+         trie.put(new SimpleString(address), address);
+      }
+
+      for (String wildcard : WILDCARDS)
+      {
+         trie.put(new SimpleString(wildcard), wildcard);
+      }
+
+      return trie;
+   }
+
+   private static Set<String> toSet(final Collection<String> values)
+   {
+      Set<String> set = new HashSet<String>(values);
+
+      assertEquals("duplicates in " + values, values.size(), set.size());
+
+      return set;
+   }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.core.postoffice.impl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hornetq.api.core.Pair;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.persistence.impl.nullpm.NullStorageManager;
+import org.hornetq.core.postoffice.DuplicateIDCache;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DuplicateIDCacheImplTest extends Assert
+{
+   private final FakeStorageManager storageManager = new FakeStorageManager();
+
+   @Test
+   public void testContains() throws Exception
+   {
+      DuplicateIDCache cache = new DuplicateIDCacheImpl(new SimpleString("test"), 100, storageManager, true);
+
+      assertFalse(cache.contains(id(1)));
+
+      cache.addToCache(id(1), null);
+
+      assertTrue(cache.contains(id(1)));
+      assertFalse(cache.contains(id(2)));
+
+      assertEquals(1, cache.getHits());
+      assertEquals(2, cache.getMisses());
+      assertEquals(1, storageManager.stored.size());
+   }
+
+   @Test
+   public void testRotate() throws Exception
+   {
+      DuplicateIDCache cache = new DuplicateIDCacheImpl(new SimpleString("test"), 100, storageManager, true);
+
+      for (int i = 0; i < 150; i++)
+      {
+         cache.addToCache(id(i), null);
+      }
+
+      for (int i = 0; i < 50; i++)
+      {
+         assertFalse(cache.contains(id(i)));
+      }
+
+      for (int i = 50; i < 150; i++)
+      {
+         assertTrue(cache.contains(id(i)));
+      }
+
+      assertEquals(50, cache.getEvictions());
+      assertEquals(100, storageManager.stored.size());
+   }
+
+   @Test
+   public void testDeleteLeavesHole() throws Exception
+   {
+      DuplicateIDCache cache = new DuplicateIDCacheImpl(new SimpleString("test"), 10, storageManager, true);
+
+      for (int i = 0; i < 10; i++)
+      {
+         cache.addToCache(id(i), null);
+      }
+
+      cache.deleteFromCache(id(0));
+      cache.deleteFromCache(id(5));
+
+      assertFalse(cache.contains(id(0)));
+      assertFalse(cache.contains(id(5)));
+      assertEquals(8, storageManager.stored.size());
+
+      // the hole of the first id is reused, the other ones stay
+      cache.addToCache(id(10), null);
+
+      for (int i = 1; i <= 10; i++)
+      {
+         assertEquals(i != 5, cache.contains(id(i)));
+      }
+
+      assertEquals(0, cache.getEvictions());
+   }
+
+   @Test
+   public void testAddAgain() throws Exception
+   {
+      DuplicateIDCache cache = new DuplicateIDCacheImpl(new SimpleString("test"), 3, storageManager, true);
+
+      cache.addToCache(id(1), null);
+      cache.addToCache(id(2), null);
+      cache.addToCache(id(1), null);
+      cache.addToCache(id(3), null);
+
+      // the first add of 1 was replaced, so 2 is the oldest id
+      cache.addToCache(id(4), null);
+
+      assertTrue(cache.contains(id(1)));
+      assertFalse(cache.contains(id(2)));
+      assertTrue(cache.contains(id(3)));
+      assertTrue(cache.contains(id(4)));
+      assertEquals(3, storageManager.stored.size());
+   }
+
+   @Test
+   public void testExpiry() throws Exception
+   {
+      DuplicateIDCache cache = new DuplicateIDCacheImpl(new SimpleString("test"), 100, 100, storageManager, true);
+
+      cache.addToCache(id(1), null);
+      cache.addToCache(id(2), null);
+
+      assertTrue(cache.contains(id(1)));
+
+      Thread.sleep(200);
+
+      assertFalse(cache.contains(id(1)));
+      assertFalse(cache.contains(id(2)));
+
+      cache.addToCache(id(3), null);
+
+      assertTrue(cache.contains(id(3)));
+      assertEquals(2, cache.getExpirations());
+      assertEquals(0, cache.getEvictions());
+      assertEquals(1, storageManager.stored.size());
+   }
+
+   @Test
+   public void testStriped() throws Exception
+   {
+      final int size = 100000;
+
+      DuplicateIDCache cache = new DuplicateIDCacheImpl(new SimpleString("test"), size, storageManager, false);
+
+      for (int i = 0; i < size * 2; i++)
+      {
+         cache.addToCache(id(i), null);
+      }
+
+      int found = 0;
+
+      for (int i = size; i < size * 2; i++)
+      {
+         if (cache.contains(id(i)))
+         {
+            found++;
+         }
+      }
+
+      // each stripe keeps the last ids it received, which are about the same for every stripe
+      assertTrue("found " + found, found > size * 0.9);
+      // every stripe is full
+      assertEquals(size, size * 2 - cache.getEvictions());
+   }
+
+   @Test
+   public void testLoad() throws Exception
+   {
+      DuplicateIDCache cache = new DuplicateIDCacheImpl(new SimpleString("test"), 10, storageManager, true);
+
+      List<Pair<byte[], Long>> ids = new ArrayList<Pair<byte[], Long>>();
+
+      for (int i = 0; i < 15; i++)
+      {
+         ids.add(new Pair<byte[], Long>(id(i), (long)i));
+         storageManager.stored.add((long)i);
+      }
+
+      cache.load(ids);
+
+      for (int i = 0; i < 10; i++)
+      {
+         assertTrue(cache.contains(id(i)));
+      }
+
+      for (int i = 10; i < 15; i++)
+      {
+         assertFalse(cache.contains(id(i)));
+      }
+
+      // the ids beyond the size were deleted
+      assertEquals(10, storageManager.stored.size());
+
+      cache.addToCache(id(15), null);
+
+      assertFalse(cache.contains(id(0)));
+      assertTrue(cache.contains(id(15)));
+   }
+
+   private static byte[] id(final int i)
+   {
+      return ("id-" + i).getBytes();
+   }
+
+   private static final class FakeStorageManager extends NullStorageManager
+   {
+      final Set<Long> stored = new HashSet<Long>();
+
+      @Override
+      public void storeDuplicateID(final SimpleString address, final byte[] duplID, final long recordID) throws Exception
+      {
+         stored.add(recordID);
+      }
+
+      @Override
+      public void deleteDuplicateID(final long recordID) throws Exception
+      {
+         assertTrue(stored.remove(recordID));
+      }
+
+      @Override
+      public void deleteDuplicateIDTransactional(final long txID, final long recordID) throws Exception
+      {
+         assertTrue(stored.remove(recordID));
+      }
+   }
+}
@@ -1238,6 +1238,11 @@ public abstract class UnitTestCase extends CoreUnitTestCase
       {
          return true;
       }
+      else if (threadName.equals("ObjectCleanerThread"))
+      {
+         // one per VM, started by Netty 4 once one of its thread locals is set on a thread it doesn't own
+         return true;
+      }
       else
       {
          for (StackTraceElement element : thread.getStackTrace())
@@ -227,6 +227,11 @@ public class OutgoingTweetsHandler implements Consumer, ConnectorService
       // no op
    }
 
+   public void proceedDeliver(List<MessageReference> refs)
+   {
+      // no op
+   }
+
    @Override
    public String toManagementString()
    {
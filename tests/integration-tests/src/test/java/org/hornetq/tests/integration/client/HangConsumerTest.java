@@ -19,6 +19,7 @@ import org.junit.Test;
 
 import java.lang.management.ManagementFactory;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
@@ -51,9 +52,11 @@ import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.persistence.impl.journal.JournalRecordIds;
 import org.hornetq.core.postoffice.PostOffice;
 import org.hornetq.core.postoffice.impl.LocalQueueBinding;
+import org.hornetq.core.protocol.core.FileRegion;
 import org.hornetq.core.protocol.core.Packet;
 import org.hornetq.core.protocol.core.impl.wireformat.SessionReceiveMessage;
 import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.MessageReference;
 import org.hornetq.core.server.Queue;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.impl.HornetQServerImpl;
@@ -567,6 +570,34 @@ public class HangConsumerTest extends ServiceTestBase
          }
       }
 
+      /* (non-Javadoc)
+       * @see org.hornetq.spi.core.protocol.SessionCallback#sendMessages(java.util.List, long)
+       */
+      @Override
+      public int sendMessages(List<MessageReference> references, long consumerID)
+      {
+         inCall.countDown();
+         try
+         {
+            callbackSemaphore.acquire();
+         }
+         catch (InterruptedException e)
+         {
+            inCall.countUp();
+            return -1;
+         }
+
+         try
+         {
+            return targetCallback.sendMessages(references, consumerID);
+         }
+         finally
+         {
+            callbackSemaphore.release();
+            inCall.countUp();
+         }
+      }
+
       /* (non-Javadoc)
        * @see org.hornetq.spi.core.protocol.SessionCallback#sendLargeMessage(org.hornetq.core.server.ServerMessage, long, long, int)
        */
@@ -585,6 +616,15 @@ public class HangConsumerTest extends ServiceTestBase
          return targetCallback.sendLargeMessageContinuation(consumerID, body, continues, requiresResponse);
       }
 
+      /* (non-Javadoc)
+       * @see org.hornetq.spi.core.protocol.SessionCallback#sendLargeMessageContinuation(long, org.hornetq.core.protocol.core.FileRegion, boolean)
+       */
+      @Override
+      public int sendLargeMessageContinuation(long consumerID, FileRegion body, boolean continues)
+      {
+         return targetCallback.sendLargeMessageContinuation(consumerID, body, continues);
+      }
+
       /* (non-Javadoc)
        * @see org.hornetq.spi.core.protocol.SessionCallback#closed()
        */
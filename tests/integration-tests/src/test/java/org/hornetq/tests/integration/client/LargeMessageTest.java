@@ -2920,7 +2920,7 @@ public class LargeMessageTest extends LargeMessageTestBase
    @Test
    public void testSendServerMessage() throws Exception
    {
-      HornetQServer server = createServer(true);
+      HornetQServer server = createServer(true, isNetty());
 
       server.start();
 
@@ -1908,6 +1908,109 @@ public class PagingTest extends ServiceTestBase
       }
    }
 
+   @Test
+   public void testGlobalMaxSize() throws Exception
+   {
+      clearDataRecreateServerDirs();
+
+      Configuration config = createDefaultConfig();
+
+      config.setJournalSyncNonTransactional(false);
+
+      config.setGlobalMaxSize(PagingTest.PAGE_MAX);
+
+      // no limit on the addresses themselves, only the global one
+      server = createServer(true, config, PagingTest.PAGE_SIZE, -1, new HashMap<String, AddressSettings>());
+
+      server.start();
+
+      locator = createInVMNonHALocator();
+
+      locator.setBlockOnNonDurableSend(true);
+      locator.setBlockOnDurableSend(true);
+      locator.setBlockOnAcknowledge(true);
+
+      sf = createSessionFactory(locator);
+
+      ClientSession session = sf.createSession(false, true, true);
+
+      SimpleString otherAddress = PagingTest.ADDRESS.concat("-other");
+
+      session.createQueue(PagingTest.ADDRESS, PagingTest.ADDRESS, null, true);
+      session.createQueue(otherAddress, otherAddress, null, true);
+
+      ClientProducer otherProducer = session.createProducer(otherAddress);
+
+      for (int i = 0; i < 10; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.getBodyBuffer().writeBytes(new byte[MESSAGE_SIZE]);
+         otherProducer.send(message);
+      }
+
+      ClientProducer producer = session.createProducer(PagingTest.ADDRESS);
+
+      PagingStore store = server.getPagingManager().getPageStore(PagingTest.ADDRESS);
+
+      int numberOfMessages = 0;
+
+      while (!store.isPaging())
+      {
+         Assert.assertTrue("The address should page once the global budget is reached", numberOfMessages < 1000);
+
+         ClientMessage message = session.createMessage(true);
+         message.getBodyBuffer().writeBytes(new byte[MESSAGE_SIZE]);
+         producer.send(message);
+         numberOfMessages++;
+      }
+
+      long globalSize = server.getPagingManager().getGlobalSize();
+
+      Assert.assertTrue("global size " + globalSize, globalSize > PagingTest.PAGE_MAX);
+
+      for (int i = 0; i < 100; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.getBodyBuffer().writeBytes(new byte[MESSAGE_SIZE]);
+         producer.send(message);
+         numberOfMessages++;
+      }
+
+      // the paged messages don't use memory, and the address using less than its share doesn't page
+      Assert.assertEquals(globalSize, server.getPagingManager().getGlobalSize());
+      Assert.assertFalse(server.getPagingManager().getPageStore(otherAddress).isPaging());
+
+      session.start();
+
+      ClientConsumer consumer = session.createConsumer(PagingTest.ADDRESS);
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         message.acknowledge();
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+
+      consumer.close();
+
+      consumer = session.createConsumer(otherAddress);
+
+      for (int i = 0; i < 10; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull(message);
+         message.acknowledge();
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+
+      session.close();
+
+      Assert.assertEquals(0, server.getPagingManager().getGlobalSize());
+   }
+
    @Test
    public void testTwoQueuesOneNoRouting() throws Exception
    {
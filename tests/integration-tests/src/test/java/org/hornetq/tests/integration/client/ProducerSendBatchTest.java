@@ -0,0 +1,298 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.integration.client;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.api.core.HornetQException;
+import org.hornetq.api.core.Interceptor;
+import org.hornetq.api.core.Message;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.SendAcknowledgementHandler;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.protocol.core.impl.wireformat.CreateSessionResponseMessage;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProducerSendBatchTest extends ServiceTestBase
+{
+   private static final SimpleString ADDRESS = new SimpleString("ProducerSendBatchTestAddress");
+
+   private static final SimpleString QUEUE = new SimpleString("ProducerSendBatchTestQueue");
+
+   private HornetQServer server;
+
+   private ServerLocator locator;
+
+   private final AtomicInteger sendPackets = new AtomicInteger();
+
+   private final AtomicInteger batchPackets = new AtomicInteger();
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      server = createServer(true);
+      server.start();
+
+      server.getRemotingService().addIncomingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.SESS_SEND)
+            {
+               sendPackets.incrementAndGet();
+            }
+            else if (packet.getType() == PacketImpl.SESS_SEND_BATCH)
+            {
+               batchPackets.incrementAndGet();
+            }
+            return true;
+         }
+      });
+
+      locator = createInVMNonHALocator();
+   }
+
+   @Test
+   public void testSendBatch() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+      session.createQueue(ADDRESS, QUEUE, true);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      for (int i = 0; i < 10; i++)
+      {
+         List<Message> batch = new ArrayList<Message>();
+         for (int j = 0; j < 100; j++)
+         {
+            ClientMessage message = session.createMessage(j % 2 == 0);
+            message.putIntProperty("count", i * 100 + j);
+            message.getBodyBuffer().writeString("message " + (i * 100 + j));
+            batch.add(message);
+         }
+         producer.send(batch);
+      }
+
+      Assert.assertEquals(10, batchPackets.get());
+      Assert.assertEquals(0, sendPackets.get());
+
+      receiveInOrder(session, 1000);
+   }
+
+   @Test
+   public void testSendBatchWithLargeMessage() throws Exception
+   {
+      locator.setMinLargeMessageSize(1024);
+      ClientSessionFactory sf = createSessionFactory(locator);
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+      session.createQueue(ADDRESS, QUEUE, true);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      List<Message> batch = new ArrayList<Message>();
+      for (int i = 0; i < 20; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.putIntProperty("count", i);
+         message.getBodyBuffer().writeString("message " + i);
+         if (i == 10)
+         {
+            message.getBodyBuffer().writeBytes(new byte[10 * 1024]);
+         }
+         batch.add(message);
+      }
+      producer.send(batch);
+
+      // The large message is streamed on its own, between the messages before and after it
+      Assert.assertEquals(2, batchPackets.get());
+
+      receiveInOrder(session, 20);
+   }
+
+   @Test
+   public void testSendBatchDuplicateDetection() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+      session.createQueue(ADDRESS, QUEUE, true);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      for (int i = 0; i < 2; i++)
+      {
+         List<Message> batch = new ArrayList<Message>();
+         for (int j = 0; j < 10; j++)
+         {
+            ClientMessage message = session.createMessage(true);
+            message.putIntProperty("count", j);
+            message.getBodyBuffer().writeString("message " + j);
+            message.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString("dup" + j));
+            batch.add(message);
+         }
+         producer.send(batch);
+      }
+
+      receiveInOrder(session, 10);
+   }
+
+   @Test
+   public void testSendBatchTransacted() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+      ClientSession session = addClientSession(sf.createSession(false, false, false));
+      session.createQueue(ADDRESS, QUEUE, true);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      producer.send(createBatch(session, 100));
+      session.rollback();
+
+      producer.send(createBatch(session, 100));
+      session.commit();
+
+      receiveInOrder(session, 100);
+      session.commit();
+   }
+
+   @Test
+   public void testSendBatchConfirmationWindow() throws Exception
+   {
+      locator.setConfirmationWindowSize(1024);
+      locator.setBlockOnDurableSend(false);
+      ClientSessionFactory sf = createSessionFactory(locator);
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+      session.createQueue(ADDRESS, QUEUE, true);
+
+      final CountDownLatch latch = new CountDownLatch(1000);
+      session.setSendAcknowledgementHandler(new SendAcknowledgementHandler()
+      {
+         public void sendAcknowledged(final Message message)
+         {
+            latch.countDown();
+         }
+      });
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      for (int i = 0; i < 10; i++)
+      {
+         List<Message> batch = new ArrayList<Message>();
+         for (int j = 0; j < 100; j++)
+         {
+            ClientMessage message = session.createMessage(true);
+            message.putIntProperty("count", i * 100 + j);
+            message.getBodyBuffer().writeString("message " + (i * 100 + j));
+            batch.add(message);
+         }
+         producer.send(batch);
+      }
+
+      Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+      receiveInOrder(session, 1000);
+   }
+
+   @Test
+   public void testSendBatchToOlderServer() throws Exception
+   {
+      // Make the server answer as a version that doesn't know the batch packet
+      server.getRemotingService().addOutgoingInterceptor(new Interceptor()
+      {
+         public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+         {
+            if (packet.getType() == PacketImpl.CREATESESSION_RESP)
+            {
+               try
+               {
+                  Field serverVersion = CreateSessionResponseMessage.class.getDeclaredField("serverVersion");
+                  serverVersion.setAccessible(true);
+                  serverVersion.setInt(packet, 123);
+               }
+               catch (Exception e)
+               {
+                  throw new IllegalStateException(e);
+               }
+            }
+            return true;
+         }
+      });
+
+      ClientSessionFactory sf = createSessionFactory(locator);
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+      Assert.assertEquals(123, session.getVersion());
+      session.createQueue(ADDRESS, QUEUE, true);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      producer.send(createBatch(session, 100));
+
+      Assert.assertEquals(0, batchPackets.get());
+      Assert.assertEquals(100, sendPackets.get());
+
+      receiveInOrder(session, 100);
+   }
+
+   private List<Message> createBatch(final ClientSession session, final int size)
+   {
+      List<Message> batch = new ArrayList<Message>();
+      for (int i = 0; i < size; i++)
+      {
+         ClientMessage message = session.createMessage(true);
+         message.putIntProperty("count", i);
+         message.getBodyBuffer().writeString("message " + i);
+         batch.add(message);
+      }
+      return batch;
+   }
+
+   private void receiveInOrder(final ClientSession session, final int numberOfMessages) throws Exception
+   {
+      ClientConsumer consumer = session.createConsumer(QUEUE);
+      session.start();
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         Assert.assertNotNull("message " + i, message);
+         Assert.assertEquals(i, message.getIntProperty("count").intValue());
+         Assert.assertEquals("message " + i, message.getBodyBuffer().readString());
+         message.acknowledge();
+      }
+
+      Assert.assertNull(consumer.receiveImmediate());
+
+      consumer.close();
+   }
+}
@@ -3,6 +3,7 @@
  */
 package org.hornetq.tests.integration.cluster.util;
 
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 
 import org.hornetq.api.core.HornetQException;
@@ -233,6 +234,12 @@ public class BackupSyncDelay implements Interceptor
 
       }
 
+      @Override
+      public List<Packet> sendBatched(List<? extends Packet> packets)
+      {
+         throw new UnsupportedOperationException();
+      }
+
       @Override
       public boolean sendAndFlush(Packet packet)
       {
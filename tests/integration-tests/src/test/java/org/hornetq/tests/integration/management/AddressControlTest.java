@@ -24,8 +24,10 @@ import java.util.Set;
 import org.junit.Assert;
 
 import org.hornetq.api.config.HornetQDefaultConfiguration;
+import org.hornetq.api.core.Message;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientConsumer;
 import org.hornetq.api.core.client.ClientMessage;
 import org.hornetq.api.core.client.ClientProducer;
 import org.hornetq.api.core.client.ClientSession;
@@ -296,6 +298,70 @@ public class AddressControlTest extends ManagementTestBase
          Assert.assertEquals(1024, addressControl.getNumberOfBytesPerPage());
    }
 
+   @Test
+   public void testGetAddressSize() throws Exception
+   {
+      SimpleString address = RandomUtil.randomSimpleString();
+      session.createQueue(address, address, false);
+
+      AddressControl addressControl = createManagementControl(address);
+      Assert.assertEquals(0, addressControl.getAddressSize());
+
+      long globalSize = server.getPagingManager().getGlobalSize();
+
+      ClientProducer producer = session.createProducer(address);
+
+      for (int i = 0; i < 10; i++)
+      {
+         ClientMessage msg = session.createMessage(false);
+         msg.getBodyBuffer().writeBytes(new byte[1024]);
+         producer.send(msg);
+      }
+
+      long addressSize = addressControl.getAddressSize();
+      Assert.assertTrue("address size " + addressSize, addressSize > 10 * 1024);
+      Assert.assertEquals(globalSize + addressSize, server.getPagingManager().getGlobalSize());
+
+      ClientConsumer consumer = session.createConsumer(address);
+
+      for (int i = 0; i < 10; i++)
+      {
+         ClientMessage msg = consumer.receive(5000);
+         Assert.assertNotNull(msg);
+         msg.acknowledge();
+      }
+      session.commit();
+      consumer.close();
+
+      Assert.assertEquals(0, addressControl.getAddressSize());
+      Assert.assertEquals(globalSize, server.getPagingManager().getGlobalSize());
+   }
+
+   @Test
+   public void testGetDuplicateIDCacheHits() throws Exception
+   {
+      SimpleString address = RandomUtil.randomSimpleString();
+      session.createQueue(address, address, false);
+
+      AddressControl addressControl = createManagementControl(address);
+      Assert.assertEquals(0, addressControl.getDuplicateIDCacheHits());
+      Assert.assertEquals(0, addressControl.getDuplicateIDCacheMisses());
+
+      ClientProducer producer = session.createProducer(address);
+
+      for (String id : new String[] { "a", "b", "a" })
+      {
+         ClientMessage msg = session.createMessage(false);
+         msg.putStringProperty(Message.HDR_DUPLICATE_DETECTION_ID, new SimpleString(id));
+         producer.send(msg);
+      }
+
+      Assert.assertEquals(1, addressControl.getDuplicateIDCacheHits());
+      Assert.assertEquals(2, addressControl.getDuplicateIDCacheMisses());
+      Assert.assertEquals(0, addressControl.getDuplicateIDCacheEvictions());
+      Assert.assertEquals(0, addressControl.getDuplicateIDCacheExpirations());
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
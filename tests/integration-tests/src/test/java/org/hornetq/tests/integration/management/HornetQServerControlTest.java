@@ -109,6 +109,11 @@ public class HornetQServerControlTest extends ManagementTestBase
                           serverControl.isPersistDeliveryCountBeforeDelivery());
       Assert.assertEquals(conf.isBackup(), serverControl.isBackup());
       Assert.assertEquals(conf.isSharedStore(), serverControl.isSharedStore());
+      Assert.assertEquals(0, serverControl.getReplicationLagBytes());
+      Assert.assertEquals(0, serverControl.getReplicationLagOperations());
+      Assert.assertTrue(serverControl.getBufferPoolPooledBytes() >= 0);
+      Assert.assertTrue(serverControl.getBufferPoolUsedBytes() >= 0);
+      Assert.assertTrue(serverControl.getBufferPoolAllocations() >= serverControl.getBufferPoolReuses());
       Assert.assertEquals(conf.getScheduledThreadPoolMaxSize(), serverControl.getScheduledThreadPoolMaxSize());
       Assert.assertEquals(conf.getThreadPoolMaxSize(), serverControl.getThreadPoolMaxSize());
       Assert.assertEquals(conf.getSecurityInvalidationInterval(), serverControl.getSecurityInvalidationInterval());
@@ -140,6 +145,8 @@ public class HornetQServerControlTest extends ManagementTestBase
       Assert.assertEquals(conf.isCreateBindingsDir(), serverControl.isCreateBindingsDir());
       Assert.assertEquals(conf.isCreateJournalDir(), serverControl.isCreateJournalDir());
       Assert.assertEquals(conf.getPagingDirectory(), serverControl.getPagingDirectory());
+      Assert.assertEquals(conf.getGlobalMaxSize(), serverControl.getGlobalMaxSize());
+      Assert.assertEquals(server.getPagingManager().getGlobalSize(), serverControl.getGlobalSize());
       Assert.assertEquals(conf.getLargeMessagesDirectory(), serverControl.getLargeMessagesDirectory());
       Assert.assertEquals(conf.isWildcardRoutingEnabled(), serverControl.isWildcardRoutingEnabled());
       Assert.assertEquals(conf.getTransactionTimeout(), serverControl.getTransactionTimeout());
@@ -109,6 +109,36 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             return (Boolean)proxy.retrieveAttributeValue("sharedStore");
          }
 
+         public long getReplicationLagBytes()
+         {
+            return (Long)proxy.retrieveAttributeValue("replicationLagBytes", Long.class);
+         }
+
+         public long getReplicationLagOperations()
+         {
+            return (Long)proxy.retrieveAttributeValue("replicationLagOperations", Long.class);
+         }
+
+         public long getBufferPoolPooledBytes()
+         {
+            return (Long)proxy.retrieveAttributeValue("bufferPoolPooledBytes", Long.class);
+         }
+
+         public long getBufferPoolUsedBytes()
+         {
+            return (Long)proxy.retrieveAttributeValue("bufferPoolUsedBytes", Long.class);
+         }
+
+         public long getBufferPoolAllocations()
+         {
+            return (Long)proxy.retrieveAttributeValue("bufferPoolAllocations", Long.class);
+         }
+
+         public long getBufferPoolReuses()
+         {
+            return (Long)proxy.retrieveAttributeValue("bufferPoolReuses", Long.class);
+         }
+
          public boolean closeConnectionsForAddress(final String ipAddress) throws Exception
          {
             return (Boolean)proxy.invokeOperation("closeConnectionsForAddress", ipAddress);
@@ -169,6 +199,21 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             return (Integer)proxy.retrieveAttributeValue("connectionCount");
          }
 
+         public int getScheduledMessageCount()
+         {
+            return (Integer)proxy.retrieveAttributeValue("scheduledMessageCount");
+         }
+
+         public long getScheduledDeliveryAverageLag()
+         {
+            return (Long)proxy.retrieveAttributeValue("scheduledDeliveryAverageLag", Long.class);
+         }
+
+         public long getScheduledDeliveryMaxLag()
+         {
+            return (Long)proxy.retrieveAttributeValue("scheduledDeliveryMaxLag", Long.class);
+         }
+
          public long getConnectionTTLOverride()
          {
             return (Long)proxy.retrieveAttributeValue("connectionTTLOverride", Long.class);
@@ -279,6 +324,16 @@ public class HornetQServerControlUsingCoreTest extends HornetQServerControlTest
             return (String)proxy.retrieveAttributeValue("pagingDirectory");
          }
 
+         public long getGlobalSize()
+         {
+            return (Long)proxy.retrieveAttributeValue("globalSize", Long.class);
+         }
+
+         public long getGlobalMaxSize()
+         {
+            return (Long)proxy.retrieveAttributeValue("globalMaxSize", Long.class);
+         }
+
          public int getScheduledThreadPoolMaxSize()
          {
             return (Integer)proxy.retrieveAttributeValue("scheduledThreadPoolMaxSize");
@@ -282,6 +282,33 @@ public class QueueControlTest extends ManagementTestBase
       session.deleteQueue(queue);
    }
 
+   @Test
+   public void testGetExecutorStatistics() throws Exception
+   {
+      SimpleString address = RandomUtil.randomSimpleString();
+      SimpleString queue = RandomUtil.randomSimpleString();
+
+      session.createQueue(address, queue, null, false);
+
+      QueueControl queueControl = createManagementControl(address, queue);
+
+      ClientProducer producer = session.createProducer(address);
+      for (int i = 0; i < 10; i++)
+      {
+         producer.send(session.createMessage(false));
+      }
+
+      ManagementTestBase.consumeMessages(10, session, queue);
+
+      // the deliveries ran on the executor of the queue
+      Assert.assertTrue(queueControl.getExecutorCompletedTasks() > 0);
+      Assert.assertTrue(queueControl.getExecutorPendingTasks() >= 0);
+      Assert.assertTrue(queueControl.getExecutorAverageTaskLatency() >= 0);
+      Assert.assertTrue(queueControl.getExecutorRunTime() >= 0);
+
+      session.deleteQueue(queue);
+   }
+
    @Test
    public void testGetScheduledCount() throws Exception
    {
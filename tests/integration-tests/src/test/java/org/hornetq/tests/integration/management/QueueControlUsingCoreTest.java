@@ -107,6 +107,26 @@ public class QueueControlUsingCoreTest extends QueueControlTest
          {
             return (Integer)proxy.retrieveAttributeValue("messagesAdded");
          }
+
+         public int getExecutorPendingTasks()
+         {
+            return (Integer)proxy.retrieveAttributeValue("executorPendingTasks");
+         }
+
+         public long getExecutorCompletedTasks()
+         {
+            return ((Number)proxy.retrieveAttributeValue("executorCompletedTasks")).longValue();
+         }
+
+         public long getExecutorAverageTaskLatency()
+         {
+            return ((Number)proxy.retrieveAttributeValue("executorAverageTaskLatency")).longValue();
+         }
+
+         public long getExecutorRunTime()
+         {
+            return ((Number)proxy.retrieveAttributeValue("executorRunTime")).longValue();
+         }
          
          public void resetMessagesAdded() throws Exception
          {
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.integration.remoting;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.HornetQClient;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.client.impl.ClientSessionFactoryImpl;
+import org.hornetq.core.config.Configuration;
+import org.hornetq.core.remoting.impl.netty.NettyConnection;
+import org.hornetq.core.remoting.impl.netty.TransportConstants;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.spi.core.protocol.RemotingConnection;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Exchanges messages over Netty connections coalescing their writes on both sides.
+ */
+public class CoalesceWritesTest extends ServiceTestBase
+{
+   private static final int N = 1000;
+
+   private HornetQServer server;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      Map<String, Object> params = new HashMap<String, Object>();
+      params.put(TransportConstants.COALESCE_WRITES_PROP_NAME, true);
+
+      Configuration config = createBasicConfig();
+      config.getAcceptorConfigurations().add(new TransportConfiguration(NETTY_ACCEPTOR_FACTORY, params));
+
+      config.setSecurityEnabled(false);
+      server = createServer(false, config);
+      server.start();
+   }
+
+   @Test
+   public void testSendReceiveMany() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory();
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      final String foo = "foo";
+
+      session.createQueue(foo, foo);
+
+      ClientProducer prod = session.createProducer(foo);
+
+      ClientConsumer cons = session.createConsumer(foo);
+
+      session.start();
+
+      sendMessages(session, prod, N);
+      receiveMessages(cons, 0, N, true);
+
+      NettyConnection clientConnection = (NettyConnection)((ClientSessionFactoryImpl)sf).getConnection()
+                                                                                         .getTransportConnection();
+
+      assertTrue(clientConnection.getPacketsWritten() >= N);
+      assertTrue(clientConnection.getChannelWrites() <= clientConnection.getPacketsWritten());
+
+      RemotingConnection serverConnection = server.getRemotingService().getConnections().iterator().next();
+
+      NettyConnection nettyConnection = (NettyConnection)serverConnection.getTransportConnection();
+
+      assertTrue(nettyConnection.getPacketsWritten() >= N);
+      assertTrue(nettyConnection.getChannelWritesPerPacket() <= 1);
+   }
+
+   @Test
+   public void testSendReceiveOne() throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory();
+
+      ClientSession session = addClientSession(sf.createSession());
+
+      final String foo = "foo";
+
+      session.createQueue(foo, foo);
+
+      ClientProducer prod = session.createProducer(foo);
+
+      ClientConsumer cons = session.createConsumer(foo);
+
+      session.start();
+
+      ClientMessage msg = session.createMessage(false);
+
+      prod.send(msg);
+
+      // a lone packet is not held back, there is no timer to wait for
+      msg = cons.receive(1000);
+
+      assertNotNull(msg);
+
+      msg.acknowledge();
+   }
+
+   private ClientSessionFactory createSessionFactory() throws Exception
+   {
+      Map<String, Object> params = new HashMap<String, Object>();
+      params.put(TransportConstants.COALESCE_WRITES_PROP_NAME, true);
+      ServerLocator locator =
+               HornetQClient.createServerLocatorWithoutHA(createTransportConfiguration(true, false, params));
+      locator.setBlockOnNonDurableSend(false);
+      locator.setBlockOnAcknowledge(false);
+      addServerLocator(locator);
+      ClientSessionFactory sf = createSessionFactory(locator);
+      return addSessionFactory(sf);
+   }
+}
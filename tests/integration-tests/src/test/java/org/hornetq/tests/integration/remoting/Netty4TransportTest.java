@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.integration.remoting;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.HornetQClient;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.client.impl.ClientSessionFactoryImpl;
+import org.hornetq.core.config.Configuration;
+import org.hornetq.core.remoting.impl.netty.TransportConstants;
+import org.hornetq.core.remoting.impl.netty4.Netty4AcceptorFactory;
+import org.hornetq.core.remoting.impl.netty4.Netty4Connection;
+import org.hornetq.core.remoting.impl.netty4.Netty4ConnectorFactory;
+import org.hornetq.core.remoting.impl.netty4.Netty4TransportConstants;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Exchanges messages over the Netty 4 transport, with the native epoll transport when it is
+ * available.
+ */
+public class Netty4TransportTest extends ServiceTestBase
+{
+   private static final SimpleString ADDRESS = new SimpleString("Netty4TransportTestAddress");
+
+   private HornetQServer server;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      Configuration config = createDefaultConfig(true);
+      config.getAcceptorConfigurations().clear();
+      config.getAcceptorConfigurations().add(new TransportConfiguration(Netty4AcceptorFactory.class.getName()));
+
+      server = createServer(true, config);
+      server.start();
+   }
+
+   @Test
+   public void testSendReceive() throws Exception
+   {
+      ServerLocator locator = createNetty4Locator(new TransportConfiguration(Netty4ConnectorFactory.class.getName()));
+      locator.setBlockOnNonDurableSend(false);
+
+      sendReceive(locator, 1000, 1024);
+   }
+
+   @Test
+   public void testSendReceiveWithoutEpoll() throws Exception
+   {
+      TransportConfiguration transport = new TransportConfiguration(Netty4ConnectorFactory.class.getName());
+      transport.getParams().put(Netty4TransportConstants.USE_EPOLL_PROP_NAME, false);
+
+      ServerLocator locator = createNetty4Locator(transport);
+      locator.setBlockOnNonDurableSend(false);
+
+      sendReceive(locator, 1000, 1024);
+   }
+
+   @Test
+   public void testSendReceiveWithBatchDelay() throws Exception
+   {
+      TransportConfiguration transport = new TransportConfiguration(Netty4ConnectorFactory.class.getName());
+      transport.getParams().put(TransportConstants.BATCH_DELAY, 50);
+
+      ServerLocator locator = createNetty4Locator(transport);
+      locator.setBlockOnNonDurableSend(false);
+      locator.setBlockOnAcknowledge(false);
+
+      sendReceive(locator, 1000, 100);
+   }
+
+   @Test
+   public void testSendReceiveLargeMessages() throws Exception
+   {
+      ServerLocator locator = createNetty4Locator(new TransportConfiguration(Netty4ConnectorFactory.class.getName()));
+      locator.setMinLargeMessageSize(10 * 1024);
+
+      sendReceive(locator, 5, 1024 * 1024);
+   }
+
+   @Test
+   public void testNettyConnector() throws Exception
+   {
+      // the wire format is the same, so both transports can be used during a migration
+      ServerLocator locator = createNetty4Locator(new TransportConfiguration(NETTY_CONNECTOR_FACTORY));
+
+      sendReceive(locator, 100, 1024);
+   }
+
+   @Test
+   public void testConnection() throws Exception
+   {
+      ServerLocator locator = createNetty4Locator(new TransportConfiguration(Netty4ConnectorFactory.class.getName()));
+
+      ClientSessionFactoryImpl sf = (ClientSessionFactoryImpl)createSessionFactory(locator);
+
+      assertTrue(sf.getConnection().getTransportConnection() instanceof Netty4Connection);
+
+      assertEquals(Netty4ConnectorFactory.class.getName(),
+                   sf.getConnection().getTransportConnection().getConnectorConfig().getFactoryClassName());
+
+      assertEquals(1, server.getRemotingService().getConnections().size());
+
+      sf.close();
+
+      waitForRemoteConnections(0);
+   }
+
+   private ServerLocator createNetty4Locator(final TransportConfiguration transport)
+   {
+      return addServerLocator(HornetQClient.createServerLocatorWithoutHA(transport));
+   }
+
+   private void sendReceive(final ServerLocator locator, final int numberOfMessages, final int messageSize) throws Exception
+   {
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      session.createQueue(ADDRESS, ADDRESS, null, false);
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage message = session.createMessage(false);
+         message.putIntProperty("count", i);
+
+         byte[] body = new byte[messageSize];
+         for (int j = 0; j < messageSize; j++)
+         {
+            body[j] = UnitTestCase.getSamplebyte(j);
+         }
+         message.getBodyBuffer().writeBytes(body);
+
+         producer.send(message);
+      }
+
+      ClientConsumer consumer = session.createConsumer(ADDRESS);
+
+      session.start();
+
+      for (int i = 0; i < numberOfMessages; i++)
+      {
+         ClientMessage message = consumer.receive(5000);
+         assertNotNull(message);
+         assertEquals(i, message.getIntProperty("count").intValue());
+         assertEquals(messageSize, message.getBodySize());
+
+         for (int j = 0; j < messageSize; j++)
+         {
+            assertEquals(UnitTestCase.getSamplebyte(j), message.getBodyBuffer().readByte());
+         }
+
+         message.acknowledge();
+      }
+
+      assertNull(consumer.receiveImmediate());
+
+      session.close();
+
+      sf.close();
+   }
+
+   private void waitForRemoteConnections(final int expected) throws Exception
+   {
+      long timeout = System.currentTimeMillis() + 5000;
+
+      while (server.getRemotingService().getConnections().size() != expected && System.currentTimeMillis() < timeout)
+      {
+         Thread.sleep(10);
+      }
+
+      assertEquals(expected, server.getRemotingService().getConnections().size());
+   }
+}
@@ -70,6 +70,8 @@ import org.hornetq.core.persistence.StorageManager;
 import org.hornetq.core.persistence.impl.journal.JournalStorageManager;
 import org.hornetq.core.persistence.impl.journal.OperationContextImpl;
 import org.hornetq.core.protocol.core.Packet;
+import org.hornetq.core.protocol.core.impl.PacketImpl;
+import org.hornetq.core.protocol.core.impl.wireformat.ReplicationBatchMessage;
 import org.hornetq.core.replication.ReplicatedJournal;
 import org.hornetq.core.replication.ReplicationManager;
 import org.hornetq.core.server.HornetQComponent;
@@ -280,6 +282,39 @@ public final class ReplicationTest extends ServiceTestBase
       Assert.assertEquals(0, store.getNumberOfPages());
    }
 
+   @Test
+   public void testSendPacketsInBatches() throws Exception
+   {
+      final int numberOfRecords = 1000;
+      setupServer(true);
+
+      StorageManager storage = getStorage();
+
+      manager = liveServer.getReplicationManager();
+      waitForComponent(manager);
+
+      BatchCountingInterceptor interceptor = new BatchCountingInterceptor();
+      liveServer.getRemotingService().addOutgoingInterceptor(interceptor);
+
+      Journal replicatedJournal = new ReplicatedJournal((byte)1, new FakeJournal(), manager);
+
+      for (int i = 0; i < numberOfRecords; i++)
+      {
+         replicatedJournal.appendAddRecord(i, (byte)1, new FakeData(), false);
+      }
+
+      blockOnReplication(storage, manager);
+
+      Assert.assertTrue("Expecting no active tokens:" + manager.getActiveTokens(), manager.getActiveTokens().isEmpty());
+      Assert.assertEquals(0, manager.getLagBytes());
+      Assert.assertEquals(0, manager.getLagOperations());
+
+      int batches = interceptor.batches.get();
+      Assert.assertTrue("batches: " + batches, batches > 0);
+      Assert.assertTrue("batches: " + batches, batches < numberOfRecords);
+      Assert.assertEquals(numberOfRecords, interceptor.batchedPackets.get());
+   }
+
    @Test
    public void testSendPacketsWithFailure() throws Exception
    {
@@ -618,6 +653,23 @@ public final class ReplicationTest extends ServiceTestBase
 
    };
 
+   private static final class BatchCountingInterceptor implements Interceptor
+   {
+      final AtomicInteger batches = new AtomicInteger();
+
+      final AtomicInteger batchedPackets = new AtomicInteger();
+
+      public boolean intercept(final Packet packet, final RemotingConnection connection) throws HornetQException
+      {
+         if (packet.getType() == PacketImpl.REPLICATION_BATCH)
+         {
+            batches.incrementAndGet();
+            batchedPackets.addAndGet(((ReplicationBatchMessage)packet).getCount());
+         }
+         return true;
+      }
+   }
+
    static final class FakeJournal implements Journal
    {
 
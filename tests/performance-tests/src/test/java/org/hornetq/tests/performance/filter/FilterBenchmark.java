@@ -0,0 +1,165 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.filter;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.hornetq.api.core.FilterConstants;
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
+import org.hornetq.core.filter.impl.FilterParser;
+import org.hornetq.core.filter.impl.Identifier;
+import org.hornetq.core.filter.impl.Operator;
+import org.hornetq.core.server.ServerMessage;
+import org.hornetq.core.server.impl.ServerMessageImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the compiled filters used by {@link FilterImpl} with the {@link Operator} interpreter
+ * they replaced, which had to be evaluated under a lock.
+ * <p>
+ * Run it with {@code main}, or with the JMH command line options to change the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark
+{
+   @Param({"region = 'EU'",
+           "type IN ('order', 'invoice', 'refund') AND region = 'EU'",
+           "price BETWEEN 100 AND 200 OR (quantity > 10 AND customer LIKE 'ACME%')",
+           "HQPriority > 4 AND NOT (region <> 'EU')"})
+   public String selector;
+
+   private Filter compiled;
+
+   private InterpretedFilter interpreted;
+
+   private ServerMessage message;
+
+   @Setup
+   public void setUp() throws Exception
+   {
+      compiled = FilterImpl.createFilter(selector);
+      interpreted = new InterpretedFilter(new SimpleString(selector));
+
+      message = new ServerMessageImpl(1, 1024);
+      message.setPriority((byte)5);
+      message.putStringProperty(new SimpleString("region"), new SimpleString("EU"));
+      message.putStringProperty(new SimpleString("type"), new SimpleString("invoice"));
+      message.putLongProperty(new SimpleString("price"), 150L);
+      message.putIntProperty(new SimpleString("quantity"), 12);
+      message.putStringProperty(new SimpleString("customer"), new SimpleString("ACME Corp"));
+   }
+
+   @Benchmark
+   @Threads(1)
+   public boolean compiled()
+   {
+      return compiled.match(message);
+   }
+
+   @Benchmark
+   @Threads(1)
+   public boolean interpreted()
+   {
+      return interpreted.match(message);
+   }
+
+   @Benchmark
+   @Threads(8)
+   public boolean compiledContended()
+   {
+      return compiled.match(message);
+   }
+
+   @Benchmark
+   @Threads(8)
+   public boolean interpretedContended()
+   {
+      return interpreted.match(message);
+   }
+
+   public static void main(final String[] args) throws Exception
+   {
+      Options options = new OptionsBuilder().include(FilterBenchmark.class.getSimpleName()).build();
+      new Runner(options).run();
+   }
+
+   /**
+    * The evaluation done by FilterImpl before filters were compiled.
+    */
+   private static final class InterpretedFilter
+   {
+      private final HashMap<SimpleString, Identifier> identifiers = new HashMap<SimpleString, Identifier>();
+
+      private final Object result;
+
+      InterpretedFilter(final SimpleString selector) throws Exception
+      {
+         result = new FilterParser().parse(selector, identifiers);
+      }
+
+      synchronized boolean match(final ServerMessage message)
+      {
+         try
+         {
+            for (Identifier id : identifiers.values())
+            {
+               Object val = null;
+
+               if (id.getName().startsWith(FilterConstants.HORNETQ_PREFIX) &&
+                   FilterConstants.HORNETQ_PRIORITY.equals(id.getName()))
+               {
+                  val = Integer.valueOf(message.getPriority());
+               }
+
+               if (val == null)
+               {
+                  val = message.getObjectProperty(id.getName());
+               }
+
+               id.setValue(val);
+            }
+
+            Object value = ((Operator)result).apply();
+
+            return value != null && (Boolean)value;
+         }
+         catch (Exception e)
+         {
+            return false;
+         }
+      }
+   }
+}
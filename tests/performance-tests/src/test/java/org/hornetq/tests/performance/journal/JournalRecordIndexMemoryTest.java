@@ -0,0 +1,159 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.performance.journal;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hornetq.core.journal.impl.JournalFile;
+import org.hornetq.core.journal.impl.JournalFileImpl;
+import org.hornetq.core.journal.impl.JournalImpl;
+import org.hornetq.core.journal.impl.JournalRecordIndex;
+import org.hornetq.tests.unit.UnitTestLogger;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Measures the heap taken by the live records of a journal, loading as many records as a large
+ * server would hold (50 million by default, set {@code hornetq.journal.records} to change it).
+ * <p>
+ * It needs about 3GB of heap ({@code -Xmx3g}) for the default number of records, and is skipped
+ * if the heap is too small.
+ */
+public class JournalRecordIndexMemoryTest extends UnitTestCase
+{
+   private static final UnitTestLogger log = UnitTestLogger.LOGGER;
+
+   private static final int RECORDS = Integer.getInteger("hornetq.journal.records", 50000000);
+
+   private static final int RECORDS_PER_FILE = 10000;
+
+   /**
+    * A generous bound for the index, the map it replaced takes about 90 bytes per record.
+    */
+   private static final long MAX_BYTES_PER_RECORD = 48;
+
+   @Test
+   public void testIndexFootprint() throws Exception
+   {
+      Assume.assumeTrue(Runtime.getRuntime().maxMemory() > RECORDS * (MAX_BYTES_PER_RECORD + 8));
+
+      JournalFile[] files = createFiles(RECORDS);
+
+      long before = usedMemory();
+
+      long start = System.currentTimeMillis();
+
+      JournalRecordIndex index = new JournalRecordIndex();
+
+      for (int i = 0; i < RECORDS; i++)
+      {
+         index.add(i, files[i / RECORDS_PER_FILE], 100);
+      }
+
+      long loadTime = System.currentTimeMillis() - start;
+
+      long bytesPerRecord = (usedMemory() - before) / RECORDS;
+
+      log.info("JournalRecordIndex: " + RECORDS +
+               " records loaded in " +
+               loadTime +
+               " ms, taking " +
+               bytesPerRecord +
+               " bytes per record");
+
+      Assert.assertEquals(RECORDS, index.size());
+
+      Assert.assertTrue("Records take " + bytesPerRecord + " bytes", bytesPerRecord <= MAX_BYTES_PER_RECORD);
+   }
+
+   /**
+    * The map of records used before {@link JournalRecordIndex}, for comparison. It only loads a
+    * tenth of the records to fit in the same heap.
+    */
+   @Test
+   public void testMapFootprint() throws Exception
+   {
+      int records = RECORDS / 10;
+
+      Assume.assumeTrue(Runtime.getRuntime().maxMemory() > records * 200L);
+
+      JournalFile[] files = createFiles(records);
+
+      long before = usedMemory();
+
+      long start = System.currentTimeMillis();
+
+      ConcurrentMap<Long, MapRecord> map = new ConcurrentHashMap<Long, MapRecord>();
+
+      for (int i = 0; i < records; i++)
+      {
+         map.put((long)i, new MapRecord(files[i / RECORDS_PER_FILE], 100));
+      }
+
+      long loadTime = System.currentTimeMillis() - start;
+
+      long bytesPerRecord = (usedMemory() - before) / records;
+
+      log.info("ConcurrentHashMap: " + records +
+               " records loaded in " +
+               loadTime +
+               " ms, taking " +
+               bytesPerRecord +
+               " bytes per record");
+
+      Assert.assertEquals(records, map.size());
+   }
+
+   private static JournalFile[] createFiles(final int records)
+   {
+      JournalFile[] files = new JournalFile[records / RECORDS_PER_FILE + 1];
+
+      for (int i = 0; i < files.length; i++)
+      {
+         files[i] = new JournalFileImpl(null, i, JournalImpl.FORMAT_VERSION);
+      }
+
+      return files;
+   }
+
+   private static long usedMemory()
+   {
+      forceGC();
+
+      Runtime runtime = Runtime.getRuntime();
+
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+
+   /**
+    * The JournalRecord the records were kept as.
+    */
+   private static final class MapRecord
+   {
+      final JournalFile addFile;
+
+      final int size;
+
+      List<Object> updateFiles;
+
+      MapRecord(final JournalFile addFile, final int size)
+      {
+         this.addFile = addFile;
+         this.size = size;
+      }
+   }
+}
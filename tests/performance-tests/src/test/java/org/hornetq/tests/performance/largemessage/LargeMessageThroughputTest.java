@@ -0,0 +1,174 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.largemessage;
+
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.TransportConfiguration;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.HornetQClient;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.config.Configuration;
+import org.hornetq.core.remoting.impl.netty.TransportConstants;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.tests.unit.UnitTestLogger;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Test;
+
+/**
+ * Measures how fast a 1 GiB large message is delivered to several consumers over Netty.
+ * <p>
+ * Without a confirmation window the body is transferred from the file of the message to the
+ * socket. With one, the server must keep the packets to resend them, so the body is read into the
+ * packets as before.
+ */
+public class LargeMessageThroughputTest extends ServiceTestBase
+{
+   private static final UnitTestLogger log = UnitTestLogger.LOGGER;
+
+   private static final long MESSAGE_SIZE = 1024L * 1024 * 1024;
+
+   private static final int NUMBER_OF_CONSUMERS = 2;
+
+   private static final SimpleString ADDRESS = new SimpleString("LargeMessageThroughputTest");
+
+   @Test
+   public void testFileRegionDelivery() throws Exception
+   {
+      internalTestDelivery("file region", -1);
+   }
+
+   @Test
+   public void testCopiedDelivery() throws Exception
+   {
+      internalTestDelivery("copied", 1024 * 1024);
+   }
+
+   private void internalTestDelivery(final String description, final int confirmationWindowSize) throws Exception
+   {
+      Map<String, Object> params = new HashMap<String, Object>();
+      params.put(TransportConstants.USE_NIO_PROP_NAME, true);
+
+      Configuration config = createDefaultConfig(false);
+      config.getAcceptorConfigurations().add(new TransportConfiguration(NETTY_ACCEPTOR_FACTORY, params));
+
+      HornetQServer server = createServer(true, config);
+      server.start();
+
+      ServerLocator locator =
+               addServerLocator(HornetQClient.createServerLocatorWithoutHA(new TransportConfiguration(NETTY_CONNECTOR_FACTORY,
+                                                                                                       params)));
+      locator.setConfirmationWindowSize(confirmationWindowSize);
+      locator.setBlockOnDurableSend(true);
+
+      ClientSessionFactory sf = createSessionFactory(locator);
+
+      ClientSession session = addClientSession(sf.createSession(false, true, true));
+
+      for (int i = 0; i < NUMBER_OF_CONSUMERS; i++)
+      {
+         session.createQueue(ADDRESS, ADDRESS.concat("." + i), true);
+      }
+
+      ClientProducer producer = session.createProducer(ADDRESS);
+
+      ClientMessage message = session.createMessage(true);
+      message.setBodyInputStream(UnitTestCase.createFakeLargeStream(MESSAGE_SIZE));
+      producer.send(message);
+
+      final CountDownLatch latchStart = new CountDownLatch(1);
+      final CountDownLatch latchDone = new CountDownLatch(NUMBER_OF_CONSUMERS);
+      final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+      for (int i = 0; i < NUMBER_OF_CONSUMERS; i++)
+      {
+         final ClientSession consumerSession = addClientSession(sf.createSession(false, true, true));
+         final ClientConsumer consumer = consumerSession.createConsumer(ADDRESS.concat("." + i));
+         consumerSession.start();
+
+         Thread thread = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  latchStart.await();
+
+                  ClientMessage received = consumer.receive(60000);
+
+                  CountingOutputStream output = new CountingOutputStream();
+                  received.saveToOutputStream(output);
+                  received.acknowledge();
+
+                  assertEquals(MESSAGE_SIZE, output.count);
+               }
+               catch (Throwable e)
+               {
+                  failure.set(e);
+               }
+               finally
+               {
+                  latchDone.countDown();
+               }
+            }
+         };
+
+         thread.start();
+      }
+
+      long start = System.currentTimeMillis();
+
+      latchStart.countDown();
+      latchDone.await();
+
+      long time = System.currentTimeMillis() - start;
+
+      if (failure.get() != null)
+      {
+         throw new Exception(failure.get());
+      }
+
+      log.info(description + ": delivered " + NUMBER_OF_CONSUMERS + " x " + MESSAGE_SIZE / (1024 * 1024) +
+               " MiB in " + time + " ms, " + (NUMBER_OF_CONSUMERS * MESSAGE_SIZE / (1024 * 1024) * 1000 / time) +
+               " MiB/s");
+   }
+
+   private static final class CountingOutputStream extends OutputStream
+   {
+      private long count;
+
+      @Override
+      public void write(final int b)
+      {
+         count++;
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len)
+      {
+         count += len;
+      }
+   }
+}
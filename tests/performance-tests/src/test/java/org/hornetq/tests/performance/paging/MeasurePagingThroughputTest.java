@@ -0,0 +1,227 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.paging;
+
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.config.Configuration;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.settings.impl.AddressSettings;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Measures how many messages producers sending concurrently to an address in page mode get through, and
+ * validates every message was paged once and in the order each producer sent it.
+ */
+public class MeasurePagingThroughputTest extends ServiceTestBase
+{
+   private static final SimpleString ADDRESS = new SimpleString("test-adr");
+
+   private static final String PRODUCER_PROP = "producer";
+
+   private static final String SEQUENCE_PROP = "sequence";
+
+   private static final int NUMBER_OF_THREADS = 10;
+
+   private static final int NUMBER_OF_MESSAGES = 5000;
+
+   private static final int SIZE_OF_MESSAGE = 1024;
+
+   @Test
+   public void testPagingThroughputNonTransacted() throws Throwable
+   {
+      testPagingThroughput(0);
+   }
+
+   @Test
+   public void testPagingThroughputTransacted() throws Throwable
+   {
+      testPagingThroughput(50);
+   }
+
+   /**
+    * @param commitInterval the number of messages each producer sends per transaction, 0 to send them without one
+    */
+   private void testPagingThroughput(final int commitInterval) throws Throwable
+   {
+      Configuration config = createDefaultConfig();
+
+      HornetQServer server = createServer(true, config, 10 * 1024, 20 * 1024, new HashMap<String, AddressSettings>());
+      server.start();
+      ServerLocator locator = createInVMNonHALocator();
+      try
+      {
+         final ClientSessionFactory factory = createSessionFactory(locator);
+
+         ClientSession session = factory.createSession(false, true, true);
+         session.createQueue(ADDRESS, ADDRESS, null, true);
+
+         // Fill the address so it is already paging when the measure starts
+         ClientProducer initialProducer = session.createProducer(ADDRESS);
+
+         while (!server.getPagingManager().getPageStore(ADDRESS).isPaging())
+         {
+            ClientMessage msg = session.createMessage(true);
+            msg.getBodyBuffer().writeBytes(new byte[SIZE_OF_MESSAGE]);
+            initialProducer.send(msg);
+         }
+
+         final CountDownLatch latchAlign = new CountDownLatch(NUMBER_OF_THREADS);
+
+         final CountDownLatch latchStart = new CountDownLatch(1);
+
+         class Sender extends Thread
+         {
+            private final int id;
+
+            private final ClientSession session;
+
+            private final ClientProducer producer;
+
+            Throwable e;
+
+            public Sender(final int id) throws Exception
+            {
+               this.id = id;
+               session = factory.createSession(false, commitInterval == 0, commitInterval == 0);
+               producer = session.createProducer(ADDRESS);
+            }
+
+            @Override
+            public void run()
+            {
+               try
+               {
+                  latchAlign.countDown();
+                  UnitTestCase.waitForLatch(latchStart);
+
+                  for (int i = 0; i < NUMBER_OF_MESSAGES; i++)
+                  {
+                     ClientMessage msg = session.createMessage(true);
+                     msg.putIntProperty(PRODUCER_PROP, id);
+                     msg.putIntProperty(SEQUENCE_PROP, i);
+                     msg.getBodyBuffer().writeBytes(new byte[SIZE_OF_MESSAGE]);
+                     producer.send(msg);
+
+                     if (commitInterval > 0 && (i + 1) % commitInterval == 0)
+                     {
+                        session.commit();
+                     }
+                  }
+
+                  if (commitInterval > 0)
+                  {
+                     session.commit();
+                  }
+               }
+               catch (Throwable e)
+               {
+                  this.e = e;
+               }
+            }
+         }
+
+         Sender senders[] = new Sender[NUMBER_OF_THREADS];
+
+         for (int i = 0; i < NUMBER_OF_THREADS; i++)
+         {
+            senders[i] = new Sender(i);
+            senders[i].start();
+         }
+
+         UnitTestCase.waitForLatch(latchAlign);
+
+         long timeStart = System.currentTimeMillis();
+
+         latchStart.countDown();
+
+         for (Thread t : senders)
+         {
+            t.join();
+         }
+
+         long timeEnd = System.currentTimeMillis();
+
+         System.out.println("Paged " + NUMBER_OF_MESSAGES * NUMBER_OF_THREADS +
+                            " messages from " +
+                            NUMBER_OF_THREADS +
+                            " producers" +
+                            (commitInterval > 0 ? " committing every " + commitInterval + " messages" : "") +
+                            " in " +
+                            (timeEnd - timeStart) +
+                            " milliseconds, " +
+                            NUMBER_OF_MESSAGES * NUMBER_OF_THREADS * 1000L / Math.max(1, timeEnd - timeStart) +
+                            " per second");
+
+         for (Sender s : senders)
+         {
+            if (s.e != null)
+            {
+               throw s.e;
+            }
+            s.session.close();
+         }
+
+         ClientConsumer consumer = session.createConsumer(ADDRESS);
+         session.start();
+
+         int[] nextSequence = new int[NUMBER_OF_THREADS];
+
+         int received = 0;
+
+         ClientMessage msg;
+
+         while ((msg = consumer.receive(5000)) != null)
+         {
+            msg.acknowledge();
+
+            if (!msg.containsProperty(PRODUCER_PROP))
+            {
+               continue;
+            }
+
+            int producer = msg.getIntProperty(PRODUCER_PROP);
+
+            Assert.assertEquals(nextSequence[producer]++, msg.getIntProperty(SEQUENCE_PROP).intValue());
+
+            received++;
+
+            if (received == NUMBER_OF_MESSAGES * NUMBER_OF_THREADS)
+            {
+               break;
+            }
+         }
+
+         Assert.assertEquals(NUMBER_OF_MESSAGES * NUMBER_OF_THREADS, received);
+
+         session.close();
+      }
+      finally
+      {
+         locator.close();
+         server.stop();
+      }
+   }
+}
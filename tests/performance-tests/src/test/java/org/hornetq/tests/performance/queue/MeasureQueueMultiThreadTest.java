@@ -0,0 +1,326 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.performance.queue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.api.core.client.ClientConsumer;
+import org.hornetq.api.core.client.ClientMessage;
+import org.hornetq.api.core.client.ClientProducer;
+import org.hornetq.api.core.client.ClientSession;
+import org.hornetq.api.core.client.ClientSessionFactory;
+import org.hornetq.api.core.client.ServerLocator;
+import org.hornetq.core.server.HornetQServer;
+import org.hornetq.core.server.Queue;
+import org.hornetq.tests.util.ServiceTestBase;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Measures the throughput of many producers and consumers on a single queue, with the consumers
+ * acknowledging one by one or in transactions (some of which are rolled back), and while the
+ * queue is polled for statistics and scanned the way management does.
+ */
+public class MeasureQueueMultiThreadTest extends ServiceTestBase
+{
+   private static final int NUMBER_OF_PRODUCERS = 10;
+
+   private static final int NUMBER_OF_CONSUMERS = 50;
+
+   private static final int MESSAGES_PER_PRODUCER = 20000;
+
+   private static final int SIZE_OF_MESSAGE = 256;
+
+   private static final int ACKS_IN_TX = 10;
+
+   /** One of every so many transactions is rolled back, when rolling back */
+   private static final int ROLLBACK_EVERY = 10;
+
+   private static final SimpleString ADDRESS = new SimpleString("test-queue");
+
+   @Test
+   public void testProducersAndConsumersOnSingleQueue() throws Throwable
+   {
+      runProducersAndConsumers(false, false, false);
+   }
+
+   @Test
+   public void testProducersAndConsumersOnSingleQueueWithManagement() throws Throwable
+   {
+      runProducersAndConsumers(true, false, false);
+   }
+
+   @Test
+   public void testProducersAndTransactedConsumersOnSingleQueue() throws Throwable
+   {
+      runProducersAndConsumers(false, true, false);
+   }
+
+   @Test
+   public void testProducersAndRollingBackConsumersOnSingleQueue() throws Throwable
+   {
+      runProducersAndConsumers(false, true, true);
+   }
+
+   private void runProducersAndConsumers(final boolean management,
+                                         final boolean transacted,
+                                         final boolean rollbacks) throws Throwable
+   {
+      HornetQServer server = createServer(false, createDefaultConfig());
+      server.start();
+      ServerLocator locator = createInVMNonHALocator();
+      locator.setBlockOnNonDurableSend(false);
+      locator.setBlockOnAcknowledge(false);
+
+      try
+      {
+         final ClientSessionFactory factory = createSessionFactory(locator);
+
+         ClientSession adminSession = factory.createSession(false, true, true);
+         adminSession.createQueue(ADDRESS, ADDRESS, null, false);
+         adminSession.close();
+
+         final Queue queue = server.locateQueue(ADDRESS);
+
+         final int totalMessages = NUMBER_OF_PRODUCERS * MESSAGES_PER_PRODUCER;
+
+         final CountDownLatch latchAlign = new CountDownLatch(NUMBER_OF_PRODUCERS + NUMBER_OF_CONSUMERS);
+
+         final CountDownLatch latchStart = new CountDownLatch(1);
+
+         final CountDownLatch latchReceived = new CountDownLatch(totalMessages);
+
+         final AtomicInteger errors = new AtomicInteger(0);
+
+         class Producer extends Thread
+         {
+            private final ClientSession session;
+
+            private final ClientProducer producer;
+
+            Producer() throws Exception
+            {
+               session = factory.createSession(false, true, true);
+               producer = session.createProducer(ADDRESS);
+            }
+
+            @Override
+            public void run()
+            {
+               try
+               {
+                  latchAlign.countDown();
+                  UnitTestCase.waitForLatch(latchStart);
+
+                  for (int i = 0; i < MESSAGES_PER_PRODUCER; i++)
+                  {
+                     ClientMessage msg = session.createMessage(false);
+                     msg.getBodyBuffer().writeBytes(new byte[SIZE_OF_MESSAGE]);
+                     producer.send(msg);
+                  }
+               }
+               catch (Throwable e)
+               {
+                  e.printStackTrace();
+                  errors.incrementAndGet();
+               }
+            }
+         }
+
+         class Consumer extends Thread
+         {
+            private final ClientSession session;
+
+            private final ClientConsumer consumer;
+
+            private final AtomicLong rolledBack = new AtomicLong(0);
+
+            Consumer() throws Exception
+            {
+               session = factory.createSession(false, true, !transacted);
+               consumer = session.createConsumer(ADDRESS);
+               session.start();
+            }
+
+            @Override
+            public void run()
+            {
+               try
+               {
+                  latchAlign.countDown();
+                  UnitTestCase.waitForLatch(latchStart);
+
+                  int acked = 0;
+
+                  int transactions = 0;
+
+                  while (latchReceived.getCount() > 0)
+                  {
+                     ClientMessage msg = consumer.receive(100);
+                     if (msg != null)
+                     {
+                        msg.acknowledge();
+                        if (transacted)
+                        {
+                           acked++;
+                        }
+                        else
+                        {
+                           latchReceived.countDown();
+                        }
+                     }
+
+                     if (acked == ACKS_IN_TX || acked > 0 && msg == null)
+                     {
+                        if (rollbacks && ++transactions % ROLLBACK_EVERY == 0)
+                        {
+                           // the messages are cancelled back into the queue and delivered again
+                           session.rollback();
+                           rolledBack.addAndGet(acked);
+                        }
+                        else
+                        {
+                           session.commit();
+                           for (int i = 0; i < acked; i++)
+                           {
+                              latchReceived.countDown();
+                           }
+                        }
+                        acked = 0;
+                     }
+                  }
+               }
+               catch (Throwable e)
+               {
+                  e.printStackTrace();
+                  errors.incrementAndGet();
+               }
+            }
+         }
+
+         class Management extends Thread
+         {
+            volatile boolean running = true;
+
+            final AtomicLong polls = new AtomicLong(0);
+
+            @Override
+            public void run()
+            {
+               try
+               {
+                  while (running)
+                  {
+                     // what a JMX console would poll
+                     queue.getMessageCount(0);
+                     queue.getDeliveringCount();
+                     queue.getConsumerCount();
+                     queue.getDeliveringMessages();
+                     // a scan of the whole queue, for references that never match
+                     queue.expireReferences();
+                     polls.incrementAndGet();
+                  }
+               }
+               catch (Throwable e)
+               {
+                  e.printStackTrace();
+                  errors.incrementAndGet();
+               }
+            }
+         }
+
+         Producer[] producers = new Producer[NUMBER_OF_PRODUCERS];
+         for (int i = 0; i < NUMBER_OF_PRODUCERS; i++)
+         {
+            producers[i] = new Producer();
+            producers[i].start();
+         }
+
+         Consumer[] consumers = new Consumer[NUMBER_OF_CONSUMERS];
+         for (int i = 0; i < NUMBER_OF_CONSUMERS; i++)
+         {
+            consumers[i] = new Consumer();
+            consumers[i].start();
+         }
+
+         UnitTestCase.waitForLatch(latchAlign);
+
+         Management managementThread = null;
+         if (management)
+         {
+            managementThread = new Management();
+            managementThread.start();
+         }
+
+         long timeStart = System.currentTimeMillis();
+
+         latchStart.countDown();
+
+         Assert.assertTrue(latchReceived.await(5, TimeUnit.MINUTES));
+
+         long timeEnd = System.currentTimeMillis();
+
+         if (managementThread != null)
+         {
+            managementThread.running = false;
+            managementThread.join();
+         }
+
+         for (Thread t : producers)
+         {
+            t.join();
+         }
+
+         for (Thread t : consumers)
+         {
+            t.join();
+         }
+
+         long rolledBack = 0;
+         for (Consumer consumer : consumers)
+         {
+            rolledBack += consumer.rolledBack.get();
+         }
+
+         System.out.println(NUMBER_OF_PRODUCERS + " producers and " +
+                            NUMBER_OF_CONSUMERS +
+                            (transacted ? " transacted" : "") +
+                            " consumers" +
+                            (rollbacks ? " (with " + rolledBack + " messages rolled back)" : "") +
+                            (managementThread != null ? " (with " + managementThread.polls.get() + " management polls)"
+                                                      : "") +
+                            " exchanged " +
+                            totalMessages +
+                            " messages in " +
+                            (timeEnd - timeStart) +
+                            " milliseconds what represented " +
+                            totalMessages *
+                            1000L /
+                            Math.max(1, timeEnd - timeStart) +
+                            " per second");
+
+         Assert.assertEquals(0, errors.get());
+      }
+      finally
+      {
+         locator.close();
+         server.stop();
+      }
+   }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.timing.core.server.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import org.hornetq.api.core.SimpleString;
+import org.hornetq.core.filter.impl.FilterImpl;
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.ScheduledDeliveryHandler;
+import org.hornetq.core.server.impl.QueueImpl;
+import org.hornetq.core.server.impl.ScheduledDeliveryHandlerImpl;
+import org.hornetq.core.server.impl.ScheduledDeliveryWheel;
+import org.hornetq.tests.unit.core.server.impl.fakes.FakeConsumer;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the delivery of the scheduled messages of several queues by a shared {@link ScheduledDeliveryWheel}.
+ */
+public class ScheduledDeliveryWheelTest extends UnitTestCase
+{
+   private static final long TIMEOUT = 10000;
+
+   private ScheduledExecutorService scheduledExecutor;
+
+   private ScheduledDeliveryWheel wheel;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      scheduledExecutor = new ScheduledThreadPoolExecutor(1);
+
+      // a small wheel so that the tests go round it
+      wheel = new ScheduledDeliveryWheel(scheduledExecutor, 10, 16);
+   }
+
+   @Override
+   @After
+   public void tearDown() throws Exception
+   {
+      scheduledExecutor.shutdownNow();
+
+      super.tearDown();
+   }
+
+   @Test
+   public void testSharedWheel() throws Exception
+   {
+      QueueImpl queue1 = createQueue(1);
+      QueueImpl queue2 = createQueue(2);
+
+      long now = System.currentTimeMillis();
+
+      MessageReference ref1 = generateReference(queue1, 1);
+      ref1.setScheduledDeliveryTime(now + 1000);
+      queue1.addTail(ref1);
+
+      MessageReference ref2 = generateReference(queue2, 2);
+      ref2.setScheduledDeliveryTime(now + 500);
+      queue2.addTail(ref2);
+
+      MessageReference ref3 = generateReference(queue1, 3);
+      ref3.setScheduledDeliveryTime(now + 200);
+      queue1.addTail(ref3);
+
+      Assert.assertEquals(3, wheel.getScheduledCount());
+      Assert.assertEquals(2, queue1.getScheduledCount());
+      Assert.assertEquals(1, queue2.getScheduledCount());
+
+      FakeConsumer consumer1 = new FakeConsumer();
+      FakeConsumer consumer2 = new FakeConsumer();
+      queue1.addConsumer(consumer1);
+      queue2.addConsumer(consumer2);
+
+      Assert.assertEquals(ref3, consumer1.waitForNextReference(TIMEOUT));
+      Assert.assertTrue(System.currentTimeMillis() - now >= 200);
+
+      Assert.assertEquals(ref2, consumer2.waitForNextReference(TIMEOUT));
+      Assert.assertTrue(System.currentTimeMillis() - now >= 500);
+
+      Assert.assertEquals(ref1, consumer1.waitForNextReference(TIMEOUT));
+      Assert.assertTrue(System.currentTimeMillis() - now >= 1000);
+
+      Assert.assertEquals(0, wheel.getScheduledCount());
+      Assert.assertEquals(0, queue1.getScheduledCount());
+      Assert.assertEquals(3, wheel.getDeliveredCount());
+      Assert.assertTrue(wheel.getMaxLag() >= wheel.getAverageLag());
+   }
+
+   @Test
+   public void testSameDeliveryTime() throws Exception
+   {
+      QueueImpl queue = createQueue(1);
+
+      long time = System.currentTimeMillis() + 300;
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < 100; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+         ref.setScheduledDeliveryTime(time);
+         queue.addTail(ref);
+         refs.add(ref);
+      }
+
+      FakeConsumer consumer = new FakeConsumer();
+      queue.addConsumer(consumer);
+
+      for (MessageReference ref : refs)
+      {
+         Assert.assertEquals(ref, consumer.waitForNextReference(TIMEOUT));
+      }
+   }
+
+   @Test
+   public void testRemoveAndCancel() throws Exception
+   {
+      QueueImpl queue = createQueue(1);
+
+      ScheduledDeliveryHandler handler = new ScheduledDeliveryHandlerImpl(wheel);
+
+      long now = System.currentTimeMillis();
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < 10; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+         ref.getMessage().putIntProperty(new SimpleString("i"), i);
+         ref.setScheduledDeliveryTime(now + 500);
+         Assert.assertTrue(handler.checkAndSchedule(ref, true));
+         refs.add(ref);
+      }
+
+      // the references are delivered to the head of the queue, in the reverse order
+      List<MessageReference> reversed = new ArrayList<MessageReference>(refs);
+      Collections.reverse(reversed);
+      Assert.assertEquals(reversed, handler.getScheduledReferences());
+
+      Assert.assertSame(refs.get(3), handler.removeReferenceWithID(3));
+      Assert.assertNull(handler.removeReferenceWithID(3));
+
+      Assert.assertEquals(9, handler.getScheduledCount());
+      Assert.assertEquals(9, wheel.getScheduledCount());
+
+      List<MessageReference> cancelled = handler.cancel(FilterImpl.createFilter("i >= 5"));
+
+      Assert.assertEquals(reversed.subList(0, 5), cancelled);
+      Assert.assertEquals(4, handler.getScheduledCount());
+      Assert.assertEquals(4, wheel.getScheduledCount());
+
+      FakeConsumer consumer = new FakeConsumer();
+      queue.addConsumer(consumer);
+
+      for (int i : new int[] { 0, 1, 2, 4 })
+      {
+         Assert.assertEquals(refs.get(i), consumer.waitForNextReference(TIMEOUT));
+      }
+
+      Assert.assertEquals(0, handler.getScheduledCount());
+      Assert.assertEquals(4, wheel.getDeliveredCount());
+      Assert.assertTrue(consumer.getReferences().isEmpty());
+   }
+
+   private QueueImpl createQueue(final long id)
+   {
+      return new QueueImpl(id,
+                           new SimpleString("address" + id),
+                           new SimpleString("queue" + id),
+                           null,
+                           null,
+                           false,
+                           true,
+                           scheduledExecutor,
+                           wheel,
+                           null,
+                           null,
+                           null,
+                           Executors.newSingleThreadExecutor());
+   }
+}
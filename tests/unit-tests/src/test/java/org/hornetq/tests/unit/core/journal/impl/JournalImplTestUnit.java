@@ -17,16 +17,23 @@ import org.junit.After;
 import org.junit.Test;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.HornetQIOErrorException;
 import org.hornetq.core.journal.EncodingSupport;
+import org.hornetq.core.journal.PreparedTransactionInfo;
 import org.hornetq.core.journal.RecordInfo;
 import org.hornetq.core.journal.SequentialFile;
 import org.hornetq.core.journal.impl.JournalImpl;
+import org.hornetq.core.journal.impl.dataformat.ByteArrayEncoding;
 import org.hornetq.tests.unit.UnitTestLogger;
 import org.hornetq.tests.unit.core.journal.impl.fakes.SimpleEncoding;
 import org.hornetq.tests.util.RandomUtil;
@@ -3095,6 +3102,179 @@ public abstract class JournalImplTestUnit extends JournalImplTestBase
       loadAndCheck();
    }
 
+   @Test
+   public void testParallelLoad() throws Exception
+   {
+      setup(2, 60 * 1024, true);
+
+      createJournal();
+      startJournal();
+      load();
+
+      EncodingSupport xid = new SimpleEncoding(10, (byte)0);
+
+      long transactionID = 0;
+
+      for (int i = 0; i < 300; i++)
+      {
+         add(i);
+
+         if (i % 3 == 0)
+         {
+            update(i);
+         }
+
+         if (i % 10 == 0)
+         {
+            // transactions spanning several files
+            addTx(transactionID, 1000 + i);
+            journal.forceMoveNextFile();
+            updateTx(transactionID, 1000 + i);
+
+            if (i % 20 == 0)
+            {
+               prepare(transactionID, xid);
+            }
+            commit(transactionID++);
+         }
+
+         if (i % 5 == 0 && i > 0)
+         {
+            delete(i - 1);
+         }
+      }
+
+      addTx(transactionID, 2000);
+      deleteTx(transactionID, 1, 2);
+      prepare(transactionID++, xid);
+
+      stopJournal(false);
+      createJournal();
+      startJournal();
+      loadAndCheck();
+
+      int dataFiles = journal.getDataFilesCount();
+
+      int records = journal.getIDMapSize();
+
+      stopJournal(false);
+      createJournal();
+      journal.setLoadThreads(4);
+      startJournal();
+      loadAndCheck();
+
+      Assert.assertEquals(dataFiles, journal.getDataFilesCount());
+      Assert.assertEquals(records, journal.getIDMapSize());
+
+      add(3000);
+      update(3000);
+
+      stopJournal();
+      createJournal();
+      journal.setLoadThreads(4);
+      startJournal();
+      loadAndCheck();
+   }
+
+   @Test
+   public void testConcurrentAppends() throws Exception
+   {
+      setup(10, 10 * 1024, true);
+
+      createJournal();
+      startJournal();
+      load();
+
+      final int numberOfThreads = 10;
+
+      final int numberOfRecords = 200;
+
+      final CountDownLatch start = new CountDownLatch(1);
+
+      final AtomicInteger errors = new AtomicInteger(0);
+
+      Thread[] threads = new Thread[numberOfThreads];
+
+      for (int t = 0; t < numberOfThreads; t++)
+      {
+         final long firstID = t * numberOfRecords * 2;
+
+         threads[t] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+
+                  for (long id = firstID; id < firstID + numberOfRecords * 2; id += 2)
+                  {
+                     journal.appendAddRecord(id, (byte)1, new ByteArrayEncoding(toBytes(id)), false);
+                     journal.appendUpdateRecord(id, (byte)1, new ByteArrayEncoding(toBytes(id)), false);
+
+                     if (id % 4 == 0)
+                     {
+                        journal.appendDeleteRecord(id, false);
+                     }
+
+                     journal.appendAddRecordTransactional(id, id + 1, (byte)1, new ByteArrayEncoding(toBytes(id + 1)));
+                     journal.appendCommitRecord(id, false);
+                  }
+               }
+               catch (Throwable e)
+               {
+                  e.printStackTrace();
+                  errors.incrementAndGet();
+               }
+            }
+         };
+
+         threads[t].start();
+      }
+
+      start.countDown();
+
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      Assert.assertEquals(0, errors.get());
+
+      stopJournal();
+      createJournal();
+      startJournal();
+
+      List<RecordInfo> committedRecords = new ArrayList<RecordInfo>();
+
+      journal.load(committedRecords, new ArrayList<PreparedTransactionInfo>(), null);
+
+      Set<Long> ids = new HashSet<Long>();
+
+      for (RecordInfo info : committedRecords)
+      {
+         Assert.assertArrayEquals(toBytes(info.id), info.data);
+
+         if (!info.isUpdate)
+         {
+            Assert.assertTrue(ids.add(info.id));
+         }
+      }
+
+      for (long id = 0; id < numberOfThreads * numberOfRecords * 2; id++)
+      {
+         Assert.assertEquals("id " + id, id % 4 != 0, ids.contains(id));
+      }
+
+      Assert.assertEquals(ids.size(), journal.getIDMapSize());
+   }
+
+   private static byte[] toBytes(final long id)
+   {
+      return ByteBuffer.allocate(8).putLong(id).array();
+   }
+
    @Test
    public void testReclaimAfterUpdate() throws Exception
    {
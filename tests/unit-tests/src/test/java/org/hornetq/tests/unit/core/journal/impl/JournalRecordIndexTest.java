@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package org.hornetq.tests.unit.core.journal.impl;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.hornetq.core.journal.impl.JournalFile;
+import org.hornetq.core.journal.impl.JournalFileImpl;
+import org.hornetq.core.journal.impl.JournalImpl;
+import org.hornetq.core.journal.impl.JournalRecordIndex;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JournalRecordIndexTest extends UnitTestCase
+{
+   @Test
+   public void testAccounting() throws Exception
+   {
+      JournalFile file1 = new JournalFileImpl(null, 1, JournalImpl.FORMAT_VERSION);
+      JournalFile file2 = new JournalFileImpl(null, 2, JournalImpl.FORMAT_VERSION);
+      JournalFile file3 = new JournalFileImpl(null, 3, JournalImpl.FORMAT_VERSION);
+
+      JournalRecordIndex index = new JournalRecordIndex();
+
+      index.add(1, file1, 100);
+      index.add(2, file1, 50);
+
+      Assert.assertTrue(index.addUpdate(1, file2, 10));
+      Assert.assertTrue(index.addUpdate(1, file2, 10));
+      Assert.assertFalse(index.addUpdate(3, file2, 10));
+
+      Assert.assertEquals(2, file1.getPosCount());
+      Assert.assertEquals(150, file1.getLiveSize());
+      Assert.assertEquals(2, file2.getPosCount());
+      Assert.assertEquals(20, file2.getLiveSize());
+
+      Assert.assertTrue(index.delete(1, file3));
+      Assert.assertFalse(index.delete(1, file3));
+      Assert.assertNull(index.remove(1));
+
+      Assert.assertEquals(1, file3.getNegCount(file1));
+      Assert.assertEquals(2, file3.getNegCount(file2));
+      Assert.assertEquals(50, file1.getLiveSize());
+      Assert.assertEquals(0, file2.getLiveSize());
+
+      Assert.assertEquals(1, index.size());
+      Assert.assertTrue(index.contains(2));
+      Assert.assertFalse(index.contains(1));
+   }
+
+   @Test
+   public void testAddRemoveRandom() throws Exception
+   {
+      JournalFile file = new JournalFileImpl(null, 1, JournalImpl.FORMAT_VERSION);
+
+      JournalRecordIndex index = new JournalRecordIndex();
+
+      Set<Long> expected = new HashSet<Long>();
+
+      Random random = new Random(1);
+
+      for (int i = 0; i < 200000; i++)
+      {
+         // a small range of IDs so there are plenty of collisions and removals
+         long id = random.nextInt(20000) - 10000;
+
+         if (random.nextBoolean())
+         {
+            index.add(id, file, 1);
+            expected.add(id);
+         }
+         else
+         {
+            Assert.assertEquals(expected.remove(id), index.remove(id) != null);
+         }
+      }
+
+      Assert.assertEquals(expected.size(), index.size());
+
+      for (long id = -10000; id < 10000; id++)
+      {
+         Assert.assertEquals(expected.contains(id), index.contains(id));
+      }
+
+      long[] ids = index.getIDs();
+      Assert.assertEquals(expected.size(), ids.length);
+      for (long id : ids)
+      {
+         Assert.assertTrue(expected.contains(id));
+      }
+   }
+
+   @Test
+   public void testPutAll() throws Exception
+   {
+      JournalFile file1 = new JournalFileImpl(null, 1, JournalImpl.FORMAT_VERSION);
+      JournalFile file2 = new JournalFileImpl(null, 2, JournalImpl.FORMAT_VERSION);
+
+      JournalRecordIndex index = new JournalRecordIndex();
+      JournalRecordIndex other = new JournalRecordIndex();
+
+      index.add(1, file1, 10);
+
+      for (long id = 2; id < 1000; id++)
+      {
+         other.add(id, file1, 10);
+      }
+      other.addUpdate(500, file2, 5);
+
+      index.putAll(other);
+
+      long[] ids = index.getIDs();
+      Arrays.sort(ids);
+      Assert.assertEquals(999, ids.length);
+      Assert.assertEquals(1, ids[0]);
+      Assert.assertEquals(999, ids[998]);
+
+      // the records were accounted when added to the other index
+      Assert.assertEquals(999, file1.getPosCount());
+      Assert.assertEquals(1, file2.getPosCount());
+
+      Assert.assertTrue(index.delete(500, file2));
+      Assert.assertEquals(0, file2.getLiveSize());
+      Assert.assertEquals(1, file2.getNegCount(file2));
+
+      index.clear();
+      Assert.assertEquals(0, index.size());
+      Assert.assertFalse(index.contains(2));
+   }
+}
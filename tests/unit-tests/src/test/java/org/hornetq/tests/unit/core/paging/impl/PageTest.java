@@ -79,6 +79,139 @@ public class PageTest extends UnitTestCase
       testDamagedPage(new FakeSequentialFileFactory(1, false), 100);
    }
 
+   @Test
+   public void testReadMessageWithNIO() throws Exception
+   {
+      recreateDirectory(getTestDir());
+      testReadMessage(new NIOSequentialFileFactory(getTestDir()), 1000);
+   }
+
+   @Test
+   public void testReadMessageFake() throws Exception
+   {
+      testReadMessage(new FakeSequentialFileFactory(1, false), 10);
+   }
+
+   /** Validate records encoded ahead and written in batches read back as single writes do */
+   @Test
+   public void testWriteRecordsWithNIO() throws Exception
+   {
+      recreateDirectory(getTestDir());
+
+      SequentialFileFactory factory = new NIOSequentialFileFactory(getTestDir());
+
+      SequentialFile file = factory.createSequentialFile("00010.page", 1);
+
+      Page impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+
+      impl.open();
+
+      SimpleString simpleDestination = new SimpleString("Test");
+
+      // a single write in between batches
+      ArrayList<HornetQBuffer> buffers = addPageElements(simpleDestination, impl, 1);
+
+      for (int batch = 0; batch < 10; batch++)
+      {
+         List<PagedMessage> messages = new ArrayList<PagedMessage>();
+         List<HornetQBuffer> records = new ArrayList<HornetQBuffer>();
+
+         for (int i = 0; i <= batch; i++)
+         {
+            ServerMessage msg = new ServerMessageImpl(buffers.size(), 100);
+
+            msg.getBodyBuffer().writeBytes(new byte[batch * 10 + i]);
+
+            buffers.add(msg.getBodyBuffer());
+
+            msg.setAddress(simpleDestination);
+
+            PagedMessage pagedMessage = new PagedMessageImpl(msg, new long[]{batch, i});
+
+            messages.add(pagedMessage);
+            records.add(Page.encodeRecord(pagedMessage));
+         }
+
+         impl.write(messages, records);
+      }
+
+      buffers.addAll(addPageElements(simpleDestination, impl, 1));
+
+      Assert.assertEquals(buffers.size(), impl.getNumberOfMessages());
+
+      impl.sync();
+      impl.close();
+
+      file = factory.createSequentialFile("00010.page", 1);
+      file.open();
+      impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+
+      List<PagedMessage> msgs = impl.read(new NullStorageManager());
+
+      Assert.assertEquals(buffers.size(), msgs.size());
+
+      for (int i = 0; i < msgs.size(); i++)
+      {
+         Assert.assertEquals(simpleDestination, msgs.get(i).getMessage().getAddress());
+
+         UnitTestCase.assertEqualsByteArrays(buffers.get(i).toByteBuffer().array(), msgs.get(i)
+                                                                                        .getMessage()
+                                                                                        .getBodyBuffer()
+                                                                                        .toByteBuffer()
+                                                                                        .array());
+      }
+
+      Assert.assertArrayEquals(new long[]{9, 9}, msgs.get(msgs.size() - 2).getQueueIDs());
+
+      impl.delete(null);
+   }
+
+   /** Validate the messages read one at a time through the index are the ones read with the page */
+   protected void testReadMessage(final SequentialFileFactory factory, final int numberOfElements) throws Exception
+   {
+      SequentialFile file = factory.createSequentialFile("00010.page", 1);
+
+      Page impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+
+      impl.open();
+
+      SimpleString simpleDestination = new SimpleString("Test");
+
+      ArrayList<HornetQBuffer> buffers = addPageElements(simpleDestination, impl, numberOfElements);
+
+      impl.sync();
+      impl.close();
+
+      file = factory.createSequentialFile("00010.page", 1);
+      file.open();
+      impl = new Page(new SimpleString("something"), new NullStorageManager(), factory, file, 10);
+
+      int[] offsets = impl.readIndex(new NullStorageManager());
+
+      Assert.assertEquals(numberOfElements, offsets.length);
+
+      Assert.assertEquals(numberOfElements, impl.getNumberOfMessages());
+
+      Assert.assertEquals(0, offsets[0]);
+
+      // backwards, so every read has to seek
+      for (int i = numberOfElements - 1; i >= 0; i--)
+      {
+         PagedMessage msg = impl.readMessage(new NullStorageManager(), offsets[i]);
+
+         Assert.assertEquals(simpleDestination, msg.getMessage().getAddress());
+
+         Assert.assertEquals(i, msg.getMessage().getMessageID());
+
+         UnitTestCase.assertEqualsByteArrays(buffers.get(i).toByteBuffer().array(), msg.getMessage()
+                                                                                        .getBodyBuffer()
+                                                                                        .toByteBuffer()
+                                                                                        .array());
+      }
+
+      impl.delete(null);
+   }
+
    /** Validate if everything we add is recovered */
    protected void testAdd(final SequentialFileFactory factory, final int numberOfElements) throws Exception
    {
@@ -15,6 +15,8 @@ package org.hornetq.tests.unit.core.paging.impl;
 import java.io.File;
 import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 
@@ -102,6 +104,85 @@ public class PagingManagerImplTest extends UnitTestCase
 
    }
 
+   @Test
+   public void testGlobalMaxSize() throws Exception
+   {
+      HierarchicalRepository<AddressSettings> addressSettings = new HierarchicalObjectRepository<AddressSettings>();
+      AddressSettings settings = new AddressSettings();
+      settings.setAddressFullMessagePolicy(AddressFullMessagePolicy.PAGE);
+      addressSettings.setDefault(settings);
+      AddressSettings blockSettings = new AddressSettings();
+      blockSettings.setAddressFullMessagePolicy(AddressFullMessagePolicy.BLOCK);
+      addressSettings.addMatch("block.#", blockSettings);
+      AddressSettings failSettings = new AddressSettings();
+      failSettings.setAddressFullMessagePolicy(AddressFullMessagePolicy.FAIL);
+      addressSettings.addMatch("fail.#", failSettings);
+
+      PagingStoreFactoryNIO storeFactory =
+               new PagingStoreFactoryNIO(new NullStorageManager(), getPageDir(), 100, null, getOrderedExecutor(), true, null);
+
+      PagingManagerImpl managerImpl = new PagingManagerImpl(storeFactory, addressSettings, 10000);
+
+      managerImpl.start();
+
+      PagingStore big = managerImpl.getPageStore(new SimpleString("big"));
+      PagingStore small = managerImpl.getPageStore(new SimpleString("small"));
+      PagingStore blocking = managerImpl.getPageStore(new SimpleString("block.test"));
+      PagingStore failing = managerImpl.getPageStore(new SimpleString("fail.test"));
+
+      // an address alone may use the whole budget
+      big.addSize(8000);
+      small.addSize(1000);
+      Assert.assertFalse(big.isPaging());
+      Assert.assertFalse(small.isPaging());
+
+      // over the budget, only the address using more than its share pages
+      big.addSize(2000);
+      Assert.assertEquals(11000, managerImpl.getGlobalSize());
+      Assert.assertTrue(big.isPaging());
+      small.addSize(1000);
+      Assert.assertFalse(small.isPaging());
+
+      final CountDownLatch unblocked = new CountDownLatch(1);
+      blocking.addSize(100);
+      Assert.assertTrue(blocking.checkMemory(new Runnable()
+      {
+         public void run()
+         {
+            unblocked.countDown();
+         }
+      }));
+      Assert.assertEquals(0, unblocked.getCount());
+
+      // four addresses are using memory now, so the share is 2500
+      failing.addSize(3000);
+      Assert.assertFalse(failing.checkMemory(new Runnable()
+      {
+         public void run()
+         {
+         }
+      }));
+
+      final CountDownLatch released = new CountDownLatch(1);
+      blocking.addSize(2900);
+      Assert.assertTrue(blocking.checkMemory(new Runnable()
+      {
+         public void run()
+         {
+            released.countDown();
+         }
+      }));
+      Assert.assertFalse(released.await(100, TimeUnit.MILLISECONDS));
+
+      // the memory freed by the other addresses releases the blocked producer
+      big.addSize(-10000);
+      failing.addSize(-3000);
+      Assert.assertEquals(5000, managerImpl.getGlobalSize());
+      Assert.assertTrue(released.await(5, TimeUnit.SECONDS));
+
+      managerImpl.stop();
+   }
+
    @Override
    @Before
    public void setUp() throws Exception
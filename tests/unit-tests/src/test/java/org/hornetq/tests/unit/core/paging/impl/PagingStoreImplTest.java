@@ -26,6 +26,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -687,6 +688,61 @@ public class PagingStoreImplTest extends UnitTestCase
       storeImpl.stop();
    }
 
+   @Test
+   public void testPageFailureOnNewPage() throws Exception
+   {
+      final AtomicBoolean failNewFiles = new AtomicBoolean(false);
+
+      SequentialFileFactory factory = new FakeSequentialFileFactory()
+      {
+         @Override
+         public SequentialFile createSequentialFile(final String fileName, final int maxAIO)
+         {
+            if (failNewFiles.get())
+            {
+               throw new IllegalStateException("no space left");
+            }
+            return super.createSequentialFile(fileName, maxAIO);
+         }
+      };
+
+      PagingStoreFactory storeFactory = new FakeStoreFactory(factory);
+
+      AddressSettings settings = new AddressSettings();
+      settings.setPageSizeBytes(1024);
+      settings.setAddressFullMessagePolicy(AddressFullMessagePolicy.PAGE);
+
+      PagingStore storeImpl =
+               new PagingStoreImpl(PagingStoreImplTest.destinationTestName, null, 100, createMockManager(),
+                                   createStorageManagerMock(), factory, storeFactory,
+                                   PagingStoreImplTest.destinationTestName, settings,
+                                   getExecutorFactory().getExecutor(), true);
+
+      storeImpl.start();
+      storeImpl.startPaging();
+
+      SimpleString destination = new SimpleString("test");
+
+      RoutingContextImpl ctx = new RoutingContextImpl(null);
+      Assert.assertTrue(storeImpl.page(createMessage(1, storeImpl, destination, createRandomBuffer(1, 800)),
+                                       ctx.getTransaction(), ctx.getContextListing(storeImpl.getStoreName()), lock));
+
+      failNewFiles.set(true);
+
+      // The second message doesn't fit on the first page, and the next page can't be created
+      ctx = new RoutingContextImpl(null);
+      try
+      {
+         storeImpl.page(createMessage(2, storeImpl, destination, createRandomBuffer(2, 800)), ctx.getTransaction(),
+                        ctx.getContextListing(storeImpl.getStoreName()), lock);
+         Assert.fail("the failure to open a new page should have been thrown");
+      }
+      catch (IllegalStateException expected)
+      {
+         // expected
+      }
+   }
+
    @Test
    public void testOrderOnPaging() throws Throwable
    {
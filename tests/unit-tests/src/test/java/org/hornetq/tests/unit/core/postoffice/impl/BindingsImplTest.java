@@ -15,7 +15,9 @@ package org.hornetq.tests.unit.core.postoffice.impl;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -24,6 +26,7 @@ import javax.transaction.xa.Xid;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.api.core.SimpleString;
 import org.hornetq.core.filter.Filter;
+import org.hornetq.core.filter.impl.FilterImpl;
 import org.hornetq.core.postoffice.Binding;
 import org.hornetq.core.postoffice.BindingType;
 import org.hornetq.core.postoffice.Bindings;
@@ -37,6 +40,7 @@ import org.hornetq.core.server.impl.ServerMessageImpl;
 import org.hornetq.core.transaction.Transaction;
 import org.hornetq.core.transaction.TransactionOperation;
 import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Assert;
 
 /**
  * A BindingImplTest
@@ -79,6 +83,109 @@ public class BindingsImplTest extends UnitTestCase
       }
    }
 
+   @Test
+   public void testRoutingIndex() throws Exception
+   {
+      String[] filters = new String[] { null,
+                                        "region = 'EU'",
+                                        "'US' = region",
+                                        "region IN ('EU', 'APAC')",
+                                        "region NOT IN ('EU', 'APAC')",
+                                        "region = 'EU' AND price > 10",
+                                        "price > 100",
+                                        "100 < price",
+                                        "price >= 100",
+                                        "price <= 50",
+                                        "price BETWEEN 10 AND 20",
+                                        "quantity = 5",
+                                        "quantity = 5.0",
+                                        "quantity = 5.5",
+                                        "flag = TRUE",
+                                        "customer LIKE 'A%'",
+                                        "NOT (region = 'EU')" };
+
+      final Set<SimpleString> routed = new HashSet<SimpleString>();
+
+      Bindings indexed = new BindingsImpl(null, null, null, true);
+      Bindings notIndexed = new BindingsImpl(null, null, null, false);
+
+      long id = 0;
+      List<RecordingBinding> bindings = new ArrayList<RecordingBinding>();
+      for (int i = 0; i < filters.length; i++)
+      {
+         Filter filter = FilterImpl.createFilter(filters[i]);
+         bindings.add(new RecordingBinding(id++, new SimpleString("queue" + i), filter, routed));
+      }
+      // the same filter on both bindings of a routing name
+      bindings.add(new RecordingBinding(id++, new SimpleString("shared"), FilterImpl.createFilter("region = 'EU'"), routed));
+      bindings.add(new RecordingBinding(id++, new SimpleString("shared"), FilterImpl.createFilter("region = 'EU'"), routed));
+
+      for (RecordingBinding binding : bindings)
+      {
+         indexed.addBinding(binding);
+         notIndexed.addBinding(binding);
+      }
+
+      Object[] regions = new Object[] { null, "EU", "US", "APAC", 10 };
+      Object[] prices = new Object[] { null, 5L, 10, 15.5d, 50f, 100L, 100.5d, Double.NaN, "100" };
+      Object[] quantities = new Object[] { null, 5, 5L, 5.0d, 5.5f, (short)6 };
+      Object[] flags = new Object[] { null, true, false };
+
+      int messageID = 0;
+      for (Object region : regions)
+      {
+         for (Object price : prices)
+         {
+            for (Object quantity : quantities)
+            {
+               for (Object flag : flags)
+               {
+                  ServerMessage message = new ServerMessageImpl(messageID++, 100);
+                  putProperty(message, "region", region);
+                  putProperty(message, "price", price);
+                  putProperty(message, "quantity", quantity);
+                  putProperty(message, "flag", flag);
+                  putProperty(message, "customer", "ACME");
+
+                  routed.clear();
+                  notIndexed.route(message, new RoutingContextImpl(new FakeTransaction()));
+                  Set<SimpleString> expected = new HashSet<SimpleString>(routed);
+
+                  routed.clear();
+                  indexed.route(message, new RoutingContextImpl(new FakeTransaction()));
+
+                  Assert.assertEquals(message.toString(), expected, routed);
+               }
+            }
+         }
+      }
+
+      // the index follows the removal of bindings
+      for (RecordingBinding binding : bindings.subList(0, 4))
+      {
+         indexed.removeBinding(binding);
+      }
+
+      ServerMessage message = new ServerMessageImpl(messageID++, 100);
+      putProperty(message, "region", "EU");
+      routed.clear();
+      indexed.route(message, new RoutingContextImpl(new FakeTransaction()));
+
+      Assert.assertFalse(routed.contains(new SimpleString("queue0")));
+      Assert.assertFalse(routed.contains(new SimpleString("queue1")));
+      Assert.assertFalse(routed.contains(new SimpleString("queue3")));
+      Assert.assertTrue(routed.contains(new SimpleString("shared")));
+   }
+
+   private static void putProperty(final ServerMessage message, final String name, final Object value)
+   {
+      if (value != null)
+      {
+         message.putObjectProperty(new SimpleString(name),
+                                   value instanceof String ? new SimpleString((String)value) : value);
+      }
+   }
+
    private void internalTest(final boolean route) throws Exception
    {
       final FakeBinding fake = new FakeBinding(new SimpleString("a"));
@@ -389,6 +496,95 @@ public class BindingsImplTest extends UnitTestCase
 
    }
 
+   private static final class RecordingBinding implements Binding
+   {
+      private final long id;
+
+      private final SimpleString name;
+
+      private final Filter filter;
+
+      private final Set<SimpleString> routed;
+
+      RecordingBinding(final long id, final SimpleString name, final Filter filter, final Set<SimpleString> routed)
+      {
+         this.id = id;
+         this.name = name;
+         this.filter = filter;
+         this.routed = routed;
+      }
+
+      public void close() throws Exception
+      {
+      }
+
+      public SimpleString getAddress()
+      {
+         return null;
+      }
+
+      public Bindable getBindable()
+      {
+         return null;
+      }
+
+      public SimpleString getClusterName()
+      {
+         return null;
+      }
+
+      public int getDistance()
+      {
+         return 0;
+      }
+
+      public Filter getFilter()
+      {
+         return filter;
+      }
+
+      public long getID()
+      {
+         return id;
+      }
+
+      public SimpleString getRoutingName()
+      {
+         return name;
+      }
+
+      public BindingType getType()
+      {
+         return BindingType.LOCAL_QUEUE;
+      }
+
+      public SimpleString getUniqueName()
+      {
+         return new SimpleString(name + "-" + id);
+      }
+
+      public boolean isExclusive()
+      {
+         return false;
+      }
+
+      public boolean isHighAcceptPriority(final ServerMessage message)
+      {
+         return true;
+      }
+
+      public void route(final ServerMessage message, final RoutingContext context) throws Exception
+      {
+         routed.add(name);
+      }
+
+      @Override
+      public String toManagementString()
+      {
+         return null;
+      }
+   }
+
    // Package protected ---------------------------------------------
 
    // Protected -----------------------------------------------------
@@ -27,17 +27,20 @@ import org.hornetq.api.core.HornetQBuffer;
 import org.hornetq.api.core.HornetQBuffers;
 import org.hornetq.api.core.HornetQException;
 import org.hornetq.core.remoting.impl.netty.NettyConnection;
+import org.hornetq.core.remoting.impl.netty.TransportConstants;
 import org.hornetq.core.server.HornetQComponent;
 import org.hornetq.spi.core.protocol.ProtocolType;
 import org.hornetq.spi.core.remoting.Connection;
 import org.hornetq.spi.core.remoting.ConnectionLifeCycleListener;
 import org.hornetq.tests.util.RandomUtil;
 import org.hornetq.tests.util.UnitTestCase;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelConfig;
 import org.jboss.netty.channel.ChannelFactory;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.DefaultChannelFuture;
 
 /**
  *
@@ -73,6 +76,81 @@ public class NettyConnectionTest extends UnitTestCase
       Assert.assertEquals(1, channel.getWritten().size());
    }
 
+   @Test
+   public void testCoalesceWrites() throws Exception
+   {
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), false, true, false);
+
+      // nothing is being written, so the first packet goes straight away
+      conn.write(createPacket(1), false, false);
+
+      Assert.assertEquals(1, channel.getWritten().size());
+
+      // the next ones wait for that write to be done
+      conn.write(createPacket(2), false, false);
+      conn.write(createPacket(3), false, true);
+      conn.write(createPacket(4), false, false);
+
+      Assert.assertEquals(1, channel.getWritten().size());
+
+      channel.getFutures().get(0).setSuccess();
+
+      Assert.assertEquals(2, channel.getWritten().size());
+
+      ChannelBuffer coalesced = (ChannelBuffer)channel.getWritten().get(1);
+
+      Assert.assertEquals(3 * 4, coalesced.readableBytes());
+      Assert.assertEquals(2, coalesced.readInt());
+      Assert.assertEquals(3, coalesced.readInt());
+      Assert.assertEquals(4, coalesced.readInt());
+
+      channel.getFutures().get(1).setSuccess();
+
+      // idle again
+      conn.write(createPacket(5), false, false);
+
+      Assert.assertEquals(3, channel.getWritten().size());
+
+      Assert.assertEquals(5, conn.getPacketsWritten());
+      Assert.assertEquals(3, conn.getChannelWrites());
+      Assert.assertEquals(0.6, conn.getChannelWritesPerPacket(), 0.001);
+   }
+
+   @Test
+   public void testCoalesceWritesFlush() throws Exception
+   {
+      SimpleChannel channel = new SimpleChannel(RandomUtil.randomInt());
+
+      NettyConnection conn = new NettyConnection(emptyMap, channel, new MyListener(), false, true, false);
+
+      conn.write(createPacket(1), false, false);
+      conn.write(createPacket(2), false, false);
+
+      Assert.assertEquals(1, channel.getWritten().size());
+
+      channel.setCompleteWrites(true);
+
+      // a flush doesn't wait for the write in progress, but keeps the order of the packets
+      conn.write(createPacket(3), true, false);
+
+      Assert.assertEquals(2, channel.getWritten().size());
+
+      ChannelBuffer coalesced = (ChannelBuffer)channel.getWritten().get(1);
+
+      Assert.assertEquals(2, coalesced.readInt());
+      Assert.assertEquals(3, coalesced.readInt());
+      Assert.assertFalse(coalesced.readable());
+   }
+
+   @Test
+   public void testCoalesceWritesConfiguration() throws Exception
+   {
+      Assert.assertTrue(TransportConstants.ALLOWABLE_ACCEPTOR_KEYS.contains(TransportConstants.COALESCE_WRITES_PROP_NAME));
+      Assert.assertTrue(TransportConstants.ALLOWABLE_CONNECTOR_KEYS.contains(TransportConstants.COALESCE_WRITES_PROP_NAME));
+   }
+
    @Test
    public void testCreateBuffer() throws Exception
    {
@@ -87,12 +165,25 @@ public class NettyConnectionTest extends UnitTestCase
 
    }
 
+   private static HornetQBuffer createPacket(final int value)
+   {
+      HornetQBuffer buffer = HornetQBuffers.dynamicBuffer(4);
+
+      buffer.writeInt(value);
+
+      return buffer;
+   }
+
    private final class SimpleChannel implements Channel
    {
       private final int id;
 
       private final List<Object> written = new LinkedList<Object>();
 
+      private final List<DefaultChannelFuture> futures = new LinkedList<DefaultChannelFuture>();
+
+      private boolean completeWrites;
+
       private SimpleChannel(final int id)
       {
          this.id = id;
@@ -103,6 +194,16 @@ public class NettyConnectionTest extends UnitTestCase
          return written;
       }
 
+      public List<DefaultChannelFuture> getFutures()
+      {
+         return futures;
+      }
+
+      public void setCompleteWrites(final boolean completeWrites)
+      {
+         this.completeWrites = completeWrites;
+      }
+
       public int compareTo(final Channel arg0)
       {
          return 0;
@@ -116,8 +217,19 @@ public class NettyConnectionTest extends UnitTestCase
 
       public ChannelFuture write(final Object arg0)
       {
-         written.add(arg0);
-         return null;
+         // the connection may give a pooled buffer back as soon as it is written
+         written.add(arg0 instanceof ChannelBuffer ? ((ChannelBuffer)arg0).copy() : arg0);
+
+         DefaultChannelFuture future = new DefaultChannelFuture(this, false);
+
+         futures.add(future);
+
+         if (completeWrites)
+         {
+            future.setSuccess();
+         }
+
+         return future;
       }
 
       public ChannelFuture unbind()
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.unit.core.server.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.impl.DeliveringReferences;
+import org.hornetq.tests.util.UnitTestCase;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DeliveringReferencesTest extends UnitTestCase
+{
+   @Test
+   public void testPollInDeliveryOrder() throws Exception
+   {
+      DeliveringReferences refs = new DeliveringReferences();
+
+      for (long i = 0; i < 100; i++)
+      {
+         refs.add(generateReference(null, i));
+      }
+
+      Assert.assertEquals(100, refs.size());
+      Assert.assertEquals(0, refs.peek().getMessage().getMessageID());
+
+      for (long i = 0; i < 100; i++)
+      {
+         Assert.assertEquals(i, refs.poll().getMessage().getMessageID());
+      }
+
+      Assert.assertTrue(refs.isEmpty());
+      Assert.assertNull(refs.poll());
+      Assert.assertNull(refs.peek());
+   }
+
+   @Test
+   public void testRemoveByID() throws Exception
+   {
+      DeliveringReferences refs = new DeliveringReferences();
+
+      for (long i = 0; i < 1000; i++)
+      {
+         refs.add(generateReference(null, i));
+      }
+
+      // every odd message is acknowledged individually, out of order
+      for (long i = 999; i >= 0; i -= 2)
+      {
+         Assert.assertEquals(i, refs.remove(i).getMessage().getMessageID());
+      }
+
+      Assert.assertNull(refs.remove(999));
+      Assert.assertNull(refs.remove(1000));
+
+      Assert.assertEquals(500, refs.size());
+
+      List<MessageReference> remaining = new ArrayList<MessageReference>();
+      refs.copyTo(remaining);
+
+      for (int i = 0; i < 500; i++)
+      {
+         Assert.assertEquals(i * 2, remaining.get(i).getMessage().getMessageID());
+      }
+
+      for (long i = 0; i < 1000; i += 2)
+      {
+         Assert.assertEquals(i, refs.poll().getMessage().getMessageID());
+      }
+
+      Assert.assertTrue(refs.isEmpty());
+   }
+
+   @Test
+   public void testSameMessageID() throws Exception
+   {
+      DeliveringReferences refs = new DeliveringReferences();
+
+      MessageReference first = generateReference(null, 1);
+      MessageReference other = generateReference(null, 2);
+      MessageReference second = generateReference(null, 1);
+      MessageReference third = generateReference(null, 1);
+
+      refs.add(first);
+      refs.add(other);
+      refs.add(second);
+      refs.add(third);
+
+      // the oldest one goes first
+      Assert.assertSame(first, refs.poll());
+      Assert.assertSame(second, refs.remove(1));
+      Assert.assertSame(third, refs.remove(1));
+      Assert.assertNull(refs.remove(1));
+      Assert.assertSame(other, refs.remove(2));
+
+      Assert.assertTrue(refs.isEmpty());
+   }
+
+   @Test
+   public void testRemoveAll() throws Exception
+   {
+      DeliveringReferences refs = new DeliveringReferences();
+
+      for (long i = 0; i < 100; i++)
+      {
+         refs.add(generateReference(null, i));
+      }
+
+      refs.remove(50);
+
+      LinkedList<MessageReference> removed = refs.removeAll();
+
+      Assert.assertEquals(99, removed.size());
+      Assert.assertEquals(0, removed.getFirst().getMessage().getMessageID());
+      Assert.assertEquals(99, removed.getLast().getMessage().getMessageID());
+
+      Assert.assertTrue(refs.isEmpty());
+      Assert.assertNull(refs.remove(0));
+
+      // still usable once emptied
+      refs.add(generateReference(null, 7));
+
+      Assert.assertEquals(7, refs.remove(7).getMessage().getMessageID());
+   }
+}
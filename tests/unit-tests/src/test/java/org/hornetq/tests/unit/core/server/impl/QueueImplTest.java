@@ -34,6 +34,7 @@ import org.hornetq.core.filter.impl.FilterImpl;
 import org.hornetq.core.server.Consumer;
 import org.hornetq.core.server.HandleStatus;
 import org.hornetq.core.server.MessageReference;
+import org.hornetq.core.server.PartialDeliveryException;
 import org.hornetq.core.server.ServerMessage;
 import org.hornetq.core.server.impl.QueueImpl;
 import org.hornetq.tests.unit.core.server.impl.fakes.FakeConsumer;
@@ -312,6 +313,62 @@ public class QueueImplTest extends UnitTestCase
       Assert.assertEquals(numMessages, queue.getDeliveringCount());
    }
 
+   @Test
+   public void testPartialDeliveryRequeuesOnlyUndelivered() throws Exception
+   {
+      QueueImpl queue = new QueueImpl(1,
+                                      QueueImplTest.address1,
+                                      QueueImplTest.queue1,
+                                      null,
+                                      false,
+                                      true,
+                                      scheduledExecutor,
+                                      null,
+                                      null,
+                                      null,
+                                      executor);
+
+      final int numMessages = 10;
+
+      final int delivered = 3;
+
+      List<MessageReference> refs = new ArrayList<MessageReference>();
+
+      for (int i = 0; i < numMessages; i++)
+      {
+         MessageReference ref = generateReference(queue, i);
+
+         refs.add(ref);
+
+         queue.addTail(ref);
+      }
+
+      // Fails after writing the first references of the batch
+      FakeConsumer failingConsumer = new FakeConsumer()
+      {
+         @Override
+         public void proceedDeliver(final List<MessageReference> references) throws Exception
+         {
+            throw new PartialDeliveryException(delivered, new IllegalStateException("connection lost"));
+         }
+      };
+
+      queue.addConsumer(failingConsumer);
+
+      queue.deliverNow();
+
+      assertRefListsIdenticalRefs(refs, failingConsumer.getReferences());
+      Assert.assertEquals(0, queue.getConsumerCount());
+
+      FakeConsumer consumer = new FakeConsumer();
+
+      queue.addConsumer(consumer);
+
+      queue.deliverNow();
+
+      assertRefListsIdenticalRefs(refs.subList(delivered, numMessages), consumer.getReferences());
+   }
+
    @Test
    public void testBusyConsumer() throws Exception
    {
@@ -158,6 +158,12 @@ public class FakeConsumer implements Consumer
       // no op
    }
 
+   @Override
+   public void proceedDeliver(List<MessageReference> refs) throws Exception
+   {
+      // no op
+   }
+
    @Override
    public void getDeliveringMessages(List<MessageReference> refList)
    {
@@ -168,6 +168,34 @@ public final class FakePagingManager implements PagingManager
    {
    }
 
+   @Override
+   public void addGlobalSize(final int size, final long addressSize)
+   {
+   }
+
+   @Override
+   public long getGlobalSize()
+   {
+      return 0;
+   }
+
+   @Override
+   public long getGlobalMaxSize()
+   {
+      return -1;
+   }
+
+   @Override
+   public boolean isGlobalFull(final long addressSize)
+   {
+      return false;
+   }
+
+   @Override
+   public void blockedOnGlobalSize(final PagingStore store)
+   {
+   }
+
    @Override
    public void lock()
    {
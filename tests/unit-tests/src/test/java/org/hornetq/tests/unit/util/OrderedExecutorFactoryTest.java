@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013 Red Hat, Inc.
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package org.hornetq.tests.unit.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hornetq.tests.util.UnitTestCase;
+import org.hornetq.utils.OrderedExecutorFactory;
+import org.hornetq.utils.OrderedExecutorFactory.OrderedExecutor;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderedExecutorFactoryTest extends UnitTestCase
+{
+   private ExecutorService threadPool;
+
+   @Override
+   @Before
+   public void setUp() throws Exception
+   {
+      super.setUp();
+
+      threadPool = Executors.newFixedThreadPool(4);
+   }
+
+   @Override
+   @After
+   public void tearDown() throws Exception
+   {
+      threadPool.shutdown();
+
+      threadPool.awaitTermination(10, TimeUnit.SECONDS);
+
+      super.tearDown();
+   }
+
+   @Test
+   public void testOrder() throws Exception
+   {
+      // a small run forces the executor to give its thread back many times
+      final OrderedExecutor executor = (OrderedExecutor)new OrderedExecutorFactory(threadPool, 7, -1).getExecutor();
+
+      final int producers = 4;
+      final int tasksPerProducer = 10000;
+
+      final List<List<Integer>> runs = new ArrayList<List<Integer>>();
+
+      for (int i = 0; i < producers; i++)
+      {
+         runs.add(Collections.synchronizedList(new ArrayList<Integer>()));
+      }
+
+      final CountDownLatch done = new CountDownLatch(producers * tasksPerProducer);
+
+      Thread[] threads = new Thread[producers];
+
+      for (int i = 0; i < producers; i++)
+      {
+         final List<Integer> run = runs.get(i);
+
+         threads[i] = new Thread()
+         {
+            @Override
+            public void run()
+            {
+               for (int j = 0; j < tasksPerProducer; j++)
+               {
+                  final int value = j;
+
+                  executor.execute(new Runnable()
+                  {
+                     public void run()
+                     {
+                        run.add(value);
+                        done.countDown();
+                     }
+                  });
+               }
+            }
+         };
+
+         threads[i].start();
+      }
+
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+      for (List<Integer> run : runs)
+      {
+         Assert.assertEquals(tasksPerProducer, run.size());
+
+         for (int j = 0; j < tasksPerProducer; j++)
+         {
+            Assert.assertEquals(j, run.get(j).intValue());
+         }
+      }
+
+      Assert.assertEquals(producers * tasksPerProducer, executor.getExecutedTasks());
+      Assert.assertEquals(0, executor.getPendingTasks());
+   }
+
+   @Test
+   public void testBusyExecutorGivesThreadBack() throws Exception
+   {
+      ExecutorService singleThread = Executors.newSingleThreadExecutor();
+
+      try
+      {
+         OrderedExecutorFactory factory = new OrderedExecutorFactory(singleThread, 10, -1);
+
+         OrderedExecutor busy = (OrderedExecutor)factory.getExecutor();
+
+         OrderedExecutor other = (OrderedExecutor)factory.getExecutor();
+
+         final CountDownLatch start = new CountDownLatch(1);
+
+         final AtomicInteger busyRun = new AtomicInteger(0);
+
+         final AtomicInteger busyRunBeforeOther = new AtomicInteger(-1);
+
+         busy.execute(new Runnable()
+         {
+            public void run()
+            {
+               try
+               {
+                  start.await();
+               }
+               catch (InterruptedException e)
+               {
+                  throw new RuntimeException(e);
+               }
+            }
+         });
+
+         for (int i = 0; i < 1000; i++)
+         {
+            busy.execute(new Runnable()
+            {
+               public void run()
+               {
+                  busyRun.incrementAndGet();
+               }
+            });
+         }
+
+         other.execute(new Runnable()
+         {
+            public void run()
+            {
+               busyRunBeforeOther.set(busyRun.get());
+            }
+         });
+
+         Assert.assertEquals(1001, busy.getPendingTasks());
+         Assert.assertEquals(1, other.getPendingTasks());
+
+         start.countDown();
+
+         final CountDownLatch done = new CountDownLatch(1);
+
+         busy.execute(new Runnable()
+         {
+            public void run()
+            {
+               done.countDown();
+            }
+         });
+
+         Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+         // the other executor didn't wait for all the tasks of the busy one
+         Assert.assertTrue("ran after " + busyRunBeforeOther.get(),
+                           busyRunBeforeOther.get() >= 0 && busyRunBeforeOther.get() < 1000);
+
+         Assert.assertEquals(1002, busy.getExecutedTasks());
+         Assert.assertEquals(0, busy.getPendingTasks());
+         Assert.assertTrue(busy.getAverageTaskLatency() > 0);
+         Assert.assertTrue(busy.getRunTime() > 0);
+      }
+      finally
+      {
+         singleThread.shutdown();
+      }
+   }
+}